@@ -144,6 +144,15 @@ class BeamModulePlugin implements Plugin<Project> {
      */
     boolean enableJmh = false
 
+    /**
+     * Generates the DoFnInvoker and OnTimerInvoker classes for the DoFns within this project
+     * when it is built and packages them within the jar so that they are not generated when
+     * the DoFns are first used at runtime.
+     *
+     * See org.apache.beam.sdk.transforms.reflect.PrecompiledInvokers for details.
+     */
+    boolean precompileDoFnInvokers = false
+
     /**
      * The set of excludes that should be used during validation of the shadow jar. Projects should override
      * the default with the most specific set of excludes that is valid for the contents of its shaded jar.
@@ -1653,6 +1662,23 @@ class BeamModulePlugin implements Plugin<Project> {
         project.check.dependsOn jmhTest
       }
 
+      if (configuration.precompileDoFnInvokers) {
+        def precompileDoFnInvokers = project.tasks.register("precompileDoFnInvokers", JavaExec) {
+          dependsOn project.classes
+          def outputDir = project.layout.buildDirectory.dir("generated/doFnInvokers")
+          mainClass = "org.apache.beam.sdk.transforms.reflect.PrecompiledInvokers"
+          classpath = project.sourceSets.main.runtimeClasspath
+          inputs.files project.sourceSets.main.output.classesDirs
+          outputs.dir outputDir
+          doFirst {
+            project.delete outputDir
+            args outputDir.get().asFile
+            args project.sourceSets.main.output.classesDirs.files
+          }
+        }
+        project.tasks.named("jar") { from precompileDoFnInvokers }
+      }
+
       project.ext.includeInJavaBom = configuration.publish
       project.ext.exportJavadoc = configuration.exportJavadoc
 
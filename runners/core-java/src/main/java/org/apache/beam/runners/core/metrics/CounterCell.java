@@ -18,7 +18,7 @@
 package org.apache.beam.runners.core.metrics;
 
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.MetricName;
 import org.apache.beam.sdk.metrics.MetricsContainer;
@@ -31,11 +31,14 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * counter is being reported for a specific step (rather than the counter in the current context).
  * In that case retrieving the underlying cell and reporting directly to it avoids a step of
  * indirection.
+ *
+ * <p>The value is striped across multiple cells using a {@link LongAdder} so that threads
+ * concurrently incrementing the same counter do not contend on a single memory location.
  */
 public class CounterCell implements Counter, MetricCell<Long> {
 
   private final DirtyState dirty = new DirtyState();
-  private final AtomicLong value = new AtomicLong();
+  private final LongAdder value = new LongAdder();
   private final MetricName name;
 
   /**
@@ -49,7 +52,7 @@ public class CounterCell implements Counter, MetricCell<Long> {
 
   @Override
   public void reset() {
-    value.set(0L);
+    value.reset();
     dirty.reset();
   }
 
@@ -60,7 +63,7 @@ public class CounterCell implements Counter, MetricCell<Long> {
    */
   @Override
   public void inc(long n) {
-    value.addAndGet(n);
+    value.add(n);
     dirty.afterModification();
   }
 
@@ -86,7 +89,7 @@ public class CounterCell implements Counter, MetricCell<Long> {
 
   @Override
   public Long getCumulative() {
-    return value.get();
+    return value.sum();
   }
 
   @Override
@@ -99,7 +102,7 @@ public class CounterCell implements Counter, MetricCell<Long> {
     if (object instanceof CounterCell) {
       CounterCell counterCell = (CounterCell) object;
       return Objects.equals(dirty, counterCell.dirty)
-          && value.get() == counterCell.value.get()
+          && value.sum() == counterCell.value.sum()
           && Objects.equals(name, counterCell.name);
     }
 
@@ -108,6 +111,6 @@ public class CounterCell implements Counter, MetricCell<Long> {
 
   @Override
   public int hashCode() {
-    return Objects.hash(dirty, value.get(), name);
+    return Objects.hash(dirty, value.sum(), name);
   }
 }
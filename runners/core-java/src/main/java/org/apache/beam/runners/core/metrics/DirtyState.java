@@ -56,7 +56,12 @@ public class DirtyState implements Serializable {
    * <p>Should be called <b>after</b> modification of the value.
    */
   public void afterModification() {
-    dirty.set(State.DIRTY);
+    // Avoid writing to the shared state when it is already dirty so that threads concurrently
+    // modifying the metric only read it. A commit which starts after this read observes the
+    // modification since it was made before the read.
+    if (dirty.get() != State.DIRTY) {
+      dirty.set(State.DIRTY);
+    }
   }
 
   /**
@@ -18,7 +18,8 @@
 package org.apache.beam.runners.core.metrics;
 
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.metrics.MetricName;
 import org.apache.beam.sdk.metrics.MetricsContainer;
@@ -31,12 +32,19 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * distribution is being reported for a specific step (rather than the distribution in the current
  * context). In that case retrieving the underlying cell and reporting directly to it avoids a step
  * of indirection.
+ *
+ * <p>The sum, count, min and max are each striped across multiple cells using {@link LongAdder} and
+ * {@link LongAccumulator} so that threads concurrently updating the same distribution do not
+ * contend on a single memory location. As a consequence {@link #getCumulative()} may observe only
+ * part of an update which is concurrently being applied.
  */
 public class DistributionCell implements Distribution, MetricCell<DistributionData> {
 
   private final DirtyState dirty = new DirtyState();
-  private final AtomicReference<DistributionData> value =
-      new AtomicReference<>(DistributionData.EMPTY);
+  private final LongAdder sum = new LongAdder();
+  private final LongAdder count = new LongAdder();
+  private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+  private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
   private final MetricName name;
 
   /**
@@ -50,27 +58,30 @@ public class DistributionCell implements Distribution, MetricCell<DistributionDa
 
   @Override
   public void reset() {
-    value.set(DistributionData.EMPTY);
+    sum.reset();
+    count.reset();
+    min.reset();
+    max.reset();
     dirty.reset();
   }
 
   /** Increment the distribution by the given amount. */
   @Override
   public void update(long n) {
-    update(DistributionData.singleton(n));
+    update(n, 1, n, n);
   }
 
   @Override
   public void update(long sum, long count, long min, long max) {
-    update(DistributionData.create(sum, count, min, max));
+    this.sum.add(sum);
+    this.count.add(count);
+    this.min.accumulate(min);
+    this.max.accumulate(max);
+    dirty.afterModification();
   }
 
   void update(DistributionData data) {
-    DistributionData original;
-    do {
-      original = value.get();
-    } while (!value.compareAndSet(original, original.combine(data)));
-    dirty.afterModification();
+    update(data.sum(), data.count(), data.min(), data.max());
   }
 
   @Override
@@ -80,7 +91,7 @@ public class DistributionCell implements Distribution, MetricCell<DistributionDa
 
   @Override
   public DistributionData getCumulative() {
-    return value.get();
+    return DistributionData.create(sum.sum(), count.sum(), min.get(), max.get());
   }
 
   @Override
@@ -93,7 +104,7 @@ public class DistributionCell implements Distribution, MetricCell<DistributionDa
     if (object instanceof DistributionCell) {
       DistributionCell distributionCell = (DistributionCell) object;
       return Objects.equals(dirty, distributionCell.dirty)
-          && Objects.equals(value.get(), distributionCell.value.get())
+          && Objects.equals(getCumulative(), distributionCell.getCumulative())
           && Objects.equals(name, distributionCell.name);
     }
 
@@ -102,6 +113,6 @@ public class DistributionCell implements Distribution, MetricCell<DistributionDa
 
   @Override
   public int hashCode() {
-    return Objects.hash(dirty, value.get(), name);
+    return Objects.hash(dirty, getCumulative(), name);
   }
 }
@@ -18,14 +18,17 @@
 package org.apache.beam.runners.core.metrics;
 
 import static org.apache.beam.runners.core.metrics.MonitoringInfoConstants.TypeUrns.DISTRIBUTION_INT64_TYPE;
+import static org.apache.beam.runners.core.metrics.MonitoringInfoConstants.TypeUrns.HISTOGRAM_INT64_TYPE;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoConstants.TypeUrns.LATEST_INT64_TYPE;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoConstants.TypeUrns.SUM_INT64_TYPE;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.decodeInt64Counter;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.decodeInt64Distribution;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.decodeInt64Gauge;
+import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.decodeInt64Histogram;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Counter;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Distribution;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Gauge;
+import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Histogram;
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.Serializable;
@@ -109,10 +112,27 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
     return new MetricsContainerImpl(null, true);
   }
 
-  @edu.umd.cs.findbugs.annotations.SuppressFBWarnings(
-      justification = "No bug",
-      value = "SE_BAD_FIELD")
-  private Map<MetricName, Optional<String>> shortIdsByMetricName = new ConcurrentHashMap<>();
+  // Cells of different kinds may share a metric name but are reported with different URNs and
+  // types so the MonitoringInfos are cached separately for each kind of cell.
+  private final MonitoringInfoCache counterMonitoringInfos = new MonitoringInfoCache();
+  private final MonitoringInfoCache distributionMonitoringInfos = new MonitoringInfoCache();
+  private final MonitoringInfoCache gaugeMonitoringInfos = new MonitoringInfoCache();
+  private final MonitoringInfoCache histogramMonitoringInfos = new MonitoringInfoCache();
+
+  /** The MonitoringInfos without a payload and short ids of the metrics of one kind of cell. */
+  private static class MonitoringInfoCache implements Serializable {
+    @edu.umd.cs.findbugs.annotations.SuppressFBWarnings(
+        justification = "No bug",
+        value = "SE_BAD_FIELD")
+    private final Map<MetricName, Optional<String>> shortIdsByMetricName =
+        new ConcurrentHashMap<>();
+
+    @edu.umd.cs.findbugs.annotations.SuppressFBWarnings(
+        justification = "No bug",
+        value = "SE_BAD_FIELD")
+    private final Map<MetricName, Optional<MonitoringInfo>> metadataByMetricName =
+        new ConcurrentHashMap<>();
+  }
 
   /** Reset the metrics. */
   public void reset() {
@@ -253,16 +273,6 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
         MonitoringInfoConstants.Urns.USER_SUM_INT64);
   }
 
-  /** @return The MonitoringInfo generated from the counter metricUpdate. */
-  private @Nullable MonitoringInfo counterUpdateToMonitoringInfo(MetricUpdate<Long> metricUpdate) {
-    SimpleMonitoringInfoBuilder builder = counterToMonitoringMetadata(metricUpdate.getKey());
-    if (builder == null) {
-      return null;
-    }
-    builder.setInt64SumValue(metricUpdate.getUpdate());
-    return builder.build();
-  }
-
   /** @return The MonitoringInfo metadata from the distribution metric. */
   private @Nullable SimpleMonitoringInfoBuilder distributionToMonitoringMetadata(
       MetricKey metricKey) {
@@ -272,20 +282,6 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
         MonitoringInfoConstants.Urns.USER_DISTRIBUTION_INT64);
   }
 
-  /**
-   * @param metricUpdate
-   * @return The MonitoringInfo generated from the distribution metricUpdate.
-   */
-  private @Nullable MonitoringInfo distributionUpdateToMonitoringInfo(
-      MetricUpdate<DistributionData> metricUpdate) {
-    SimpleMonitoringInfoBuilder builder = distributionToMonitoringMetadata(metricUpdate.getKey());
-    if (builder == null) {
-      return null;
-    }
-    builder.setInt64DistributionValue(metricUpdate.getUpdate());
-    return builder.build();
-  }
-
   /** @return The MonitoringInfo metadata from the gauge metric. */
   private @Nullable SimpleMonitoringInfoBuilder gaugeToMonitoringMetadata(MetricKey metricKey) {
     return metricToMonitoringMetadata(
@@ -294,18 +290,12 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
         MonitoringInfoConstants.Urns.USER_LATEST_INT64);
   }
 
-  /**
-   * @param metricUpdate
-   * @return The MonitoringInfo generated from the distribution metricUpdate.
-   */
-  private @Nullable MonitoringInfo gaugeUpdateToMonitoringInfo(
-      MetricUpdate<GaugeData> metricUpdate) {
-    SimpleMonitoringInfoBuilder builder = gaugeToMonitoringMetadata(metricUpdate.getKey());
-    if (builder == null) {
-      return null;
-    }
-    builder.setInt64LatestValue(metricUpdate.getUpdate());
-    return builder.build();
+  /** @return The MonitoringInfo metadata from the histogram metric. */
+  private @Nullable SimpleMonitoringInfoBuilder histogramToMonitoringMetadata(MetricKey metricKey) {
+    return metricToMonitoringMetadata(
+        metricKey,
+        MonitoringInfoConstants.TypeUrns.HISTOGRAM_INT64_TYPE,
+        MonitoringInfoConstants.Urns.USER_HISTOGRAM_INT64);
   }
 
   /** Return the cumulative values for any metrics in this container as MonitoringInfos. */
@@ -313,37 +303,77 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
   public Iterable<MonitoringInfo> getMonitoringInfos() {
     // Extract user metrics and store as MonitoringInfos.
     List<MonitoringInfo> monitoringInfos = new ArrayList<>();
-    MetricUpdates metricUpdates = this.getUpdates();
-
-    for (MetricUpdate<Long> metricUpdate : metricUpdates.counterUpdates()) {
-      MonitoringInfo mi = counterUpdateToMonitoringInfo(metricUpdate);
-      if (mi != null) {
-        monitoringInfos.add(mi);
-      }
-    }
-
-    for (MetricUpdate<DistributionData> metricUpdate : metricUpdates.distributionUpdates()) {
-      MonitoringInfo mi = distributionUpdateToMonitoringInfo(metricUpdate);
-      if (mi != null) {
-        monitoringInfos.add(mi);
-      }
-    }
-
-    for (MetricUpdate<GaugeData> metricUpdate : metricUpdates.gaugeUpdates()) {
-      MonitoringInfo mi = gaugeUpdateToMonitoringInfo(metricUpdate);
-      if (mi != null) {
-        monitoringInfos.add(mi);
-      }
-    }
+    addMonitoringInfos(
+        monitoringInfos,
+        counters,
+        counterMonitoringInfos,
+        this::counterToMonitoringMetadata,
+        MonitoringInfoEncodings::encodeInt64Counter);
+    addMonitoringInfos(
+        monitoringInfos,
+        distributions,
+        distributionMonitoringInfos,
+        this::distributionToMonitoringMetadata,
+        MonitoringInfoEncodings::encodeInt64Distribution);
+    addMonitoringInfos(
+        monitoringInfos,
+        gauges,
+        gaugeMonitoringInfos,
+        this::gaugeToMonitoringMetadata,
+        MonitoringInfoEncodings::encodeInt64Gauge);
+    histograms.forEach(
+        (metricNameAndBucketType, histogramCell) -> {
+          if (histogramCell.getDirty().beforeCommit()) {
+            MonitoringInfo metadata =
+                getMonitoringInfoMetadata(
+                    metricNameAndBucketType.getKey(),
+                    histogramMonitoringInfos,
+                    this::histogramToMonitoringMetadata);
+            if (metadata != null) {
+              monitoringInfos.add(
+                  metadata
+                      .toBuilder()
+                      .setPayload(encodeInt64Histogram(histogramCell.getCumulative()))
+                      .build());
+            }
+          }
+        });
     return monitoringInfos;
   }
 
+  /**
+   * Adds a MonitoringInfo for each dirty cell. Only the payload is computed for each call since the
+   * remainder of the MonitoringInfo is cached per metric.
+   */
+  private <UpdateT, CellT extends MetricCell<UpdateT>> void addMonitoringInfos(
+      List<MonitoringInfo> monitoringInfos,
+      MetricsMap<MetricName, CellT> cells,
+      MonitoringInfoCache cache,
+      Function<MetricKey, SimpleMonitoringInfoBuilder> toInfo,
+      Function<UpdateT, ByteString> encoder) {
+    cells.forEach(
+        (metricName, cell) -> {
+          if (cell.getDirty().beforeCommit()) {
+            MonitoringInfo metadata = getMonitoringInfoMetadata(metricName, cache, toInfo);
+            if (metadata != null) {
+              monitoringInfos.add(
+                  metadata.toBuilder().setPayload(encoder.apply(cell.getCumulative())).build());
+            }
+          }
+        });
+  }
+
   public Map<String, ByteString> getMonitoringData(ShortIdMap shortIds) {
     ImmutableMap.Builder<String, ByteString> builder = ImmutableMap.builder();
     counters.forEach(
         (metricName, counterCell) -> {
           if (counterCell.getDirty().beforeCommit()) {
-            String shortId = getShortId(metricName, this::counterToMonitoringMetadata, shortIds);
+            String shortId =
+                getShortId(
+                    metricName,
+                    counterMonitoringInfos,
+                    this::counterToMonitoringMetadata,
+                    shortIds);
             if (shortId != null) {
               builder.put(shortId, encodeInt64Counter(counterCell.getCumulative()));
             }
@@ -353,7 +383,11 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
         (metricName, distributionCell) -> {
           if (distributionCell.getDirty().beforeCommit()) {
             String shortId =
-                getShortId(metricName, this::distributionToMonitoringMetadata, shortIds);
+                getShortId(
+                    metricName,
+                    distributionMonitoringInfos,
+                    this::distributionToMonitoringMetadata,
+                    shortIds);
             if (shortId != null) {
               builder.put(shortId, encodeInt64Distribution(distributionCell.getCumulative()));
             }
@@ -362,38 +396,68 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
     gauges.forEach(
         (metricName, gaugeCell) -> {
           if (gaugeCell.getDirty().beforeCommit()) {
-            String shortId = getShortId(metricName, this::gaugeToMonitoringMetadata, shortIds);
+            String shortId =
+                getShortId(
+                    metricName, gaugeMonitoringInfos, this::gaugeToMonitoringMetadata, shortIds);
             if (shortId != null) {
               builder.put(shortId, encodeInt64Gauge(gaugeCell.getCumulative()));
             }
           }
         });
+    histograms.forEach(
+        (metricNameAndBucketType, histogramCell) -> {
+          if (histogramCell.getDirty().beforeCommit()) {
+            String shortId =
+                getShortId(
+                    metricNameAndBucketType.getKey(),
+                    histogramMonitoringInfos,
+                    this::histogramToMonitoringMetadata,
+                    shortIds);
+            if (shortId != null) {
+              builder.put(shortId, encodeInt64Histogram(histogramCell.getCumulative()));
+            }
+          }
+        });
     return builder.build();
   }
 
   private String getShortId(
       MetricName metricName,
+      MonitoringInfoCache cache,
       Function<MetricKey, SimpleMonitoringInfoBuilder> toInfo,
       ShortIdMap shortIds) {
-    Optional<String> shortId = shortIdsByMetricName.get(metricName);
+    Optional<String> shortId = cache.shortIdsByMetricName.get(metricName);
     if (shortId == null) {
-      SimpleMonitoringInfoBuilder monitoringInfoBuilder =
-          toInfo.apply(MetricKey.create(stepName, metricName));
-      if (monitoringInfoBuilder == null) {
+      MonitoringInfo monitoringInfo = getMonitoringInfoMetadata(metricName, cache, toInfo);
+      if (monitoringInfo == null) {
         shortId = Optional.empty();
       } else {
-        MonitoringInfo monitoringInfo = monitoringInfoBuilder.build();
-        if (monitoringInfo == null) {
-          shortId = Optional.empty();
-        } else {
-          shortId = Optional.of(shortIds.getOrCreateShortId(monitoringInfo));
-        }
+        shortId = Optional.of(shortIds.getOrCreateShortId(monitoringInfo));
       }
-      shortIdsByMetricName.put(metricName, shortId);
+      cache.shortIdsByMetricName.put(metricName, shortId);
     }
     return shortId.orElse(null);
   }
 
+  /**
+   * Returns the MonitoringInfo without a payload for the metric or {@code null} if the metric is
+   * not reported.
+   */
+  private @Nullable MonitoringInfo getMonitoringInfoMetadata(
+      MetricName metricName,
+      MonitoringInfoCache cache,
+      Function<MetricKey, SimpleMonitoringInfoBuilder> toInfo) {
+    Optional<MonitoringInfo> metadata = cache.metadataByMetricName.get(metricName);
+    if (metadata == null) {
+      SimpleMonitoringInfoBuilder monitoringInfoBuilder =
+          toInfo.apply(MetricKey.create(stepName, metricName));
+      metadata =
+          Optional.ofNullable(monitoringInfoBuilder == null ? null : monitoringInfoBuilder.build());
+      cache.metadataByMetricName.put(metricName, metadata);
+    }
+    return metadata.orElse(null);
+  }
+
   /**
    * Mark all of the updates that were retrieved with the latest call to {@link #getUpdates()} as
    * committed.
@@ -454,6 +518,12 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
     gauge.update(decodeInt64Gauge(monitoringInfo.getPayload()));
   }
 
+  private void updateForHistogramInt64Type(MonitoringInfo monitoringInfo) {
+    MetricName metricName = MonitoringInfoMetricName.of(monitoringInfo);
+    HistogramData data = decodeInt64Histogram(monitoringInfo.getPayload());
+    getHistogram(metricName, data.getBucketType()).update(data);
+  }
+
   /** Update values of this {@link MetricsContainerImpl} by reading from {@code monitoringInfos}. */
   public void update(Iterable<MonitoringInfo> monitoringInfos) {
     for (MonitoringInfo monitoringInfo : monitoringInfos) {
@@ -474,6 +544,10 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
           updateForLatestInt64Type(monitoringInfo);
           break;
 
+        case HISTOGRAM_INT64_TYPE:
+          updateForHistogramInt64Type(monitoringInfo);
+          break;
+
         default:
           LOG.warn("Unsupported metric type {}", monitoringInfo.getType());
       }
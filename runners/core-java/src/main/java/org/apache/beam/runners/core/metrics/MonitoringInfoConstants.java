@@ -62,6 +62,10 @@ public final class MonitoringInfoConstants {
         extractUrn(MonitoringInfoSpecs.Enum.API_REQUEST_COUNT);
     public static final String API_REQUEST_LATENCIES =
         extractUrn(MonitoringInfoSpecs.Enum.API_REQUEST_LATENCIES);
+    public static final String USER_HISTOGRAM_INT64 =
+        extractUrn(MonitoringInfoSpecs.Enum.USER_HISTOGRAM_INT64);
+    public static final String PROCESS_ELEMENT_LATENCIES =
+        extractUrn(MonitoringInfoSpecs.Enum.PROCESS_ELEMENT_LATENCIES);
 
     static {
       // Validate that compile time constants match the values stored in the protos.
@@ -162,6 +166,8 @@ public final class MonitoringInfoConstants {
     public static final String BOTTOM_N_INT64_TYPE = "beam:metrics:bottom_n_int64:v1";
     public static final String BOTTOM_N_DOUBLE_TYPE = "beam:metrics:bottom_n_double:v1";
     public static final String PROGRESS_TYPE = "beam:metrics:progress:v1";
+    // Referenced by MonitoringInfoSpecs but not yet part of the standard MonitoringInfoTypeUrns.
+    public static final String HISTOGRAM_INT64_TYPE = "beam:metrics:histogram_int64:v1";
 
     static {
       // Validate that compile time constants match the values stored in the protos.
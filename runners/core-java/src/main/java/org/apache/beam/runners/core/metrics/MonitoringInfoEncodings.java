@@ -23,6 +23,7 @@ import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.DoubleCoder;
 import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.util.ByteStringOutputStream;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.joda.time.Instant;
 
@@ -30,6 +31,8 @@ import org.joda.time.Instant;
 public class MonitoringInfoEncodings {
   private static final Coder<Long> VARINT_CODER = VarLongCoder.of();
   private static final Coder<Double> DOUBLE_CODER = DoubleCoder.of();
+  private static final long LINEAR_BUCKETS = 0;
+  private static final long LOG_LINEAR_BUCKETS = 1;
 
   /** Encodes to {@link MonitoringInfoConstants.TypeUrns#DISTRIBUTION_INT64_TYPE}. */
   public static ByteString encodeInt64Distribution(DistributionData data) {
@@ -137,4 +140,93 @@ public class MonitoringInfoEncodings {
       throw new RuntimeException(e);
     }
   }
+
+  /**
+   * Encodes to {@link MonitoringInfoConstants.TypeUrns#HISTOGRAM_INT64_TYPE}.
+   *
+   * <p>Encoding: {@code
+   * <bucketType><bucketParameters><numBuckets><bottomCount><topCount><numNonEmptyBuckets>
+   * <indexDelta0><count0>...<indexDeltaN><countN>} where the bucket type is {@code 0} for {@link
+   * HistogramData.LinearBuckets} followed by the double start and width and {@code 1} for {@link
+   * HistogramData.LogLinearBuckets} followed by the precision. Only buckets with a non-zero count
+   * are encoded, each as the difference between its index and the index of the previously encoded
+   * bucket, or its index for the first one, followed by its count. All integers are varints.
+   */
+  public static ByteString encodeInt64Histogram(HistogramData data) {
+    ByteStringOutputStream output = new ByteStringOutputStream();
+    try {
+      HistogramData.BucketType bucketType = data.getBucketType();
+      if (bucketType instanceof HistogramData.LinearBuckets) {
+        HistogramData.LinearBuckets linearBuckets = (HistogramData.LinearBuckets) bucketType;
+        VARINT_CODER.encode(LINEAR_BUCKETS, output);
+        DOUBLE_CODER.encode(linearBuckets.getStart(), output);
+        DOUBLE_CODER.encode(linearBuckets.getWidth(), output);
+      } else if (bucketType instanceof HistogramData.LogLinearBuckets) {
+        VARINT_CODER.encode(LOG_LINEAR_BUCKETS, output);
+        VARINT_CODER.encode(
+            (long) ((HistogramData.LogLinearBuckets) bucketType).getPrecision(), output);
+      } else {
+        throw new IllegalArgumentException(
+            String.format("Unsupported histogram bucket type %s", bucketType));
+      }
+      int numBuckets = bucketType.getNumBuckets();
+      VARINT_CODER.encode((long) numBuckets, output);
+      VARINT_CODER.encode(data.getBottomBucketCount(), output);
+      VARINT_CODER.encode(data.getTopBucketCount(), output);
+      // Read each count once since the histogram may be concurrently updated.
+      long[] counts = data.getBucketCounts();
+      long numNonEmptyBuckets = 0;
+      for (int i = 0; i < numBuckets; ++i) {
+        if (counts[i] != 0) {
+          numNonEmptyBuckets += 1;
+        }
+      }
+      VARINT_CODER.encode(numNonEmptyBuckets, output);
+      int previousIndex = 0;
+      for (int i = 0; i < numBuckets; ++i) {
+        if (counts[i] != 0) {
+          VARINT_CODER.encode((long) (i - previousIndex), output);
+          VARINT_CODER.encode(counts[i], output);
+          previousIndex = i;
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return output.toByteString();
+  }
+
+  /** Decodes from {@link MonitoringInfoConstants.TypeUrns#HISTOGRAM_INT64_TYPE}. */
+  public static HistogramData decodeInt64Histogram(ByteString payload) {
+    InputStream input = payload.newInput();
+    try {
+      long bucketTypeId = VARINT_CODER.decode(input);
+      HistogramData data;
+      if (bucketTypeId == LINEAR_BUCKETS) {
+        double start = DOUBLE_CODER.decode(input);
+        double width = DOUBLE_CODER.decode(input);
+        data = HistogramData.linear(start, width, VARINT_CODER.decode(input).intValue());
+      } else if (bucketTypeId == LOG_LINEAR_BUCKETS) {
+        int precision = VARINT_CODER.decode(input).intValue();
+        data =
+            new HistogramData(
+                HistogramData.LogLinearBuckets.of(
+                    precision, VARINT_CODER.decode(input).intValue()));
+      } else {
+        throw new IllegalArgumentException(
+            String.format("Unsupported histogram bucket type %s", bucketTypeId));
+      }
+      data.incBottomBucketCount(VARINT_CODER.decode(input));
+      data.incTopBucketCount(VARINT_CODER.decode(input));
+      long numNonEmptyBuckets = VARINT_CODER.decode(input);
+      int index = 0;
+      for (long i = 0; i < numNonEmptyBuckets; ++i) {
+        index += VARINT_CODER.decode(input).intValue();
+        data.incBucketCount(index, VARINT_CODER.decode(input));
+      }
+      return data;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
 }
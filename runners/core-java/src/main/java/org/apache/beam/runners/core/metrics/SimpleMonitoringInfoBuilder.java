@@ -23,6 +23,7 @@ import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encod
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Counter;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Distribution;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Gauge;
+import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Histogram;
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
 
 import java.util.HashMap;
@@ -30,6 +31,7 @@ import java.util.Map;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfoSpec;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfoSpecs;
+import org.apache.beam.sdk.util.HistogramData;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
@@ -137,6 +139,16 @@ public class SimpleMonitoringInfoBuilder {
     return this;
   }
 
+  /**
+   * Encodes the value and sets the type to {@link
+   * MonitoringInfoConstants.TypeUrns#HISTOGRAM_INT64_TYPE}.
+   */
+  public SimpleMonitoringInfoBuilder setInt64HistogramValue(HistogramData data) {
+    this.builder.setPayload(encodeInt64Histogram(data));
+    this.builder.setType(MonitoringInfoConstants.TypeUrns.HISTOGRAM_INT64_TYPE);
+    return this;
+  }
+
   /**
    * Encodes the value and sets the type to {@link
    * MonitoringInfoConstants.TypeUrns#DISTRIBUTION_INT64_TYPE}.
@@ -37,6 +37,8 @@ import java.util.Set;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
 import org.apache.beam.sdk.metrics.MetricName;
 import org.apache.beam.sdk.util.HistogramData;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -315,6 +317,98 @@ public class MetricsContainerImplTest {
     assertThat(actualMonitoringInfos, containsInAnyOrder(builder1.build()));
   }
 
+  @Test
+  public void testMonitoringDataIsPopulatedForHistograms() {
+    MetricsContainerImpl container = new MetricsContainerImpl("step1");
+    MonitoringInfoMetricName systemName =
+        MonitoringInfoMetricName.named(
+            MonitoringInfoConstants.Urns.PROCESS_ELEMENT_LATENCIES,
+            Collections.singletonMap(MonitoringInfoConstants.Labels.PTRANSFORM, "step1"));
+    container.getHistogram(systemName, HistogramData.LinearBuckets.of(0, 10, 10)).update(15);
+    container
+        .getHistogram(MetricName.named("ns", "name"), HistogramData.LogLinearBuckets.of(2, 20))
+        .update(15);
+
+    ShortIdMap shortIds = new ShortIdMap();
+    Map<String, ByteString> monitoringData = container.getMonitoringData(shortIds);
+    assertEquals(2, monitoringData.size());
+    for (Map.Entry<String, ByteString> entry : monitoringData.entrySet()) {
+      MonitoringInfo monitoringInfo = shortIds.get(entry.getKey());
+      assertEquals(MonitoringInfoConstants.TypeUrns.HISTOGRAM_INT64_TYPE, monitoringInfo.getType());
+      HistogramData histogram = MonitoringInfoEncodings.decodeInt64Histogram(entry.getValue());
+      if (monitoringInfo.getUrn().equals(MonitoringInfoConstants.Urns.PROCESS_ELEMENT_LATENCIES)) {
+        assertEquals(1, histogram.getCount(1));
+      } else {
+        assertEquals(MonitoringInfoConstants.Urns.USER_HISTOGRAM_INT64, monitoringInfo.getUrn());
+        assertEquals(
+            "ns", monitoringInfo.getLabelsOrThrow(MonitoringInfoConstants.Labels.NAMESPACE));
+        assertEquals("name", monitoringInfo.getLabelsOrThrow(MonitoringInfoConstants.Labels.NAME));
+        assertEquals(
+            "step1", monitoringInfo.getLabelsOrThrow(MonitoringInfoConstants.Labels.PTRANSFORM));
+        assertEquals(1, histogram.getCount(11));
+      }
+    }
+  }
+
+  @Test
+  public void testMonitoringDataDistinguishesMetricsOfDifferentKindsWithTheSameName() {
+    MetricsContainerImpl container = new MetricsContainerImpl("step1");
+    MetricName name = MetricName.named("ns", "name");
+    container.getCounter(name).inc(1L);
+    container.getGauge(name).set(2L);
+    container.getHistogram(name, HistogramData.LogLinearBuckets.of(2, 20)).update(3);
+
+    ShortIdMap shortIds = new ShortIdMap();
+    Map<String, String> typesByUrn = new HashMap<>();
+    for (String shortId : container.getMonitoringData(shortIds).keySet()) {
+      MonitoringInfo monitoringInfo = shortIds.get(shortId);
+      typesByUrn.put(monitoringInfo.getUrn(), monitoringInfo.getType());
+    }
+    assertEquals(
+        ImmutableMap.of(
+            MonitoringInfoConstants.Urns.USER_SUM_INT64,
+            MonitoringInfoConstants.TypeUrns.SUM_INT64_TYPE,
+            MonitoringInfoConstants.Urns.USER_LATEST_INT64,
+            MonitoringInfoConstants.TypeUrns.LATEST_INT64_TYPE,
+            MonitoringInfoConstants.Urns.USER_HISTOGRAM_INT64,
+            MonitoringInfoConstants.TypeUrns.HISTOGRAM_INT64_TYPE),
+        typesByUrn);
+
+    List<String> types = new ArrayList<>();
+    for (MonitoringInfo monitoringInfo : container.getMonitoringInfos()) {
+      types.add(monitoringInfo.getType());
+    }
+    assertThat(
+        types,
+        containsInAnyOrder(
+            MonitoringInfoConstants.TypeUrns.SUM_INT64_TYPE,
+            MonitoringInfoConstants.TypeUrns.LATEST_INT64_TYPE,
+            MonitoringInfoConstants.TypeUrns.HISTOGRAM_INT64_TYPE));
+  }
+
+  @Test
+  public void testUpdateHistogramsFromMonitoringInfos() {
+    HistogramData.BucketType bucketType = HistogramData.LogLinearBuckets.of(2, 20);
+    MetricsContainerImpl source = new MetricsContainerImpl("step1");
+    source.getHistogram(MetricName.named("ns", "name"), bucketType).update(15);
+    source.getHistogram(MetricName.named("ns", "name"), bucketType).update(100);
+    ShortIdMap shortIds = new ShortIdMap();
+    List<MonitoringInfo> monitoringInfos = new ArrayList<>();
+    for (Map.Entry<String, ByteString> entry : source.getMonitoringData(shortIds).entrySet()) {
+      monitoringInfos.add(
+          shortIds.get(entry.getKey()).toBuilder().setPayload(entry.getValue()).build());
+    }
+
+    MetricsContainerImpl target = new MetricsContainerImpl("step1");
+    target.update(monitoringInfos);
+    target.update(monitoringInfos);
+
+    HistogramCell histogram =
+        target.tryGetHistogram(MonitoringInfoMetricName.of(monitoringInfos.get(0)), bucketType);
+    assertEquals(2, histogram.getCumulative().getCount(11));
+    assertEquals(2, histogram.getCumulative().getTopBucketCount());
+  }
+
   @Test
   public void testProcessWideMetricContainerThrowsWhenReset() {
     MetricsContainerImpl testObject = MetricsContainerImpl.createProcessWideContainer();
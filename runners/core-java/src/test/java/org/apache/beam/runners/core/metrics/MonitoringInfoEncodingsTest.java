@@ -21,13 +21,16 @@ import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.decod
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.decodeInt64Counter;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.decodeInt64Distribution;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.decodeInt64Gauge;
+import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.decodeInt64Histogram;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeDoubleCounter;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeDoubleDistribution;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Counter;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Distribution;
 import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Gauge;
+import static org.apache.beam.runners.core.metrics.MonitoringInfoEncodings.encodeInt64Histogram;
 import static org.junit.Assert.assertEquals;
 
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.joda.time.Instant;
 import org.junit.Test;
@@ -77,4 +80,31 @@ public class MonitoringInfoEncodingsTest {
     assertEquals(ByteString.copyFrom(new byte[] {0x3f, (byte) 0xf0, 0, 0, 0, 0, 0, 0}), payload);
     assertEquals(1.0, decodeDoubleCounter(payload), 0.001);
   }
+
+  @Test
+  public void testInt64HistogramEncodingWithLinearBuckets() {
+    HistogramData data = HistogramData.linear(-1.5, 0.5, 4);
+    data.record(-2, -1.5, 0, 0.25, 10);
+    ByteString payload = encodeInt64Histogram(data);
+    assertEquals(data, decodeInt64Histogram(payload));
+  }
+
+  @Test
+  public void testInt64HistogramEncodingWithLogLinearBuckets() {
+    HistogramData data = HistogramData.logLinear(4, 1_000_000);
+    data.record(-1, 0, 17, 17, 12345, 999_999, 10_000_000);
+    ByteString payload = encodeInt64Histogram(data);
+    assertEquals(data, decodeInt64Histogram(payload));
+  }
+
+  @Test
+  public void testInt64HistogramEncodingOnlyContainsNonEmptyBuckets() {
+    HistogramData data = HistogramData.logLinear(8, Long.MAX_VALUE);
+    data.record(100, 100, 1_000_000);
+    ByteString payload = encodeInt64Histogram(data);
+    // The bucket type, precision, two byte number of buckets, bottom and top counts and the number
+    // of non-empty buckets followed by an index delta and count for each non-empty bucket.
+    assertEquals(7 + 2 + 3, payload.size());
+    assertEquals(data, decodeInt64Histogram(payload));
+  }
 }
@@ -22,6 +22,7 @@ import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.DefaultValueFactory;
 import org.apache.beam.sdk.options.Description;
 import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.util.MutationDetectors.DetectionMode;
 
 /**
  * Options that can be used to configure the {@link org.apache.beam.runners.direct.DirectRunner}.
@@ -46,6 +47,25 @@ public interface DirectOptions extends PipelineOptions, ApplicationNameOptions {
 
   void setEnforceImmutability(boolean test);
 
+  @Default.Enum("FULL")
+  @Description(
+      "Controls how the DirectRunner detects mutations when enforcing immutability. FULL retains "
+          + "an encoded copy of each checked element and reports the value before it was mutated. "
+          + "HASH retains only a hash of the encoding of each checked element, which is cheaper "
+          + "but only reports the mutated value.")
+  DetectionMode getImmutabilityDetectionMode();
+
+  void setImmutabilityDetectionMode(DetectionMode mode);
+
+  @Default.Integer(1)
+  @Description(
+      "Controls how many of the elements of a bundle the DirectRunner checks for mutations when "
+          + "enforcing immutability. The first element of every bundle and every Nth element "
+          + "thereafter are checked. Must be a value greater than zero.")
+  int getImmutabilitySamplingPeriod();
+
+  void setImmutabilitySamplingPeriod(int period);
+
   @Default.Boolean(true)
   @Description(
       "Controls whether the DirectRunner should ensure that all of the elements of every "
@@ -108,25 +108,33 @@ public class DirectRunner extends PipelineRunner<DirectPipelineResult> {
       return Collections.unmodifiableSet(enabled);
     }
 
-    static BundleFactory bundleFactoryFor(Set<Enforcement> enforcements, DirectGraph graph) {
+    static BundleFactory bundleFactoryFor(
+        Set<Enforcement> enforcements, DirectGraph graph, DirectOptions options) {
       BundleFactory bundleFactory =
           enforcements.contains(Enforcement.ENCODABILITY)
               ? CloningBundleFactory.create()
               : ImmutableListBundleFactory.create();
       if (enforcements.contains(Enforcement.IMMUTABILITY)) {
-        bundleFactory = ImmutabilityCheckingBundleFactory.create(bundleFactory, graph);
+        bundleFactory =
+            ImmutabilityCheckingBundleFactory.create(
+                bundleFactory,
+                graph,
+                options.getImmutabilityDetectionMode(),
+                options.getImmutabilitySamplingPeriod());
       }
       return bundleFactory;
     }
 
     private static Map<String, Collection<ModelEnforcementFactory>> defaultModelEnforcements(
-        Set<Enforcement> enabledEnforcements) {
+        Set<Enforcement> enabledEnforcements, DirectOptions options) {
       ImmutableMap.Builder<String, Collection<ModelEnforcementFactory>> enforcements =
           ImmutableMap.builder();
       ImmutableList.Builder<ModelEnforcementFactory> enabledParDoEnforcements =
           ImmutableList.builder();
       if (enabledEnforcements.contains(Enforcement.IMMUTABILITY)) {
-        enabledParDoEnforcements.add(ImmutabilityEnforcementFactory.create());
+        enabledParDoEnforcements.add(
+            ImmutabilityEnforcementFactory.create(
+                options.getImmutabilityDetectionMode(), options.getImmutabilitySamplingPeriod()));
       }
       Collection<ModelEnforcementFactory> parDoEnforcements = enabledParDoEnforcements.build();
       enforcements.put(PTransformTranslation.PAR_DO_TRANSFORM_URN, parDoEnforcements);
@@ -196,7 +204,7 @@ public class DirectRunner extends PipelineRunner<DirectPipelineResult> {
       EvaluationContext context =
           EvaluationContext.create(
               clockSupplier.get(),
-              Enforcement.bundleFactoryFor(enabledEnforcements, graph),
+              Enforcement.bundleFactoryFor(enabledEnforcements, graph, options),
               graph,
               keyedPValueVisitor.getKeyedPValues(),
               metricsPool);
@@ -207,7 +215,7 @@ public class DirectRunner extends PipelineRunner<DirectPipelineResult> {
           ExecutorServiceParallelExecutor.create(
               options.getTargetParallelism(),
               registry,
-              Enforcement.defaultModelEnforcements(enabledEnforcements),
+              Enforcement.defaultModelEnforcements(enabledEnforcements, options),
               context,
               metricsPool);
       executor.start(graph, RootProviderRegistry.javaNativeRegistry(context, options));
@@ -17,6 +17,7 @@
  */
 package org.apache.beam.runners.direct;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkNotNull;
 
 import org.apache.beam.runners.direct.DirectRunner.Enforcement;
@@ -27,6 +28,7 @@ import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.util.IllegalMutationException;
 import org.apache.beam.sdk.util.MutationDetector;
 import org.apache.beam.sdk.util.MutationDetectors;
+import org.apache.beam.sdk.util.MutationDetectors.DetectionMode;
 import org.apache.beam.sdk.util.WindowedValue;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.HashMultimap;
@@ -53,15 +55,38 @@ class ImmutabilityCheckingBundleFactory implements BundleFactory {
    */
   public static ImmutabilityCheckingBundleFactory create(
       BundleFactory underlying, DirectGraph graph) {
-    return new ImmutabilityCheckingBundleFactory(underlying, graph);
+    return create(underlying, graph, DetectionMode.FULL, 1);
+  }
+
+  /**
+   * Create a new {@link ImmutabilityCheckingBundleFactory} that uses the underlying {@link
+   * BundleFactory} to create the output bundle, checking the first element added to each bundle and
+   * every {@code samplingPeriod}th element thereafter using the provided {@link DetectionMode}.
+   */
+  public static ImmutabilityCheckingBundleFactory create(
+      BundleFactory underlying,
+      DirectGraph graph,
+      DetectionMode detectionMode,
+      int samplingPeriod) {
+    checkArgument(
+        samplingPeriod > 0, "Sampling period must be greater than zero, got %s", samplingPeriod);
+    return new ImmutabilityCheckingBundleFactory(underlying, graph, detectionMode, samplingPeriod);
   }
 
   private final BundleFactory underlying;
   private final DirectGraph graph;
+  private final DetectionMode detectionMode;
+  private final int samplingPeriod;
 
-  private ImmutabilityCheckingBundleFactory(BundleFactory underlying, DirectGraph graph) {
+  private ImmutabilityCheckingBundleFactory(
+      BundleFactory underlying,
+      DirectGraph graph,
+      DetectionMode detectionMode,
+      int samplingPeriod) {
     this.underlying = checkNotNull(underlying);
     this.graph = graph;
+    this.detectionMode = detectionMode;
+    this.samplingPeriod = samplingPeriod;
   }
 
   /**
@@ -96,6 +121,7 @@ class ImmutabilityCheckingBundleFactory implements BundleFactory {
     private final UncommittedBundle<T> underlying;
     private final SetMultimap<WindowedValue<T>, MutationDetector> mutationDetectors;
     private Coder<T> coder;
+    private long elementCount;
 
     public ImmutabilityEnforcingBundle(UncommittedBundle<T> underlying) {
       this.underlying = underlying;
@@ -110,11 +136,14 @@ class ImmutabilityCheckingBundleFactory implements BundleFactory {
 
     @Override
     public UncommittedBundle<T> add(WindowedValue<T> element) {
-      try {
-        mutationDetectors.put(
-            element, MutationDetectors.forValueWithCoder(element.getValue(), coder));
-      } catch (CoderException e) {
-        throw new RuntimeException(e);
+      if (elementCount++ % samplingPeriod == 0) {
+        try {
+          mutationDetectors.put(
+              element,
+              MutationDetectors.forValueWithCoder(element.getValue(), coder, detectionMode));
+        } catch (CoderException e) {
+          throw new RuntimeException(e);
+        }
       }
       underlying.add(element);
       return this;
@@ -126,6 +155,18 @@ class ImmutabilityCheckingBundleFactory implements BundleFactory {
         try {
           detector.verifyUnmodified();
         } catch (IllegalMutationException exn) {
+          if (exn.getSavedValue() == null) {
+            // The saved value is not retained by all detection modes.
+            throw new IllegalMutationException(
+                String.format(
+                    "PTransform %s mutated value %s after it was output."
+                        + " Values must not be mutated in any way after being output.",
+                    graph.getProducer(underlying.getPCollection()).getFullName(),
+                    exn.getNewValue()),
+                null,
+                exn.getNewValue(),
+                exn);
+          }
           throw new IllegalMutationException(
               String.format(
                   "PTransform %s mutated value %s after it was output (new value was %s)."
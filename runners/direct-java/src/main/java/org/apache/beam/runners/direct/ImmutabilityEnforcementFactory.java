@@ -17,6 +17,8 @@
  */
 package org.apache.beam.runners.direct;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
 import java.util.IdentityHashMap;
 import org.apache.beam.sdk.Pipeline.PipelineVisitor;
 import org.apache.beam.sdk.coders.Coder;
@@ -28,6 +30,7 @@ import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.util.IllegalMutationException;
 import org.apache.beam.sdk.util.MutationDetector;
 import org.apache.beam.sdk.util.MutationDetectors;
+import org.apache.beam.sdk.util.MutationDetectors.DetectionMode;
 import org.apache.beam.sdk.util.UserCodeException;
 import org.apache.beam.sdk.util.WindowedValue;
 
@@ -44,13 +47,36 @@ class ImmutabilityEnforcementFactory implements ModelEnforcementFactory {
     return new ImmutabilityEnforcementFactory();
   }
 
+  /**
+   * Create a new {@link ImmutabilityEnforcementFactory} that checks the first element of each
+   * bundle and every {@code samplingPeriod}th element thereafter using the provided {@link
+   * DetectionMode}.
+   */
+  public static ModelEnforcementFactory create(DetectionMode detectionMode, int samplingPeriod) {
+    checkArgument(
+        samplingPeriod > 0, "Sampling period must be greater than zero, got %s", samplingPeriod);
+    return new ImmutabilityEnforcementFactory(detectionMode, samplingPeriod);
+  }
+
+  private final DetectionMode detectionMode;
+  private final int samplingPeriod;
+
+  ImmutabilityEnforcementFactory() {
+    this(DetectionMode.FULL, 1);
+  }
+
+  private ImmutabilityEnforcementFactory(DetectionMode detectionMode, int samplingPeriod) {
+    this.detectionMode = detectionMode;
+    this.samplingPeriod = samplingPeriod;
+  }
+
   @Override
   public <T> ModelEnforcement<T> forBundle(
       CommittedBundle<T> input, AppliedPTransform<?, ?, ?> consumer) {
     if (isReadTransform(consumer)) {
       return NoopReadEnforcement.INSTANCE;
     }
-    return new ImmutabilityCheckingEnforcement<>(input, consumer);
+    return new ImmutabilityCheckingEnforcement<>(input, consumer, detectionMode, samplingPeriod);
   }
 
   static boolean isReadTransform(AppliedPTransform<?, ?, ?> consumer) {
@@ -108,19 +134,30 @@ class ImmutabilityEnforcementFactory implements ModelEnforcementFactory {
     private final AppliedPTransform<?, ?, ?> transform;
     private final IdentityHashMap<WindowedValue<T>, MutationDetector> mutationElements;
     private final Coder<T> coder;
+    private final DetectionMode detectionMode;
+    private final int samplingPeriod;
+    private long elementCount;
 
     private ImmutabilityCheckingEnforcement(
-        CommittedBundle<T> input, AppliedPTransform<?, ?, ?> transform) {
+        CommittedBundle<T> input,
+        AppliedPTransform<?, ?, ?> transform,
+        DetectionMode detectionMode,
+        int samplingPeriod) {
       this.transform = transform;
       coder = input.getPCollection().getCoder();
       mutationElements = new IdentityHashMap<>();
+      this.detectionMode = detectionMode;
+      this.samplingPeriod = samplingPeriod;
     }
 
     @Override
     public void beforeElement(WindowedValue<T> element) {
+      if (elementCount++ % samplingPeriod != 0) {
+        return;
+      }
       try {
         mutationElements.put(
-            element, MutationDetectors.forValueWithCoder(element.getValue(), coder));
+            element, MutationDetectors.forValueWithCoder(element.getValue(), coder, detectionMode));
       } catch (CoderException e) {
         throw UserCodeException.wrap(e);
       }
@@ -128,7 +165,10 @@ class ImmutabilityEnforcementFactory implements ModelEnforcementFactory {
 
     @Override
     public void afterElement(WindowedValue<T> element) {
-      verifyUnmodified(mutationElements.get(element));
+      MutationDetector detector = mutationElements.get(element);
+      if (detector != null) {
+        verifyUnmodified(detector);
+      }
     }
 
     @Override
@@ -145,11 +185,13 @@ class ImmutabilityEnforcementFactory implements ModelEnforcementFactory {
       try {
         detector.verifyUnmodified();
       } catch (IllegalMutationException e) {
+        // The saved value is not retained by all detection modes.
+        Object value = e.getSavedValue() != null ? e.getSavedValue() : e.getNewValue();
         throw new IllegalMutationException(
             String.format(
                 "PTransform %s illegaly mutated value %s of class %s."
                     + " Input values must not be mutated in any way.",
-                transform.getFullName(), e.getSavedValue(), e.getSavedValue().getClass()),
+                transform.getFullName(), value, value.getClass()),
             e.getSavedValue(),
             e.getNewValue());
       }
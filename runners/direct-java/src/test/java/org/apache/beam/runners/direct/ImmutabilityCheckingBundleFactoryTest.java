@@ -30,6 +30,7 @@ import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
 import org.apache.beam.sdk.transforms.windowing.PaneInfo;
 import org.apache.beam.sdk.util.IllegalMutationException;
+import org.apache.beam.sdk.util.MutationDetectors.DetectionMode;
 import org.apache.beam.sdk.util.WindowedValue;
 import org.apache.beam.sdk.values.PCollection;
 import org.joda.time.Instant;
@@ -49,6 +50,7 @@ public class ImmutabilityCheckingBundleFactoryTest {
   private ImmutabilityCheckingBundleFactory factory;
   private PCollection<byte[]> created;
   private PCollection<byte[]> transformed;
+  private DirectGraph graph;
 
   @Before
   public void setup() {
@@ -56,9 +58,8 @@ public class ImmutabilityCheckingBundleFactoryTest {
     transformed = created.apply(ParDo.of(new IdentityDoFn<>()));
     DirectGraphVisitor visitor = new DirectGraphVisitor();
     p.traverseTopologically(visitor);
-    factory =
-        ImmutabilityCheckingBundleFactory.create(
-            ImmutableListBundleFactory.create(), visitor.getGraph());
+    graph = visitor.getGraph();
+    factory = ImmutabilityCheckingBundleFactory.create(ImmutableListBundleFactory.create(), graph);
   }
 
   @Test
@@ -181,6 +182,45 @@ public class ImmutabilityCheckingBundleFactoryTest {
     intermediate.commit(Instant.now());
   }
 
+  @Test
+  public void mutationAfterAddWithHashDetectionThrows() {
+    factory =
+        ImmutabilityCheckingBundleFactory.create(
+            ImmutableListBundleFactory.create(), graph, DetectionMode.HASH, 1);
+    UncommittedBundle<byte[]> intermediate = factory.createBundle(transformed);
+
+    byte[] array = new byte[] {4, 8, 12};
+    intermediate.add(WindowedValue.valueInGlobalWindow(array));
+
+    array[2] = -3;
+    thrown.expect(IllegalMutationException.class);
+    thrown.expectMessage("Values must not be mutated in any way after being output");
+    intermediate.commit(Instant.now());
+  }
+
+  @Test
+  public void mutationOfUnsampledElementAfterAddSucceeds() {
+    factory =
+        ImmutabilityCheckingBundleFactory.create(
+            ImmutableListBundleFactory.create(), graph, DetectionMode.FULL, 2);
+    UncommittedBundle<byte[]> intermediate = factory.createBundle(transformed);
+
+    byte[] first = new byte[] {4, 8, 12};
+    byte[] second = new byte[] {16, 20, 24};
+    intermediate.add(WindowedValue.valueInGlobalWindow(first));
+    intermediate.add(WindowedValue.valueInGlobalWindow(second));
+
+    // Only the first of every two elements is checked.
+    second[2] = -3;
+    intermediate.commit(Instant.now());
+
+    UncommittedBundle<byte[]> next = factory.createBundle(transformed);
+    next.add(WindowedValue.valueInGlobalWindow(first));
+    first[2] = -3;
+    thrown.expect(IllegalMutationException.class);
+    next.commit(Instant.now());
+  }
+
   private static class IdentityDoFn<T> extends DoFn<T, T> {
     @ProcessElement
     public void processElement(ProcessContext c) throws Exception {
@@ -28,6 +28,7 @@ import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.util.IllegalMutationException;
+import org.apache.beam.sdk.util.MutationDetectors.DetectionMode;
 import org.apache.beam.sdk.util.WindowedValue;
 import org.apache.beam.sdk.values.PCollection;
 import org.joda.time.Instant;
@@ -45,7 +46,7 @@ public class ImmutabilityEnforcementFactoryTest implements Serializable {
   public transient TestPipeline p = TestPipeline.create().enableAbandonedNodeEnforcement(false);
 
   @Rule public transient ExpectedException thrown = ExpectedException.none();
-  private transient ImmutabilityEnforcementFactory factory;
+  private transient ModelEnforcementFactory factory;
   private transient BundleFactory bundleFactory;
   private transient PCollection<byte[]> pcollection;
   private transient AppliedPTransform<?, ?, ?> consumer;
@@ -104,6 +105,44 @@ public class ImmutabilityEnforcementFactoryTest implements Serializable {
         Collections.emptyList());
   }
 
+  @Test
+  public void mutatedDuringProcessElementWithHashDetectionThrows() {
+    factory = ImmutabilityEnforcementFactory.create(DetectionMode.HASH, 1);
+    WindowedValue<byte[]> element = WindowedValue.valueInGlobalWindow("bar".getBytes(UTF_8));
+    CommittedBundle<byte[]> elements =
+        bundleFactory.createBundle(pcollection).add(element).commit(Instant.now());
+
+    ModelEnforcement<byte[]> enforcement = factory.forBundle(elements, consumer);
+    enforcement.beforeElement(element);
+    element.getValue()[0] = 'f';
+    thrown.expect(IllegalMutationException.class);
+    thrown.expectMessage(consumer.getFullName());
+    thrown.expectMessage("illegaly mutated");
+    thrown.expectMessage("Input values must not be mutated");
+    enforcement.afterElement(element);
+  }
+
+  @Test
+  public void mutatedUnsampledElementSucceeds() {
+    factory = ImmutabilityEnforcementFactory.create(DetectionMode.FULL, 2);
+    WindowedValue<byte[]> first = WindowedValue.valueInGlobalWindow("bar".getBytes(UTF_8));
+    WindowedValue<byte[]> second = WindowedValue.valueInGlobalWindow("baz".getBytes(UTF_8));
+    CommittedBundle<byte[]> elements =
+        bundleFactory.createBundle(pcollection).add(first).add(second).commit(Instant.now());
+
+    ModelEnforcement<byte[]> enforcement = factory.forBundle(elements, consumer);
+    enforcement.beforeElement(first);
+    enforcement.afterElement(first);
+    // Only the first of every two elements is checked.
+    enforcement.beforeElement(second);
+    second.getValue()[0] = 'f';
+    enforcement.afterElement(second);
+    enforcement.afterFinish(
+        elements,
+        StepTransformResult.<byte[]>withoutHold(consumer).build(),
+        Collections.emptyList());
+  }
+
   @Test
   public void mutatedAfterProcessElementFails() {
 
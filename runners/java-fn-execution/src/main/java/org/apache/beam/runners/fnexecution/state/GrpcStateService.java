@@ -19,32 +19,63 @@ package org.apache.beam.runners.fnexecution.state;
 
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Throwables.getStackTraceAsString;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import javax.annotation.concurrent.GuardedBy;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateAppendRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
 import org.apache.beam.model.fnexecution.v1.BeamFnStateGrpc;
 import org.apache.beam.sdk.fn.server.FnService;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.stub.ServerCallStreamObserver;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.stub.StreamObserver;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** An implementation of the Beam Fn State service. */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
 public class GrpcStateService extends BeamFnStateGrpc.BeamFnStateImplBase
     implements StateDelegator, FnService {
   /** Create a new {@link GrpcStateService}. */
   public static GrpcStateService create() {
-    return new GrpcStateService();
+    return new GrpcStateService(false);
+  }
+
+  /**
+   * Create a new {@link GrpcStateService}.
+   *
+   * <p>If {@code coalesceAppends} is set, requests for a state which arrive while an append to the
+   * same state is still being handled wait for it to complete, so that at most one request per
+   * state is outstanding and the {@link StateRequestHandler} observes them in order. Consecutive
+   * waiting appends are concatenated and passed to the handler as a single request. Every request
+   * still receives its own response.
+   */
+  public static GrpcStateService create(boolean coalesceAppends) {
+    return new GrpcStateService(coalesceAppends);
   }
 
   private final ConcurrentLinkedQueue<Inbound> clients;
   private final ConcurrentMap<String, StateRequestHandler> requestHandlers;
+  private final boolean coalesceAppends;
 
-  private GrpcStateService() {
+  private GrpcStateService(boolean coalesceAppends) {
     this.requestHandlers = new ConcurrentHashMap<>();
     this.clients = new ConcurrentLinkedQueue<>();
+    this.coalesceAppends = coalesceAppends;
   }
 
   @Override
@@ -118,25 +149,78 @@ public class GrpcStateService extends BeamFnStateGrpc.BeamFnStateImplBase
   private class Inbound implements StreamObserver<StateRequest> {
     private final StreamObserver<StateResponse> outboundObserver;
 
+    // The requests per instruction and state key which wait for an outstanding append or a request
+    // which waited for one. A key is present while one of its requests is outstanding.
+    @GuardedBy("this")
+    private final Map<KV<String, StateKey>, RequestQueue> requestQueues;
+
     Inbound(StreamObserver<StateResponse> outboundObserver) {
       this.outboundObserver = outboundObserver;
+      this.requestQueues = new HashMap<>();
     }
 
     @Override
     public void onNext(StateRequest request) {
+      if (!coalesceAppends) {
+        dispatch(request, Collections.singletonList(request.getId()), null);
+        return;
+      }
+      // Requests are dispatched while holding the lock so that the order in which the handlers see
+      // them matches the order in which they were received.
+      synchronized (this) {
+        KV<String, StateKey> key = KV.of(request.getInstructionId(), request.getStateKey());
+        RequestQueue queue = requestQueues.get(key);
+        if (queue != null) {
+          queue.enqueue(request);
+        } else if (request.hasAppend()) {
+          requestQueues.put(key, new RequestQueue());
+          dispatch(request, Collections.singletonList(request.getId()), key);
+        } else {
+          dispatch(request, Collections.singletonList(request.getId()), null);
+        }
+      }
+    }
+
+    private synchronized void onQueuedKeyCompleted(KV<String, StateKey> key) {
+      RequestQueue queue = requestQueues.get(key);
+      if (queue.isEmpty()) {
+        requestQueues.remove(key);
+        return;
+      }
+      List<String> ids = new ArrayList<>();
+      StateRequest request = queue.next(ids);
+      dispatch(request, ids, key);
+    }
+
+    /**
+     * Passes the request to its handler responding to each of the {@code ids} once it completes. If
+     * {@code queuedKey} is set, the next request waiting for the key is dispatched once it
+     * completes.
+     */
+    private void dispatch(
+        StateRequest request, List<String> ids, @Nullable KV<String, StateKey> queuedKey) {
       StateRequestHandler handler =
           requestHandlers.getOrDefault(request.getInstructionId(), this::handlerNotFound);
       try {
         CompletionStage<StateResponse.Builder> result = handler.handle(request);
         result.whenComplete(
-            (StateResponse.Builder responseBuilder, Throwable t) ->
+            (StateResponse.Builder responseBuilder, Throwable t) -> {
+              for (String id : ids) {
                 // note that this is threadsafe if and only if outboundObserver is threadsafe.
                 outboundObserver.onNext(
-                    t == null
-                        ? responseBuilder.setId(request.getId()).build()
-                        : createErrorResponse(request.getId(), t)));
+                    t == null ? responseBuilder.setId(id).build() : createErrorResponse(id, t));
+              }
+              if (queuedKey != null) {
+                onQueuedKeyCompleted(queuedKey);
+              }
+            });
       } catch (Exception e) {
-        outboundObserver.onNext(createErrorResponse(request.getId(), e));
+        for (String id : ids) {
+          outboundObserver.onNext(createErrorResponse(id, e));
+        }
+        if (queuedKey != null) {
+          onQueuedKeyCompleted(queuedKey);
+        }
       }
     }
 
@@ -164,4 +248,40 @@ public class GrpcStateService extends BeamFnStateGrpc.BeamFnStateImplBase
       return StateResponse.newBuilder().setId(id).setError(getStackTraceAsString(t)).build();
     }
   }
+
+  /** The requests for a single state which are waiting for an outstanding request to complete. */
+  private static class RequestQueue {
+    private final Deque<StateRequest> requests = new ArrayDeque<>();
+
+    private void enqueue(StateRequest request) {
+      requests.add(request);
+    }
+
+    private boolean isEmpty() {
+      return requests.isEmpty();
+    }
+
+    /**
+     * Removes and returns the next request to dispatch, adding the ids of the requests it responds
+     * to. Consecutive appends are concatenated into a single append.
+     */
+    private StateRequest next(List<String> ids) {
+      StateRequest first = requests.remove();
+      ids.add(first.getId());
+      if (!first.hasAppend() || requests.isEmpty() || !requests.peek().hasAppend()) {
+        return first;
+      }
+      List<ByteString> data = new ArrayList<>();
+      data.add(first.getAppend().getData());
+      while (!requests.isEmpty() && requests.peek().hasAppend()) {
+        StateRequest append = requests.remove();
+        data.add(append.getAppend().getData());
+        ids.add(append.getId());
+      }
+      return first
+          .toBuilder()
+          .setAppend(StateAppendRequest.newBuilder().setData(ByteString.copyFrom(data)))
+          .build();
+    }
+  }
 }
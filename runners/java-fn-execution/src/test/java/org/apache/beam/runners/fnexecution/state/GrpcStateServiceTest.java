@@ -19,12 +19,17 @@ package org.apache.beam.runners.fnexecution.state;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingDeque;
@@ -33,6 +38,7 @@ import org.apache.beam.model.fnexecution.v1.BeamFnApi;
 import org.apache.beam.sdk.fn.test.TestStreams;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.stub.StreamObserver;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableSet;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -128,4 +134,113 @@ public class GrpcStateServiceTest {
     verify(recordingResponseObserver, never()).onError(any());
     assertThat(response.getGet().getData(), equalTo(expectedResponseData));
   }
+
+  @Test
+  public void testAppendsCoalescedWhileAppendOutstanding() throws Exception {
+    stateService = GrpcStateService.create(true);
+    List<BeamFnApi.StateRequest> handled = new ArrayList<>();
+    List<CompletableFuture<BeamFnApi.StateResponse.Builder>> pending = new ArrayList<>();
+    stateService.registerForProcessBundleInstructionId(
+        "instruction",
+        request -> {
+          handled.add(request);
+          CompletableFuture<BeamFnApi.StateResponse.Builder> response = new CompletableFuture<>();
+          pending.add(response);
+          return response;
+        });
+    List<BeamFnApi.StateResponse> responses = new ArrayList<>();
+    StreamObserver<BeamFnApi.StateRequest> requestObserver =
+        stateService.state(TestStreams.<BeamFnApi.StateResponse>withOnNext(responses::add).build());
+
+    requestObserver.onNext(append("1", "keyA", "a"));
+    requestObserver.onNext(append("2", "keyA", "b"));
+    requestObserver.onNext(append("3", "keyA", "c"));
+    requestObserver.onNext(append("4", "keyB", "d"));
+    // The first append to each key is handled immediately while the others wait for it.
+    assertEquals(2, handled.size());
+    assertEquals(ByteString.copyFromUtf8("a"), handled.get(0).getAppend().getData());
+    assertEquals(ByteString.copyFromUtf8("d"), handled.get(1).getAppend().getData());
+
+    pending.get(0).complete(BeamFnApi.StateResponse.newBuilder());
+    assertEquals(3, handled.size());
+    assertEquals(ByteString.copyFromUtf8("bc"), handled.get(2).getAppend().getData());
+    assertEquals("keyA", handled.get(2).getStateKey().getBagUserState().getKey().toStringUtf8());
+
+    pending.get(1).complete(BeamFnApi.StateResponse.newBuilder());
+    pending.get(2).complete(BeamFnApi.StateResponse.newBuilder());
+    Set<String> responseIds = new HashSet<>();
+    for (BeamFnApi.StateResponse response : responses) {
+      responseIds.add(response.getId());
+    }
+    assertEquals(ImmutableSet.of("1", "2", "3", "4"), responseIds);
+  }
+
+  @Test
+  public void testRequestsWaitForOutstandingAppendToSameKey() throws Exception {
+    stateService = GrpcStateService.create(true);
+    List<BeamFnApi.StateRequest> handled = new ArrayList<>();
+    List<CompletableFuture<BeamFnApi.StateResponse.Builder>> pending = new ArrayList<>();
+    stateService.registerForProcessBundleInstructionId(
+        "instruction",
+        request -> {
+          handled.add(request);
+          CompletableFuture<BeamFnApi.StateResponse.Builder> response = new CompletableFuture<>();
+          pending.add(response);
+          return response;
+        });
+    StreamObserver<BeamFnApi.StateRequest> requestObserver =
+        stateService.state(TestStreams.<BeamFnApi.StateResponse>withOnNext(response -> {}).build());
+
+    requestObserver.onNext(append("1", "keyA", "a"));
+    requestObserver.onNext(append("2", "keyA", "b"));
+    // A request for another key neither waits nor releases the appends waiting for keyA.
+    requestObserver.onNext(get("3", "keyB"));
+    requestObserver.onNext(append("4", "keyA", "c"));
+    assertEquals(2, handled.size());
+    assertEquals(get("3", "keyB"), handled.get(1));
+
+    pending.get(0).complete(BeamFnApi.StateResponse.newBuilder());
+    assertEquals(3, handled.size());
+    assertEquals(ByteString.copyFromUtf8("bc"), handled.get(2).getAppend().getData());
+
+    // The batch of waiting appends stops at a get, which waits for the appends before it.
+    requestObserver.onNext(append("5", "keyA", "d"));
+    requestObserver.onNext(get("6", "keyA"));
+    requestObserver.onNext(append("7", "keyA", "e"));
+    assertEquals(3, handled.size());
+
+    pending.get(2).complete(BeamFnApi.StateResponse.newBuilder());
+    assertEquals(4, handled.size());
+    assertEquals(ByteString.copyFromUtf8("d"), handled.get(3).getAppend().getData());
+
+    pending.get(3).complete(BeamFnApi.StateResponse.newBuilder());
+    assertEquals(5, handled.size());
+    assertEquals(get("6", "keyA"), handled.get(4));
+
+    pending.get(4).complete(BeamFnApi.StateResponse.newBuilder());
+    assertEquals(6, handled.size());
+    assertEquals(ByteString.copyFromUtf8("e"), handled.get(5).getAppend().getData());
+  }
+
+  private static BeamFnApi.StateRequest append(String id, String key, String data) {
+    return BeamFnApi.StateRequest.newBuilder()
+        .setId(id)
+        .setInstructionId("instruction")
+        .setStateKey(
+            BeamFnApi.StateKey.newBuilder()
+                .setBagUserState(
+                    BeamFnApi.StateKey.BagUserState.newBuilder()
+                        .setTransformId("transform")
+                        .setUserStateId("state")
+                        .setKey(ByteString.copyFromUtf8(key))))
+        .setAppend(BeamFnApi.StateAppendRequest.newBuilder().setData(ByteString.copyFromUtf8(data)))
+        .build();
+  }
+
+  private static BeamFnApi.StateRequest get(String id, String key) {
+    return append(id, key, "")
+        .toBuilder()
+        .setGet(BeamFnApi.StateGetRequest.getDefaultInstance())
+        .build();
+  }
 }
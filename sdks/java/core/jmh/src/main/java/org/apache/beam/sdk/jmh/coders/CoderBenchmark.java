@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.jmh.coders;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.ExposedByteArrayOutputStream;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.KV;
+import org.joda.time.Instant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks comparing encoding and decoding common coders using streams against using {@link
+ * Coder#encodeToBuffer} and {@link Coder#decodeFromBuffer}.
+ */
+public class CoderBenchmark {
+
+  private static final int NUM_ELEMENTS = 1000;
+
+  @State(Scope.Thread)
+  public static class Elements {
+    @Param({"varlong", "string", "kv", "iterable", "windowedvalue"})
+    public String coderName = "varlong";
+
+    Coder<Object> coder;
+    List<Object> values;
+    byte[] encoded;
+    ExposedByteArrayOutputStream output;
+    ByteBuffer buffer;
+
+    @Setup
+    public void setup() throws Exception {
+      Random random = new Random(1234);
+      values = new ArrayList<>(NUM_ELEMENTS);
+      switch (coderName) {
+        case "varlong":
+          coder = cast(VarLongCoder.of());
+          for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            values.add(random.nextLong() >> random.nextInt(64));
+          }
+          break;
+        case "string":
+          coder = cast(StringUtf8Coder.of());
+          for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            values.add(randomString(random));
+          }
+          break;
+        case "kv":
+          coder = cast(KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of()));
+          for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            values.add(KV.of(randomString(random), random.nextLong()));
+          }
+          break;
+        case "iterable":
+          coder = cast(IterableCoder.of(VarLongCoder.of()));
+          for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            List<Long> value = new ArrayList<>();
+            for (int j = random.nextInt(20); j > 0; --j) {
+              value.add(random.nextLong());
+            }
+            values.add(value);
+          }
+          break;
+        case "windowedvalue":
+          coder =
+              cast(
+                  WindowedValue.getFullCoder(
+                      KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of()),
+                      IntervalWindow.getCoder()));
+          for (int i = 0; i < NUM_ELEMENTS; ++i) {
+            Instant timestamp = new Instant(random.nextInt(1_000_000));
+            values.add(
+                WindowedValue.of(
+                    KV.of(randomString(random), random.nextLong()),
+                    timestamp,
+                    new IntervalWindow(timestamp, timestamp.plus(1000)),
+                    PaneInfo.NO_FIRING));
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown coder " + coderName);
+      }
+      output = new ExposedByteArrayOutputStream();
+      for (Object value : values) {
+        coder.encode(value, output);
+      }
+      encoded = output.toByteArray();
+      buffer = ByteBuffer.allocate(encoded.length);
+    }
+
+    private static String randomString(Random random) {
+      char[] chars = new char[random.nextInt(50)];
+      for (int i = 0; i < chars.length; ++i) {
+        chars[i] = (char) ('a' + random.nextInt(26));
+      }
+      return new String(chars);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Coder<Object> cast(Coder<?> coder) {
+      return (Coder<Object>) coder;
+    }
+  }
+
+  @Benchmark
+  public void encodeToStream(Elements elements, Blackhole bh) throws Exception {
+    elements.output.reset();
+    for (Object value : elements.values) {
+      elements.coder.encode(value, elements.output);
+    }
+    bh.consume(elements.output.size());
+  }
+
+  @Benchmark
+  public void encodeToBuffer(Elements elements, Blackhole bh) throws Exception {
+    elements.buffer.clear();
+    for (Object value : elements.values) {
+      elements.coder.encodeToBuffer(value, elements.buffer);
+    }
+    bh.consume(elements.buffer.position());
+  }
+
+  @Benchmark
+  public void decodeFromStream(Elements elements, Blackhole bh) throws Exception {
+    InputStream input = new ByteArrayInputStream(elements.encoded);
+    for (int i = 0; i < NUM_ELEMENTS; ++i) {
+      bh.consume(elements.coder.decode(input));
+    }
+  }
+
+  @Benchmark
+  public void decodeFromBuffer(Elements elements, Blackhole bh) throws Exception {
+    ByteBuffer input = ByteBuffer.wrap(elements.encoded);
+    for (int i = 0; i < NUM_ELEMENTS; ++i) {
+      bh.consume(elements.coder.decodeFromBuffer(input));
+    }
+  }
+}
@@ -31,6 +31,7 @@ import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.util.LineReader;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -44,21 +45,33 @@ public class TextSourceBenchmark {
     Arrays.fill(data, 'a');
   }
 
+  /** The kind of records within the generated file. */
+  public enum Format {
+    /** Lines of between 60 and 120 repeated characters. */
+    PLAIN,
+    /** Comma separated values of roughly 150 characters. */
+    CSV,
+    /** JSON objects of roughly 190 characters. */
+    JSONL
+  }
+
   @State(Scope.Benchmark)
   public static class Data {
+    @Param({"PLAIN", "CSV", "JSONL"})
+    public Format format;
+
     public Path path;
     public String pathString;
     public int length;
 
-    /** Generates a random file with {@code NUM_LINES} between 60 and 120 characters each. */
+    /** Generates a random file with {@code NUM_LINES} records of the requested format. */
     @Setup
     public void createFile() throws Exception {
       path = Files.createTempFile("benchmark", null).toAbsolutePath();
       pathString = path.toString();
       BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
       for (int i = 0; i < NUM_LINES; ++i) {
-        String valueToAppend =
-            String.valueOf(data, 0, ThreadLocalRandom.current().nextInt(60, 120));
+        String valueToAppend = createLine(i);
         length += valueToAppend.length();
         writer.write(valueToAppend);
         writer.write('\n');
@@ -70,6 +83,26 @@ public class TextSourceBenchmark {
     public void deleteFile() throws Exception {
       Files.deleteIfExists(path);
     }
+
+    private String createLine(int i) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      String text = String.valueOf(data, 0, random.nextInt(30, 60));
+      switch (format) {
+        case PLAIN:
+          return String.valueOf(data, 0, random.nextInt(60, 120));
+        case CSV:
+          return String.format(
+              "%d,%d,%f,user-%d,%s,%s",
+              i, random.nextLong(), random.nextDouble(), random.nextInt(), text, text);
+        case JSONL:
+          return String.format(
+              "{\"id\":%d,\"timestamp\":%d,\"score\":%f,\"user\":\"user-%d\","
+                  + "\"tags\":[\"a\",\"b\",\"c\"],\"message\":\"%s\",\"comment\":\"%s\"}",
+              i, random.nextLong(), random.nextDouble(), random.nextInt(), text, text);
+        default:
+          throw new IllegalArgumentException("Unknown format " + format);
+      }
+    }
   }
 
   @Benchmark
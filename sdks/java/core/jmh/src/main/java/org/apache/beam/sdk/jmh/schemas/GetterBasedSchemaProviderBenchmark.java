@@ -44,7 +44,9 @@ import org.openjdk.jmh.infra.Blackhole;
  * <p>Each benchmark method invocation, depending on {@link RowBundle#action}, either reads a single
  * field of a bundle of {@link RowBundle#bundleSize n} rows using the corresponding getter via
  * {@link RowWithGetters#getValue} or writes that field using the corresponding setter to a new
- * object instance.
+ * object instance. The encode and decode actions measure the {@link
+ * org.apache.beam.sdk.schemas.SchemaCoder} of the type, which accesses the fields directly without
+ * an intermediate row.
  *
  * <p>Rows are created upfront and provided as JMH {@link State} to exclude initialization costs
  * from the measurement.
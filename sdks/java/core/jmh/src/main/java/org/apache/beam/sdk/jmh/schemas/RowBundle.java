@@ -17,7 +17,10 @@
  */
 package org.apache.beam.sdk.jmh.schemas;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.schemas.Factory;
 import org.apache.beam.sdk.schemas.GetterBasedSchemaProvider;
 import org.apache.beam.sdk.schemas.NoSuchSchemaException;
@@ -26,6 +29,7 @@ import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.schemas.SchemaRegistry;
 import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.RowWithGetters;
 import org.apache.beam.sdk.values.RowWithStorage;
@@ -74,11 +78,24 @@ public class RowBundle<T> {
      * Repeatedly (3x) read field from {@link RowWithGetters} provided by {@link
      * GetterBasedSchemaProvider#toRowFunction(TypeDescriptor)}.
      */
-    READ_REPEATED
+    READ_REPEATED,
+
+    /**
+     * Encode object using its {@link SchemaCoder}, which reads fields directly using the getters of
+     * {@link GetterBasedSchemaProvider}.
+     */
+    ENCODE,
+
+    /**
+     * Decode object using its {@link SchemaCoder}, which creates the object directly from the
+     * decoded field values.
+     */
+    DECODE
   }
 
   private static final SchemaRegistry REGISTRY = SchemaRegistry.createDefault();
 
+  private final SchemaCoder<T> coder;
   private final SerializableFunction<Row, T> fromRow;
   private final SerializableFunction<T, Row> toRow;
 
@@ -86,12 +103,16 @@ public class RowBundle<T> {
 
   private final T rowTarget;
 
+  private final byte[] encodedTarget;
+
+  private final ByteArrayOutputStream encodeStream = new ByteArrayOutputStream();
+
   private Row[] rows;
 
   @Param("1000000")
   int bundleSize;
 
-  @Param({"READ_ONCE", "READ_REPEATED", "WRITE"})
+  @Param({"READ_ONCE", "READ_REPEATED", "WRITE", "ENCODE", "DECODE"})
   Action action;
 
   public RowBundle() {
@@ -100,7 +121,7 @@ public class RowBundle<T> {
 
   public RowBundle(Class<T> clazz) {
     try {
-      SchemaCoder<T> coder = REGISTRY.getSchemaCoder(clazz);
+      coder = REGISTRY.getSchemaCoder(clazz);
       if (coder.getSchema().getFieldCount() != 1) {
         throw new IllegalArgumentException("Expected class with a single field");
       }
@@ -108,15 +129,16 @@ public class RowBundle<T> {
       toRow = coder.getToRowFunction();
       rowWithStorage = createRowWithStorage(coder.getSchema());
       rowTarget = fromRow.apply(rowWithStorage);
-    } catch (NoSuchSchemaException e) {
+      encodedTarget = CoderUtils.encodeToByteArray(coder, rowTarget);
+    } catch (NoSuchSchemaException | CoderException e) {
       throw new RuntimeException(e);
     }
   }
 
   @Setup(Level.Invocation)
   public void setup() {
-    // no mutable state in case of writes, skip setup
-    if (action == Action.WRITE) {
+    // no mutable state in case of writes or coding, skip setup
+    if (action == Action.WRITE || action == Action.ENCODE || action == Action.DECODE) {
       return;
     }
     if (rows == null) {
@@ -134,6 +156,10 @@ public class RowBundle<T> {
       readRowsOnce(blackhole);
     } else if (action == Action.READ_REPEATED) {
       readRowsRepeatedly(blackhole);
+    } else if (action == Action.ENCODE) {
+      encodeRows(blackhole);
+    } else if (action == Action.DECODE) {
+      decodeRows(blackhole);
     } else {
       writeRows(blackhole);
     }
@@ -164,6 +190,28 @@ public class RowBundle<T> {
     }
   }
 
+  private void encodeRows(Blackhole blackhole) {
+    try {
+      for (int i = 0; i < bundleSize; i++) {
+        encodeStream.reset();
+        coder.encode(rowTarget, encodeStream);
+        blackhole.consume(encodeStream.size());
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void decodeRows(Blackhole blackhole) {
+    try {
+      for (int i = 0; i < bundleSize; i++) {
+        blackhole.consume(CoderUtils.decodeFromByteArray(coder, encodedTarget));
+      }
+    } catch (CoderException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   private static final Instant TODAY = DateTime.now().withTimeAtStartOfDay().toInstant();
 
   /** Creates row of type {@link RowWithStorage} with single field matching the provided schema. */
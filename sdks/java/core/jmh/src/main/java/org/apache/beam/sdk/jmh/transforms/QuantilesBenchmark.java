@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.jmh.transforms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles.ApproximateQuantilesCombineFn;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.KllQuantiles.KllQuantilesCombineFn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares {@link ApproximateQuantilesCombineFn} against {@link KllQuantilesCombineFn} when adding
+ * inputs, merging accumulators and extracting outputs.
+ */
+public class QuantilesBenchmark {
+  private static final int NUM_QUANTILES = 101;
+  private static final int NUM_ELEMENTS = 100_000;
+  private static final int NUM_ACCUMULATORS = 100;
+
+  @State(Scope.Benchmark)
+  public static class CombineFnState {
+    @Param({"ApproximateQuantiles", "KllQuantiles"})
+    String implementation;
+
+    @Param({"0.01", "0.001"})
+    double epsilon;
+
+    CombineFn<Long, Object, List<Long>> combineFn;
+    long[] elements;
+    List<Object> accumulators;
+
+    @Setup
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void setup() {
+      if ("KllQuantiles".equals(implementation)) {
+        combineFn =
+            (CombineFn) KllQuantilesCombineFn.<Long>create(NUM_QUANTILES).withEpsilon(epsilon);
+      } else {
+        combineFn =
+            (CombineFn)
+                ApproximateQuantilesCombineFn.<Long>create(NUM_QUANTILES).withEpsilon(epsilon);
+      }
+      Random random = new Random(1234);
+      elements = new long[NUM_ELEMENTS];
+      for (int i = 0; i < elements.length; ++i) {
+        elements[i] = random.nextLong();
+      }
+      accumulators = new ArrayList<>(NUM_ACCUMULATORS);
+      for (int i = 0; i < NUM_ACCUMULATORS; ++i) {
+        Object accumulator = combineFn.createAccumulator();
+        for (int j = 0; j < NUM_ELEMENTS / NUM_ACCUMULATORS; ++j) {
+          accumulator = combineFn.addInput(accumulator, random.nextLong());
+        }
+        accumulators.add(accumulator);
+      }
+    }
+  }
+
+  @Benchmark
+  public List<Long> testAddInput(CombineFnState state) {
+    CombineFn<Long, Object, List<Long>> combineFn = state.combineFn;
+    Object accumulator = combineFn.createAccumulator();
+    for (long element : state.elements) {
+      accumulator = combineFn.addInput(accumulator, element);
+    }
+    return combineFn.extractOutput(accumulator);
+  }
+
+  @Benchmark
+  public List<Long> testMergeAccumulators(CombineFnState state) {
+    CombineFn<Long, Object, List<Long>> combineFn = state.combineFn;
+    // Merging mutates the first accumulator so start from an empty one.
+    List<Object> accumulators = new ArrayList<>(state.accumulators.size() + 1);
+    accumulators.add(combineFn.createAccumulator());
+    accumulators.addAll(state.accumulators);
+    return combineFn.extractOutput(combineFn.mergeAccumulators(accumulators));
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.jmh.coders;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import org.apache.beam.sdk.jmh.coders.CoderBenchmark.Elements;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Tests for {@link CoderBenchmark}. */
+@RunWith(JUnit4.class)
+public class CoderBenchmarkTest {
+  @Test
+  public void testBenchmarks() throws Exception {
+    Blackhole bh =
+        new Blackhole(
+            "Today's password is swordfish. I understand instantiating Blackholes directly is dangerous.");
+    for (String coderName : Arrays.asList("varlong", "string", "kv", "iterable", "windowedvalue")) {
+      Elements elements = new Elements();
+      elements.coderName = coderName;
+      elements.setup();
+      CoderBenchmark benchmark = new CoderBenchmark();
+      benchmark.encodeToStream(elements, bh);
+      benchmark.encodeToBuffer(elements, bh);
+      assertArrayEquals(elements.encoded, elements.buffer.array());
+      benchmark.decodeFromStream(elements, bh);
+      benchmark.decodeFromBuffer(elements, bh);
+    }
+  }
+}
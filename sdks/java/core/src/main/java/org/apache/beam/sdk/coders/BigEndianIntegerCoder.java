@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.values.TypeDescriptor;
 
 /** A {@link BigEndianIntegerCoder} encodes {@link Integer Integers} in 4 bytes, big-endian. */
@@ -57,6 +58,24 @@ public class BigEndianIntegerCoder extends AtomicCoder<Integer> {
     }
   }
 
+  @Override
+  public boolean supportsBufferCoding() {
+    return true;
+  }
+
+  @Override
+  public void encodeToBuffer(Integer value, ByteBuffer buffer) throws CoderException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null Integer");
+    }
+    buffer.putInt(value);
+  }
+
+  @Override
+  public Integer decodeFromBuffer(ByteBuffer buffer) {
+    return buffer.getInt();
+  }
+
   @Override
   public void verifyDeterministic() {}
 
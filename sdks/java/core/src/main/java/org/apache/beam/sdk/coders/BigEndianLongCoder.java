@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.values.TypeDescriptor;
 
 /** A {@link BigEndianLongCoder} encodes {@link Long Longs} in 8 bytes, big-endian. */
@@ -57,6 +58,24 @@ public class BigEndianLongCoder extends AtomicCoder<Long> {
     }
   }
 
+  @Override
+  public boolean supportsBufferCoding() {
+    return true;
+  }
+
+  @Override
+  public void encodeToBuffer(Long value, ByteBuffer buffer) throws CoderException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null Long");
+    }
+    buffer.putLong(value);
+  }
+
+  @Override
+  public Long decodeFromBuffer(ByteBuffer buffer) {
+    return buffer.getLong();
+  }
+
   @Override
   public void verifyDeterministic() {}
 
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.values.TypeDescriptor;
 
 /** A {@link BigEndianShortCoder} encodes {@link Short Shorts} in 2 bytes, big-endian. */
@@ -57,6 +58,24 @@ public class BigEndianShortCoder extends AtomicCoder<Short> {
     }
   }
 
+  @Override
+  public boolean supportsBufferCoding() {
+    return true;
+  }
+
+  @Override
+  public void encodeToBuffer(Short value, ByteBuffer buffer) throws CoderException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null Short");
+    }
+    buffer.putShort(value);
+  }
+
+  @Override
+  public Short decodeFromBuffer(ByteBuffer buffer) {
+    return buffer.getShort();
+  }
+
   @Override
   public void verifyDeterministic() {}
 
@@ -20,6 +20,7 @@ package org.apache.beam.sdk.coders;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /** A {@link Coder} for {@link Boolean}. */
 public class BooleanCoder extends AtomicCoder<Boolean> {
@@ -48,6 +49,27 @@ public class BooleanCoder extends AtomicCoder<Boolean> {
     throw new IOException(String.format("Expected 0 or 1, got %d", value));
   }
 
+  @Override
+  public boolean supportsBufferCoding() {
+    return true;
+  }
+
+  @Override
+  public void encodeToBuffer(Boolean value, ByteBuffer buffer) {
+    buffer.put(value ? (byte) 1 : 0);
+  }
+
+  @Override
+  public Boolean decodeFromBuffer(ByteBuffer buffer) throws IOException {
+    byte value = buffer.get();
+    if (value == 0) {
+      return false;
+    } else if (value == 1) {
+      return true;
+    }
+    throw new IOException(String.format("Expected 0 or 1, got %d", value));
+  }
+
   @Override
   public boolean consistentWithEquals() {
     return true;
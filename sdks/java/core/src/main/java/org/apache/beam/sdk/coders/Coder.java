@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import org.apache.beam.sdk.PipelineRunner;
@@ -154,6 +155,89 @@ public abstract class Coder<T> implements Serializable {
     return decode(inStream);
   }
 
+  /**
+   * Returns whether this {@link Coder} and all the {@link Coder}s it delegates to implement {@link
+   * #encodeToBuffer(Object, ByteBuffer)} and {@link #decodeFromBuffer(ByteBuffer)} without falling
+   * back to streams.
+   *
+   * <p>Callers which encode or decode many values may use this to decide whether to use the buffer
+   * based methods. {@link Coder}s which override this must also override {@link
+   * #encodeToBuffer(Object, ByteBuffer, Context)} and {@link #decodeFromBuffer(ByteBuffer,
+   * Context)} if they override the {@link Context} accepting stream based methods.
+   *
+   * <p>By default, returns {@code false}.
+   */
+  public boolean supportsBufferCoding() {
+    return false;
+  }
+
+  /**
+   * Encodes the given value of type {@code T} into the given buffer starting at its position and
+   * advances the position past the encoded bytes. The encoded bytes are the same as those produced
+   * by {@link #encode(Object, OutputStream)}. The buffer must use {@link
+   * java.nio.ByteOrder#BIG_ENDIAN big-endian} byte order, which is the default.
+   *
+   * <p>Throws {@link java.nio.BufferOverflowException} if the remaining space within the buffer is
+   * insufficient, in which case the position and the contents of the buffer after its position are
+   * unspecified. Callers are expected to retry with a larger buffer.
+   *
+   * <p>By default, encodes using {@link #encode(Object, OutputStream)}.
+   *
+   * @throws IOException if the value could not be written for some reason
+   * @throws CoderException if the value could not be encoded for some reason
+   */
+  public void encodeToBuffer(T value, ByteBuffer buffer) throws CoderException, IOException {
+    encode(value, new ByteBufferOutputStream(buffer));
+  }
+
+  /**
+   * Encodes the given value of type {@code T} into the given buffer in the given context, see
+   * {@link #encodeToBuffer(Object, ByteBuffer)}.
+   *
+   * @deprecated only implement and call {@link #encodeToBuffer(Object value, ByteBuffer)}
+   */
+  @Deprecated
+  public void encodeToBuffer(T value, ByteBuffer buffer, Context context)
+      throws CoderException, IOException {
+    if (supportsBufferCoding()) {
+      encodeToBuffer(value, buffer);
+    } else {
+      encode(value, new ByteBufferOutputStream(buffer), context);
+    }
+  }
+
+  /**
+   * Decodes a value of type {@code T} from the given buffer starting at its position and advances
+   * the position past the decoded bytes. Returns the decoded value. The buffer must use {@link
+   * java.nio.ByteOrder#BIG_ENDIAN big-endian} byte order, which is the default.
+   *
+   * <p>Throws {@link java.nio.BufferUnderflowException} if the buffer ends before the value is
+   * fully decoded.
+   *
+   * <p>By default, decodes using {@link #decode(InputStream)}.
+   *
+   * @throws IOException if the value could not be read for some reason
+   * @throws CoderException if the value could not be decoded for some reason
+   */
+  public T decodeFromBuffer(ByteBuffer buffer) throws CoderException, IOException {
+    return decode(new ByteBufferInputStream(buffer));
+  }
+
+  /**
+   * Decodes a value of type {@code T} from the given buffer in the given context, see {@link
+   * #decodeFromBuffer(ByteBuffer)}. In the outer context the value spans all the remaining bytes of
+   * the buffer.
+   *
+   * @deprecated only implement and call {@link #decodeFromBuffer(ByteBuffer)}
+   */
+  @Deprecated
+  public T decodeFromBuffer(ByteBuffer buffer, Context context) throws CoderException, IOException {
+    if (supportsBufferCoding()) {
+      return decodeFromBuffer(buffer);
+    }
+    return decode(new ByteBufferInputStream(buffer), context);
+  }
+
   /**
    * If this is a {@link Coder} for a parameterized type, returns the list of {@link Coder}s being
    * used for each of the parameters in the same order they appear within the parameterized type's
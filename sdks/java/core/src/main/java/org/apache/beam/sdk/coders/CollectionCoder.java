@@ -49,6 +49,16 @@ public class CollectionCoder<T> extends IterableLikeCoder<T, Collection<T>> {
     super(elemCoder, "Collection");
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @return {@code true} if the element coder supports buffer coding.
+   */
+  @Override
+  public boolean supportsBufferCoding() {
+    return elementsSupportBufferCoding();
+  }
+
   @Override
   public TypeDescriptor<Collection<T>> getEncodedTypeDescriptor() {
     return new TypeDescriptor<Collection<T>>() {}.where(
@@ -74,6 +74,16 @@ public class DequeCoder<T> extends IterableLikeCoder<T, Deque<T>> {
         this, "Coder for elements of DequeCoder must be determistic", getElemCoder());
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @return {@code true} if the element coder supports buffer coding.
+   */
+  @Override
+  public boolean supportsBufferCoding() {
+    return elementsSupportBufferCoding();
+  }
+
   @Override
   public TypeDescriptor<Deque<T>> getEncodedTypeDescriptor() {
     return new TypeDescriptor<Deque<T>>(getClass()) {}.where(
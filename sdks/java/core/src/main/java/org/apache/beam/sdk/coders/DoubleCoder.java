@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.values.TypeDescriptor;
 
 /** A {@link DoubleCoder} encodes {@link Double} values in 8 bytes using Java serialization. */
@@ -58,6 +59,24 @@ public class DoubleCoder extends AtomicCoder<Double> {
     }
   }
 
+  @Override
+  public boolean supportsBufferCoding() {
+    return true;
+  }
+
+  @Override
+  public void encodeToBuffer(Double value, ByteBuffer buffer) throws CoderException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null Double");
+    }
+    buffer.putLong(Double.doubleToLongBits(value));
+  }
+
+  @Override
+  public Double decodeFromBuffer(ByteBuffer buffer) {
+    return Double.longBitsToDouble(buffer.getLong());
+  }
+
   /**
    * {@inheritDoc}
    *
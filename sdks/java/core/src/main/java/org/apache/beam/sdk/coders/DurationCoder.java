@@ -20,6 +20,7 @@ package org.apache.beam.sdk.coders;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
 import org.apache.beam.sdk.values.TypeDescriptor;
 import org.joda.time.Duration;
@@ -67,6 +68,25 @@ public class DurationCoder extends AtomicCoder<ReadableDuration> {
     return fromLong(LONG_CODER.decode(inStream));
   }
 
+  @Override
+  public boolean supportsBufferCoding() {
+    return true;
+  }
+
+  @Override
+  public void encodeToBuffer(ReadableDuration value, ByteBuffer buffer)
+      throws CoderException, IOException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null ReadableDuration");
+    }
+    LONG_CODER.encodeToBuffer(toLong(value), buffer);
+  }
+
+  @Override
+  public ReadableDuration decodeFromBuffer(ByteBuffer buffer) throws CoderException, IOException {
+    return fromLong(LONG_CODER.decodeFromBuffer(buffer));
+  }
+
   @Override
   public void verifyDeterministic() {
     LONG_CODER.verifyDeterministic();
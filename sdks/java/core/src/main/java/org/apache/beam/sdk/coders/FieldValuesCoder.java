@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.values.Row;
+
+/**
+ * Encodes the field values of a {@link Row}, supplied in field index order, using the same wire
+ * format as {@link RowCoder}.
+ *
+ * <p>This allows types whose field values can be extracted directly, such as those with schemas
+ * inferred from getters, to be encoded and decoded without materializing an intermediate {@link
+ * Row}.
+ */
+@Internal
+@SuppressWarnings("rawtypes")
+public final class FieldValuesCoder {
+  private final Coder[] coders;
+  private final int[] encodingPosToRowIndex;
+
+  private FieldValuesCoder(Coder[] coders, int[] encodingPosToRowIndex) {
+    this.coders = coders;
+    this.encodingPosToRowIndex = encodingPosToRowIndex;
+  }
+
+  /** Returns a {@link FieldValuesCoder} for rows with the given {@code schema}. */
+  public static FieldValuesCoder of(Schema schema) {
+    int[] encodingPosToRowIndex = RowCoderGenerator.encodingPositionsToRowIndex(schema);
+    return new FieldValuesCoder(
+        RowCoderGenerator.componentCoders(schema, encodingPosToRowIndex), encodingPosToRowIndex);
+  }
+
+  /** Encodes the field values which must be in field index order. */
+  public void encode(Object[] fieldValues, OutputStream outStream) throws IOException {
+    checkState(
+        fieldValues.length == coders.length,
+        "Expected %s field values but got %s",
+        coders.length,
+        fieldValues.length);
+    VarInt.encode(fieldValues.length, outStream);
+    RowCoderGenerator.encodeFieldValues(coders, encodingPosToRowIndex, fieldValues, outStream);
+  }
+
+  /** Decodes the field values returning them in field index order. */
+  public Object[] decode(InputStream inStream) throws IOException {
+    return RowCoderGenerator.decodeFieldValues(coders, encodingPosToRowIndex, inStream);
+  }
+}
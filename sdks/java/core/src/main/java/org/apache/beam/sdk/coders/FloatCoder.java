@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.values.TypeDescriptor;
 
 /** A {@link FloatCoder} encodes {@link Float} values in 4 bytes using Java serialization. */
@@ -58,6 +59,24 @@ public class FloatCoder extends AtomicCoder<Float> {
     }
   }
 
+  @Override
+  public boolean supportsBufferCoding() {
+    return true;
+  }
+
+  @Override
+  public void encodeToBuffer(Float value, ByteBuffer buffer) throws CoderException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null Float");
+    }
+    buffer.putInt(Float.floatToIntBits(value));
+  }
+
+  @Override
+  public Float decodeFromBuffer(ByteBuffer buffer) {
+    return Float.intBitsToFloat(buffer.getInt());
+  }
+
   /**
    * {@inheritDoc}
    *
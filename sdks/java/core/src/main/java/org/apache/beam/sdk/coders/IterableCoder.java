@@ -54,6 +54,16 @@ public class IterableCoder<T> extends IterableLikeCoder<T, Iterable<T>> {
     super(elemCoder, "Iterable");
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @return {@code true} if the element coder supports buffer coding.
+   */
+  @Override
+  public boolean supportsBufferCoding() {
+    return elementsSupportBufferCoding();
+  }
+
   @Override
   public TypeDescriptor<Iterable<T>> getEncodedTypeDescriptor() {
     return new TypeDescriptor<Iterable<T>>() {}.where(
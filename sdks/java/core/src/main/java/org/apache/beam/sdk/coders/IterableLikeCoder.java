@@ -22,6 +22,7 @@ import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Prec
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -153,6 +154,66 @@ public abstract class IterableLikeCoder<T, IterableT extends Iterable<T>>
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Returns {@code false} since subclasses may override the stream based encoding. Subclasses
+   * which only use the encoding of {@link IterableLikeCoder} may opt in using {@link
+   * #elementsSupportBufferCoding()}.
+   */
+  @Override
+  public boolean supportsBufferCoding() {
+    return false;
+  }
+
+  /** Returns {@code true} if the element coder supports buffer coding. */
+  protected final boolean elementsSupportBufferCoding() {
+    return elementCoder.supportsBufferCoding();
+  }
+
+  @Override
+  public void encodeToBuffer(IterableT iterable, ByteBuffer buffer)
+      throws IOException, CoderException {
+    if (!(iterable instanceof Collection)) {
+      // Iterables of unknown size are encoded in blocks whose boundaries are chosen by the
+      // BufferedElementCountingOutputStream. Use the stream based encoding to produce the same
+      // bytes.
+      encode(iterable, new ByteBufferOutputStream(buffer));
+      return;
+    }
+    Collection<T> collection = (Collection<T>) iterable;
+    buffer.putInt(collection.size());
+    for (T elem : collection) {
+      elementCoder.encodeToBuffer(elem, buffer);
+    }
+  }
+
+  @Override
+  public IterableT decodeFromBuffer(ByteBuffer buffer) throws IOException, CoderException {
+    int size = buffer.getInt();
+    if (size >= 0) {
+      List<T> elements = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        elements.add(elementCoder.decodeFromBuffer(buffer));
+      }
+      return decodeToIterable(elements);
+    }
+    List<T> elements = new ArrayList<>();
+    long count = VarInt.decodeLong(buffer);
+    while (count > 0L) {
+      elements.add(elementCoder.decodeFromBuffer(buffer));
+      --count;
+      if (count == 0L) {
+        count = VarInt.decodeLong(buffer);
+      }
+    }
+    if (count == 0) {
+      return decodeToIterable(elements);
+    } else {
+      return decodeToIterable(elements, count, new ByteBufferInputStream(buffer));
+    }
+  }
+
   @Override
   public List<? extends Coder<?>> getCoderArguments() {
     return Arrays.asList(elementCoder);
@@ -20,6 +20,7 @@ package org.apache.beam.sdk.coders;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
@@ -85,6 +86,44 @@ public class KvCoder<K extends @Nullable Object, V extends @Nullable Object>
     return KV.of(key, value);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @return {@code true} if both the key and the value coders support buffer coding.
+   */
+  @Override
+  public boolean supportsBufferCoding() {
+    return keyCoder.supportsBufferCoding() && valueCoder.supportsBufferCoding();
+  }
+
+  @Override
+  public void encodeToBuffer(KV<K, V> kv, ByteBuffer buffer) throws IOException, CoderException {
+    encodeToBuffer(kv, buffer, Context.NESTED);
+  }
+
+  @Override
+  public void encodeToBuffer(KV<K, V> kv, ByteBuffer buffer, Context context)
+      throws IOException, CoderException {
+    if (kv == null) {
+      throw new CoderException("cannot encode a null KV");
+    }
+    keyCoder.encodeToBuffer(kv.getKey(), buffer);
+    valueCoder.encodeToBuffer(kv.getValue(), buffer, context);
+  }
+
+  @Override
+  public KV<K, V> decodeFromBuffer(ByteBuffer buffer) throws IOException, CoderException {
+    return decodeFromBuffer(buffer, Context.NESTED);
+  }
+
+  @Override
+  public KV<K, V> decodeFromBuffer(ByteBuffer buffer, Context context)
+      throws IOException, CoderException {
+    K key = keyCoder.decodeFromBuffer(buffer);
+    V value = valueCoder.decodeFromBuffer(buffer, context);
+    return KV.of(key, value);
+  }
+
   @Override
   public List<? extends Coder<?>> getCoderArguments() {
     return Arrays.asList(keyCoder, valueCoder);
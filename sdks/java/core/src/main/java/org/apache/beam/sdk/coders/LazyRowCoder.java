@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.BitSet;
+import java.util.Objects;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.transforms.SerializableFunctions;
+import org.apache.beam.sdk.util.ExposedByteArrayOutputStream;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedFields;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.ByteStreams;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link SchemaCoder} for {@link Row} instances which decodes each field lazily, the first time
+ * that it is accessed.
+ *
+ * <p>This is useful for rows with many fields where downstream transforms, such as projections and
+ * filters, only read a few of them. Decoded rows retain their encoded bytes so re-encoding a row
+ * which was decoded by an equal coder only copies those bytes.
+ *
+ * <p>The encoding differs from {@link RowCoder} since it carries the encoded length of every field
+ * allowing the offset of any field to be found without decoding the fields before it:
+ *
+ * <ul>
+ *   <li>the number of bytes which follow, as a VarInt
+ *   <li>the number of fields, as a VarInt
+ *   <li>a bitmap of the null fields, as encoded by {@link BitSetCoder}
+ *   <li>the encoded length of each field in field index order as a VarInt, zero for null fields
+ *   <li>the nested encoding of each non-null field in field index order
+ * </ul>
+ *
+ * <p>Like {@link RowCoder}, rows encoded with fewer fields than the schema has decode with nulls
+ * for the missing fields and extra encoded fields are ignored. Unlike {@link RowCoder}, fields are
+ * always encoded in field index order, encoding positions are not supported.
+ */
+@SuppressWarnings({
+  "nullness", // TODO(https://github.com/apache/beam/issues/20497)
+  "rawtypes",
+  "unchecked"
+})
+public class LazyRowCoder extends SchemaCoder<Row> {
+  private static final BitSetCoder NULL_LIST_CODER = BitSetCoder.of();
+
+  private transient @Nullable Coder[] fieldCoders;
+
+  public static LazyRowCoder of(Schema schema) {
+    return new LazyRowCoder(schema);
+  }
+
+  private LazyRowCoder(Schema schema) {
+    super(
+        schema,
+        TypeDescriptors.rows(),
+        SerializableFunctions.identity(),
+        SerializableFunctions.identity());
+  }
+
+  private Coder[] getFieldCoders() {
+    if (fieldCoders == null) {
+      Coder[] coders = new Coder[schema.getFieldCount()];
+      for (int i = 0; i < coders.length; ++i) {
+        // Nulls are recorded within the null field bitmap so the field coders do not need to
+        // handle them.
+        coders[i] = SchemaCoder.coderForFieldType(schema.getField(i).getType().withNullable(false));
+      }
+      fieldCoders = coders;
+    }
+    return fieldCoders;
+  }
+
+  @Override
+  public void encode(Row value, OutputStream outStream) throws IOException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null Row");
+    }
+    if (value instanceof RowWithEncodedFields
+        && ((RowWithEncodedFields) value).hasCompleteEncoding(schema)) {
+      RowWithEncodedFields encodedRow = (RowWithEncodedFields) value;
+      VarInt.encode(encodedRow.getEncodedSize(), outStream);
+      encodedRow.writeEncoded(outStream);
+      return;
+    }
+
+    Coder[] coders = getFieldCoders();
+    if (value.getFieldCount() != coders.length) {
+      throw new CoderException(
+          String.format(
+              "Expected a row with %s fields but got %s", coders.length, value.getFieldCount()));
+    }
+    BitSet nullFields = new BitSet(coders.length);
+    int[] fieldLengths = new int[coders.length];
+    ExposedByteArrayOutputStream fields = new ExposedByteArrayOutputStream();
+    for (int i = 0; i < coders.length; ++i) {
+      Object fieldValue = value.getValue(i);
+      if (fieldValue == null) {
+        nullFields.set(i);
+      } else {
+        int start = fields.size();
+        coders[i].encode(fieldValue, fields);
+        fieldLengths[i] = fields.size() - start;
+      }
+    }
+
+    ExposedByteArrayOutputStream header = new ExposedByteArrayOutputStream();
+    VarInt.encode(coders.length, header);
+    NULL_LIST_CODER.encode(nullFields, header);
+    for (int fieldLength : fieldLengths) {
+      VarInt.encode(fieldLength, header);
+    }
+    VarInt.encode(header.size() + fields.size(), outStream);
+    header.writeTo(outStream);
+    fields.writeTo(outStream);
+  }
+
+  @Override
+  public Row decode(InputStream inStream) throws IOException {
+    int size = VarInt.decodeInt(inStream);
+    if (size < 0) {
+      throw new CoderException("Invalid encoded row size: " + size);
+    }
+    byte[] encoded = new byte[size];
+    ByteStreams.readFully(inStream, encoded);
+
+    ByteArrayInputStream header = new ByteArrayInputStream(encoded);
+    int fieldCount = VarInt.decodeInt(header);
+    if (fieldCount < 0) {
+      throw new CoderException("Invalid encoded field count: " + fieldCount);
+    }
+    BitSet nullFields = NULL_LIST_CODER.decode(header);
+    int[] fieldLengths = new int[fieldCount];
+    for (int i = 0; i < fieldCount; ++i) {
+      fieldLengths[i] = VarInt.decodeInt(header);
+      if (fieldLengths[i] < 0) {
+        throw new CoderException("Invalid encoded field length: " + fieldLengths[i]);
+      }
+    }
+    int[] fieldOffsets = new int[fieldCount + 1];
+    fieldOffsets[0] = size - header.available();
+    for (int i = 0; i < fieldCount; ++i) {
+      fieldOffsets[i + 1] = fieldOffsets[i] + fieldLengths[i];
+    }
+    if (fieldOffsets[fieldCount] != size) {
+      throw new CoderException(
+          String.format(
+              "Encoded field lengths sum to %s bytes but %s bytes are available",
+              fieldOffsets[fieldCount] - fieldOffsets[0], size - fieldOffsets[0]));
+    }
+    return new RowWithEncodedFields(
+        schema, getFieldCoders(), encoded, fieldCount, nullFields, fieldOffsets);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    LazyRowCoder lazyRowCoder = (LazyRowCoder) o;
+    return schema.equals(lazyRowCoder.schema);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(LazyRowCoder.class, schema);
+  }
+
+  @Override
+  public String toString() {
+    return "LazyRowCoder<Schema: " + schema + "  UUID: " + schema.getUUID() + ">";
+  }
+}
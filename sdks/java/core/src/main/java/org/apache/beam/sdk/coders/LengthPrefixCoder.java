@@ -23,6 +23,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
@@ -64,6 +66,53 @@ public class LengthPrefixCoder<T> extends StructuredCoder<T> {
     return valueCoder.decode(ByteStreams.limit(inStream, size), Context.OUTER);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @return {@code true} if the value coder supports buffer coding.
+   */
+  @Override
+  public boolean supportsBufferCoding() {
+    return valueCoder.supportsBufferCoding();
+  }
+
+  @Override
+  public void encodeToBuffer(T value, ByteBuffer buffer) throws CoderException, IOException {
+    // The length is only known once the value has been encoded. Optimistically reserve a single
+    // byte for the length prefix and move the value if a longer prefix is required.
+    int lengthStart = buffer.position();
+    buffer.put((byte) 0);
+    int valueStart = buffer.position();
+    valueCoder.encodeToBuffer(value, buffer, Context.OUTER);
+    int length = buffer.position() - valueStart;
+    if (length < 0x80) {
+      buffer.put(lengthStart, (byte) length);
+      return;
+    }
+    byte[] encodedValue = new byte[length];
+    buffer.position(valueStart);
+    buffer.get(encodedValue);
+    buffer.position(lengthStart);
+    VarInt.encode(length, buffer);
+    buffer.put(encodedValue);
+  }
+
+  @Override
+  public T decodeFromBuffer(ByteBuffer buffer) throws CoderException, IOException {
+    long size = VarInt.decodeLong(buffer);
+    if (size < 0) {
+      throw new CoderException("Invalid encoded length: " + size);
+    } else if (size > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    int valueEnd = buffer.position() + (int) size;
+    ByteBuffer encodedValue = buffer.duplicate();
+    encodedValue.limit(valueEnd);
+    T value = valueCoder.decodeFromBuffer(encodedValue, Context.OUTER);
+    buffer.position(valueEnd);
+    return value;
+  }
+
   @Override
   public List<? extends Coder<?>> getCoderArguments() {
     return ImmutableList.of(valueCoder);
@@ -72,6 +72,16 @@ public class ListCoder<T> extends IterableLikeCoder<T, List<T>> {
     verifyDeterministic(this, "ListCoder.elemCoder must be deterministic", getElemCoder());
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @return {@code true} if the element coder supports buffer coding.
+   */
+  @Override
+  public boolean supportsBufferCoding() {
+    return elementsSupportBufferCoding();
+  }
+
   @Override
   public TypeDescriptor<List<T>> getEncodedTypeDescriptor() {
     return new TypeDescriptor<List<T>>(getClass()) {}.where(
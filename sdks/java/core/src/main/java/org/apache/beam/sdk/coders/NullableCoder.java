@@ -20,6 +20,7 @@ package org.apache.beam.sdk.coders;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
 import org.apache.beam.sdk.values.TypeDescriptor;
@@ -94,6 +95,53 @@ public class NullableCoder<T> extends StructuredCoder<@Nullable T> {
     return valueCoder.decode(inStream, context);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @return {@code true} if the value coder supports buffer coding.
+   */
+  @Override
+  public boolean supportsBufferCoding() {
+    return valueCoder.supportsBufferCoding();
+  }
+
+  @Override
+  public void encodeToBuffer(@Nullable T value, ByteBuffer buffer)
+      throws IOException, CoderException {
+    encodeToBuffer(value, buffer, Context.NESTED);
+  }
+
+  @Override
+  public void encodeToBuffer(@Nullable T value, ByteBuffer buffer, Context context)
+      throws IOException, CoderException {
+    if (value == null) {
+      buffer.put((byte) ENCODE_NULL);
+    } else {
+      buffer.put((byte) ENCODE_PRESENT);
+      valueCoder.encodeToBuffer(value, buffer, context);
+    }
+  }
+
+  @Override
+  public @Nullable T decodeFromBuffer(ByteBuffer buffer) throws IOException, CoderException {
+    return decodeFromBuffer(buffer, Context.NESTED);
+  }
+
+  @Override
+  public @Nullable T decodeFromBuffer(ByteBuffer buffer, Context context)
+      throws IOException, CoderException {
+    int b = buffer.get() & 0xFF;
+    if (b == ENCODE_NULL) {
+      return null;
+    } else if (b != ENCODE_PRESENT) {
+      throw new CoderException(
+          String.format(
+              "NullableCoder expects either a byte valued %s (null) or %s (present), got %s",
+              ENCODE_NULL, ENCODE_PRESENT, b));
+    }
+    return valueCoder.decodeFromBuffer(buffer, context);
+  }
+
   @Override
   public List<Coder<T>> getCoderArguments() {
     return ImmutableList.of(valueCoder);
@@ -130,28 +130,8 @@ public abstract class RowCoderGenerator {
           (DynamicType.Builder<Coder>) BYTE_BUDDY.subclass(coderType);
       builder = implementMethods(schema, builder);
 
-      int[] encodingPosToRowIndex = new int[schema.getFieldCount()];
-      Map<String, Integer> encodingPositions =
-          ENCODING_POSITION_OVERRIDES.getOrDefault(schema.getUUID(), schema.getEncodingPositions());
-      for (int recordIndex = 0; recordIndex < schema.getFieldCount(); ++recordIndex) {
-        String name = schema.getField(recordIndex).getName();
-        int encodingPosition = encodingPositions.get(name);
-        encodingPosToRowIndex[encodingPosition] = recordIndex;
-      }
-      // There should never be duplicate encoding positions.
-      Preconditions.checkState(
-          schema.getFieldCount() == Arrays.stream(encodingPosToRowIndex).distinct().count());
-
-      // Component coders are ordered by encoding position, but may encode a field with a different
-      // row index.
-      Coder[] componentCoders = new Coder[schema.getFieldCount()];
-      for (int i = 0; i < schema.getFieldCount(); ++i) {
-        int rowIndex = encodingPosToRowIndex[i];
-        // We use withNullable(false) as nulls are handled by the RowCoder and the individual
-        // component coders therefore do not need to handle nulls.
-        componentCoders[i] =
-            SchemaCoder.coderForFieldType(schema.getField(rowIndex).getType().withNullable(false));
-      }
+      int[] encodingPosToRowIndex = encodingPositionsToRowIndex(schema);
+      Coder[] componentCoders = componentCoders(schema, encodingPosToRowIndex);
 
       builder =
           builder
@@ -184,6 +164,83 @@ public abstract class RowCoderGenerator {
     return rowCoder;
   }
 
+  /** Returns the row index of the field at each encoding position. */
+  static int[] encodingPositionsToRowIndex(Schema schema) {
+    int[] encodingPosToRowIndex = new int[schema.getFieldCount()];
+    Map<String, Integer> encodingPositions =
+        ENCODING_POSITION_OVERRIDES.getOrDefault(schema.getUUID(), schema.getEncodingPositions());
+    for (int recordIndex = 0; recordIndex < schema.getFieldCount(); ++recordIndex) {
+      String name = schema.getField(recordIndex).getName();
+      int encodingPosition = encodingPositions.get(name);
+      encodingPosToRowIndex[encodingPosition] = recordIndex;
+    }
+    // There should never be duplicate encoding positions.
+    Preconditions.checkState(
+        schema.getFieldCount() == Arrays.stream(encodingPosToRowIndex).distinct().count());
+    return encodingPosToRowIndex;
+  }
+
+  /** Returns the coder of the field at each encoding position. */
+  static Coder[] componentCoders(Schema schema, int[] encodingPosToRowIndex) {
+    // Component coders are ordered by encoding position, but may encode a field with a different
+    // row index.
+    Coder[] componentCoders = new Coder[schema.getFieldCount()];
+    for (int i = 0; i < schema.getFieldCount(); ++i) {
+      int rowIndex = encodingPosToRowIndex[i];
+      // We use withNullable(false) as nulls are handled by the RowCoder and the individual
+      // component coders therefore do not need to handle nulls.
+      componentCoders[i] =
+          SchemaCoder.coderForFieldType(schema.getField(rowIndex).getType().withNullable(false));
+    }
+    return componentCoders;
+  }
+
+  /**
+   * Encodes the null field bitmap followed by the non-null field values, which are provided in row
+   * index order.
+   */
+  @SuppressWarnings("unchecked")
+  static void encodeFieldValues(
+      Coder[] coders, int[] encodingPosToIndex, Object[] fieldValues, OutputStream outputStream)
+      throws IOException {
+    // Encode a bitmap for the null fields to save having to encode a bunch of nulls.
+    NULL_LIST_CODER.encode(EncodeInstruction.scanNullFields(fieldValues), outputStream);
+    for (int encodingPos = 0; encodingPos < fieldValues.length; ++encodingPos) {
+      @Nullable Object fieldValue = fieldValues[encodingPosToIndex[encodingPos]];
+      if (fieldValue != null) {
+        coders[encodingPos].encode(fieldValue, outputStream);
+      }
+    }
+  }
+
+  /** Decodes the field values of a row returning them in row index order. */
+  static Object[] decodeFieldValues(
+      Coder[] coders, int[] encodingPosToIndex, InputStream inputStream) throws IOException {
+    int fieldCount = VAR_INT_CODER.decode(inputStream);
+
+    BitSet nullFields = NULL_LIST_CODER.decode(inputStream);
+    Object[] fieldValues = new Object[coders.length];
+    for (int encodingPos = 0; encodingPos < fieldCount; ++encodingPos) {
+      // In the case of a schema change going backwards, fieldCount might be > coders.length,
+      // in which case we drop the extra fields.
+      if (encodingPos < coders.length) {
+        int rowIndex = encodingPosToIndex[encodingPos];
+        if (nullFields.get(rowIndex)) {
+          fieldValues[rowIndex] = null;
+        } else {
+          Object fieldValue = coders[encodingPos].decode(inputStream);
+          fieldValues[rowIndex] = fieldValue;
+        }
+      }
+    }
+    // If the schema was evolved to contain more fields, we fill them in with nulls.
+    for (int encodingPos = fieldCount; encodingPos < coders.length; encodingPos++) {
+      int rowIndex = encodingPosToIndex[encodingPos];
+      fieldValues[rowIndex] = null;
+    }
+    return fieldValues;
+  }
+
   private static class GeneratedCoderConstructor implements Implementation {
     @Override
     public InstrumentedType prepare(InstrumentedType instrumentedType) {
@@ -325,14 +382,7 @@ public abstract class RowCoderGenerator {
           fieldValues[idx] = value.getValue(idx);
         }
 
-        // Encode a bitmap for the null fields to save having to encode a bunch of nulls.
-        NULL_LIST_CODER.encode(scanNullFields(fieldValues), outputStream);
-        for (int encodingPos = 0; encodingPos < fieldValues.length; ++encodingPos) {
-          @Nullable Object fieldValue = fieldValues[encodingPosToIndex[encodingPos]];
-          if (fieldValue != null) {
-            coders[encodingPos].encode(fieldValue, outputStream);
-          }
-        }
+        encodeFieldValues(coders, encodingPosToIndex, fieldValues, outputStream);
       } else {
         // Otherwise, we know all fields are non-null, so the null list is always empty.
 
@@ -416,28 +466,7 @@ public abstract class RowCoderGenerator {
     static Row decodeDelegate(
         Schema schema, Coder[] coders, int[] encodingPosToIndex, InputStream inputStream)
         throws IOException {
-      int fieldCount = VAR_INT_CODER.decode(inputStream);
-
-      BitSet nullFields = NULL_LIST_CODER.decode(inputStream);
-      Object[] fieldValues = new Object[coders.length];
-      for (int encodingPos = 0; encodingPos < fieldCount; ++encodingPos) {
-        // In the case of a schema change going backwards, fieldCount might be > coders.length,
-        // in which case we drop the extra fields.
-        if (encodingPos < coders.length) {
-          int rowIndex = encodingPosToIndex[encodingPos];
-          if (nullFields.get(rowIndex)) {
-            fieldValues[rowIndex] = null;
-          } else {
-            Object fieldValue = coders[encodingPos].decode(inputStream);
-            fieldValues[rowIndex] = fieldValue;
-          }
-        }
-      }
-      // If the schema was evolved to contain more fields, we fill them in with nulls.
-      for (int encodingPos = fieldCount; encodingPos < coders.length; encodingPos++) {
-        int rowIndex = encodingPosToIndex[encodingPos];
-        fieldValues[rowIndex] = null;
-      }
+      Object[] fieldValues = decodeFieldValues(coders, encodingPosToIndex, inputStream);
       // We call attachValues instead of setValues. setValues validates every element in the list
       // is of the proper type, potentially converts to the internal type Row stores, and copies
       // all values. Since we assume that decode is always being called on a previously-encoded
@@ -48,6 +48,16 @@ public class SetCoder<T> extends IterableLikeCoder<T, Set<T>> {
         this, "Ordering of elements in a set may be non-deterministic.");
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @return {@code true} if the element coder supports buffer coding.
+   */
+  @Override
+  public boolean supportsBufferCoding() {
+    return elementsSupportBufferCoding();
+  }
+
   @Override
   public TypeDescriptor<Set<T>> getEncodedTypeDescriptor() {
     return new TypeDescriptor<Set<T>>() {}.where(
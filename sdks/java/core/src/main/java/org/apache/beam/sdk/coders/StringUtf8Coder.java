@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import org.apache.beam.sdk.util.ExposedByteArrayOutputStream;
 import org.apache.beam.sdk.util.StreamUtils;
@@ -106,6 +108,60 @@ public class StringUtf8Coder extends AtomicCoder<String> {
     }
   }
 
+  @Override
+  public boolean supportsBufferCoding() {
+    return true;
+  }
+
+  @Override
+  public void encodeToBuffer(String value, ByteBuffer buffer) throws CoderException {
+    encodeToBuffer(value, buffer, Context.NESTED);
+  }
+
+  @Override
+  public void encodeToBuffer(String value, ByteBuffer buffer, Context context)
+      throws CoderException {
+    if (value == null) {
+      throw new CoderException("cannot encode a null String");
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (!context.isWholeStream) {
+      VarInt.encode(bytes.length, buffer);
+    }
+    buffer.put(bytes);
+  }
+
+  @Override
+  public String decodeFromBuffer(ByteBuffer buffer) throws IOException {
+    return decodeFromBuffer(buffer, Context.NESTED);
+  }
+
+  @Override
+  public String decodeFromBuffer(ByteBuffer buffer, Context context) throws IOException {
+    int length;
+    if (context.isWholeStream) {
+      length = buffer.remaining();
+    } else {
+      length = VarInt.decodeInt(buffer);
+      if (length < 0) {
+        throw new CoderException("Invalid encoded string length: " + length);
+      }
+      if (length > buffer.remaining()) {
+        throw new BufferUnderflowException();
+      }
+    }
+    if (buffer.hasArray()) {
+      // Decode directly from the backing array avoiding an intermediate copy.
+      int position = buffer.position();
+      buffer.position(position + length);
+      return new String(
+          buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
   @Override
   public void verifyDeterministic() {}
 
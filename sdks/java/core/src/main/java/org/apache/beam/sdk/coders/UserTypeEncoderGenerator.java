@@ -0,0 +1,382 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import static org.apache.beam.sdk.util.ByteBuddyUtils.getClassLoadingStrategy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.asm.AsmVisitorWrapper;
+import net.bytebuddy.description.field.FieldDescription.ForLoadedField;
+import net.bytebuddy.description.method.MethodDescription.ForLoadedMethod;
+import net.bytebuddy.description.type.TypeDescription.ForLoadedType;
+import net.bytebuddy.dynamic.scaffold.InstrumentedType;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender.Size;
+import net.bytebuddy.implementation.bytecode.StackManipulation;
+import net.bytebuddy.implementation.bytecode.assign.TypeCasting;
+import net.bytebuddy.implementation.bytecode.constant.IntegerConstant;
+import net.bytebuddy.implementation.bytecode.constant.TextConstant;
+import net.bytebuddy.implementation.bytecode.member.FieldAccess;
+import net.bytebuddy.implementation.bytecode.member.MethodInvocation;
+import net.bytebuddy.implementation.bytecode.member.MethodReturn;
+import net.bytebuddy.implementation.bytecode.member.MethodVariableAccess;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.schemas.FieldValueTypeInformation;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.Schema.TypeName;
+import org.apache.beam.sdk.schemas.utils.ByteBuddyUtils.InjectPackageStrategy;
+import org.apache.beam.sdk.schemas.utils.ReflectUtils.ClassWithSchema;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.util.common.ReflectHelpers;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Maps;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.Primitives;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A utility for generating a {@link UserTypeEncoder} for a user type whose schema is inferred from
+ * its fields or getters. The generated encoder writes the same bytes as the {@link RowCoder} for
+ * the schema, but reads each field straight from the user type and encodes primitive fields without
+ * boxing them.
+ *
+ * <p>Encoders are only generated for types whose fields are all non-nullable primitives, boxed
+ * primitives or strings, and which are read directly from a field or getter of the type. {@link
+ * #generate} returns {@code null} for other types, which are encoded using their field value
+ * getters instead.
+ *
+ * <p>The generated class corresponds to the following Java class:
+ *
+ * <pre><code>
+ * class UserTypeEncoder implements{@literal UserTypeEncoder<UserType>} {
+ *  {@literal @}Override
+ *   public void encode(UserType value, OutputStream outStream) {
+ *     // Writes the field count and an empty null field bitmap.
+ *     encodeHeader(2, outStream);
+ *     // One call per field in encoding position order.
+ *     encodeInt64(value.longField, outStream);
+ *     encodeString(value.getStringField(), outStream, "stringField");
+ *   }
+ * }
+ * </code></pre>
+ */
+@Internal
+@SuppressWarnings({
+  "nullness", // TODO(https://github.com/apache/beam/issues/20497)
+  "rawtypes"
+})
+public abstract class UserTypeEncoderGenerator {
+  private static final ByteBuddy BYTE_BUDDY = new ByteBuddy();
+  private static final BitSetCoder NULL_LIST_CODER = BitSetCoder.of();
+  private static final BitSet EMPTY_BIT_SET = new BitSet(0);
+  private static final StringUtf8Coder STRING_CODER = StringUtf8Coder.of();
+
+  // The Java type read from the user type and the method encoding it for each supported schema
+  // type. Boxed primitives are supported as well.
+  private static final Map<TypeName, Class<?>> JAVA_TYPES = new EnumMap<>(TypeName.class);
+  private static final Map<TypeName, String> ENCODE_METHODS = new EnumMap<>(TypeName.class);
+
+  static {
+    JAVA_TYPES.put(TypeName.BYTE, byte.class);
+    JAVA_TYPES.put(TypeName.INT16, short.class);
+    JAVA_TYPES.put(TypeName.INT32, int.class);
+    JAVA_TYPES.put(TypeName.INT64, long.class);
+    JAVA_TYPES.put(TypeName.FLOAT, float.class);
+    JAVA_TYPES.put(TypeName.DOUBLE, double.class);
+    JAVA_TYPES.put(TypeName.BOOLEAN, boolean.class);
+    JAVA_TYPES.put(TypeName.STRING, String.class);
+    ENCODE_METHODS.put(TypeName.BYTE, "encodeByte");
+    ENCODE_METHODS.put(TypeName.INT16, "encodeInt16");
+    ENCODE_METHODS.put(TypeName.INT32, "encodeInt32");
+    ENCODE_METHODS.put(TypeName.INT64, "encodeInt64");
+    ENCODE_METHODS.put(TypeName.FLOAT, "encodeFloat");
+    ENCODE_METHODS.put(TypeName.DOUBLE, "encodeDouble");
+    ENCODE_METHODS.put(TypeName.BOOLEAN, "encodeBoolean");
+    ENCODE_METHODS.put(TypeName.STRING, "encodeString");
+  }
+
+  // Cache for encoders that are already generated, empty if none can be generated for the type.
+  private static final Map<ClassWithSchema, Optional<UserTypeEncoder>> GENERATED_ENCODERS =
+      Maps.newConcurrentMap();
+
+  /** Encodes a user type using the wire format of the {@link RowCoder} for its schema. */
+  public interface UserTypeEncoder<T> {
+    void encode(T value, OutputStream outStream) throws IOException;
+  }
+
+  /**
+   * Returns an encoder for {@code clazz} using the wire format of the {@link RowCoder} for {@code
+   * schema}, or {@code null} if the type is not supported. The {@code typeInformations} describe
+   * how each field of the schema is read from {@code clazz}.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> @Nullable UserTypeEncoder<T> generate(
+      Class<T> clazz, Schema schema, List<FieldValueTypeInformation> typeInformations) {
+    ClassWithSchema key = ClassWithSchema.create(clazz, schema);
+    Optional<UserTypeEncoder> encoder = GENERATED_ENCODERS.get(key);
+    if (encoder == null) {
+      encoder = Optional.ofNullable(generateEncoder(clazz, schema, typeInformations));
+      GENERATED_ENCODERS.put(key, encoder);
+    }
+    return encoder.orElse(null);
+  }
+
+  private static @Nullable UserTypeEncoder generateEncoder(
+      Class<?> clazz, Schema schema, List<FieldValueTypeInformation> typeInformations) {
+    if (typeInformations.size() != schema.getFieldCount()) {
+      return null;
+    }
+    int[] encodingPosToRowIndex = RowCoderGenerator.encodingPositionsToRowIndex(schema);
+    List<StackManipulation> encodeFields = new ArrayList<>(schema.getFieldCount());
+    for (int encodingPos = 0; encodingPos < schema.getFieldCount(); ++encodingPos) {
+      int rowIndex = encodingPosToRowIndex[encodingPos];
+      StackManipulation encodeField =
+          encodeField(clazz, schema.getField(rowIndex).getType(), typeInformations.get(rowIndex));
+      if (encodeField == null) {
+        return null;
+      }
+      encodeFields.add(encodeField);
+    }
+
+    try {
+      return BYTE_BUDDY
+          .with(new InjectPackageStrategy(clazz))
+          .subclass(UserTypeEncoder.class)
+          .visit(new AsmVisitorWrapper.ForDeclaredMethods().writerFlags(ClassWriter.COMPUTE_FRAMES))
+          .method(ElementMatchers.named("encode"))
+          .intercept(new EncodeInstruction(schema.getFieldCount(), encodeFields))
+          .make()
+          .load(
+              ReflectHelpers.findClassLoader(clazz.getClassLoader()),
+              getClassLoadingStrategy(clazz))
+          .getLoaded()
+          .getDeclaredConstructor()
+          .newInstance();
+    } catch (InstantiationException
+        | IllegalAccessException
+        | NoSuchMethodException
+        | InvocationTargetException e) {
+      throw new RuntimeException("Unable to generate an encoder for " + clazz, e);
+    }
+  }
+
+  /**
+   * Returns the instructions encoding a single field whose value is read from the user type in the
+   * first parameter to the second parameter, or {@code null} if the field is not supported.
+   */
+  private static @Nullable StackManipulation encodeField(
+      Class<?> clazz, FieldType fieldType, FieldValueTypeInformation typeInformation) {
+    if (fieldType.getNullable() || typeInformation.isNullable()) {
+      return null;
+    }
+    Class<?> rawType = typeInformation.getRawType();
+    Class<?> javaType = JAVA_TYPES.get(fieldType.getTypeName());
+    if (javaType == null || !Primitives.wrap(rawType).equals(Primitives.wrap(javaType))) {
+      return null;
+    }
+    String helperName = ENCODE_METHODS.get(fieldType.getTypeName());
+
+    StackManipulation readValue;
+    if (typeInformation.getField() != null
+        && isAccessible(clazz, typeInformation.getField())
+        && !Modifier.isStatic(typeInformation.getField().getModifiers())) {
+      readValue = FieldAccess.forField(new ForLoadedField(typeInformation.getField())).read();
+    } else if (typeInformation.getMethod() != null
+        && isAccessible(clazz, typeInformation.getMethod())
+        && !Modifier.isStatic(typeInformation.getMethod().getModifiers())
+        && typeInformation.getMethod().getParameterCount() == 0) {
+      readValue = MethodInvocation.invoke(new ForLoadedMethod(typeInformation.getMethod()));
+    } else {
+      return null;
+    }
+
+    Method helper;
+    StackManipulation fieldName;
+    try {
+      if (rawType.isPrimitive()) {
+        helper = UserTypeEncoderGenerator.class.getMethod(helperName, rawType, OutputStream.class);
+        fieldName = StackManipulation.Trivial.INSTANCE;
+      } else {
+        helper =
+            UserTypeEncoderGenerator.class.getMethod(
+                helperName, rawType, OutputStream.class, String.class);
+        fieldName = new TextConstant(typeInformation.getName());
+      }
+    } catch (NoSuchMethodException e) {
+      throw new RuntimeException(e);
+    }
+    return new StackManipulation.Compound(
+        // Method param is offset 1 (offset 0 is the this parameter).
+        MethodVariableAccess.REFERENCE.loadFrom(1),
+        TypeCasting.to(new ForLoadedType(clazz)),
+        readValue,
+        MethodVariableAccess.REFERENCE.loadFrom(2),
+        fieldName,
+        MethodInvocation.invoke(new ForLoadedMethod(helper)));
+  }
+
+  // The generated class is defined in the package of clazz, so it may read members which are not
+  // private if they are declared within that package.
+  private static boolean isAccessible(Class<?> clazz, Member member) {
+    if (Modifier.isPrivate(member.getModifiers())) {
+      return false;
+    }
+    Class<?> declaringClass = member.getDeclaringClass();
+    return (Modifier.isPublic(member.getModifiers())
+            && Modifier.isPublic(declaringClass.getModifiers()))
+        || Objects.equals(declaringClass.getPackage(), clazz.getPackage());
+  }
+
+  private static class EncodeInstruction implements Implementation {
+    private final int fieldCount;
+    private final List<StackManipulation> encodeFields;
+
+    EncodeInstruction(int fieldCount, List<StackManipulation> encodeFields) {
+      this.fieldCount = fieldCount;
+      this.encodeFields = encodeFields;
+    }
+
+    @Override
+    public InstrumentedType prepare(InstrumentedType instrumentedType) {
+      return instrumentedType;
+    }
+
+    @Override
+    public ByteCodeAppender appender(Target implementationTarget) {
+      return (methodVisitor, implementationContext, instrumentedMethod) -> {
+        // this + method parameters.
+        int numLocals = 1 + instrumentedMethod.getParameters().size();
+        Method encodeHeader;
+        try {
+          encodeHeader =
+              UserTypeEncoderGenerator.class.getMethod(
+                  "encodeHeader", int.class, OutputStream.class);
+        } catch (NoSuchMethodException e) {
+          throw new RuntimeException(e);
+        }
+        StackManipulation manipulation =
+            new StackManipulation.Compound(
+                IntegerConstant.forValue(fieldCount),
+                MethodVariableAccess.REFERENCE.loadFrom(2),
+                MethodInvocation.invoke(new ForLoadedMethod(encodeHeader)),
+                new StackManipulation.Compound(encodeFields),
+                MethodReturn.VOID);
+        StackManipulation.Size size = manipulation.apply(methodVisitor, implementationContext);
+        return new Size(size.getMaximalSize(), numLocals);
+      };
+    }
+  }
+
+  // The methods below are invoked by the generated encoders.
+
+  /** Encodes the field count followed by an empty null field bitmap. */
+  public static void encodeHeader(int fieldCount, OutputStream outStream) throws IOException {
+    VarInt.encode(fieldCount, outStream);
+    NULL_LIST_CODER.encode(EMPTY_BIT_SET, outStream);
+  }
+
+  public static void encodeByte(byte value, OutputStream outStream) throws IOException {
+    outStream.write(value);
+  }
+
+  public static void encodeByte(@Nullable Byte value, OutputStream outStream, String fieldName)
+      throws IOException {
+    encodeByte(checkNonNull(value, fieldName), outStream);
+  }
+
+  public static void encodeInt16(short value, OutputStream outStream) throws IOException {
+    BitConverters.writeBigEndianShort(value, outStream);
+  }
+
+  public static void encodeInt16(@Nullable Short value, OutputStream outStream, String fieldName)
+      throws IOException {
+    encodeInt16(checkNonNull(value, fieldName), outStream);
+  }
+
+  public static void encodeInt32(int value, OutputStream outStream) throws IOException {
+    VarInt.encode(value, outStream);
+  }
+
+  public static void encodeInt32(@Nullable Integer value, OutputStream outStream, String fieldName)
+      throws IOException {
+    encodeInt32(checkNonNull(value, fieldName), outStream);
+  }
+
+  public static void encodeInt64(long value, OutputStream outStream) throws IOException {
+    VarInt.encode(value, outStream);
+  }
+
+  public static void encodeInt64(@Nullable Long value, OutputStream outStream, String fieldName)
+      throws IOException {
+    encodeInt64(checkNonNull(value, fieldName), outStream);
+  }
+
+  public static void encodeFloat(float value, OutputStream outStream) throws IOException {
+    BitConverters.writeBigEndianInt(Float.floatToIntBits(value), outStream);
+  }
+
+  public static void encodeFloat(@Nullable Float value, OutputStream outStream, String fieldName)
+      throws IOException {
+    encodeFloat(checkNonNull(value, fieldName), outStream);
+  }
+
+  public static void encodeDouble(double value, OutputStream outStream) throws IOException {
+    BitConverters.writeBigEndianLong(Double.doubleToLongBits(value), outStream);
+  }
+
+  public static void encodeDouble(@Nullable Double value, OutputStream outStream, String fieldName)
+      throws IOException {
+    encodeDouble(checkNonNull(value, fieldName), outStream);
+  }
+
+  public static void encodeBoolean(boolean value, OutputStream outStream) throws IOException {
+    outStream.write(value ? 1 : 0);
+  }
+
+  public static void encodeBoolean(
+      @Nullable Boolean value, OutputStream outStream, String fieldName) throws IOException {
+    encodeBoolean(checkNonNull(value, fieldName), outStream);
+  }
+
+  public static void encodeString(@Nullable String value, OutputStream outStream, String fieldName)
+      throws IOException {
+    STRING_CODER.encode(checkNonNull(value, fieldName), outStream);
+  }
+
+  private static <T> T checkNonNull(@Nullable T value, String fieldName) {
+    if (value == null) {
+      throw new RuntimeException("Null value set on non-nullable field " + fieldName);
+    }
+    return value;
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.beam.sdk.coders;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.values.TypeDescriptor;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -48,6 +49,22 @@ public class VoidCoder extends AtomicCoder<@Nullable Void> {
     return null;
   }
 
+  @Override
+  public boolean supportsBufferCoding() {
+    return true;
+  }
+
+  @Override
+  public void encodeToBuffer(Void value, ByteBuffer buffer) {
+    // Nothing to write!
+  }
+
+  @Override
+  public @Nullable Void decodeFromBuffer(ByteBuffer buffer) {
+    // Nothing to read!
+    return null;
+  }
+
   @Override
   public void verifyDeterministic() {}
 
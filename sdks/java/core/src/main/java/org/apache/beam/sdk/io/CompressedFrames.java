@@ -0,0 +1,923 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Throwables;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.ByteStreams;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Support for compressed files made up of independently compressed frames, which allows {@link
+ * CompressedSource} to split them on frame boundaries.
+ *
+ * <p>Two layouts are recognized:
+ *
+ * <ul>
+ *   <li>BGZF {@link Compression#GZIP} files, where every gzip member records its compressed size
+ *       within a {@code BC} extra subfield of its header, as produced by {@code bgzip}.
+ *   <li>Seekable {@link Compression#ZSTD} files, which end with a skippable frame holding a seek
+ *       table of the compressed and decompressed size of every frame, as produced by the zstd
+ *       seekable format library.
+ * </ul>
+ *
+ * <p>Both layouts remain readable by regular gzip and zstd decompressors.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+abstract class CompressedFrames {
+
+  /** The decompressed contents of a frame along with where it starts and ends within the file. */
+  static class Frame {
+    final long start;
+    final long end;
+    final byte[] data;
+
+    Frame(long start, long end, byte[] data) {
+      this.start = start;
+      this.end = end;
+      this.data = data;
+    }
+  }
+
+  protected final SeekableByteChannel channel;
+  protected final long size;
+
+  private CompressedFrames(SeekableByteChannel channel, long size) {
+    this.channel = channel;
+    this.size = size;
+  }
+
+  /**
+   * Returns the frames of the file read by the channel or {@code null} if the file does not use a
+   * recognized layout of independently compressed frames.
+   */
+  static @Nullable CompressedFrames detect(Compression compression, SeekableByteChannel channel)
+      throws IOException {
+    switch (compression) {
+      case GZIP:
+        return Bgzf.detect(channel);
+      case ZSTD:
+        return SeekableZstd.detect(channel);
+      default:
+        return null;
+    }
+  }
+
+  /** Returns whether files compressed using the given compression may be split into frames. */
+  static boolean isSupported(Compression compression) {
+    return compression == Compression.GZIP || compression == Compression.ZSTD;
+  }
+
+  /**
+   * Returns a channel which compresses the data written to it into independently compressed frames
+   * using the layout {@link #detect} recognizes for the given compression. Up to {@code
+   * parallelism} frames are compressed concurrently.
+   */
+  static WritableByteChannel writeCompressed(
+      Compression compression, WritableByteChannel channel, int parallelism) {
+    switch (compression) {
+      case GZIP:
+        return new BgzfWriter(channel, parallelism);
+      case ZSTD:
+        return new SeekableZstdWriter(channel, parallelism);
+      default:
+        throw new IllegalArgumentException(
+            String.format("%s does not support splittable compressed output", compression));
+    }
+  }
+
+  /**
+   * Returns the start of the first frame at or after {@code offset}, or the end of the last frame
+   * if there is none.
+   */
+  abstract long nextFrameStart(long offset) throws IOException;
+
+  /** Returns the start of the frame which ends at {@code frameStart}. */
+  abstract long previousFrameStart(long frameStart) throws IOException;
+
+  /**
+   * Reads and decompresses the frame starting at {@code frameStart}, returning {@code null} if
+   * {@code frameStart} is the end of the last frame.
+   */
+  abstract @Nullable Frame readFrame(long frameStart) throws IOException;
+
+  /**
+   * Returns the total decompressed size of the frames starting with the frame at {@code
+   * frameStart}, or -1 if it is unknown without decompressing them.
+   */
+  long decompressedSizeFrom(long frameStart) throws IOException {
+    return -1;
+  }
+
+  /** Releases any resources held for decompressing frames. */
+  void close() {}
+
+  /**
+   * Returns a channel over the decompressed contents of the frames starting with the first frame at
+   * or after {@code offset}.
+   *
+   * <p>When {@code offset} is greater than zero, the channel starts with at least {@code
+   * lookbackBytes} of decompressed data from the preceding frames, if there is that much, and is
+   * positioned at the end of that data.
+   */
+  DecompressedChannel decompress(long offset, int lookbackBytes) throws IOException {
+    long firstFrameStart = offset == 0 ? 0 : nextFrameStart(offset);
+    List<Frame> lookback = new ArrayList<>();
+    long lookbackLength = 0;
+    for (long start = firstFrameStart;
+        offset > 0 && start > 0 && lookbackLength < lookbackBytes; ) {
+      start = previousFrameStart(start);
+      Frame frame = readFrame(start);
+      lookback.add(0, frame);
+      lookbackLength += frame.data.length;
+    }
+    DecompressedChannel decompressed = new DecompressedChannel(this, lookback, firstFrameStart);
+    decompressed.position(lookbackLength);
+    return decompressed;
+  }
+
+  /** Reads exactly {@code length} bytes starting at {@code position}. */
+  protected static byte[] read(SeekableByteChannel channel, long position, int length)
+      throws IOException {
+    byte[] bytes = new byte[length];
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    channel.position(position);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException(
+            String.format("Unexpected end of file reading %s bytes at %s", length, position));
+      }
+    }
+    return bytes;
+  }
+
+  private static int readUnsignedShort(byte[] bytes, int index) {
+    return (bytes[index] & 0xff) | (bytes[index + 1] & 0xff) << 8;
+  }
+
+  private static int readInt(byte[] bytes, int index) {
+    return readUnsignedShort(bytes, index) | readUnsignedShort(bytes, index + 2) << 16;
+  }
+
+  private static void writeInt(byte[] bytes, int index, int value) {
+    bytes[index] = (byte) value;
+    bytes[index + 1] = (byte) (value >>> 8);
+    bytes[index + 2] = (byte) (value >>> 16);
+    bytes[index + 3] = (byte) (value >>> 24);
+  }
+
+  /**
+   * A read only channel over the decompressed contents of consecutive frames.
+   *
+   * <p>Positions are offsets within the decompressed data, starting with any lookback frames. Only
+   * the lookback frames and the current frame are retained so seeking backwards is limited to
+   * those.
+   */
+  static class DecompressedChannel implements SeekableByteChannel {
+    private static final int MAX_RETAINED_BOUNDARIES = 1024;
+
+    private final CompressedFrames frames;
+    private final byte[] lookback;
+    private final long firstFrameStart;
+    // Pairs of the decompressed position and file offset at which each frame starts.
+    private final List<long[]> boundaries = new ArrayList<>();
+    private int boundaryIndex;
+
+    private byte[] data = new byte[0]; // the most recently read frame
+    private long dataStart; // the position of the most recently read frame
+    private long nextFrameStart;
+    private long position;
+    private boolean open = true;
+
+    private DecompressedChannel(
+        CompressedFrames frames, List<Frame> lookbackFrames, long firstFrameStart) {
+      this.frames = frames;
+      ByteArrayOutputStream lookbackData = new ByteArrayOutputStream();
+      for (Frame frame : lookbackFrames) {
+        boundaries.add(new long[] {lookbackData.size(), frame.start});
+        lookbackData.write(frame.data, 0, frame.data.length);
+      }
+      this.lookback = lookbackData.toByteArray();
+      this.dataStart = lookback.length;
+      this.firstFrameStart = firstFrameStart;
+      this.nextFrameStart = firstFrameStart;
+    }
+
+    /**
+     * Returns the file offset of the frame containing the byte at {@code position}. Must be called
+     * with non-decreasing positions of data which has already been read.
+     */
+    long frameContaining(long position) {
+      while (boundaryIndex + 1 < boundaries.size()
+          && boundaries.get(boundaryIndex + 1)[0] <= position) {
+        boundaryIndex += 1;
+      }
+      long frameStart = boundaries.get(boundaryIndex)[1];
+      if (boundaryIndex > MAX_RETAINED_BOUNDARIES) {
+        boundaries.subList(0, boundaryIndex).clear();
+        boundaryIndex = 0;
+      }
+      return frameStart;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      if (!open) {
+        throw new ClosedChannelException();
+      }
+      int bytesRead = 0;
+      while (dst.hasRemaining()) {
+        byte[] source;
+        int sourcePosition;
+        if (position < lookback.length) {
+          source = lookback;
+          sourcePosition = (int) position;
+        } else {
+          while (position >= dataStart + data.length) {
+            if (!readNextFrame()) {
+              return bytesRead == 0 ? -1 : bytesRead;
+            }
+          }
+          source = data;
+          sourcePosition = (int) (position - dataStart);
+        }
+        int length = Math.min(dst.remaining(), source.length - sourcePosition);
+        dst.put(source, sourcePosition, length);
+        position += length;
+        bytesRead += length;
+      }
+      return bytesRead;
+    }
+
+    private boolean readNextFrame() throws IOException {
+      Frame frame = frames.readFrame(nextFrameStart);
+      if (frame == null) {
+        return false;
+      }
+      dataStart += data.length;
+      data = frame.data;
+      boundaries.add(new long[] {dataStart, frame.start});
+      nextFrameStart = frame.end;
+      return true;
+    }
+
+    @Override
+    public long position() {
+      return position;
+    }
+
+    @Override
+    public DecompressedChannel position(long newPosition) throws IOException {
+      checkArgument(newPosition >= 0, "Expected non-negative position but got %s", newPosition);
+      if (newPosition >= lookback.length && newPosition < dataStart) {
+        throw new IOException(
+            String.format(
+                "Unable to seek to %s which precedes the current frame at %s.",
+                newPosition, dataStart));
+      }
+      position = newPosition;
+      return this;
+    }
+
+    /**
+     * Returns the size of the decompressed data, or {@link Long#MAX_VALUE} if the frames do not
+     * record their decompressed size, in which case the end is only found by reading up to it.
+     */
+    @Override
+    public long size() throws IOException {
+      long size = frames.decompressedSizeFrom(firstFrameStart);
+      return size < 0 ? Long.MAX_VALUE : lookback.length + size;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() {
+      open = false;
+    }
+  }
+
+  /**
+   * Frames of a BGZF file. Each frame is a gzip member with a {@code BC} extra subfield holding the
+   * total size of the member minus one, which limits members to {@link #MAX_BLOCK_SIZE} bytes.
+   *
+   * <p>Members are located by scanning for a gzip header whose {@code BC} subfield points at
+   * another gzip header or at the end of the file.
+   */
+  private static class Bgzf extends CompressedFrames {
+    private static final int MAX_BLOCK_SIZE = 1 << 16;
+    private static final int FIXED_HEADER_SIZE = 12; // up to and including XLEN
+    private static final int TRAILER_SIZE = 8; // CRC32 and ISIZE
+    private static final int FEXTRA = 4;
+
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    // Bytes of the file starting at bufferStart, which are read ahead so that consecutive blocks
+    // and the headers probed while scanning are usually served without another read.
+    private byte[] buffer = new byte[0];
+    private long bufferStart;
+
+    private Bgzf(SeekableByteChannel channel, long size) {
+      super(channel, size);
+    }
+
+    static @Nullable Bgzf detect(SeekableByteChannel channel) throws IOException {
+      Bgzf bgzf = new Bgzf(channel, channel.size());
+      if (bgzf.isBlockStart(0)) {
+        return bgzf;
+      }
+      bgzf.close();
+      return null;
+    }
+
+    @Override
+    long nextFrameStart(long offset) throws IOException {
+      // Every block is shorter than MAX_BLOCK_SIZE so one must start within each window.
+      for (long position = offset; position < size; position += MAX_BLOCK_SIZE) {
+        int length = (int) Math.min(MAX_BLOCK_SIZE + 3, size - position);
+        byte[] window = read(channel, position, length);
+        for (int i = 0; i < Math.min(MAX_BLOCK_SIZE, length - 3); ++i) {
+          if (window[i] == (byte) 0x1f
+              && window[i + 1] == (byte) 0x8b
+              && window[i + 2] == 8
+              && window[i + 3] == FEXTRA
+              && isBlockStart(position + i)) {
+            return position + i;
+          }
+        }
+      }
+      return size;
+    }
+
+    @Override
+    long previousFrameStart(long frameStart) throws IOException {
+      long candidate = nextFrameStart(Math.max(0, frameStart - MAX_BLOCK_SIZE));
+      while (candidate < frameStart) {
+        int blockSize = readBlockSize(candidate);
+        if (blockSize > 0 && candidate + blockSize == frameStart) {
+          return candidate;
+        }
+        // Follow the chain of blocks unless the candidate turns out not to be a block.
+        candidate =
+            blockSize > 0 && candidate + blockSize < frameStart
+                ? candidate + blockSize
+                : nextFrameStart(candidate + 1);
+      }
+      throw new IOException(
+          String.format("Unable to find the BGZF block preceding offset %s.", frameStart));
+    }
+
+    @Override
+    @Nullable
+    Frame readFrame(long frameStart) throws IOException {
+      if (frameStart >= size) {
+        return null;
+      }
+      int offset = fill(frameStart);
+      int blockSize = parseBlockSize(buffer, offset, buffer.length - offset);
+      if (blockSize <= 0) {
+        throw new IOException(String.format("Invalid BGZF block at offset %s.", frameStart));
+      }
+      int headerSize = FIXED_HEADER_SIZE + readUnsignedShort(buffer, offset + 10);
+      byte[] data = new byte[readInt(buffer, offset + blockSize - 4)];
+      inflater.reset();
+      inflater.setInput(buffer, offset + headerSize, blockSize - headerSize - TRAILER_SIZE);
+      try {
+        int length = 0;
+        while (length < data.length && !inflater.finished() && !inflater.needsInput()) {
+          length += inflater.inflate(data, length, data.length - length);
+        }
+        if (length != data.length || inflater.inflate(new byte[1]) != 0 || !inflater.finished()) {
+          throw new IOException(
+              String.format("Decompressed size of BGZF block at %s is invalid.", frameStart));
+        }
+      } catch (DataFormatException e) {
+        throw new IOException(String.format("Invalid BGZF block at offset %s.", frameStart), e);
+      }
+      crc.reset();
+      crc.update(data, 0, data.length);
+      if ((int) crc.getValue() != readInt(buffer, offset + blockSize - TRAILER_SIZE)) {
+        throw new IOException(String.format("CRC mismatch in BGZF block at %s.", frameStart));
+      }
+      return new Frame(frameStart, frameStart + blockSize, data);
+    }
+
+    @Override
+    void close() {
+      inflater.end();
+    }
+
+    /** Returns whether a block starts at the position and is followed by another or the end. */
+    private boolean isBlockStart(long position) throws IOException {
+      int blockSize = readBlockSize(position);
+      if (blockSize <= 0) {
+        return false;
+      }
+      long next = position + blockSize;
+      return next == size || (next < size && readBlockSize(next) > 0);
+    }
+
+    /** Returns the size of the block whose header starts at the position or -1 if there is none. */
+    private int readBlockSize(long position) throws IOException {
+      if (position >= size) {
+        return -1;
+      }
+      int offset = fill(position);
+      return parseBlockSize(buffer, offset, buffer.length - offset);
+    }
+
+    /**
+     * Ensures the buffer holds the bytes starting at the position up to the largest possible block
+     * or the end of the file, returning the offset of the position within the buffer.
+     */
+    private int fill(long position) throws IOException {
+      long end = position + Math.min(MAX_BLOCK_SIZE, size - position);
+      if (position < bufferStart || end > bufferStart + buffer.length) {
+        buffer = read(channel, position, (int) Math.min(2L * MAX_BLOCK_SIZE, size - position));
+        bufferStart = position;
+      }
+      return (int) (position - bufferStart);
+    }
+
+    /**
+     * Returns the size of the block whose header starts at the offset, or -1 if there is none or
+     * the block does not fit within the {@code length} bytes following the offset.
+     */
+    private static int parseBlockSize(byte[] bytes, int offset, int length) {
+      if (length < FIXED_HEADER_SIZE
+          || bytes[offset] != (byte) 0x1f
+          || bytes[offset + 1] != (byte) 0x8b
+          || bytes[offset + 2] != 8
+          || bytes[offset + 3] != FEXTRA) {
+        return -1;
+      }
+      int extraLength = readUnsignedShort(bytes, offset + 10);
+      if (FIXED_HEADER_SIZE + extraLength > length) {
+        return -1;
+      }
+      int extra = offset + FIXED_HEADER_SIZE;
+      for (int i = 0; i + 4 <= extraLength; ) {
+        int subfieldLength = readUnsignedShort(bytes, extra + i + 2);
+        if (bytes[extra + i] == 'B'
+            && bytes[extra + i + 1] == 'C'
+            && subfieldLength == 2
+            && i + 6 <= extraLength) {
+          int blockSize = readUnsignedShort(bytes, extra + i + 4) + 1;
+          return blockSize >= FIXED_HEADER_SIZE + extraLength + TRAILER_SIZE && blockSize <= length
+              ? blockSize
+              : -1;
+        }
+        i += 4 + subfieldLength;
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Frames of a seekable zstd file, which are listed by the seek table stored in a skippable frame
+   * at the end of the file.
+   */
+  private static class SeekableZstd extends CompressedFrames {
+    private static final int SKIPPABLE_FRAME_MAGIC = 0x184D2A5E;
+    private static final int SEEKABLE_MAGIC = 0x8F92EAB1;
+    private static final int SKIPPABLE_HEADER_SIZE = 8;
+    private static final int FOOTER_SIZE = 9;
+    private static final int CHECKSUM_FLAG = 0x80;
+    private static final int RESERVED_BITS = 0x7c;
+
+    // The start of each frame followed by the start of the seek table.
+    private final long[] frameStarts;
+    private final int[] decompressedSizes;
+
+    private SeekableZstd(
+        SeekableByteChannel channel, long size, long[] frameStarts, int[] decompressedSizes) {
+      super(channel, size);
+      this.frameStarts = frameStarts;
+      this.decompressedSizes = decompressedSizes;
+    }
+
+    static @Nullable SeekableZstd detect(SeekableByteChannel channel) throws IOException {
+      long size = channel.size();
+      if (size < SKIPPABLE_HEADER_SIZE + FOOTER_SIZE) {
+        return null;
+      }
+      byte[] footer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+      int numFrames = readInt(footer, 0);
+      int descriptor = footer[4];
+      if (readInt(footer, 5) != SEEKABLE_MAGIC
+          || numFrames < 0
+          || (descriptor & RESERVED_BITS) != 0) {
+        return null;
+      }
+      int entrySize = (descriptor & CHECKSUM_FLAG) != 0 ? 12 : 8;
+      long tableSize = SKIPPABLE_HEADER_SIZE + (long) numFrames * entrySize + FOOTER_SIZE;
+      if (tableSize > size || tableSize > Integer.MAX_VALUE) {
+        return null;
+      }
+      byte[] table = read(channel, size - tableSize, (int) tableSize);
+      if (readInt(table, 0) != SKIPPABLE_FRAME_MAGIC
+          || readInt(table, 4) != tableSize - SKIPPABLE_HEADER_SIZE) {
+        return null;
+      }
+      long[] frameStarts = new long[numFrames + 1];
+      int[] decompressedSizes = new int[numFrames];
+      for (int i = 0; i < numFrames; ++i) {
+        int entry = SKIPPABLE_HEADER_SIZE + i * entrySize;
+        long compressedSize = readInt(table, entry) & 0xffffffffL;
+        decompressedSizes[i] = readInt(table, entry + 4);
+        if (compressedSize == 0 || compressedSize > Integer.MAX_VALUE || decompressedSizes[i] < 0) {
+          return null;
+        }
+        frameStarts[i + 1] = frameStarts[i] + compressedSize;
+      }
+      if (frameStarts[numFrames] != size - tableSize) {
+        return null;
+      }
+      return new SeekableZstd(channel, size, frameStarts, decompressedSizes);
+    }
+
+    @Override
+    long nextFrameStart(long offset) {
+      int index = Arrays.binarySearch(frameStarts, offset);
+      return frameStarts[index >= 0 ? index : Math.min(-index - 1, frameStarts.length - 1)];
+    }
+
+    @Override
+    long previousFrameStart(long frameStart) throws IOException {
+      return frameStarts[frameIndex(frameStart) - 1];
+    }
+
+    @Override
+    @Nullable
+    Frame readFrame(long frameStart) throws IOException {
+      int index = frameIndex(frameStart);
+      if (index == decompressedSizes.length) {
+        return null;
+      }
+      byte[] compressed =
+          read(channel, frameStart, (int) (frameStarts[index + 1] - frameStarts[index]));
+      byte[] data = new byte[decompressedSizes[index]];
+      try (InputStream stream =
+          new ZstdCompressorInputStream(new ByteArrayInputStream(compressed))) {
+        ByteStreams.readFully(stream, data);
+        if (stream.read() != -1) {
+          throw new IOException(
+              String.format("Zstd frame at %s is larger than its seek table entry.", frameStart));
+        }
+      }
+      return new Frame(frameStart, frameStarts[index + 1], data);
+    }
+
+    @Override
+    long decompressedSizeFrom(long frameStart) throws IOException {
+      long decompressedSize = 0;
+      for (int i = frameIndex(frameStart); i < decompressedSizes.length; ++i) {
+        decompressedSize += decompressedSizes[i];
+      }
+      return decompressedSize;
+    }
+
+    private int frameIndex(long frameStart) throws IOException {
+      int index = Arrays.binarySearch(frameStarts, frameStart);
+      if (index < 0) {
+        throw new IOException(String.format("No zstd frame starts at offset %s.", frameStart));
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Buffers written data and compresses it a frame at a time.
+   *
+   * <p>When the parallelism is greater than one, frames are compressed concurrently on a shared
+   * executor with at most that many frames of this writer in flight, and written in order by the
+   * thread writing to this channel.
+   */
+  private abstract static class FrameWriter implements WritableByteChannel {
+    private final OutputStream output;
+    private final int frameSize;
+    private final int parallelism;
+    private final Deque<Future<byte[]>> pendingFrames = new ArrayDeque<>();
+    private final Deque<Integer> pendingFrameSizes = new ArrayDeque<>();
+    private byte[] input;
+    private int inputLength;
+    private boolean open = true;
+
+    FrameWriter(WritableByteChannel channel, int frameSize, int parallelism) {
+      checkArgument(parallelism > 0, "Expected positive parallelism but got %s", parallelism);
+      this.output = Channels.newOutputStream(channel);
+      this.frameSize = frameSize;
+      this.parallelism = parallelism;
+      this.input = new byte[frameSize];
+    }
+
+    /** Compresses the input into a frame. May be invoked concurrently for different frames. */
+    protected abstract byte[] compress(byte[] input, int length) throws IOException;
+
+    /** Invoked in order after each frame has been written. */
+    protected void frameWritten(int compressedSize, int inputSize) {}
+
+    /** Returns anything that follows the last frame. */
+    protected abstract byte[] trailer() throws IOException;
+
+    /** Releases any resources held for compressing frames. */
+    protected void release() {}
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      if (!open) {
+        throw new ClosedChannelException();
+      }
+      int bytesWritten = src.remaining();
+      while (src.hasRemaining()) {
+        int length = Math.min(src.remaining(), frameSize - inputLength);
+        src.get(input, inputLength, length);
+        inputLength += length;
+        if (inputLength == frameSize) {
+          writeFrame();
+        }
+      }
+      return bytesWritten;
+    }
+
+    private void writeFrame() throws IOException {
+      if (parallelism == 1) {
+        byte[] frame = compress(input, inputLength);
+        output.write(frame);
+        frameWritten(frame.length, inputLength);
+      } else {
+        if (pendingFrames.size() == parallelism) {
+          writePendingFrame();
+        }
+        byte[] frameInput = input;
+        int frameLength = inputLength;
+        pendingFrames.add(
+            CompressionExecutor.INSTANCE.submit(() -> compress(frameInput, frameLength)));
+        pendingFrameSizes.add(frameLength);
+        input = new byte[frameSize];
+      }
+      inputLength = 0;
+    }
+
+    private void writePendingFrame() throws IOException {
+      byte[] frame;
+      try {
+        frame = pendingFrames.remove().get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while compressing a frame.");
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause(), IOException.class);
+        throw new IOException("Failed to compress a frame.", e.getCause());
+      }
+      output.write(frame);
+      frameWritten(frame.length, pendingFrameSizes.remove());
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!open) {
+        return;
+      }
+      open = false;
+      try {
+        if (inputLength > 0) {
+          writeFrame();
+        }
+        while (!pendingFrames.isEmpty()) {
+          writePendingFrame();
+        }
+        output.write(trailer());
+      } finally {
+        // Frames still being compressed may hold resources, such as a Deflater which is returned to
+        // the pool once done, so they must finish before those resources are released.
+        for (Future<byte[]> frame : pendingFrames) {
+          try {
+            Uninterruptibles.getUninterruptibly(frame);
+          } catch (ExecutionException e) {
+            // Ignored since writing has already failed.
+          }
+        }
+        pendingFrames.clear();
+        release();
+        output.close();
+      }
+    }
+  }
+
+  /** The executor shared by all writers compressing frames in parallel. */
+  private static class CompressionExecutor {
+    private static final ExecutorService INSTANCE =
+        Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("beam-frame-compression-%d")
+                .build());
+  }
+
+  /** Writes BGZF blocks followed by the empty end of file block. */
+  private static class BgzfWriter extends FrameWriter {
+    // The largest input which always compresses to a block of at most Bgzf.MAX_BLOCK_SIZE bytes.
+    private static final int MAX_INPUT_SIZE = 0xff00;
+    private static final byte[] HEADER = {
+      0x1f, (byte) 0x8b, 8, Bgzf.FEXTRA, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0, 0, 0
+    };
+    private static final byte[] EOF_BLOCK = {
+      0x1f,
+      (byte) 0x8b,
+      8,
+      4,
+      0,
+      0,
+      0,
+      0,
+      0,
+      (byte) 0xff,
+      6,
+      0,
+      'B',
+      'C',
+      2,
+      0,
+      0x1b,
+      0,
+      3,
+      0,
+      0,
+      0,
+      0,
+      0,
+      0,
+      0,
+      0,
+      0
+    };
+
+    // Deflaters are reused across frames since creating them is relatively expensive.
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    BgzfWriter(WritableByteChannel channel, int parallelism) {
+      super(channel, MAX_INPUT_SIZE, parallelism);
+    }
+
+    @Override
+    protected byte[] compress(byte[] input, int length) throws IOException {
+      Deflater deflater = deflaters.poll();
+      if (deflater == null) {
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      }
+      byte[] block = new byte[Bgzf.MAX_BLOCK_SIZE];
+      int blockLength = HEADER.length;
+      try {
+        deflater.reset();
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        int limit = block.length - Bgzf.TRAILER_SIZE;
+        while (!deflater.finished()) {
+          if (blockLength == limit) {
+            throw new IOException("Compressed data exceeds the maximum BGZF block size.");
+          }
+          blockLength += deflater.deflate(block, blockLength, limit - blockLength);
+        }
+      } finally {
+        deflaters.add(deflater);
+      }
+      System.arraycopy(HEADER, 0, block, 0, HEADER.length);
+      int blockSize = blockLength + Bgzf.TRAILER_SIZE;
+      block[16] = (byte) (blockSize - 1);
+      block[17] = (byte) ((blockSize - 1) >>> 8);
+      CRC32 crc = new CRC32();
+      crc.update(input, 0, length);
+      writeInt(block, blockLength, (int) crc.getValue());
+      writeInt(block, blockLength + 4, length);
+      return Arrays.copyOf(block, blockSize);
+    }
+
+    @Override
+    protected byte[] trailer() {
+      return EOF_BLOCK;
+    }
+
+    @Override
+    protected void release() {
+      for (Deflater deflater = deflaters.poll(); deflater != null; deflater = deflaters.poll()) {
+        deflater.end();
+      }
+    }
+  }
+
+  /** Writes zstd frames followed by a skippable frame holding the seek table. */
+  private static class SeekableZstdWriter extends FrameWriter {
+    private static final int FRAME_SIZE = 1 << 20;
+
+    private final ByteArrayOutputStream seekTable = new ByteArrayOutputStream();
+    private final byte[] entry = new byte[8];
+    private int numFrames;
+
+    SeekableZstdWriter(WritableByteChannel channel, int parallelism) {
+      super(channel, FRAME_SIZE, parallelism);
+    }
+
+    @Override
+    protected byte[] compress(byte[] input, int length) throws IOException {
+      ByteArrayOutputStream frame = new ByteArrayOutputStream();
+      try (OutputStream compressor = new ZstdCompressorOutputStream(frame)) {
+        compressor.write(input, 0, length);
+      }
+      return frame.toByteArray();
+    }
+
+    @Override
+    protected void frameWritten(int compressedSize, int inputSize) {
+      writeInt(entry, 0, compressedSize);
+      writeInt(entry, 4, inputSize);
+      seekTable.write(entry, 0, entry.length);
+      numFrames += 1;
+    }
+
+    @Override
+    protected byte[] trailer() {
+      ByteBuffer buffer =
+          ByteBuffer.allocate(
+                  SeekableZstd.SKIPPABLE_HEADER_SIZE + seekTable.size() + SeekableZstd.FOOTER_SIZE)
+              .order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(SeekableZstd.SKIPPABLE_FRAME_MAGIC);
+      buffer.putInt(seekTable.size() + SeekableZstd.FOOTER_SIZE);
+      buffer.put(seekTable.toByteArray());
+      buffer.putInt(numFrames);
+      buffer.put((byte) 0);
+      buffer.putInt(SeekableZstd.SEEKABLE_MAGIC);
+      return buffer.array();
+    }
+  }
+}
@@ -24,12 +24,14 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.util.NoSuchElementException;
 import javax.annotation.concurrent.GuardedBy;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Instant;
 
@@ -60,6 +62,12 @@ import org.joda.time.Instant;
  * indicates {@link Compression#DEFLATE}. If the file name does not match any of the supported
  * algorithms, it is assumed to be uncompressed data.
  *
+ * <p>Compressed files are generally read in a single bundle. Large {@link Compression#GZIP} files
+ * in the BGZF format and {@link Compression#ZSTD} files in the zstd seekable format, such as those
+ * written using {@link FileBasedSink#splittableCompression}, consist of independently compressed
+ * frames and are split on frame boundaries instead. Each record is positioned at the offset of the
+ * frame containing its first byte.
+ *
  * @param <T> The type to read from the compressed file.
  */
 @SuppressWarnings({
@@ -170,8 +178,15 @@ public class CompressedSource<T> extends FileBasedSource<T> {
     }
   }
 
+  /** Files smaller than this are not inspected for independently compressed frames. */
+  private static final long DEFAULT_MIN_FRAMED_FILE_SIZE_BYTES = 64L << 20;
+
   private final FileBasedSource<T> sourceDelegate;
   private final DecompressingChannelFactory channelFactory;
+  private final long minFramedFileSizeBytes;
+
+  // Whether the single file consists of independently compressed frames, computed lazily.
+  private @Nullable Boolean hasFrames;
 
   /**
    * Creates a {@code CompressedSource} from an underlying {@code FileBasedSource}. The type of
@@ -179,7 +194,8 @@ public class CompressedSource<T> extends FileBasedSource<T> {
    * {@link CompressedSource#withDecompression}.
    */
   public static <T> CompressedSource<T> from(FileBasedSource<T> sourceDelegate) {
-    return new CompressedSource<>(sourceDelegate, CompressionMode.AUTO);
+    return new CompressedSource<>(
+        sourceDelegate, CompressionMode.AUTO, DEFAULT_MIN_FRAMED_FILE_SIZE_BYTES);
   }
 
   /**
@@ -187,7 +203,7 @@ public class CompressedSource<T> extends FileBasedSource<T> {
    * with the given {@link DecompressingChannelFactory}.
    */
   public CompressedSource<T> withDecompression(DecompressingChannelFactory channelFactory) {
-    return new CompressedSource<>(this.sourceDelegate, channelFactory);
+    return new CompressedSource<>(this.sourceDelegate, channelFactory, minFramedFileSizeBytes);
   }
 
   /** Like {@link #withDecompression} but takes a canonical {@link Compression}. */
@@ -195,18 +211,30 @@ public class CompressedSource<T> extends FileBasedSource<T> {
     return withDecompression(CompressionMode.fromCanonical(compression));
   }
 
+  /**
+   * Returns a {@code CompressedSource} like this one which inspects files of at least the given
+   * size for independently compressed frames.
+   */
+  @VisibleForTesting
+  CompressedSource<T> withMinFramedFileSizeBytes(long minFramedFileSizeBytes) {
+    return new CompressedSource<>(this.sourceDelegate, channelFactory, minFramedFileSizeBytes);
+  }
+
   /**
    * Creates a {@code CompressedSource} from a delegate file based source and a decompressing
    * channel factory.
    */
   private CompressedSource(
-      FileBasedSource<T> sourceDelegate, DecompressingChannelFactory channelFactory) {
+      FileBasedSource<T> sourceDelegate,
+      DecompressingChannelFactory channelFactory,
+      long minFramedFileSizeBytes) {
     super(
         sourceDelegate.getFileOrPatternSpecProvider(),
         sourceDelegate.getEmptyMatchTreatment(),
         Long.MAX_VALUE);
     this.sourceDelegate = sourceDelegate;
     this.channelFactory = channelFactory;
+    this.minFramedFileSizeBytes = minFramedFileSizeBytes;
   }
 
   /**
@@ -216,6 +244,8 @@ public class CompressedSource<T> extends FileBasedSource<T> {
   private CompressedSource(
       FileBasedSource<T> sourceDelegate,
       DecompressingChannelFactory channelFactory,
+      long minFramedFileSizeBytes,
+      @Nullable Boolean hasFrames,
       Metadata metadata,
       long minBundleSize,
       long startOffset,
@@ -223,14 +253,16 @@ public class CompressedSource<T> extends FileBasedSource<T> {
     super(metadata, minBundleSize, startOffset, endOffset);
     this.sourceDelegate = sourceDelegate;
     this.channelFactory = channelFactory;
+    this.minFramedFileSizeBytes = minFramedFileSizeBytes;
+    this.hasFrames = hasFrames;
     boolean splittable;
     try {
-      splittable = isSplittable();
+      splittable = startOffset == 0 || isSplittable();
     } catch (Exception e) {
       throw new RuntimeException("Failed to determine if the source is splittable", e);
     }
     checkArgument(
-        splittable || startOffset == 0,
+        splittable,
         "CompressedSources must start reading at offset 0. Requested offset: %s",
         startOffset);
   }
@@ -255,6 +287,9 @@ public class CompressedSource<T> extends FileBasedSource<T> {
     return new CompressedSource<>(
         sourceDelegate.createForSubrangeOfFile(metadata, start, end),
         channelFactory,
+        minFramedFileSizeBytes,
+        // Subranges of a single file share whether it has frames.
+        getMode() == Mode.SINGLE_FILE_OR_SUBRANGE ? hasFrames : null,
         metadata,
         sourceDelegate.getMinBundleSize(),
         start,
@@ -264,7 +299,7 @@ public class CompressedSource<T> extends FileBasedSource<T> {
   /**
    * Determines whether a single file represented by this source is splittable. Returns true if we
    * are using the default decompression factory and it determines from the requested file name that
-   * the file is not compressed.
+   * the file is not compressed, or if the file consists of independently compressed frames.
    */
   @Override
   protected final boolean isSplittable() {
@@ -278,10 +313,64 @@ public class CompressedSource<T> extends FileBasedSource<T> {
     if (channelFactory == CompressionMode.UNCOMPRESSED) {
       return true;
     }
+    if (channelFactory == CompressionMode.AUTO
+        && !Compression.AUTO.isCompressed(getFileOrPatternSpec())) {
+      return true;
+    }
+    return hasFrames();
+  }
+
+  /** Returns whether the single file represented by this source has splittable frames. */
+  private boolean hasFrames() {
+    if (getMode() != Mode.SINGLE_FILE_OR_SUBRANGE) {
+      return false;
+    }
+    if (hasFrames == null) {
+      try {
+        hasFrames = detectFrames();
+      } catch (IOException e) {
+        throw new RuntimeException(
+            String.format("Failed to inspect %s for compressed frames", getFileOrPatternSpec()), e);
+      }
+    }
+    return hasFrames;
+  }
+
+  private boolean detectFrames() throws IOException {
+    Compression compression = getFramedCompression();
+    Metadata metadata = getSingleFileMetadata();
+    if (compression == null
+        || !metadata.isReadSeekEfficient()
+        || metadata.sizeBytes() < minFramedFileSizeBytes) {
+      return false;
+    }
+    try (ReadableByteChannel channel = FileSystems.open(metadata.resourceId())) {
+      if (!(channel instanceof SeekableByteChannel)) {
+        return false;
+      }
+      CompressedFrames frames = CompressedFrames.detect(compression, (SeekableByteChannel) channel);
+      if (frames == null) {
+        return false;
+      }
+      frames.close();
+      return true;
+    }
+  }
+
+  /**
+   * Returns the {@link Compression} of the file if it is one which may consist of independently
+   * compressed frames. User-defined factories are never treated as framed.
+   */
+  private @Nullable Compression getFramedCompression() {
+    Compression compression;
     if (channelFactory == CompressionMode.AUTO) {
-      return !Compression.AUTO.isCompressed(getFileOrPatternSpec());
+      compression = Compression.detect(getFileOrPatternSpec());
+    } else if (channelFactory instanceof CompressionMode) {
+      compression = ((CompressionMode) channelFactory).canonical;
+    } else {
+      return null;
     }
-    return false;
+    return CompressedFrames.isSupported(compression) ? compression : null;
   }
 
   /**
@@ -294,6 +383,9 @@ public class CompressedSource<T> extends FileBasedSource<T> {
   @Override
   protected final FileBasedReader<T> createSingleFileReader(PipelineOptions options) {
     if (isSplittable()) {
+      if (hasFrames != null && hasFrames) {
+        return new FramedReader<>(this, options);
+      }
       return sourceDelegate.createSingleFileReader(options);
     }
     return new CompressedReader<>(this, sourceDelegate.createSingleFileReader(options));
@@ -482,4 +574,102 @@ public class CompressedSource<T> extends FileBasedSource<T> {
       return readerDelegate.getCurrentTimestamp();
     }
   }
+
+  /**
+   * Reader for a {@link CompressedSource} whose file consists of independently compressed frames.
+   * Decompresses the frames starting with the first one within the range of the source, preceded by
+   * enough of the previous frames for the delegate reader to find the first record boundary, and
+   * uses a delegate reader to read elements from the decompressed data.
+   *
+   * <p>Records are positioned at the offset of the frame containing their first byte. Only the
+   * first record of each frame which the delegate reader considers a split point is reported as a
+   * split point, since split points must have distinct offsets.
+   */
+  private static class FramedReader<T> extends FileBasedReader<T> {
+    // The minimum amount of data preceding the first frame that the delegate reader may inspect.
+    private static final int MIN_LOOKBACK_BYTES = 64;
+
+    private final PipelineOptions options;
+    private @Nullable CompressedFrames frames;
+    private CompressedFrames.DecompressedChannel decompressed;
+    private FileBasedReader<T> readerDelegate;
+    private long currentOffset;
+    private boolean atSplitPoint;
+    private long lastSplitPointOffset = -1;
+
+    FramedReader(CompressedSource<T> source, PipelineOptions options) {
+      super(source);
+      this.options = options;
+    }
+
+    @Override
+    public synchronized CompressedSource<T> getCurrentSource() {
+      return (CompressedSource<T>) super.getCurrentSource();
+    }
+
+    @Override
+    protected void startReading(ReadableByteChannel channel) throws IOException {
+      CompressedSource<T> source = getCurrentSource();
+      frames =
+          CompressedFrames.detect(source.getFramedCompression(), (SeekableByteChannel) channel);
+      if (frames == null) {
+        throw new IOException(
+            String.format(
+                "%s no longer consists of independently compressed frames",
+                source.getFileOrPatternSpec()));
+      }
+      decompressed = frames.decompress(source.getStartOffset(), MIN_LOOKBACK_BYTES);
+      readerDelegate =
+          source
+              .sourceDelegate
+              .createForSubrangeOfFile(
+                  source.getSingleFileMetadata(), decompressed.position(), Long.MAX_VALUE)
+              .createSingleFileReader(options);
+      readerDelegate.startReading(decompressed);
+    }
+
+    @Override
+    protected boolean readNextRecord() throws IOException {
+      if (!readerDelegate.readNextRecord()) {
+        return false;
+      }
+      currentOffset = decompressed.frameContaining(readerDelegate.getCurrentOffset());
+      atSplitPoint = currentOffset != lastSplitPointOffset && readerDelegate.isAtSplitPoint();
+      if (atSplitPoint) {
+        lastSplitPointOffset = currentOffset;
+      }
+      return true;
+    }
+
+    @Override
+    protected boolean isAtSplitPoint() throws NoSuchElementException {
+      return atSplitPoint;
+    }
+
+    @Override
+    protected long getCurrentOffset() throws NoSuchElementException {
+      return currentOffset;
+    }
+
+    @Override
+    public T getCurrent() throws NoSuchElementException {
+      return readerDelegate.getCurrent();
+    }
+
+    @Override
+    public Instant getCurrentTimestamp() throws NoSuchElementException {
+      return readerDelegate.getCurrentTimestamp();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (frames != null) {
+          frames.close();
+        }
+      }
+    }
+  }
 }
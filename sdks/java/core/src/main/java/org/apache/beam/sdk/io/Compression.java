@@ -74,7 +74,12 @@ public enum Compression {
     }
   },
 
-  /** GZip compression. */
+  /**
+   * GZip compression.
+   *
+   * <p>Files in the BGZF format, such as those written using {@link
+   * FileBasedSink#splittableCompression}, can be split by {@link CompressedSource}.
+   */
   GZIP(".gz", ".gz") {
     @Override
     public ReadableByteChannel readDecompressed(ReadableByteChannel channel) throws IOException {
@@ -142,6 +147,9 @@ public enum Compression {
    * responsibility to declare an explicit dependency on {@code zstd-jni}. Attempts to read or write
    * .zst files without {@code zstd-jni} loaded will result in {@code NoClassDefFoundError} at
    * runtime.
+   *
+   * <p>Files in the zstd seekable format, such as those written using {@link
+   * FileBasedSink#splittableCompression}, can be split by {@link CompressedSource}.
    */
   ZSTD(".zst", ".zst", ".zstd") {
     @Override
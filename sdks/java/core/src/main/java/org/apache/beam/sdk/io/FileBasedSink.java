@@ -213,6 +213,74 @@ public abstract class FileBasedSink<UserT, DestinationT, OutputT>
     }
   }
 
+  /**
+   * Returns a {@link WritableByteChannelFactory} which compresses the output into independently
+   * compressed frames so that {@link CompressedSource} is able to split large files when reading
+   * them.
+   *
+   * <p>{@link Compression#GZIP} output is written in the BGZF format, a series of gzip members of
+   * at most 64 KiB each. {@link Compression#ZSTD} output is written in the zstd seekable format, a
+   * series of 1 MiB frames followed by a seek table. Both remain readable by regular gzip and zstd
+   * decompressors, at the cost of a slightly lower compression ratio.
+   */
+  public static WritableByteChannelFactory splittableCompression(Compression compression) {
+    return parallelCompression(compression, 1);
+  }
+
+  /**
+   * Like {@link #splittableCompression} but compresses up to {@code parallelism} frames of each
+   * output file concurrently, which speeds up writing when compression rather than I/O limits the
+   * throughput of a few large shards.
+   *
+   * <p>Frames are compressed on a thread pool shared by all writers within the process and sized to
+   * the number of available processors. Each writer buffers at most {@code parallelism}
+   * uncompressed and compressed frames.
+   */
+  public static WritableByteChannelFactory parallelCompression(
+      Compression compression, int parallelism) {
+    checkArgument(
+        CompressedFrames.isSupported(compression),
+        "Splittable compression is only supported for %s and %s but got %s",
+        Compression.GZIP,
+        Compression.ZSTD,
+        compression);
+    checkArgument(parallelism > 0, "parallelism must be positive but was %s", parallelism);
+    return new SplittableCompressionFactory(compression, parallelism);
+  }
+
+  /** Compresses output using {@link CompressedFrames#writeCompressed}. */
+  private static class SplittableCompressionFactory implements WritableByteChannelFactory {
+    private final Compression compression;
+    private final int parallelism;
+
+    private SplittableCompressionFactory(Compression compression, int parallelism) {
+      this.compression = compression;
+      this.parallelism = parallelism;
+    }
+
+    @Override
+    public String getSuggestedFilenameSuffix() {
+      return compression.getSuggestedSuffix();
+    }
+
+    @Override
+    public String getMimeType() {
+      return MimeTypes.BINARY;
+    }
+
+    @Override
+    public WritableByteChannel create(WritableByteChannel channel) throws IOException {
+      return CompressedFrames.writeCompressed(compression, channel, parallelism);
+    }
+
+    @Override
+    public String toString() {
+      return parallelism == 1
+          ? "SPLITTABLE_" + compression
+          : String.format("SPLITTABLE_%s(parallelism=%s)", compression, parallelism);
+    }
+  }
+
   /**
    * This is a helper function for turning a user-provided output filename prefix and converting it
    * into a {@link ResourceId} for writing output files. See {@link TextIO.Write#to(String)} for an
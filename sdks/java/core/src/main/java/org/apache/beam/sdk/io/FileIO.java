@@ -177,7 +177,8 @@ import org.slf4j.LoggerFactory;
  *       format of a single file: how to open a file, how to write each element to it, and how to
  *       close the file - but it does not control the set of files or which elements go where.
  *       Elements are written to a shard in an arbitrary order. {@link FileIO.Write} can
- *       additionally compress the generated files using {@link FileIO.Write#withCompression}.
+ *       additionally compress the generated files using {@link FileIO.Write#withCompression}, or
+ *       compress large files faster using {@link FileIO.Write#withParallelCompression}.
  *   <li><b>How all of the above can be element-dependent:</b> This is controlled by <i>dynamic
  *       destinations</i>. It is possible to have different groups of elements use different
  *       policies for naming files and for configuring the {@link Sink}. See "dynamic destinations"
@@ -999,6 +1000,8 @@ public class FileIO {
 
     abstract Compression getCompression();
 
+    abstract @Nullable Integer getCompressionParallelism();
+
     abstract @Nullable ValueProvider<Integer> getNumShards();
 
     abstract @Nullable PTransform<PCollection<UserT>, PCollectionView<Integer>> getSharding();
@@ -1043,6 +1046,9 @@ public class FileIO {
 
       abstract Builder<DestinationT, UserT> setCompression(Compression compression);
 
+      abstract Builder<DestinationT, UserT> setCompressionParallelism(
+          @Nullable Integer compressionParallelism);
+
       abstract Builder<DestinationT, UserT> setNumShards(
           @Nullable ValueProvider<Integer> numShards);
 
@@ -1211,7 +1217,23 @@ public class FileIO {
       checkArgument(compression != null, "compression can not be null");
       checkArgument(
           compression != Compression.AUTO, "AUTO compression is not supported for writing");
-      return toBuilder().setCompression(compression).build();
+      return toBuilder().setCompression(compression).setCompressionParallelism(null).build();
+    }
+
+    /**
+     * Like {@link #withCompression} but compresses up to {@code parallelism} blocks of each shard
+     * file concurrently. Only {@link Compression#GZIP} and {@link Compression#ZSTD} are supported.
+     * See {@link FileBasedSink#parallelCompression(Compression, int)}.
+     */
+    public Write<DestinationT, UserT> withParallelCompression(
+        Compression compression, int parallelism) {
+      checkArgument(compression != null, "compression can not be null");
+      checkArgument(
+          compression == Compression.GZIP || compression == Compression.ZSTD,
+          "Parallel compression is only supported for GZIP and ZSTD but got %s",
+          compression);
+      checkArgument(parallelism > 0, "parallelism must be positive but was %s", parallelism);
+      return toBuilder().setCompression(compression).setCompressionParallelism(parallelism).build();
     }
 
     /**
@@ -1360,6 +1382,7 @@ public class FileIO {
       }
 
       resolvedSpec.setCompression(getCompression());
+      resolvedSpec.setCompressionParallelism(getCompressionParallelism());
       resolvedSpec.setNumShards(getNumShards());
       resolvedSpec.setSharding(getSharding());
       resolvedSpec.setIgnoreWindowing(getIgnoreWindowing());
@@ -1417,10 +1440,17 @@ public class FileIO {
                 spec.getTempDirectory(),
                 input -> FileSystems.matchNewResource(input, true /* isDirectory */)),
             new DynamicDestinationsAdapter<>(spec),
-            spec.getCompression());
+            writableByteChannelFactory(spec));
         this.spec = spec;
       }
 
+      private static WritableByteChannelFactory writableByteChannelFactory(Write<?, ?> spec) {
+        Integer parallelism = spec.getCompressionParallelism();
+        return parallelism == null
+            ? FileBasedSink.CompressionType.fromCanonical(spec.getCompression())
+            : FileBasedSink.parallelCompression(spec.getCompression(), parallelism);
+      }
+
       @Override
       public WriteOperation<DestinationT, OutputT> createWriteOperation() {
         return new WriteOperation<DestinationT, OutputT>(this) {
@@ -18,7 +18,6 @@
 package org.apache.beam.sdk.io;
 
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
-import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.Files.fileTraverser;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -26,33 +25,53 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 import org.apache.beam.sdk.io.fs.CreateOptions;
+import org.apache.beam.sdk.io.fs.DirectoryListingCache;
 import org.apache.beam.sdk.io.fs.MatchResult;
 import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
 import org.apache.beam.sdk.io.fs.MatchResult.Status;
 import org.apache.beam.sdk.io.fs.MoveOptions;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
-import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Predicates;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Throwables;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
-import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang3.SystemUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,7 +110,39 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
   /** Matches a glob containing a wildcard, capturing the portion before the first wildcard. */
   private static final Pattern GLOB_PREFIX = Pattern.compile("(?<PREFIX>[^\\[*?]*)[\\[*?].*");
 
-  LocalFileSystem() {}
+  /**
+   * Directories modified within this window before being listed are not revalidated using their
+   * modification time, since file systems with coarse timestamps may not change it when the
+   * directory is modified again shortly after.
+   */
+  private static final long RACY_MODIFICATION_WINDOW_MILLIS = 2000;
+
+  private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+  // The maximum number of files copied or renamed, or specs matched, concurrently.
+  private final int parallelism;
+
+  private final @Nullable DirectoryListingCache listingCache;
+
+  // Runs the operations of batches processed concurrently, created on first use.
+  private @Nullable ExecutorService executor;
+
+  /** Creates a {@code LocalFileSystem} which processes files sequentially. */
+  LocalFileSystem() {
+    this(1, null);
+  }
+
+  /**
+   * Creates a {@code LocalFileSystem} which copies and renames up to {@code parallelism} files, and
+   * matches up to {@code parallelism} specs, concurrently. If {@code listingCacheTtl} is not {@code
+   * null}, directory listings are cached for use by subsequent matches, see {@link
+   * DirectoryListingCache}.
+   */
+  LocalFileSystem(int parallelism, @Nullable Duration listingCacheTtl) {
+    checkArgument(parallelism > 0, "Expected positive parallelism but got %s", parallelism);
+    this.parallelism = parallelism;
+    this.listingCache = listingCacheTtl == null ? null : new DirectoryListingCache(listingCacheTtl);
+  }
 
   @Override
   protected List<MatchResult> match(List<String> specs) throws IOException {
@@ -100,11 +151,9 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
 
   @VisibleForTesting
   List<MatchResult> match(String baseDir, List<String> specs) throws IOException {
-    ImmutableList.Builder<MatchResult> ret = ImmutableList.builder();
-    for (String spec : specs) {
-      ret.add(matchOne(baseDir, spec));
-    }
-    return ret.build();
+    MatchResult[] results = new MatchResult[specs.size()];
+    forEachIndex(specs.size(), i -> results[i] = matchOne(baseDir, specs.get(i)));
+    return ImmutableList.copyOf(results);
   }
 
   @Override
@@ -118,7 +167,9 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
         && !absoluteFile.getParentFile().exists()) {
       throw new IOException("Unable to create parent directories for '" + resourceId + "'");
     }
-    return Channels.newChannel(new BufferedOutputStream(new FileOutputStream(absoluteFile)));
+    FileOutputStream outputStream = new FileOutputStream(absoluteFile);
+    invalidateListings(resourceId);
+    return Channels.newChannel(new BufferedOutputStream(outputStream));
   }
 
   @Override
@@ -139,26 +190,61 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
         "Number of source files %s must equal number of destination files %s",
         srcResourceIds.size(),
         destResourceIds.size());
-    int numFiles = srcResourceIds.size();
-    for (int i = 0; i < numFiles; i++) {
-      LocalResourceId src = srcResourceIds.get(i);
-      LocalResourceId dst = destResourceIds.get(i);
-      LOG.debug("Copying {} to {}", src, dst);
-      File parent = dst.getCurrentDirectory().getPath().toFile();
-      if (!parent.exists()) {
-        checkArgument(
-            parent.mkdirs() || parent.exists(),
-            "Unable to make output directory %s in order to copy into file %s",
-            parent,
-            dst.getPath());
+    forEachIndex(
+        srcResourceIds.size(),
+        i -> {
+          LocalResourceId src = srcResourceIds.get(i);
+          LocalResourceId dst = destResourceIds.get(i);
+          LOG.debug("Copying {} to {}", src, dst);
+          File parent = dst.getCurrentDirectory().getPath().toFile();
+          if (!parent.exists()) {
+            checkArgument(
+                parent.mkdirs() || parent.exists(),
+                "Unable to make output directory %s in order to copy into file %s",
+                parent,
+                dst.getPath());
+          }
+          // Copy the source file, replacing the existing destination.
+          // Paths.get(x) will not work on Windows OSes cause of the ":" after the drive letter.
+          copyFile(src.getPath(), dst.getPath());
+          invalidateListings(dst);
+        });
+  }
+
+  /**
+   * Copies the file replacing any existing destination, like {@link Files#copy} with {@link
+   * StandardCopyOption#REPLACE_EXISTING} and {@link StandardCopyOption#COPY_ATTRIBUTES}. The data
+   * is copied using {@link FileChannel#transferTo} which lets the operating system copy it without
+   * passing it through user space.
+   */
+  private static void copyFile(Path src, Path dst) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(src, BasicFileAttributes.class);
+    if (Files.exists(dst)) {
+      if (Files.isSameFile(src, dst)) {
+        return;
+      }
+      Files.delete(dst);
+    }
+    try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+        FileChannel out =
+            FileChannel.open(dst, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+      long size = in.size();
+      for (long position = 0; position < size; ) {
+        long transferred = in.transferTo(position, size - position, out);
+        if (transferred <= 0) {
+          // The file was truncated while it was being copied.
+          break;
+        }
+        position += transferred;
       }
-      // Copy the source file, replacing the existing destination.
-      // Paths.get(x) will not work on Windows OSes cause of the ":" after the drive letter.
-      Files.copy(
-          src.getPath(),
-          dst.getPath(),
-          StandardCopyOption.REPLACE_EXISTING,
-          StandardCopyOption.COPY_ATTRIBUTES);
+    }
+    Files.getFileAttributeView(dst, BasicFileAttributeView.class)
+        .setTimes(
+            attributes.lastModifiedTime(), attributes.lastAccessTime(), attributes.creationTime());
+    PosixFileAttributeView posixView =
+        Files.getFileAttributeView(dst, PosixFileAttributeView.class);
+    if (posixView != null) {
+      posixView.setPermissions(Files.getPosixFilePermissions(src));
     }
   }
 
@@ -176,25 +262,112 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
         "Number of source files %s must equal number of destination files %s",
         srcResourceIds.size(),
         destResourceIds.size());
-    int numFiles = srcResourceIds.size();
-    for (int i = 0; i < numFiles; i++) {
-      LocalResourceId src = srcResourceIds.get(i);
-      LocalResourceId dst = destResourceIds.get(i);
-      LOG.debug("Renaming {} to {}", src, dst);
-      File parent = dst.getCurrentDirectory().getPath().toFile();
-      if (!parent.exists()) {
-        checkArgument(
-            parent.mkdirs() || parent.exists(),
-            "Unable to make output directory %s in order to move into file %s",
-            parent,
-            dst.getPath());
+    forEachIndex(
+        srcResourceIds.size(),
+        i -> {
+          LocalResourceId src = srcResourceIds.get(i);
+          LocalResourceId dst = destResourceIds.get(i);
+          LOG.debug("Renaming {} to {}", src, dst);
+          File parent = dst.getCurrentDirectory().getPath().toFile();
+          if (!parent.exists()) {
+            checkArgument(
+                parent.mkdirs() || parent.exists(),
+                "Unable to make output directory %s in order to move into file %s",
+                parent,
+                dst.getPath());
+          }
+          // Rename the source file, replacing the existing destination.
+          try {
+            Files.move(
+                src.getPath(),
+                dst.getPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+          } catch (AtomicMoveNotSupportedException e) {
+            // The destination is on a different file store so the file has to be copied.
+            LOG.debug("Unable to atomically move {} to {}, copying it instead", src, dst, e);
+            copyFile(src.getPath(), dst.getPath());
+            Files.delete(src.getPath());
+          }
+          invalidateListings(src);
+          invalidateListings(dst);
+        });
+  }
+
+  /**
+   * Returns the executor shared by all batches of this file system, whose threads exit when they
+   * have been idle for a while.
+   */
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      ThreadPoolExecutor threadPool =
+          new ThreadPoolExecutor(
+              parallelism,
+              parallelism,
+              IDLE_THREAD_TIMEOUT_SECONDS,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(),
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("beam-local-file-system-%d")
+                  .build());
+      threadPool.allowCoreThreadTimeOut(true);
+      executor = threadPool;
+    }
+    return executor;
+  }
+
+  /** An operation on the element at the given index within a batch. */
+  private interface IndexedOperation {
+    void apply(int index) throws IOException;
+  }
+
+  /**
+   * Applies the operation to each index less than {@code size}, using up to {@link #parallelism}
+   * threads. If any operation fails, the operations which have not yet started are skipped and the
+   * first failure is rethrown once the running operations complete.
+   */
+  private void forEachIndex(int size, IndexedOperation operation) throws IOException {
+    if (parallelism == 1 || size <= 1) {
+      for (int i = 0; i < size; i++) {
+        operation.apply(i);
       }
-      // Rename the source file, replacing the existing destination.
-      Files.move(
-          src.getPath(),
-          dst.getPath(),
-          StandardCopyOption.REPLACE_EXISTING,
-          StandardCopyOption.ATOMIC_MOVE);
+      return;
+    }
+    ExecutorService executor = getExecutor();
+    List<Future<?>> futures = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      int index = i;
+      futures.add(
+          executor.submit(
+              () -> {
+                operation.apply(index);
+                return null;
+              }));
+    }
+    Throwable failure = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (CancellationException e) {
+        // Skipped after an earlier failure.
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+          futures.forEach(f -> f.cancel(false));
+        } else {
+          failure.addSuppressed(e.getCause());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        futures.forEach(f -> f.cancel(true));
+        throw new InterruptedIOException("Interrupted while waiting for file operations.");
+      }
+    }
+    if (failure != null) {
+      Throwables.propagateIfPossible(failure, IOException.class);
+      Throwables.throwIfUnchecked(failure);
+      throw new IOException(failure);
     }
   }
 
@@ -207,6 +380,7 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
         LOG.info(
             "Ignoring failed deletion of file {} which already does not exist.", resourceId, e);
       }
+      invalidateListings(resourceId);
     }
   }
 
@@ -269,6 +443,20 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
       return MatchResult.create(Status.NOT_FOUND, Collections.emptyList());
     }
 
+    // The paths of listed files are normalized, as is every LocalResourceId, so the glob and the
+    // directory it is matched beneath are normalized too. Only the non-wildcard prefix is
+    // normalized since it is the only part which is a valid path on every platform.
+    Path parentPath = parent.toPath().normalize();
+    String absolutePath = absoluteFile.getAbsolutePath();
+    if (absolutePath.startsWith(parent.getPath())) {
+      String remainder = absolutePath.substring(parent.getPath().length());
+      while (remainder.startsWith(File.separator)) {
+        remainder = remainder.substring(File.separator.length());
+      }
+      String prefix = parentPath.toString();
+      absolutePath = prefix + (prefix.endsWith(File.separator) ? "" : File.separator) + remainder;
+    }
+
     // Method getAbsolutePath() on Windows platform may return something like
     // "c:\temp\file.txt". FileSystem.getPathMatcher() call below will treat
     // '\' (backslash) as an escape character, instead of a directory
@@ -277,27 +465,24 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
     // backslash as a part of the filename, because Globs.toRegexPattern will
     // eat one backslash.
     String pathToMatch =
-        absoluteFile
-            .getAbsolutePath()
-            .replaceAll(Matcher.quoteReplacement("\\"), Matcher.quoteReplacement("\\\\"));
+        absolutePath.replaceAll(Matcher.quoteReplacement("\\"), Matcher.quoteReplacement("\\\\"));
 
     final PathMatcher matcher =
         java.nio.file.FileSystems.getDefault().getPathMatcher("glob:" + pathToMatch);
 
-    // TODO: Avoid iterating all files: https://github.com/apache/beam/issues/18193
-    Iterable<File> files = fileTraverser().depthFirstPreOrder(parent);
-    Iterable<File> matchedFiles =
-        StreamSupport.stream(files.spliterator(), false)
-            .filter(
-                Predicates.and(
-                        org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.Files.isFile(),
-                        input -> matcher.matches(input.toPath()))
-                    ::apply)
-            .collect(Collectors.toList());
-
-    List<Metadata> result = Lists.newLinkedList();
-    for (File match : matchedFiles) {
-      result.add(toMetadata(match));
+    // Files nested deeper than the glob cannot match it unless it may span directories.
+    int maxDepth =
+        absolutePath.contains("**")
+                || absolutePath.contains("{")
+                || absolutePath.contains("[")
+                || absolutePath.contains("\\")
+            ? Integer.MAX_VALUE
+            : depth(absolutePath);
+    List<Metadata> result = new ArrayList<>();
+    try {
+      collectMatches(parentPath, matcher, maxDepth, result);
+    } catch (IOException e) {
+      return MatchResult.create(Status.ERROR, e);
     }
     if (result.isEmpty()) {
       // TODO: consider to return Status.OK for globs.
@@ -318,6 +503,114 @@ class LocalFileSystem extends FileSystem<LocalResourceId> {
         : file.getAbsoluteFile().getParentFile();
   }
 
+  /**
+   * Adds the files beneath the directory which match the matcher, without descending into
+   * directories deeper than {@code maxDepth}.
+   */
+  private void collectMatches(
+      Path directory, PathMatcher matcher, int maxDepth, List<Metadata> result) throws IOException {
+    List<Metadata> children;
+    try {
+      children = listDirectory(directory);
+    } catch (NoSuchFileException | AccessDeniedException | NotDirectoryException e) {
+      // The directory was deleted while matching or cannot be listed.
+      return;
+    }
+    for (Metadata child : children) {
+      LocalResourceId resourceId = (LocalResourceId) child.resourceId();
+      if (!resourceId.isDirectory()) {
+        if (matcher.matches(resourceId.getPath())) {
+          result.add(child);
+        }
+      } else if (depth(resourceId.getPath().toString()) < maxDepth) {
+        collectMatches(resourceId.getPath(), matcher, maxDepth, result);
+      }
+    }
+  }
+
+  /**
+   * Returns the metadata of the regular files and directories within the directory, using the
+   * {@link #listingCache} if present.
+   */
+  private List<Metadata> listDirectory(Path directory) throws IOException {
+    if (listingCache == null) {
+      return readDirectory(directory);
+    }
+    List<String> segments = toSegments(directory);
+    List<Metadata> cached = listingCache.get(segments, () -> Files.getLastModifiedTime(directory));
+    if (cached != null) {
+      return cached;
+    }
+    long generation = listingCache.getGeneration();
+    long listedAtMillis = System.currentTimeMillis();
+    FileTime lastModifiedTime = Files.getLastModifiedTime(directory);
+    List<Metadata> children = readDirectory(directory);
+    listingCache.put(
+        segments,
+        generation,
+        listedAtMillis - lastModifiedTime.toMillis() > RACY_MODIFICATION_WINDOW_MILLIS
+            ? lastModifiedTime
+            : null,
+        children);
+    return children;
+  }
+
+  private List<Metadata> readDirectory(Path directory) throws IOException {
+    List<Metadata> children = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path child : stream) {
+        BasicFileAttributes attributes;
+        try {
+          attributes = Files.readAttributes(child, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+          // The file was deleted while listing or is a broken symbolic link.
+          continue;
+        }
+        if (attributes.isRegularFile() || attributes.isDirectory()) {
+          children.add(
+              Metadata.builder()
+                  .setResourceId(LocalResourceId.fromPath(child, attributes.isDirectory()))
+                  .setIsReadSeekEfficient(true)
+                  .setSizeBytes(attributes.size())
+                  .setLastModifiedMillis(attributes.lastModifiedTime().toMillis())
+                  .build());
+        }
+      }
+    }
+    return children;
+  }
+
+  /** Discards the cached listings which may include the resource. */
+  private void invalidateListings(LocalResourceId resourceId) {
+    if (listingCache != null) {
+      listingCache.invalidate(toSegments(resourceId.getPath()));
+    }
+  }
+
+  private static List<String> toSegments(Path path) {
+    Path absolutePath = path.toAbsolutePath().normalize();
+    List<String> segments = new ArrayList<>(absolutePath.getNameCount() + 1);
+    Path root = absolutePath.getRoot();
+    if (root != null) {
+      segments.add(root.toString());
+    }
+    for (Path name : absolutePath) {
+      segments.add(name.toString());
+    }
+    return segments;
+  }
+
+  /** Returns the number of names within the path, which may contain wildcards. */
+  private static int depth(String path) {
+    int depth = 0;
+    for (String name : path.split(Pattern.quote(File.separator))) {
+      if (!name.isEmpty()) {
+        depth += 1;
+      }
+    }
+    return depth;
+  }
+
   private Metadata toMetadata(File file) {
     return Metadata.builder()
         .setResourceId(LocalResourceId.fromPath(file.toPath(), file.isDirectory()))
@@ -18,15 +18,25 @@
 package org.apache.beam.sdk.io;
 
 import com.google.auto.service.AutoService;
+import org.apache.beam.sdk.options.LocalFileSystemOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Duration;
 
 /** {@link AutoService} registrar for the {@link LocalFileSystem}. */
 @AutoService(FileSystemRegistrar.class)
 public class LocalFileSystemRegistrar implements FileSystemRegistrar {
   @Override
   public Iterable<FileSystem<?>> fromOptions(@Nullable PipelineOptions options) {
-    return ImmutableList.of(new LocalFileSystem());
+    if (options == null) {
+      return ImmutableList.of(new LocalFileSystem());
+    }
+    LocalFileSystemOptions localOptions = options.as(LocalFileSystemOptions.class);
+    Long listingCacheTtlMillis = localOptions.getLocalFileSystemListingCacheTtlMillis();
+    return ImmutableList.of(
+        new LocalFileSystem(
+            localOptions.getLocalFileSystemParallelism(),
+            listingCacheTtlMillis == null ? null : Duration.millis(listingCacheTtlMillis)));
   }
 }
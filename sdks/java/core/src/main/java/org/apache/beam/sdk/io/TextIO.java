@@ -947,6 +947,29 @@ public class TextIO {
           FileBasedSink.CompressionType.fromCanonical(compression));
     }
 
+    /**
+     * Returns a transform for writing to text files like this one but that compresses output using
+     * the given {@link Compression} into independently compressed frames, allowing large files to
+     * be split when they are read. Only {@link Compression#GZIP} and {@link Compression#ZSTD} are
+     * supported. See {@link FileBasedSink#splittableCompression(Compression)}.
+     */
+    public TypedWrite<UserT, DestinationT> withSplittableCompression(Compression compression) {
+      checkArgument(compression != null, "compression can not be null");
+      return withWritableByteChannelFactory(FileBasedSink.splittableCompression(compression));
+    }
+
+    /**
+     * Like {@link #withSplittableCompression} but compresses up to {@code parallelism} blocks of
+     * each output file concurrently. See {@link FileBasedSink#parallelCompression(Compression,
+     * int)}.
+     */
+    public TypedWrite<UserT, DestinationT> withParallelCompression(
+        Compression compression, int parallelism) {
+      checkArgument(compression != null, "compression can not be null");
+      return withWritableByteChannelFactory(
+          FileBasedSink.parallelCompression(compression, parallelism));
+    }
+
     /**
      * Preserves windowing of input elements and writes them to files based on the element's window.
      *
@@ -1212,6 +1235,16 @@ public class TextIO {
       return new Write(inner.withCompression(compression));
     }
 
+    /** See {@link TypedWrite#withSplittableCompression(Compression)}. */
+    public Write withSplittableCompression(Compression compression) {
+      return new Write(inner.withSplittableCompression(compression));
+    }
+
+    /** See {@link TypedWrite#withParallelCompression(Compression, int)}. */
+    public Write withParallelCompression(Compression compression, int parallelism) {
+      return new Write(inner.withParallelCompression(compression, parallelism));
+    }
+
     /** See {@link TypedWrite#withWindowedWrites}. */
     public Write withWindowedWrites() {
       return new Write(inner.withWindowedWrites());
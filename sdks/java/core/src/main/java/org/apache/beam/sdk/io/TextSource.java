@@ -22,6 +22,9 @@ import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Prec
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
@@ -48,6 +51,10 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * <p>This source supports reading from any arbitrary byte position within the stream. If the
  * starting position is not {@code 0}, then bytes are skipped until the first delimiter is found
  * representing the beginning of the first record to be decoded.
+ *
+ * <p>When reading from a {@link FileChannel}, such as files on local disks or mounted file systems,
+ * using the default delimiters, the file is memory mapped and records are located and decoded in
+ * place instead of being copied through an intermediate buffer.
  */
 @VisibleForTesting
 @SuppressWarnings({
@@ -96,11 +103,17 @@ public class TextSource extends FileBasedSource<String> {
         ByteString.copyFrom(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
     private static final byte CR = '\r';
     private static final byte LF = '\n';
+    private static final int MAPPED_WINDOW_SIZE = 64 << 20;
+    private static final long LF_BYTES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long CR_BYTES = 0x0D0D0D0D0D0D0D0DL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
 
     private final byte @Nullable [] delimiter;
     private final ByteArrayOutputStream str;
     private final byte[] buffer;
     private final ByteBuffer byteBuffer;
+    private final int mappedWindowSize;
 
     private ReadableByteChannel inChannel;
     private long startOfRecord;
@@ -111,12 +124,26 @@ public class TextSource extends FileBasedSource<String> {
     private int bufferPosn = 0; // the current position in the buffer
     private boolean skipLineFeedAtStart; // skip an LF if at the start of the next buffer
 
+    // Only used when the file is memory mapped, see readMappedLine().
+    private @Nullable FileChannel mappedChannel;
+    private @Nullable MappedByteBuffer window; // the currently mapped region of the file
+    private long windowStart; // the offset within the file of the start of the window
+    private long fileSize;
+    private byte[] lineBuffer; // the bytes of the current record copied out of the window
+
     private TextBasedReader(TextSource source, byte[] delimiter) {
+      this(source, delimiter, MAPPED_WINDOW_SIZE);
+    }
+
+    @VisibleForTesting
+    TextBasedReader(TextSource source, byte @Nullable [] delimiter, int mappedWindowSize) {
       super(source);
       this.buffer = new byte[READ_BUFFER_SIZE];
       this.str = new ByteArrayOutputStream();
       this.byteBuffer = ByteBuffer.wrap(buffer);
       this.delimiter = delimiter;
+      this.mappedWindowSize = mappedWindowSize;
+      this.lineBuffer = buffer;
     }
 
     @Override
@@ -146,6 +173,12 @@ public class TextSource extends FileBasedSource<String> {
     @Override
     protected void startReading(ReadableByteChannel channel) throws IOException {
       this.inChannel = channel;
+      if (delimiter == null && channel instanceof FileChannel) {
+        // Records are read relative to startOfNextRecord directly from the mapped file so the
+        // position of the channel below only matters for detecting the UTF8_BOM.
+        this.mappedChannel = (FileChannel) channel;
+        this.fileSize = mappedChannel.size();
+      }
       // If the first offset is greater than zero, we need to skip bytes until we see our
       // first delimiter.
       long startOffset = getCurrentSource().getStartOffset();
@@ -218,7 +251,9 @@ public class TextSource extends FileBasedSource<String> {
         return false;
       }
 
-      if (delimiter == null) {
+      if (mappedChannel != null) {
+        return readMappedLine();
+      } else if (delimiter == null) {
         return readDefaultLine();
       } else {
         return readCustomLine();
@@ -330,6 +365,117 @@ public class TextSource extends FileBasedSource<String> {
       return true;
     }
 
+    /**
+     * Reads the record starting at {@code startOfRecord} from the memory mapped file, producing the
+     * same records as {@link #readDefaultLine}.
+     *
+     * <p>Delimiters are searched for eight bytes at a time and the record is decoded after a single
+     * bulk copy out of the mapped region. When a record extends past the end of the current window,
+     * a larger window starting at the record is mapped and the search continues where it left off.
+     */
+    private boolean readMappedLine() throws IOException {
+      long end = startOfRecord; // the position up to which no delimiter has been found
+      for (; ; ) {
+        if (window == null || end >= windowStart + window.limit()) {
+          if (end >= fileSize) {
+            eof = true;
+
+            // Don't return an empty record if the file ends with a delimiter
+            if (end == startOfRecord) {
+              return false;
+            }
+
+            currentValue = decodeMapped(startOfRecord, end);
+            startOfNextRecord = end;
+            return true;
+          }
+          mapWindow(startOfRecord, end + 1);
+        }
+
+        int index = findDelimiter(window, (int) (end - windowStart));
+        end = windowStart + index;
+        if (index == window.limit()) {
+          continue;
+        }
+
+        int newlineLength = 1;
+        if (window.get(index) == CR && end + 1 < fileSize) {
+          // Look at the byte following CR to see whether it is part of a CRLF delimiter
+          if (index + 1 == window.limit()) {
+            mapWindow(startOfRecord, end + 2);
+          }
+          if (window.get((int) (end + 1 - windowStart)) == LF) {
+            newlineLength = 2;
+          }
+        }
+        currentValue = decodeMapped(startOfRecord, end);
+        startOfNextRecord = end + newlineLength;
+        return true;
+      }
+    }
+
+    /**
+     * Maps a window of the file starting at {@code start} which contains at least the bytes up to
+     * {@code requiredEnd}. Windows grow beyond {@link #mappedWindowSize} to fit long records.
+     */
+    private void mapWindow(long start, long requiredEnd) throws IOException {
+      long size =
+          Math.min(
+              fileSize - start,
+              Math.min(Integer.MAX_VALUE, Math.max(mappedWindowSize, 2 * (requiredEnd - start))));
+      if (start + size < requiredEnd) {
+        throw new IOException(
+            String.format(
+                "Unable to read record starting at offset %s which is longer than %s bytes.",
+                start, Integer.MAX_VALUE));
+      }
+      // Drop the reference to the previous window first so that it may be unmapped.
+      window = null;
+      window = mappedChannel.map(FileChannel.MapMode.READ_ONLY, start, size);
+      window.order(ByteOrder.LITTLE_ENDIAN);
+      windowStart = start;
+    }
+
+    /**
+     * Returns the index of the first CR or LF within the buffer at or after {@code index} or the
+     * limit of the buffer if there is none.
+     *
+     * <p>Eight bytes are compared at a time by reading them as a little endian long. For each byte
+     * of {@code word ^ CR_BYTES} the expression {@code (x - LOW_BITS) & ~x & HIGH_BITS} sets the
+     * high bit of the lowest zero byte, which is the first CR. Higher bytes may be flagged
+     * incorrectly due to borrows but they are never inspected.
+     */
+    private static int findDelimiter(ByteBuffer buffer, int index) {
+      int limit = buffer.limit();
+      for (; index <= limit - Long.BYTES; index += Long.BYTES) {
+        long word = buffer.getLong(index);
+        long lf = word ^ LF_BYTES;
+        long cr = word ^ CR_BYTES;
+        long found = ((lf - LOW_BITS) & ~lf | (cr - LOW_BITS) & ~cr) & HIGH_BITS;
+        if (found != 0) {
+          return index + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+      }
+      for (; index < limit; ++index) {
+        byte b = buffer.get(index);
+        if (b == LF || b == CR) {
+          return index;
+        }
+      }
+      return limit;
+    }
+
+    /** Decodes the bytes between {@code start} and {@code end} of the mapped file as UTF-8. */
+    private String decodeMapped(long start, long end) {
+      int length = (int) (end - start);
+      if (lineBuffer.length < length) {
+        lineBuffer = new byte[Math.max(length, 2 * lineBuffer.length)];
+      }
+      window.position((int) (start - windowStart));
+      window.get(lineBuffer, 0, length);
+      return new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
     /**
      * Loosely based upon <a
      * href="https://github.com/hanborq/hadoop/blob/master/src/core/org/apache/hadoop/util/LineReader.java">Hadoop
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io.fs;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Duration;
+
+/**
+ * A cache of directory listings, organized as a trie of path segments, which {@link
+ * org.apache.beam.sdk.io.FileSystem} implementations may use to avoid relisting directories when
+ * expanding the same globs repeatedly, such as when continuously matching files.
+ *
+ * <p>A cached listing is returned without further checks until its time to live elapses. After
+ * that, the listing is reused if the version of the directory, such as its modification time, is
+ * unchanged since it was listed and must otherwise be relisted by the caller. The metadata of
+ * listed files is cached along with the listing, so files modified in place may be reported with
+ * stale sizes and modification times until their directory is relisted.
+ *
+ * <p>File systems should {@link #invalidate} the path of every resource they create, copy, rename
+ * or delete so that their own modifications are visible immediately.
+ */
+@Internal
+@ThreadSafe
+public final class DirectoryListingCache {
+
+  /** Returns the current version of a directory, or {@code null} if it cannot be determined. */
+  public interface VersionSupplier {
+    @Nullable
+    Object get() throws IOException;
+  }
+
+  private static class Listing {
+    private final @Nullable Object version;
+    private final List<Metadata> children;
+    private long validatedAtMillis;
+
+    private Listing(@Nullable Object version, List<Metadata> children, long validatedAtMillis) {
+      this.version = version;
+      this.children = children;
+      this.validatedAtMillis = validatedAtMillis;
+    }
+  }
+
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private @Nullable Listing listing;
+  }
+
+  private final long ttlMillis;
+  private final LongSupplier clock;
+  private final Node root = new Node();
+  // Incremented by every invalidation so that listings which may predate one are not cached.
+  private long generation;
+
+  /** Creates a cache which trusts listings for up to {@code ttl} before revalidating them. */
+  public DirectoryListingCache(Duration ttl) {
+    this(ttl, System::currentTimeMillis);
+  }
+
+  @VisibleForTesting
+  DirectoryListingCache(Duration ttl, LongSupplier clock) {
+    checkArgument(
+        !ttl.isShorterThan(Duration.ZERO), "Expected non-negative time to live but got %s", ttl);
+    this.ttlMillis = ttl.getMillis();
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the cached children of the directory identified by the given path segments, or {@code
+   * null} if the directory must be listed.
+   *
+   * <p>The {@code currentVersion} is only consulted once the listing's time to live has elapsed,
+   * without holding the lock of this cache.
+   */
+  public @Nullable List<Metadata> get(List<String> directory, VersionSupplier currentVersion)
+      throws IOException {
+    Listing listing;
+    synchronized (this) {
+      Node node = find(directory);
+      listing = node == null ? null : node.listing;
+      if (listing == null) {
+        return null;
+      }
+      if (clock.getAsLong() - listing.validatedAtMillis < ttlMillis) {
+        return listing.children;
+      }
+      if (listing.version == null) {
+        node.listing = null;
+        return null;
+      }
+    }
+    boolean unchanged = Objects.equals(listing.version, currentVersion.get());
+    synchronized (this) {
+      Node node = find(directory);
+      if (node == null || node.listing != listing) {
+        // The listing was invalidated or replaced while reading the version.
+        return null;
+      }
+      if (unchanged) {
+        listing.validatedAtMillis = clock.getAsLong();
+        return listing.children;
+      }
+      node.listing = null;
+      return null;
+    }
+  }
+
+  /**
+   * Returns the current generation of this cache, which changes whenever listings are invalidated.
+   * Callers must read it before listing a directory and pass it to {@link #put}.
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Caches the children of the directory identified by the given path segments.
+   *
+   * <p>The {@code version} must have been read before the directory was listed. A {@code null}
+   * version, such as for a directory modified too recently for its modification time to be trusted,
+   * causes the listing to be relisted once its time to live elapses.
+   *
+   * <p>The listing is not cached if the {@code generation}, read before the directory was listed,
+   * is no longer current, since an invalidation since then may not be reflected by the listing.
+   *
+   * <p>Cached listings of subdirectories which are no longer children of the directory are
+   * discarded.
+   */
+  public synchronized void put(
+      List<String> directory, long generation, @Nullable Object version, List<Metadata> children) {
+    if (generation != this.generation) {
+      return;
+    }
+    Node node = root;
+    for (String segment : directory) {
+      node = node.children.computeIfAbsent(segment, s -> new Node());
+    }
+    node.listing = new Listing(version, ImmutableList.copyOf(children), clock.getAsLong());
+    Set<String> names = new HashSet<>();
+    for (Metadata child : children) {
+      String name = child.resourceId().getFilename();
+      if (name != null && child.resourceId().isDirectory()) {
+        names.add(name);
+      }
+    }
+    node.children.keySet().retainAll(names);
+  }
+
+  /**
+   * Discards the cached listings of the resource identified by the given path segments, of every
+   * directory beneath it and of its parent directory. Listings of further ancestors are also
+   * discarded if they do not contain the directory leading to the resource, which may have been
+   * created along with it.
+   */
+  public synchronized void invalidate(List<String> path) {
+    generation += 1;
+    if (path.isEmpty()) {
+      root.listing = null;
+      root.children.clear();
+      return;
+    }
+    Node node = root;
+    for (int i = 0; i < path.size() - 1; ++i) {
+      String segment = path.get(i);
+      if (node.listing != null && !containsDirectory(node.listing, segment)) {
+        node.listing = null;
+      }
+      node = node.children.get(segment);
+      if (node == null) {
+        return;
+      }
+    }
+    node.listing = null;
+    node.children.remove(path.get(path.size() - 1));
+  }
+
+  /** Discards all cached listings. */
+  public synchronized void clear() {
+    invalidate(ImmutableList.of());
+  }
+
+  private static boolean containsDirectory(Listing listing, String name) {
+    for (Metadata child : listing.children) {
+      if (child.resourceId().isDirectory() && name.equals(child.resourceId().getFilename())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private @Nullable Node find(List<String> path) {
+    Node node = root;
+    for (String segment : path) {
+      node = node.children.get(segment);
+      if (node == null) {
+        return null;
+      }
+    }
+    return node;
+  }
+}
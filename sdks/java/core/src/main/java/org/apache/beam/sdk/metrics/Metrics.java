@@ -18,6 +18,7 @@
 package org.apache.beam.sdk.metrics;
 
 import java.io.Serializable;
+import org.apache.beam.sdk.util.HistogramData;
 
 /**
  * The <code>Metrics</code> is a utility class for producing various kinds of metrics for reporting
@@ -93,6 +94,26 @@ public class Metrics {
     return new DelegatingGauge(MetricName.named(namespace, name));
   }
 
+  /**
+   * Create a metric that records the number of reported values falling within each of the buckets
+   * defined by {@code bucketType}. {@link HistogramData.LogLinearBuckets} are suitable for values
+   * such as latencies which span several orders of magnitude.
+   */
+  public static Histogram histogram(
+      String namespace, String name, HistogramData.BucketType bucketType) {
+    return new DelegatingHistogram(MetricName.named(namespace, name), bucketType, false);
+  }
+
+  /**
+   * Create a metric that records the number of reported values falling within each of the buckets
+   * defined by {@code bucketType}. {@link HistogramData.LogLinearBuckets} are suitable for values
+   * such as latencies which span several orders of magnitude.
+   */
+  public static Histogram histogram(
+      Class<?> namespace, String name, HistogramData.BucketType bucketType) {
+    return new DelegatingHistogram(MetricName.named(namespace, name), bucketType, false);
+  }
+
   /**
    * Implementation of {@link Distribution} that delegates to the instance for the current context.
    */
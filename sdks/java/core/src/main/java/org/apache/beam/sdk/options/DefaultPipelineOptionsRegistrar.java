@@ -35,6 +35,7 @@ public class DefaultPipelineOptionsRegistrar implements PipelineOptionsRegistrar
         .add(ExperimentalOptions.class)
         .add(SdkHarnessOptions.class)
         .add(PortablePipelineOptions.class)
+        .add(LocalFileSystemOptions.class)
         .build();
   }
 }
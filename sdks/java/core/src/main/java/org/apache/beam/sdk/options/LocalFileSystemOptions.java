@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.options;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/** Options for the file system used for local files. */
+public interface LocalFileSystemOptions extends PipelineOptions {
+  /**
+   * The maximum number of files copied or renamed concurrently by a single batched copy or rename
+   * of local files, such as when finalizing the output of a write, and the maximum number of specs
+   * matched concurrently by a single match of multiple specs.
+   */
+  @Description(
+      "The maximum number of local files copied or renamed concurrently by a single batched copy "
+          + "or rename, and of specs matched concurrently by a single match of multiple specs. "
+          + "A value of 1 processes the files sequentially.")
+  @Default.Integer(8)
+  int getLocalFileSystemParallelism();
+
+  void setLocalFileSystemParallelism(int value);
+
+  /**
+   * How long directory listings of local files are reused by subsequent matches, such as the polls
+   * of a continuous match, without checking whether the directory was modified. Once this elapses a
+   * listing is reused only if the modification time of the directory is unchanged. Listings are not
+   * cached if unset.
+   *
+   * <p>Files modified in place, rather than created or renamed into their directory, may be matched
+   * with stale sizes and modification times while their directory is cached.
+   */
+  @Description(
+      "How long in milliseconds directory listings of local files are reused by subsequent "
+          + "matches before checking whether the directory was modified. Afterwards, listings "
+          + "are reused while the modification time of the directory is unchanged. Listings are "
+          + "not cached if unset. Files modified in place may be matched with stale metadata "
+          + "while their directory is cached.")
+  @Nullable
+  Long getLocalFileSystemListingCacheTtlMillis();
+
+  void setLocalFileSystemListingCacheTtlMillis(@Nullable Long value);
+}
@@ -193,6 +193,59 @@ public interface SdkHarnessOptions extends PipelineOptions {
 
   void setMaxCacheMemoryUsageMbClass(Class<? extends MaxCacheMemoryUsageMb> kls);
 
+  /** The policies that decide whether new entries are admitted into the SDK harness cache. */
+  enum CacheAdmissionPolicy {
+    /** Every new entry is admitted and the least recently used entries are evicted. */
+    ALWAYS,
+
+    /**
+     * Once the cache is full, new entries are only admitted if they have been requested multiple
+     * times recently. This protects frequently used entries from being flushed by large scans of
+     * values that are only read once.
+     */
+    FREQUENCY
+  }
+
+  /**
+   * The policy used to decide whether a new entry is admitted into the process wide cache within
+   * the SDK harness. See {@link CacheAdmissionPolicy} for the available policies.
+   */
+  @Description(
+      "The policy used to decide whether a new entry is admitted into the process wide cache within "
+          + "the SDK harness. ALWAYS admits every entry and evicts the least recently used entries. "
+          + "FREQUENCY only admits new entries into a full cache if they have been requested "
+          + "multiple times recently which protects frequently used user state and side input "
+          + "pages from large scans.")
+  @Default.Enum("ALWAYS")
+  CacheAdmissionPolicy getCacheAdmissionPolicy();
+
+  void setCacheAdmissionPolicy(CacheAdmissionPolicy value);
+
+  /**
+   * Whether the SDK harness processes bundles on virtual threads. Virtual threads are only
+   * available when running on Java 21 or later, otherwise a warning is logged and platform threads
+   * are used.
+   *
+   * <p>A bundle processing thread which blocks waiting for a state or data request no longer
+   * occupies an operating system thread, allowing many more bundles which perform blocking I/O to
+   * be processed concurrently.
+   *
+   * <p>The harness only uses {@link java.util.concurrent.locks.Lock}s on the paths where bundle
+   * processing blocks on state and data requests. A virtual thread which blocks while holding a
+   * monitor still pins its carrier thread on Java versions before 24, so user code and libraries
+   * which block within {@code synchronized} blocks or methods continue to occupy a platform thread
+   * while blocked.
+   */
+  @Description(
+      "Whether the SDK harness processes bundles on virtual threads. Virtual threads are only "
+          + "available when running on Java 21 or later, otherwise platform threads are used. "
+          + "Bundles which block on state requests or other I/O then no longer occupy an operating "
+          + "system thread.")
+  @Default.Boolean(false)
+  boolean getEnableVirtualThreads();
+
+  void setEnableVirtualThreads(boolean value);
+
   /**
    * A {@link DefaultValueFactory} which constructs an instance of the class specified by {@link
    * #getMaxCacheMemoryUsageMbClass maxCacheMemoryUsageMbClass} to compute the maximum amount of
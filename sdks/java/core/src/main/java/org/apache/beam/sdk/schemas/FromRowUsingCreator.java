@@ -75,22 +75,41 @@ class FromRowUsingCreator<T> implements SerializableFunction<Row, T> {
     }
 
     Object[] params = new Object[row.getFieldCount()];
-    Schema schema = row.getSchema();
+    for (int i = 0; i < row.getFieldCount(); ++i) {
+      params[i] = row.getValue(i);
+    }
+    return fromFieldValues(row.getSchema(), params, clazz, typeFactory);
+  }
+
+  /**
+   * Creates the user type from field values in {@link Row} representation, such as those decoded by
+   * {@link org.apache.beam.sdk.coders.FieldValuesCoder}. The values are converted in place.
+   */
+  public T fromFieldValues(Schema schema, Object[] fieldValues) {
+    return fromFieldValues(schema, fieldValues, clazz, fieldValueTypeInformationFactory);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <ValueT> ValueT fromFieldValues(
+      Schema schema,
+      Object[] fieldValues,
+      Class<ValueT> clazz,
+      Factory<List<FieldValueTypeInformation>> typeFactory) {
     List<FieldValueTypeInformation> typeInformations = typeFactory.create(clazz, schema);
     checkState(
-        typeInformations.size() == row.getFieldCount(),
+        typeInformations.size() == fieldValues.length,
         "Did not have a matching number of type informations and fields.");
 
-    for (int i = 0; i < row.getFieldCount(); ++i) {
+    for (int i = 0; i < fieldValues.length; ++i) {
       FieldType type = schema.getField(i).getType();
       FieldValueTypeInformation typeInformation = checkNotNull(typeInformations.get(i));
-      params[i] =
+      fieldValues[i] =
           fromValue(
-              type, row.getValue(i), typeInformation.getRawType(), typeInformation, typeFactory);
+              type, fieldValues[i], typeInformation.getRawType(), typeInformation, typeFactory);
     }
 
     SchemaUserTypeCreator creator = schemaTypeCreatorFactory.create(clazz, schema);
-    return (ValueT) creator.create(params);
+    return (ValueT) creator.create(fieldValues);
   }
 
   @SuppressWarnings("unchecked")
@@ -24,6 +24,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import org.apache.beam.sdk.coders.UserTypeEncoderGenerator;
+import org.apache.beam.sdk.coders.UserTypeEncoderGenerator.UserTypeEncoder;
 import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.schemas.Schema.LogicalType;
 import org.apache.beam.sdk.schemas.Schema.TypeName;
@@ -57,7 +59,7 @@ public abstract class GetterBasedSchemaProvider implements SchemaProvider {
   /** Implementing class should override to return a constructor. */
   public abstract SchemaUserTypeCreator schemaTypeCreator(Class<?> targetClass, Schema schema);
 
-  private class ToRowWithValueGetters<T> implements SerializableFunction<T, Row> {
+  class ToRowWithValueGetters<T> implements SerializableFunction<T, Row> {
     private final Schema schema;
     private final Factory<List<FieldValueGetter>> getterFactory;
 
@@ -75,6 +77,41 @@ public abstract class GetterBasedSchemaProvider implements SchemaProvider {
       return Row.withSchema(schema).withFieldValueGetters(getterFactory, input);
     }
 
+    /**
+     * Returns the values of all the fields of {@code input} in the same representation that the
+     * {@link Row} returned by {@link #apply} would provide.
+     */
+    Object[] fieldValues(T input) {
+      List<FieldValueGetter> getters = getterFactory.create(input.getClass(), schema);
+      Object[] fieldValues = new Object[getters.size()];
+      for (int i = 0; i < fieldValues.length; ++i) {
+        Object fieldValue = getters.get(i).get(input);
+        if (fieldValue == null && !schema.getField(i).getType().getNullable()) {
+          throw new RuntimeException("Null value set on non-nullable field " + schema.getField(i));
+        }
+        fieldValues[i] = fieldValue;
+      }
+      return fieldValues;
+    }
+
+    /**
+     * Returns a generated encoder which reads the fields of {@code clazz} directly and writes them
+     * using the {@link org.apache.beam.sdk.coders.RowCoder} wire format for {@code encodingSchema},
+     * or {@code null} if no encoder can be generated for the type.
+     */
+    @Nullable
+    UserTypeEncoder<T> generateEncoder(Class<T> clazz, Schema encodingSchema) {
+      GetterBasedSchemaProvider provider = getOuter();
+      // Only these providers are known to read fields of simple types without converting them.
+      if (provider.getClass() != JavaFieldSchema.class
+          && provider.getClass() != JavaBeanSchema.class
+          && provider.getClass() != AutoValueSchema.class) {
+        return null;
+      }
+      return UserTypeEncoderGenerator.generate(
+          clazz, encodingSchema, provider.fieldValueTypeInformations(clazz, schema));
+    }
+
     private GetterBasedSchemaProvider getOuter() {
       return GetterBasedSchemaProvider.this;
     }
@@ -27,8 +27,10 @@ import java.util.Objects;
 import java.util.UUID;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.FieldValuesCoder;
 import org.apache.beam.sdk.coders.RowCoder;
 import org.apache.beam.sdk.coders.RowCoderGenerator;
+import org.apache.beam.sdk.coders.UserTypeEncoderGenerator.UserTypeEncoder;
 import org.apache.beam.sdk.schemas.Schema.Field;
 import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.transforms.SerializableFunction;
@@ -48,6 +50,9 @@ public class SchemaCoder<T> extends CustomCoder<T> {
   private final SerializableFunction<T, Row> toRowFunction;
   private final SerializableFunction<Row, T> fromRowFunction;
   private transient @Nullable Coder<Row> delegateCoder;
+  private transient @Nullable FieldValuesCoder fieldValuesCoder;
+  private transient @Nullable UserTypeEncoder<T> userTypeEncoder;
+  private transient boolean userTypeEncoderGenerated;
 
   protected SchemaCoder(
       Schema schema,
@@ -116,13 +121,52 @@ public class SchemaCoder<T> extends CustomCoder<T> {
     return delegateCoder;
   }
 
+  private FieldValuesCoder getFieldValuesCoder() {
+    if (fieldValuesCoder == null) {
+      fieldValuesCoder = FieldValuesCoder.of(schema);
+    }
+    return fieldValuesCoder;
+  }
+
+  private @Nullable UserTypeEncoder<T> getUserTypeEncoder(
+      GetterBasedSchemaProvider.ToRowWithValueGetters<T> toRowWithValueGetters) {
+    if (!userTypeEncoderGenerated) {
+      // UserTypeEncoderGenerator caches based on the class and schema, so the encoder is only
+      // generated once per type.
+      userTypeEncoder =
+          toRowWithValueGetters.generateEncoder((Class<T>) typeDescriptor.getRawType(), schema);
+      userTypeEncoderGenerated = true;
+    }
+    return userTypeEncoder;
+  }
+
   @Override
+  @SuppressWarnings("unchecked")
   public void encode(T value, OutputStream outStream) throws IOException {
+    if (toRowFunction instanceof GetterBasedSchemaProvider.ToRowWithValueGetters) {
+      GetterBasedSchemaProvider.ToRowWithValueGetters<T> toRowWithValueGetters =
+          (GetterBasedSchemaProvider.ToRowWithValueGetters<T>) toRowFunction;
+      UserTypeEncoder<T> encoder = getUserTypeEncoder(toRowWithValueGetters);
+      if (encoder != null) {
+        // Encode the fields straight from the value using the generated encoder.
+        encoder.encode(value, outStream);
+        return;
+      }
+      // Encode the field values directly instead of wrapping the value within a Row.
+      getFieldValuesCoder().encode(toRowWithValueGetters.fieldValues(value), outStream);
+      return;
+    }
     getDelegateCoder().encode(toRowFunction.apply(value), outStream);
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public T decode(InputStream inStream) throws IOException {
+    if (fromRowFunction instanceof FromRowUsingCreator) {
+      // Create the value from the decoded field values instead of from an intermediate Row.
+      return ((FromRowUsingCreator<T>) fromRowFunction)
+          .fromFieldValues(schema, getFieldValuesCoder().decode(inStream));
+    }
     return fromRowFunction.apply(getDelegateCoder().decode(inStream));
   }
 
@@ -27,6 +27,8 @@ import static org.junit.Assert.assertEquals;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -105,6 +107,62 @@ public class CoderProperties {
   public static <T> void coderDecodeEncodeEqualInContext(
       Coder<T> coder, Coder.Context context, T value) throws Exception {
     assertThat(decodeEncode(coder, context, value), equalTo(value));
+    if (coder.supportsBufferCoding()) {
+      coderBufferCodingConsistentWithStreamsInContext(coder, context, value);
+    }
+  }
+
+  /**
+   * Verifies that for the given {@code Coder<T>}, and value of type {@code T}, encoding to a buffer
+   * yields the same bytes as encoding to a stream and decoding from a buffer yields an equal value
+   * of type {@code T}, in any {@code Coder.Context}.
+   */
+  public static <T> void coderBufferCodingConsistentWithStreams(Coder<T> coder, T value)
+      throws Exception {
+    for (Coder.Context context : ALL_CONTEXTS) {
+      coderBufferCodingConsistentWithStreamsInContext(coder, context, value);
+    }
+  }
+
+  /**
+   * Verifies that for the given {@code Coder<T>}, {@code Coder.Context}, and value of type {@code
+   * T}, encoding to a buffer yields the same bytes as encoding to a stream and decoding from a
+   * buffer yields an equal value of type {@code T}.
+   */
+  public static <T> void coderBufferCodingConsistentWithStreamsInContext(
+      Coder<T> coder, Coder.Context context, T value) throws Exception {
+    byte[] bytes = encode(coder, context, value);
+    @SuppressWarnings("unchecked")
+    Coder<T> deserializedCoder = SerializableUtils.clone(coder);
+
+    // Leave a byte on either side of the encoded bytes to verify that only the remaining space of
+    // the buffer is written to.
+    ByteBuffer output = ByteBuffer.allocate(bytes.length + 2);
+    output.position(1);
+    output.limit(bytes.length + 1);
+    try {
+      deserializedCoder.encodeToBuffer(value, output, context);
+    } catch (BufferOverflowException e) {
+      throw new AssertionError("Expected buffer to hold the " + bytes.length + " encoded bytes", e);
+    }
+    assertThat(
+        "written bytes equal to encoded bytes", output.position(), equalTo(bytes.length + 1));
+    assertThat(Arrays.copyOfRange(output.array(), 1, bytes.length + 1), equalTo(bytes));
+    assertThat(output.array()[0], equalTo((byte) 0));
+    assertThat(output.array()[bytes.length + 1], equalTo((byte) 0));
+
+    ByteBuffer input;
+    if (Objects.equals(context, Coder.Context.NESTED)) {
+      input = ByteBuffer.allocate(bytes.length + 1);
+      input.put(bytes);
+      input.put((byte) 1);
+      input.flip();
+    } else {
+      input = ByteBuffer.wrap(bytes);
+    }
+    T decoded = deserializedCoder.decodeFromBuffer(input, context);
+    assertThat("consumed bytes equal to encoded bytes", input.position(), equalTo(bytes.length));
+    assertThat(decoded, equalTo(value));
   }
 
   /**
@@ -17,6 +17,7 @@
  */
 package org.apache.beam.sdk.transforms;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
 
 import java.io.IOException;
@@ -1572,6 +1573,21 @@ public class Combine {
           });
     }
 
+    /**
+     * Like {@link #withHotKeyFanout(int)}, but only spreading keys which are detected to be hot
+     * while the pipeline runs. Keys which account for at least {@link
+     * PerKeyWithHotKeyFanout#DEFAULT_HOT_KEY_FRACTION} of the elements recently processed by a
+     * worker are spread among {@code hotKeyFanout} intermediate nodes and all other keys are not
+     * sent through an intermediate node.
+     *
+     * <p>See {@link PerKeyWithHotKeyFanout#withHotKeyDetection(double)} to choose the fraction of
+     * elements above which a key is considered hot.
+     */
+    public PerKeyWithHotKeyFanout<K, InputT, OutputT> withAdaptiveHotKeyFanout(int hotKeyFanout) {
+      return withHotKeyFanout(hotKeyFanout)
+          .withHotKeyDetection(PerKeyWithHotKeyFanout.DEFAULT_HOT_KEY_FRACTION);
+    }
+
     /** Returns the {@link GlobalCombineFn} used by this Combine operation. */
     public GlobalCombineFn<? super InputT, ?, OutputT> getFn() {
       return fn;
@@ -1612,17 +1628,55 @@ public class Combine {
   public static class PerKeyWithHotKeyFanout<K, InputT, OutputT>
       extends PTransform<PCollection<KV<K, InputT>>, PCollection<KV<K, OutputT>>> {
 
+    /**
+     * The fraction of recently processed elements above which a key is considered hot by {@link
+     * PerKey#withAdaptiveHotKeyFanout(int)}.
+     */
+    public static final double DEFAULT_HOT_KEY_FRACTION = 0.01;
+
     private final GlobalCombineFn<? super InputT, ?, OutputT> fn;
     private final DisplayData.ItemSpec<? extends Class<?>> fnDisplayData;
     private final SerializableFunction<? super K, Integer> hotKeyFanout;
+    private final double hotKeyFraction;
 
     private PerKeyWithHotKeyFanout(
         GlobalCombineFn<? super InputT, ?, OutputT> fn,
         DisplayData.ItemSpec<? extends Class<?>> fnDisplayData,
         SerializableFunction<? super K, Integer> hotKeyFanout) {
+      this(fn, fnDisplayData, hotKeyFanout, 0);
+    }
+
+    private PerKeyWithHotKeyFanout(
+        GlobalCombineFn<? super InputT, ?, OutputT> fn,
+        DisplayData.ItemSpec<? extends Class<?>> fnDisplayData,
+        SerializableFunction<? super K, Integer> hotKeyFanout,
+        double hotKeyFraction) {
       this.fn = fn;
       this.fnDisplayData = fnDisplayData;
       this.hotKeyFanout = hotKeyFanout;
+      this.hotKeyFraction = hotKeyFraction;
+    }
+
+    /**
+     * Returns a {@link PTransform} identical to this, but which only spreads keys which are
+     * detected to be hot while the pipeline runs.
+     *
+     * <p>Each worker estimates the frequencies of the keys it recently processed using a Count-Min
+     * sketch. Keys accounting for at least {@code hotKeyFraction} of those elements are spread
+     * among the number of intermediate nodes returned by the fanout function while all other keys
+     * are not sent through an intermediate node. Since the sketch follows the distribution of keys
+     * as it changes, keys may move between being hot and cold which does not affect the result of
+     * the combine.
+     *
+     * @param hotKeyFraction the fraction of recently processed elements, within {@code (0, 1)},
+     *     above which a key is considered hot. Smaller fractions use more memory per worker.
+     */
+    public PerKeyWithHotKeyFanout<K, InputT, OutputT> withHotKeyDetection(double hotKeyFraction) {
+      checkArgument(
+          hotKeyFraction > 0 && hotKeyFraction < 1,
+          "Expected hot key fraction within (0, 1) but got %s",
+          hotKeyFraction);
+      return new PerKeyWithHotKeyFanout<>(fn, fnDisplayData, hotKeyFanout, hotKeyFraction);
     }
 
     @Override
@@ -1870,12 +1924,22 @@ public class Combine {
       // augmenting the hot keys with a nonce.
       final TupleTag<KV<KV<K, Integer>, InputT>> hot = new TupleTag<>();
       final TupleTag<KV<K, InputT>> cold = new TupleTag<>();
+      final Coder<K> keyCoder = inputCoder.getKeyCoder();
+      final double hotKeyFraction = this.hotKeyFraction;
       PCollectionTuple split =
           input.apply(
               "AddNonce",
               ParDo.of(
                       new DoFn<KV<K, InputT>, KV<K, InputT>>() {
                         transient int nonce;
+                        transient @Nullable HotKeyDetector hotKeyDetector;
+
+                        @Setup
+                        public void setup() {
+                          if (hotKeyFraction > 0) {
+                            hotKeyDetector = new HotKeyDetector(hotKeyFraction);
+                          }
+                        }
 
                         @StartBundle
                         public void startBundle() {
@@ -1891,6 +1955,12 @@ public class Combine {
                         public void processElement(
                             @Element KV<K, InputT> kv, MultiOutputReceiver receiver) {
                           int spread = hotKeyFanout.apply(kv.getKey());
+                          if (spread > 1
+                              && hotKeyDetector != null
+                              && !hotKeyDetector.observe(
+                                  keyCoder.structuralValue(kv.getKey()).hashCode())) {
+                            spread = 1;
+                          }
                           if (spread <= 1) {
                             receiver.get(cold).output(kv);
                           } else {
@@ -1970,6 +2040,10 @@ public class Combine {
       }
       builder.add(
           DisplayData.item("fanoutFn", hotKeyFanout.getClass()).withLabel("Fanout Function"));
+      if (hotKeyFraction > 0) {
+        builder.add(
+            DisplayData.item("hotKeyFraction", hotKeyFraction).withLabel("Hot Key Fraction"));
+      }
     }
 
     /**
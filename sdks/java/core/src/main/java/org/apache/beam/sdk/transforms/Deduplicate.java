@@ -17,9 +17,28 @@
  */
 package org.apache.beam.sdk.transforms;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.beam.sdk.coders.AtomicCoder;
 import org.apache.beam.sdk.coders.BooleanCoder;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.state.MapState;
+import org.apache.beam.sdk.state.OrderedListState;
 import org.apache.beam.sdk.state.StateSpec;
 import org.apache.beam.sdk.state.StateSpecs;
 import org.apache.beam.sdk.state.TimeDomain;
@@ -27,11 +46,16 @@ import org.apache.beam.sdk.state.Timer;
 import org.apache.beam.sdk.state.TimerSpec;
 import org.apache.beam.sdk.state.TimerSpecs;
 import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.sdk.values.TypeDescriptor;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hashing;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Duration;
+import org.joda.time.Instant;
 
 /**
  * A set of {@link PTransform}s which deduplicate input records over a time domain and threshold.
@@ -54,6 +78,13 @@ import org.joda.time.Duration;
  * provide an optimized implementation of their choice using the deduplication time domain and
  * threshold specified.
  *
+ * <p>By default a timer and a state cell are used per distinct value. {@link
+ * KeyedValues#withBloomFilter} instead spreads the values across a bounded number of shards, each
+ * remembering the values it has seen within rotating Bloom filters. This reduces the state and
+ * timers required by orders of magnitude at the cost of dropping a small fraction of the unique
+ * values as false positives unless {@link KeyedValues#withExactFallback exact fallback} checks are
+ * enabled.
+ *
  * <p>Does not preserve any order the input PCollection might have had.
  *
  * <p>Example of use:
@@ -80,10 +111,13 @@ public final class Deduplicate {
   public static final class Values<T> extends PTransform<PCollection<T>, PCollection<T>> {
     private final TimeDomain timeDomain;
     private final Duration duration;
+    private final @Nullable BloomFilterConfig bloomFilterConfig;
 
-    private Values(TimeDomain timeDomain, Duration duration) {
+    private Values(
+        TimeDomain timeDomain, Duration duration, @Nullable BloomFilterConfig bloomFilterConfig) {
       this.timeDomain = timeDomain;
       this.duration = duration;
+      this.bloomFilterConfig = bloomFilterConfig;
     }
 
     @Override
@@ -98,7 +132,7 @@ public final class Deduplicate {
                       return KV.of(element, (Void) null);
                     }
                   }))
-          .apply(new KeyedValues<>(timeDomain, duration))
+          .apply(new KeyedValues<>(timeDomain, duration, bloomFilterConfig))
           .apply(Keys.create());
     }
 
@@ -106,14 +140,32 @@ public final class Deduplicate {
      * Returns a {@code Values} {@link PTransform} like this one but with the specified time domain.
      */
     public Values<T> withTimeDomain(TimeDomain timeDomain) {
-      return new Values<T>(timeDomain, duration);
+      return new Values<T>(timeDomain, duration, bloomFilterConfig);
     }
 
     /**
      * Returns a {@code Values} {@link PTransform} like this one but with the specified duration.
      */
     public Values<T> withDuration(Duration duration) {
-      return new Values<T>(timeDomain, duration);
+      return new Values<T>(timeDomain, duration, bloomFilterConfig);
+    }
+
+    /**
+     * Returns a {@code Values} {@link PTransform} like this one but remembering values within Bloom
+     * filters. See {@link KeyedValues#withBloomFilter} for details.
+     */
+    public Values<T> withBloomFilter(long expectedElements, double falsePositiveRate) {
+      return new Values<T>(
+          timeDomain, duration, BloomFilterConfig.of(expectedElements, falsePositiveRate));
+    }
+
+    /**
+     * Returns a {@code Values} {@link PTransform} like this one but checking values which may have
+     * been seen before exactly. See {@link KeyedValues#withExactFallback} for details.
+     */
+    public Values<T> withExactFallback() {
+      return new Values<T>(
+          timeDomain, duration, BloomFilterConfig.withExactFallback(bloomFilterConfig));
     }
   }
 
@@ -133,18 +185,21 @@ public final class Deduplicate {
     private final @Nullable Coder<IdT> coder;
     private final TimeDomain timeDomain;
     private final Duration duration;
+    private final @Nullable BloomFilterConfig bloomFilterConfig;
 
     private WithRepresentativeValues(
         TimeDomain timeDomain,
         Duration duration,
         SerializableFunction<T, IdT> fn,
         @Nullable TypeDescriptor<IdT> type,
-        @Nullable Coder<IdT> coder) {
+        @Nullable Coder<IdT> coder,
+        @Nullable BloomFilterConfig bloomFilterConfig) {
       this.timeDomain = timeDomain;
       this.duration = duration;
       this.fn = fn;
       this.type = type;
       this.coder = coder;
+      this.bloomFilterConfig = bloomFilterConfig;
     }
 
     /**
@@ -161,7 +216,8 @@ public final class Deduplicate {
      *     value coder will be cleared.
      */
     public WithRepresentativeValues<T, IdT> withRepresentativeType(TypeDescriptor<IdT> type) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, type, null);
+      return new WithRepresentativeValues<>(
+          timeDomain, duration, fn, type, null, bloomFilterConfig);
     }
 
     /**
@@ -178,7 +234,8 @@ public final class Deduplicate {
      *     descriptor will be cleared.
      */
     public WithRepresentativeValues<T, IdT> withRepresentativeCoder(Coder<IdT> coder) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, null, coder);
+      return new WithRepresentativeValues<>(
+          timeDomain, duration, fn, null, coder, bloomFilterConfig);
     }
 
     /**
@@ -186,7 +243,8 @@ public final class Deduplicate {
      * specified time domain.
      */
     public WithRepresentativeValues<T, IdT> withTimeDomain(TimeDomain timeDomain) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, type, coder);
+      return new WithRepresentativeValues<>(
+          timeDomain, duration, fn, type, coder, bloomFilterConfig);
     }
 
     /**
@@ -194,7 +252,8 @@ public final class Deduplicate {
      * the specified deduplication duration.
      */
     public WithRepresentativeValues<T, IdT> withDuration(Duration duration) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, type, coder);
+      return new WithRepresentativeValues<>(
+          timeDomain, duration, fn, type, coder, bloomFilterConfig);
     }
 
     @Override
@@ -208,9 +267,40 @@ public final class Deduplicate {
         inputWithKey.setCoder(KvCoder.of(coder, input.getCoder()));
       }
       return inputWithKey
-          .apply(new KeyedValues<>(timeDomain, duration))
+          .apply(new KeyedValues<>(timeDomain, duration, bloomFilterConfig))
           .apply(org.apache.beam.sdk.transforms.Values.create());
     }
+
+    /**
+     * Return a {@code WithRepresentativeValues} {@link PTransform} that is like this one, but
+     * remembering representative values within Bloom filters. See {@link
+     * KeyedValues#withBloomFilter} for details.
+     */
+    public WithRepresentativeValues<T, IdT> withBloomFilter(
+        long expectedElements, double falsePositiveRate) {
+      return new WithRepresentativeValues<>(
+          timeDomain,
+          duration,
+          fn,
+          type,
+          coder,
+          BloomFilterConfig.of(expectedElements, falsePositiveRate));
+    }
+
+    /**
+     * Return a {@code WithRepresentativeValues} {@link PTransform} that is like this one, but
+     * checking representative values which may have been seen before exactly. See {@link
+     * KeyedValues#withExactFallback} for details.
+     */
+    public WithRepresentativeValues<T, IdT> withExactFallback() {
+      return new WithRepresentativeValues<>(
+          timeDomain,
+          duration,
+          fn,
+          type,
+          coder,
+          BloomFilterConfig.withExactFallback(bloomFilterConfig));
+    }
   }
 
   /**
@@ -221,15 +311,39 @@ public final class Deduplicate {
       extends PTransform<PCollection<KV<K, V>>, PCollection<KV<K, V>>> {
     private final TimeDomain timeDomain;
     private final Duration duration;
+    private final @Nullable BloomFilterConfig bloomFilterConfig;
 
-    private KeyedValues(TimeDomain timeDomain, Duration duration) {
+    private KeyedValues(
+        TimeDomain timeDomain, Duration duration, @Nullable BloomFilterConfig bloomFilterConfig) {
       this.timeDomain = timeDomain;
       this.duration = duration;
+      this.bloomFilterConfig = bloomFilterConfig;
     }
 
     @Override
     public PCollection<KV<K, V>> expand(PCollection<KV<K, V>> input) {
-      return input.apply(ParDo.of(new DeduplicateFn<>(timeDomain, duration)));
+      if (bloomFilterConfig == null) {
+        return input.apply(ParDo.of(new DeduplicateFn<>(timeDomain, duration)));
+      }
+      if (!(input.getCoder() instanceof KvCoder)) {
+        throw new IllegalStateException(
+            "Expected input coder to be KvCoder, but was " + input.getCoder());
+      }
+      KvCoder<K, V> inputCoder = (KvCoder<K, V>) input.getCoder();
+      int numShards = bloomFilterConfig.getNumShards();
+      return input
+          .apply(
+              "AssignShard", ParDo.of(new AssignShardFn<K, V>(inputCoder.getKeyCoder(), numShards)))
+          .setCoder(KvCoder.of(VarIntCoder.of(), inputCoder))
+          .apply(
+              "Deduplicate",
+              ParDo.of(
+                  bloomFilterConfig.exactFallback
+                      ? new ExactBloomFilterDeduplicateFn<K, V>(
+                          timeDomain, duration, bloomFilterConfig, inputCoder.getKeyCoder())
+                      : new BloomFilterDeduplicateFn<K, V>(
+                          timeDomain, duration, bloomFilterConfig, inputCoder.getKeyCoder())))
+          .setCoder(inputCoder);
     }
 
     /**
@@ -237,7 +351,7 @@ public final class Deduplicate {
      * domain.
      */
     public KeyedValues<K, V> withTimeDomain(TimeDomain timeDomain) {
-      return new KeyedValues<>(timeDomain, duration);
+      return new KeyedValues<>(timeDomain, duration, bloomFilterConfig);
     }
 
     /**
@@ -245,8 +359,54 @@ public final class Deduplicate {
      * duration.
      */
     public KeyedValues<K, V> withDuration(Duration duration) {
-      return new KeyedValues<>(timeDomain, duration);
+      return new KeyedValues<>(timeDomain, duration, bloomFilterConfig);
     }
+
+    /**
+     * Returns a {@code KeyedValues} {@link PTransform} like this one but remembering keys within
+     * Bloom filters instead of using a state cell and timer per distinct key.
+     *
+     * <p>Keys are spread across at least 16 and up to {@value #MAX_BLOOM_FILTER_SHARDS} shards.
+     * Each shard holds a Bloom filter per quarter of the deduplication duration and a single timer
+     * which rotates the filters, dropping those which are older than the duration. A key is
+     * considered a duplicate if any of the filters of its shard may contain it. The bits of each
+     * filter are held in {@link MapState map state} as a few chunks of up to 8 KiB, so that
+     * inserting a key only writes the chunks holding the bits it sets and dropping a filter only
+     * removes its chunks.
+     *
+     * <p>All the keys of a shard are processed by a single stateful {@link DoFn} key, so the
+     * parallelism of the deduplication is capped at the number of shards, between 16 and {@value
+     * #MAX_BLOOM_FILTER_SHARDS}.
+     *
+     * <p>Unless {@link #withExactFallback()} is used, up to {@code falsePositiveRate} of the unique
+     * keys are dropped when Bloom filters falsely report them as seen.
+     *
+     * @param expectedElements the expected number of distinct keys within each deduplication
+     *     duration, used to size the shards and filters.
+     * @param falsePositiveRate the desired probability of a unique key being reported as seen.
+     */
+    public KeyedValues<K, V> withBloomFilter(long expectedElements, double falsePositiveRate) {
+      return new KeyedValues<>(
+          timeDomain, duration, BloomFilterConfig.of(expectedElements, falsePositiveRate));
+    }
+
+    /**
+     * Returns a {@code KeyedValues} {@link PTransform} like this one but checking keys which the
+     * Bloom filters report as seen against an exact record of the keys seen, so that no unique keys
+     * are dropped. Requires {@link #withBloomFilter} to have been used.
+     *
+     * <p>The exact record holds a map state entry per distinct key which is only read when the
+     * Bloom filters report the key as seen, and an {@link OrderedListState ordered list} of the
+     * keys seen in each generation so that dropping a generation only reads the keys it holds.
+     * Timers are still only used per shard.
+     */
+    public KeyedValues<K, V> withExactFallback() {
+      return new KeyedValues<>(
+          timeDomain, duration, BloomFilterConfig.withExactFallback(bloomFilterConfig));
+    }
+
+    /** The maximum number of shards used by {@link #withBloomFilter}. */
+    public static final int MAX_BLOOM_FILTER_SHARDS = BloomFilterConfig.MAX_SHARDS;
   }
 
   /**
@@ -254,7 +414,7 @@ public final class Deduplicate {
    * TimeDomain#PROCESSING_TIME processing time domain}.
    */
   public static <T> Deduplicate.Values<T> values() {
-    return new Deduplicate.Values<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION);
+    return new Deduplicate.Values<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, null);
   }
 
   /**
@@ -262,7 +422,7 @@ public final class Deduplicate {
    * mins within the {@link TimeDomain#PROCESSING_TIME processing time domain}.
    */
   public static <K, V> Deduplicate.KeyedValues<K, V> keyedValues() {
-    return new Deduplicate.KeyedValues<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION);
+    return new Deduplicate.KeyedValues<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, null);
   }
 
   /**
@@ -272,7 +432,7 @@ public final class Deduplicate {
   public static <T, IdT> Deduplicate.WithRepresentativeValues<T, IdT> withRepresentativeValueFn(
       SerializableFunction<T, IdT> representativeValueFn) {
     return new Deduplicate.WithRepresentativeValues<T, IdT>(
-        DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, representativeValueFn, null, null);
+        DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, representativeValueFn, null, null, null);
   }
 
   /////////////////////////////////////////////////////////////////////////////
@@ -326,4 +486,480 @@ public final class Deduplicate {
       seenState.clear();
     }
   }
+
+  /** The configuration of {@link KeyedValues#withBloomFilter}. */
+  private static final class BloomFilterConfig implements Serializable {
+    /** The number of Bloom filters covering the deduplication duration within each shard. */
+    static final int NUM_GENERATIONS = 4;
+
+    static final int MIN_SHARDS = 16;
+
+    static final int MAX_SHARDS = 1024;
+
+    /** Shards are sized to hold at least this many distinct keys per deduplication duration. */
+    private static final long MIN_ELEMENTS_PER_SHARD = 100_000;
+
+    /** The number of 64 bit words of the filter held by each map state entry. */
+    static final int CHUNK_WORDS = 1024;
+
+    private final long expectedElements;
+    private final double falsePositiveRate;
+    private final boolean exactFallback;
+
+    /** The number of 64 bit words of the filter of each generation. */
+    private final long numWords;
+
+    /** The number of map state entries holding the filter of each generation. */
+    private final long numChunks;
+
+    private final int numHashFunctions;
+
+    private BloomFilterConfig(
+        long expectedElements, double falsePositiveRate, boolean exactFallback) {
+      this.expectedElements = expectedElements;
+      this.falsePositiveRate = falsePositiveRate;
+      this.exactFallback = exactFallback;
+      // Each filter is sized for the keys of a shard seen within a single generation. A key is
+      // checked against every generation which is retained so the false positive rates of the
+      // individual filters add up.
+      long expectedInsertions = Math.max(1, expectedElements / getNumShards() / NUM_GENERATIONS);
+      double filterFalsePositiveRate = falsePositiveRate / (NUM_GENERATIONS + 1);
+      double numBits =
+          -expectedInsertions * Math.log(filterFalsePositiveRate) / (Math.log(2) * Math.log(2));
+      this.numWords = Math.max(1, (long) Math.ceil(numBits / Long.SIZE));
+      this.numChunks = (numWords + CHUNK_WORDS - 1) / CHUNK_WORDS;
+      this.numHashFunctions =
+          Math.max(1, (int) Math.round(-Math.log(filterFalsePositiveRate) / Math.log(2)));
+    }
+
+    static BloomFilterConfig of(long expectedElements, double falsePositiveRate) {
+      checkArgument(
+          expectedElements > 0, "Expected positive expected elements but got %s", expectedElements);
+      checkArgument(
+          falsePositiveRate > 0 && falsePositiveRate < 1,
+          "Expected false positive rate within (0, 1) but got %s",
+          falsePositiveRate);
+      return new BloomFilterConfig(expectedElements, falsePositiveRate, false);
+    }
+
+    static BloomFilterConfig withExactFallback(@Nullable BloomFilterConfig config) {
+      checkState(config != null, "withBloomFilter must be used before withExactFallback.");
+      return new BloomFilterConfig(config.expectedElements, config.falsePositiveRate, true);
+    }
+
+    int getNumShards() {
+      return (int)
+          Math.max(MIN_SHARDS, Math.min(MAX_SHARDS, expectedElements / MIN_ELEMENTS_PER_SHARD));
+    }
+
+    /**
+     * Returns the indexes of the bits which represent the key within the filter of a generation.
+     */
+    long[] getBitIndexes(byte[] encodedKey) {
+      ByteBuffer hash =
+          ByteBuffer.wrap(Hashing.murmur3_128().hashBytes(encodedKey).asBytes())
+              .order(ByteOrder.LITTLE_ENDIAN);
+      long hash1 = hash.getLong(0);
+      long hash2 = hash.getLong(Long.BYTES);
+      long numBits = numWords * Long.SIZE;
+      long[] bitIndexes = new long[numHashFunctions];
+      long combinedHash = hash1;
+      for (int i = 0; i < numHashFunctions; ++i) {
+        bitIndexes[i] = (combinedHash & Long.MAX_VALUE) % numBits;
+        combinedHash += hash2;
+      }
+      return bitIndexes;
+    }
+
+    /** Returns the key of the map state entry holding the given bit of the given generation. */
+    long getChunkKey(long generation, long bitIndex) {
+      return generation * numChunks + bitIndex / Long.SIZE / CHUNK_WORDS;
+    }
+
+    /** Returns the number of words of the chunk holding the given bit. */
+    int getChunkWords(long bitIndex) {
+      long firstWord = bitIndex / Long.SIZE / CHUNK_WORDS * CHUNK_WORDS;
+      return (int) Math.min(CHUNK_WORDS, numWords - firstWord);
+    }
+
+    /** Returns the index of the word holding the given bit within its chunk. */
+    static int getWordIndex(long bitIndex) {
+      return (int) (bitIndex / Long.SIZE % CHUNK_WORDS);
+    }
+  }
+
+  /** Keys each element by the shard of its key. */
+  private static class AssignShardFn<K, V> extends DoFn<KV<K, V>, KV<Integer, KV<K, V>>> {
+    private final Coder<K> keyCoder;
+    private final int numShards;
+
+    private AssignShardFn(Coder<K> keyCoder, int numShards) {
+      this.keyCoder = keyCoder;
+      this.numShards = numShards;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<K, V> element, OutputReceiver<KV<Integer, KV<K, V>>> receiver)
+        throws CoderException {
+      byte[] encodedKey = CoderUtils.encodeToByteArray(keyCoder, element.getKey());
+      int shard = Math.floorMod(Hashing.murmur3_32().hashBytes(encodedKey).asInt(), numShards);
+      receiver.output(KV.of(shard, element));
+    }
+  }
+
+  /**
+   * A stateful {@link DoFn} that uses rotating Bloom filters per shard to capture whether a key has
+   * been seen.
+   *
+   * <p>A new generation of Bloom filter is started every quarter of the deduplication duration, and
+   * the oldest generation is dropped once it has been retained for the whole duration. Keys are
+   * inserted into the newest generation and checked against all of them.
+   *
+   * <p>The bits of the filters are held in a {@link MapState} with an entry per chunk of {@link
+   * BloomFilterConfig#CHUNK_WORDS} words of each generation. Inserting a key only writes the chunks
+   * holding the bits it sets, and dropping a generation only removes its own few chunks.
+   */
+  private abstract static class AbstractBloomFilterDeduplicateFn<K, V>
+      extends DoFn<KV<Integer, KV<K, V>>, KV<K, V>> {
+    static final String ROTATION_TIMER = "rotationTimer";
+    static final String GENERATIONS_STATE = "generations";
+    static final String BITS_STATE = "bits";
+
+    final Duration rotationPeriod;
+    final BloomFilterConfig config;
+    final Coder<K> keyCoder;
+
+    AbstractBloomFilterDeduplicateFn(
+        Duration duration, BloomFilterConfig config, Coder<K> keyCoder) {
+      this.rotationPeriod =
+          Duration.millis(Math.max(1, duration.getMillis() / BloomFilterConfig.NUM_GENERATIONS));
+      this.config = config;
+      this.keyCoder = keyCoder;
+    }
+
+    BloomFilterGenerations readOrStart(
+        ValueState<BloomFilterGenerations> generationsState, Timer rotationTimer) {
+      BloomFilterGenerations generations = generationsState.read();
+      if (generations == null) {
+        generations = new BloomFilterGenerations(0, 0);
+        // We don't want the rotation timer to hold up watermarks.
+        rotationTimer.offset(rotationPeriod).withNoOutputTimestamp().setRelative();
+      }
+      return generations;
+    }
+
+    /** Returns whether the filter of any retained generation may contain the key. */
+    boolean mightContain(
+        BloomFilterGenerations generations, MapState<Long, long[]> bitsState, long[] bitIndexes) {
+      for (long generation = generations.getFirstGeneration();
+          generation <= generations.getNewestGeneration();
+          ++generation) {
+        if (generations.holdsKeys(generation) && allBitsSet(bitsState, generation, bitIndexes)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean allBitsSet(
+        MapState<Long, long[]> bitsState, long generation, long[] bitIndexes) {
+      for (long bitIndex : bitIndexes) {
+        long[] chunk = bitsState.get(config.getChunkKey(generation, bitIndex)).read();
+        if (chunk == null
+            || (chunk[BloomFilterConfig.getWordIndex(bitIndex)] & (1L << bitIndex)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Inserts the key into the filter of the newest generation. */
+    void put(
+        BloomFilterGenerations generations,
+        ValueState<BloomFilterGenerations> generationsState,
+        MapState<Long, long[]> bitsState,
+        long[] bitIndexes) {
+      long generation = generations.getNewestGeneration();
+      // The bits of a key usually fall within different chunks, but each modified chunk is only
+      // written once.
+      Map<Long, long[]> modifiedChunks = new HashMap<>();
+      for (long bitIndex : bitIndexes) {
+        long chunkKey = config.getChunkKey(generation, bitIndex);
+        long[] chunk = modifiedChunks.get(chunkKey);
+        if (chunk == null) {
+          long[] stored = bitsState.get(chunkKey).read();
+          int wordIndex = BloomFilterConfig.getWordIndex(bitIndex);
+          if (stored != null && (stored[wordIndex] & (1L << bitIndex)) != 0) {
+            continue;
+          }
+          // Copy the chunk since the state may hand out the instance it caches.
+          chunk = stored == null ? new long[config.getChunkWords(bitIndex)] : stored.clone();
+          modifiedChunks.put(chunkKey, chunk);
+        }
+        chunk[BloomFilterConfig.getWordIndex(bitIndex)] |= 1L << bitIndex;
+      }
+      for (Map.Entry<Long, long[]> modifiedChunk : modifiedChunks.entrySet()) {
+        bitsState.put(modifiedChunk.getKey(), modifiedChunk.getValue());
+      }
+      // The generations only change once per generation rather than for every key.
+      if (generations.markNewestHoldsKeys()) {
+        generationsState.write(generations);
+      }
+    }
+
+    /**
+     * Starts a new generation, removing the bits of the generation which is dropped. Returns the
+     * dropped generation or {@code -1} if no generation holding keys was dropped.
+     */
+    long rotate(
+        ValueState<BloomFilterGenerations> generationsState,
+        MapState<Long, long[]> bitsState,
+        Timer rotationTimer) {
+      BloomFilterGenerations generations = generationsState.read();
+      if (generations == null) {
+        return -1;
+      }
+      long dropped = generations.rotate();
+      if (dropped >= 0) {
+        for (long chunk = 0; chunk < config.numChunks; ++chunk) {
+          bitsState.remove(dropped * config.numChunks + chunk);
+        }
+      }
+      if (generations.isEmpty()) {
+        // All retained generations are empty so the shard starts over with the next key.
+        generationsState.clear();
+      } else {
+        generationsState.write(generations);
+        rotationTimer.offset(rotationPeriod).withNoOutputTimestamp().setRelative();
+      }
+      return dropped;
+    }
+  }
+
+  /** A {@link AbstractBloomFilterDeduplicateFn} relying on the Bloom filters alone. */
+  private static class BloomFilterDeduplicateFn<K, V>
+      extends AbstractBloomFilterDeduplicateFn<K, V> {
+    // Timers must be declared by the class which declares their callbacks.
+    @TimerId(ROTATION_TIMER)
+    private final TimerSpec rotationTimerSpec;
+
+    @StateId(GENERATIONS_STATE)
+    private final StateSpec<ValueState<BloomFilterGenerations>> generationsState =
+        StateSpecs.value(new BloomFilterGenerationsCoder());
+
+    @StateId(BITS_STATE)
+    private final StateSpec<MapState<Long, long[]>> bitsState =
+        StateSpecs.map(VarLongCoder.of(), new LongArrayCoder());
+
+    BloomFilterDeduplicateFn(
+        TimeDomain timeDomain, Duration duration, BloomFilterConfig config, Coder<K> keyCoder) {
+      super(duration, config, keyCoder);
+      this.rotationTimerSpec = TimerSpecs.timer(timeDomain);
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Integer, KV<K, V>> element,
+        OutputReceiver<KV<K, V>> receiver,
+        @StateId(GENERATIONS_STATE) ValueState<BloomFilterGenerations> generationsState,
+        @StateId(BITS_STATE) MapState<Long, long[]> bitsState,
+        @TimerId(ROTATION_TIMER) Timer rotationTimer)
+        throws CoderException {
+      KV<K, V> keyedValue = element.getValue();
+      long[] bitIndexes =
+          config.getBitIndexes(CoderUtils.encodeToByteArray(keyCoder, keyedValue.getKey()));
+      BloomFilterGenerations generations = readOrStart(generationsState, rotationTimer);
+      if (mightContain(generations, bitsState, bitIndexes)) {
+        return;
+      }
+      put(generations, generationsState, bitsState, bitIndexes);
+      receiver.output(keyedValue);
+    }
+
+    @OnTimer(ROTATION_TIMER)
+    public void onRotation(
+        @StateId(GENERATIONS_STATE) ValueState<BloomFilterGenerations> generationsState,
+        @StateId(BITS_STATE) MapState<Long, long[]> bitsState,
+        @TimerId(ROTATION_TIMER) Timer rotationTimer) {
+      rotate(generationsState, bitsState, rotationTimer);
+    }
+  }
+
+  /**
+   * A {@link AbstractBloomFilterDeduplicateFn} checking keys which the Bloom filters report as seen
+   * against a {@link MapState} of the keys seen in the retained generations. The keys seen are also
+   * kept in an {@link OrderedListState} ordered by generation so that dropping a generation only
+   * reads the keys seen in that generation.
+   */
+  private static class ExactBloomFilterDeduplicateFn<K, V>
+      extends AbstractBloomFilterDeduplicateFn<K, V> {
+    private static final String SEEN_STATE = "seen";
+    private static final String SEEN_BY_GENERATION_STATE = "seenByGeneration";
+
+    @TimerId(ROTATION_TIMER)
+    private final TimerSpec rotationTimerSpec;
+
+    @StateId(GENERATIONS_STATE)
+    private final StateSpec<ValueState<BloomFilterGenerations>> generationsState =
+        StateSpecs.value(new BloomFilterGenerationsCoder());
+
+    @StateId(BITS_STATE)
+    private final StateSpec<MapState<Long, long[]>> bitsState =
+        StateSpecs.map(VarLongCoder.of(), new LongArrayCoder());
+
+    @StateId(SEEN_STATE)
+    private final StateSpec<MapState<K, Long>> seenState;
+
+    @StateId(SEEN_BY_GENERATION_STATE)
+    private final StateSpec<OrderedListState<K>> seenByGenerationState;
+
+    ExactBloomFilterDeduplicateFn(
+        TimeDomain timeDomain, Duration duration, BloomFilterConfig config, Coder<K> keyCoder) {
+      super(duration, config, keyCoder);
+      this.rotationTimerSpec = TimerSpecs.timer(timeDomain);
+      this.seenState = StateSpecs.map(keyCoder, VarLongCoder.of());
+      this.seenByGenerationState = StateSpecs.orderedList(keyCoder);
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Integer, KV<K, V>> element,
+        OutputReceiver<KV<K, V>> receiver,
+        @StateId(GENERATIONS_STATE) ValueState<BloomFilterGenerations> generationsState,
+        @StateId(BITS_STATE) MapState<Long, long[]> bitsState,
+        @StateId(SEEN_STATE) MapState<K, Long> seenState,
+        @StateId(SEEN_BY_GENERATION_STATE) OrderedListState<K> seenByGenerationState,
+        @TimerId(ROTATION_TIMER) Timer rotationTimer)
+        throws CoderException {
+      KV<K, V> keyedValue = element.getValue();
+      long[] bitIndexes =
+          config.getBitIndexes(CoderUtils.encodeToByteArray(keyCoder, keyedValue.getKey()));
+      BloomFilterGenerations generations = readOrStart(generationsState, rotationTimer);
+      if (mightContain(generations, bitsState, bitIndexes)) {
+        // Only keys which may have been seen need to be looked up.
+        Long seenGeneration = seenState.get(keyedValue.getKey()).read();
+        if (seenGeneration != null && seenGeneration >= generations.getFirstGeneration()) {
+          return;
+        }
+      }
+      put(generations, generationsState, bitsState, bitIndexes);
+      long generation = generations.getNewestGeneration();
+      seenState.put(keyedValue.getKey(), generation);
+      seenByGenerationState.add(TimestampedValue.of(keyedValue.getKey(), new Instant(generation)));
+      receiver.output(keyedValue);
+    }
+
+    @OnTimer(ROTATION_TIMER)
+    public void onRotation(
+        @StateId(GENERATIONS_STATE) ValueState<BloomFilterGenerations> generationsState,
+        @StateId(BITS_STATE) MapState<Long, long[]> bitsState,
+        @StateId(SEEN_STATE) MapState<K, Long> seenState,
+        @StateId(SEEN_BY_GENERATION_STATE) OrderedListState<K> seenByGenerationState,
+        @TimerId(ROTATION_TIMER) Timer rotationTimer) {
+      long dropped = rotate(generationsState, bitsState, rotationTimer);
+      if (dropped < 0) {
+        return;
+      }
+      Instant from = new Instant(dropped);
+      Instant to = new Instant(dropped + 1);
+      for (TimestampedValue<K> seen : seenByGenerationState.readRange(from, to)) {
+        seenState.remove(seen.getValue());
+      }
+      seenByGenerationState.clearRange(from, to);
+    }
+  }
+
+  /**
+   * The generations of the Bloom filters of a shard. Only the newest generation and which of the
+   * retained generations hold any keys are tracked, the bits of the filters are held separately.
+   */
+  private static class BloomFilterGenerations {
+    private long newestGeneration;
+
+    /** Bit {@code i} is set if generation {@code newestGeneration - i} holds any keys. */
+    private long generationsHoldingKeys;
+
+    BloomFilterGenerations(long newestGeneration, long generationsHoldingKeys) {
+      this.newestGeneration = newestGeneration;
+      this.generationsHoldingKeys = generationsHoldingKeys;
+    }
+
+    long getFirstGeneration() {
+      return Math.max(0, newestGeneration - BloomFilterConfig.NUM_GENERATIONS);
+    }
+
+    long getNewestGeneration() {
+      return newestGeneration;
+    }
+
+    boolean holdsKeys(long generation) {
+      return ((generationsHoldingKeys >>> (newestGeneration - generation)) & 1) != 0;
+    }
+
+    /** Marks the newest generation as holding keys, returning whether it held none before. */
+    boolean markNewestHoldsKeys() {
+      if ((generationsHoldingKeys & 1) != 0) {
+        return false;
+      }
+      generationsHoldingKeys |= 1;
+      return true;
+    }
+
+    /**
+     * Starts a new generation dropping the oldest once all generations have been filled. Returns
+     * the dropped generation or {@code -1} if no generation holding keys was dropped.
+     */
+    long rotate() {
+      newestGeneration += 1;
+      generationsHoldingKeys <<= 1;
+      // The newest generation only covers part of the duration so one more than the number of
+      // generations covering the duration are retained.
+      int numRetained = BloomFilterConfig.NUM_GENERATIONS + 1;
+      boolean droppedHoldsKeys = ((generationsHoldingKeys >>> numRetained) & 1) != 0;
+      generationsHoldingKeys &= (1L << numRetained) - 1;
+      return droppedHoldsKeys ? newestGeneration - numRetained : -1;
+    }
+
+    boolean isEmpty() {
+      return generationsHoldingKeys == 0;
+    }
+  }
+
+  /** A {@link Coder} for the chunks of the Bloom filters. */
+  private static class LongArrayCoder extends AtomicCoder<long[]> {
+    @Override
+    public void encode(long[] value, OutputStream outStream) throws IOException {
+      VarInt.encode(value.length, outStream);
+      DataOutputStream dataOutStream = new DataOutputStream(outStream);
+      for (long word : value) {
+        dataOutStream.writeLong(word);
+      }
+    }
+
+    @Override
+    public long[] decode(InputStream inStream) throws IOException {
+      long[] value = new long[VarInt.decodeInt(inStream)];
+      DataInputStream dataInStream = new DataInputStream(inStream);
+      for (int i = 0; i < value.length; ++i) {
+        value[i] = dataInStream.readLong();
+      }
+      return value;
+    }
+  }
+
+  /** A {@link Coder} for {@link BloomFilterGenerations}. */
+  private static class BloomFilterGenerationsCoder extends AtomicCoder<BloomFilterGenerations> {
+    @Override
+    public void encode(BloomFilterGenerations value, OutputStream outStream) throws IOException {
+      VarInt.encode(value.newestGeneration, outStream);
+      VarInt.encode(value.generationsHoldingKeys, outStream);
+    }
+
+    @Override
+    public BloomFilterGenerations decode(InputStream inStream) throws IOException {
+      long newestGeneration = VarInt.decodeLong(inStream);
+      return new BloomFilterGenerations(newestGeneration, VarInt.decodeLong(inStream));
+    }
+  }
 }
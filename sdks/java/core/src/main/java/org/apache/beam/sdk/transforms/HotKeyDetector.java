@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Detects keys which account for a large fraction of recently observed elements.
+ *
+ * <p>Key frequencies are estimated with a Count-Min sketch using conservative updates. Once the
+ * number of observed elements reaches ten times the width of the sketch, all counts are halved so
+ * that the detector follows changes in the distribution of keys rather than all history.
+ */
+@NotThreadSafe
+class HotKeyDetector {
+  /** Keys are never reported as hot until they have been observed this many times. */
+  static final int MIN_HOT_KEY_COUNT = 16;
+
+  private static final int MAX_WIDTH = 1 << 20;
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+
+  private final double hotKeyFraction;
+  private final int widthMask;
+  private final int[] counts;
+  private final int[] indices = new int[SEEDS.length];
+  private final long sampleSize;
+  private long observed;
+
+  /**
+   * Creates a detector reporting keys which account for at least {@code hotKeyFraction} of the
+   * recently observed elements.
+   */
+  HotKeyDetector(double hotKeyFraction) {
+    checkArgument(
+        hotKeyFraction > 0 && hotKeyFraction < 1,
+        "Expected hot key fraction within (0, 1) but got %s",
+        hotKeyFraction);
+    this.hotKeyFraction = hotKeyFraction;
+    // A width of e / epsilon bounds the over estimate of each key by epsilon times the number of
+    // observed elements with high probability. Using a quarter of the hot key fraction as epsilon
+    // keeps keys close to the threshold from being misreported.
+    int width = (int) Math.min(MAX_WIDTH, Math.ceil(4 * Math.E / hotKeyFraction));
+    width = Integer.highestOneBit(width - 1) << 1;
+    this.widthMask = width - 1;
+    this.counts = new int[SEEDS.length * width];
+    this.sampleSize = 10L * width;
+  }
+
+  /** Records an element for the key with the given hash and returns whether the key is hot. */
+  boolean observe(int hash) {
+    int min = Integer.MAX_VALUE;
+    for (int row = 0; row < SEEDS.length; ++row) {
+      int index = (row * (widthMask + 1)) + indexOf(hash, row);
+      indices[row] = index;
+      min = Math.min(min, counts[index]);
+    }
+    // Conservative update, only the counters which hold the current estimate are incremented.
+    for (int index : indices) {
+      if (counts[index] == min) {
+        counts[index] = min + 1;
+      }
+    }
+    long estimate = min + 1L;
+    boolean hot = estimate >= MIN_HOT_KEY_COUNT && estimate >= hotKeyFraction * ++observed;
+    if (observed >= sampleSize) {
+      reset();
+    }
+    return hot;
+  }
+
+  /** Halves every count to age out old observations. */
+  private void reset() {
+    for (int i = 0; i < counts.length; ++i) {
+      counts[i] >>>= 1;
+    }
+    observed >>>= 1;
+  }
+
+  private int indexOf(int hash, int row) {
+    long h = (hash + SEEDS[row]) * SEEDS[row];
+    h += h >>> 32;
+    return ((int) h) & widthMask;
+  }
+}
@@ -0,0 +1,571 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.transforms.Combine.AccumulatingCombineFn;
+import org.apache.beam.sdk.transforms.Combine.AccumulatingCombineFn.Accumulator;
+import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterators;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@code PTransform}s for computing approximate {@code N}-tiles of a {@code PCollection} using a
+ * KLL sketch, either globally or per-key.
+ *
+ * <p>These transforms have the same semantics as those within {@link ApproximateQuantiles} but
+ * their accumulators retain at most a few times {@code k} elements regardless of the number of
+ * elements combined, are cheaper to merge and have a rank error which holds with high probability
+ * without knowing the number of elements up front.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+public class KllQuantiles {
+  private KllQuantiles() {
+    // do not instantiate
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes a {@code PCollection<T>} and returns a {@code
+   * PCollection<List<T>>} whose single value is a {@code List} of the approximate {@code N}-tiles
+   * of the elements of the input {@code PCollection}.
+   *
+   * <p>See {@link ApproximateQuantiles#globally(int, Comparator)} for the meaning of the result.
+   *
+   * @param <T> the type of the elements in the input {@code PCollection}
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   * @param compareFn the function to use to order the elements
+   */
+  public static <T, ComparatorT extends Comparator<T> & Serializable>
+      PTransform<PCollection<T>, PCollection<List<T>>> globally(
+          int numQuantiles, ComparatorT compareFn) {
+    return Combine.globally(KllQuantilesCombineFn.create(numQuantiles, compareFn));
+  }
+
+  /**
+   * Like {@link #globally(int, Comparator)}, but sorts using the elements' natural ordering.
+   *
+   * @param <T> the type of the elements in the input {@code PCollection}
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   */
+  public static <T extends Comparable<T>> PTransform<PCollection<T>, PCollection<List<T>>> globally(
+      int numQuantiles) {
+    return Combine.globally(KllQuantilesCombineFn.<T>create(numQuantiles));
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes a {@code PCollection<KV<K, V>>} and returns a {@code
+   * PCollection<KV<K, List<V>>>} that contains an output element mapping each distinct key in the
+   * input {@code PCollection} to a {@code List} of the approximate {@code N}-tiles of the values
+   * associated with that key in the input {@code PCollection}.
+   *
+   * <p>See {@link ApproximateQuantiles#perKey(int, Comparator)} for the meaning of the result.
+   *
+   * @param <K> the type of the keys in the input and output {@code PCollection}s
+   * @param <V> the type of the values in the input {@code PCollection}
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   * @param compareFn the function to use to order the elements
+   */
+  public static <K, V, ComparatorT extends Comparator<V> & Serializable>
+      PTransform<PCollection<KV<K, V>>, PCollection<KV<K, List<V>>>> perKey(
+          int numQuantiles, ComparatorT compareFn) {
+    return Combine.perKey(KllQuantilesCombineFn.create(numQuantiles, compareFn));
+  }
+
+  /**
+   * Like {@link #perKey(int, Comparator)}, but sorts values using their natural ordering.
+   *
+   * @param <K> the type of the keys in the input and output {@code PCollection}s
+   * @param <V> the type of the values in the input {@code PCollection}
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   */
+  public static <K, V extends Comparable<V>>
+      PTransform<PCollection<KV<K, V>>, PCollection<KV<K, List<V>>>> perKey(int numQuantiles) {
+    return Combine.perKey(KllQuantilesCombineFn.<V>create(numQuantiles));
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * The {@code KllQuantilesCombineFn} combiner gives an idea of the distribution of a collection of
+   * values using approximate {@code N}-tiles. The output of this combiner is a {@code List} of size
+   * {@code numQuantiles}, containing the input values' minimum value, {@code numQuantiles-2}
+   * intermediate values, and maximum value, in sorted order.
+   *
+   * <p>If there are fewer values to combine than {@code numQuantiles}, then the result {@code List}
+   * will contain all the values being combined, in sorted order.
+   *
+   * <p>To evaluate the quantiles we use the sketch described here:
+   *
+   * <pre>
+   *   [KLL16] Karnin, Lang &amp; Liberty, "Optimal Quantile Approximation in
+   *   Streams", Proc. 2016 IEEE FOCS, p 71-78, October 2016.
+   *   https://arxiv.org/abs/1603.05346
+   * </pre>
+   *
+   * <p>The sketch is made up of levels of compactors where the elements within level {@code h}
+   * represent {@code 2^h} input elements each. The capacity of the highest level is {@code k} and
+   * capacities decrease geometrically by a factor of {@code 2/3} towards the lowest level. When the
+   * sketch is full the lowest level at capacity is sorted and a random half of its elements, either
+   * those at odd or at even positions, are promoted to the next level.
+   *
+   * <p>The number of retained elements is at most about {@code 3k} and the rank error of each
+   * quantile is at most {@code epsilon * N} with 99% confidence where {@code epsilon} is roughly
+   * {@code 2.3 / k^0.97}, for example 1.3% for the default {@code k} of {@value #DEFAULT_K}. See
+   * {@link #withEpsilon} to choose {@code k} for a given error.
+   *
+   * @param <T> the type of the values being combined
+   */
+  public static class KllQuantilesCombineFn<T, ComparatorT extends Comparator<T> & Serializable>
+      extends AccumulatingCombineFn<T, KllSketch<T, ComparatorT>, List<T>> {
+
+    /** The default capacity of the highest level of the sketch. */
+    public static final int DEFAULT_K = 200;
+
+    /** The smallest supported capacity of the highest level of the sketch. */
+    public static final int MIN_K = 8;
+
+    /** The comparison function to use. */
+    private final ComparatorT compareFn;
+
+    /**
+     * Number of quantiles to produce. The size of the final output list, including the minimum and
+     * maximum, is numQuantiles.
+     */
+    private final int numQuantiles;
+
+    /** The capacity of the highest level of the sketch, corresponding to k in the paper. */
+    private final int k;
+
+    private KllQuantilesCombineFn(int numQuantiles, ComparatorT compareFn, int k) {
+      checkArgument(numQuantiles >= 2, "Expected at least 2 quantiles but got %s", numQuantiles);
+      checkArgument(k >= MIN_K, "Expected k of at least %s but got %s", MIN_K, k);
+      this.numQuantiles = numQuantiles;
+      this.compareFn = compareFn;
+      this.k = k;
+    }
+
+    /**
+     * Returns an approximate quantiles combiner with the given {@code compareFn} and desired number
+     * of quantiles. A total of {@code numQuantiles} elements will appear in the output list,
+     * including the minimum and maximum.
+     *
+     * <p>The {@code Comparator} must be {@code Serializable}.
+     */
+    public static <T, ComparatorT extends Comparator<T> & Serializable>
+        KllQuantilesCombineFn<T, ComparatorT> create(int numQuantiles, ComparatorT compareFn) {
+      return new KllQuantilesCombineFn<>(numQuantiles, compareFn, DEFAULT_K);
+    }
+
+    /** Like {@link #create(int, Comparator)}, but sorts values using their natural ordering. */
+    public static <T extends Comparable<T>> KllQuantilesCombineFn<T, Top.Natural<T>> create(
+        int numQuantiles) {
+      return create(numQuantiles, new Top.Natural<T>());
+    }
+
+    /**
+     * Returns a {@code KllQuantilesCombineFn} that's like this one except that the highest level of
+     * the sketch holds {@code k} elements. Does not modify this combiner.
+     */
+    public KllQuantilesCombineFn<T, ComparatorT> withK(int k) {
+      return new KllQuantilesCombineFn<>(numQuantiles, compareFn, k);
+    }
+
+    /**
+     * Returns a {@code KllQuantilesCombineFn} that's like this one except that {@code k} is chosen
+     * such that the rank error of each quantile is at most {@code epsilon * N} with 99% confidence.
+     * Does not modify this combiner.
+     */
+    public KllQuantilesCombineFn<T, ComparatorT> withEpsilon(double epsilon) {
+      checkArgument(
+          epsilon > 0 && epsilon < 1, "Expected epsilon within (0, 1) but got %s", epsilon);
+      return withK(Math.max(MIN_K, (int) Math.ceil(Math.pow(2.296 / epsilon, 1 / 0.9723))));
+    }
+
+    @Override
+    public KllSketch<T, ComparatorT> createAccumulator() {
+      return KllSketch.empty(compareFn, numQuantiles, k);
+    }
+
+    @Override
+    public Coder<KllSketch<T, ComparatorT>> getAccumulatorCoder(
+        CoderRegistry registry, Coder<T> elementCoder) {
+      return new KllSketchCoder<>(compareFn, numQuantiles, k, elementCoder);
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      super.populateDisplayData(builder);
+      builder
+          .add(DisplayData.item("numQuantiles", numQuantiles).withLabel("Quantile Count"))
+          .add(DisplayData.item("k", k).withLabel("Sketch Size"))
+          .add(DisplayData.item("comparer", compareFn.getClass()).withLabel("Record Comparer"));
+    }
+
+    int getK() {
+      return k;
+    }
+  }
+
+  /** A KLL sketch summarizing a collection on which quantiles can be estimated. */
+  static class KllSketch<T, ComparatorT extends Comparator<T> & Serializable>
+      implements Accumulator<T, KllSketch<T, ComparatorT>, List<T>> {
+    private static final double CAPACITY_DECAY = 2.0 / 3;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+
+    private final ComparatorT compareFn;
+    private final int numQuantiles;
+    private final int k;
+
+    /** The number of elements added to the sketch. */
+    private long count;
+
+    private @Nullable T min;
+
+    private @Nullable T max;
+
+    /**
+     * The compactors ordered from the lowest level. Each element within level {@code h} represents
+     * {@code 2^h} elements. All levels except the lowest are kept sorted.
+     */
+    private final List<List<T>> levels;
+
+    /** The number of elements held by all the levels. */
+    private int numRetained;
+
+    /** The number of elements the levels may hold before the sketch is compacted. */
+    private int capacity;
+
+    /**
+     * The source of the random choices made by compactions or {@code null} for a thread local one.
+     */
+    private @Nullable Random random;
+
+    private KllSketch(
+        ComparatorT compareFn,
+        int numQuantiles,
+        int k,
+        long count,
+        @Nullable T min,
+        @Nullable T max,
+        List<List<T>> levels) {
+      this.compareFn = compareFn;
+      this.numQuantiles = numQuantiles;
+      this.k = k;
+      this.count = count;
+      this.min = min;
+      this.max = max;
+      this.levels = levels;
+      for (List<T> level : levels) {
+        numRetained += level.size();
+      }
+      this.capacity = computeCapacity();
+    }
+
+    static <T, ComparatorT extends Comparator<T> & Serializable> KllSketch<T, ComparatorT> empty(
+        ComparatorT compareFn, int numQuantiles, int k) {
+      List<List<T>> levels = new ArrayList<>();
+      levels.add(new ArrayList<>());
+      return new KllSketch<>(compareFn, numQuantiles, k, 0, null, null, levels);
+    }
+
+    /** Add a new element to the collection being summarized by this sketch. */
+    @Override
+    public void addInput(T elem) {
+      if (isEmpty()) {
+        min = max = elem;
+      } else if (compareFn.compare(elem, min) < 0) {
+        min = elem;
+      } else if (compareFn.compare(elem, max) > 0) {
+        max = elem;
+      }
+      count += 1;
+      levels.get(0).add(elem);
+      numRetained += 1;
+      compactIfNeeded();
+    }
+
+    /**
+     * Updates this as if adding all elements seen by other.
+     *
+     * <p>Note that this ignores the {@code Comparator} of the other {@link KllSketch}. In practice,
+     * they should generally be equal, but this method tolerates a mismatch.
+     */
+    @Override
+    public void mergeAccumulator(KllSketch<T, ComparatorT> other) {
+      if (other.isEmpty()) {
+        return;
+      }
+      if (min == null || compareFn.compare(other.min, min) < 0) {
+        min = other.min;
+      }
+      if (max == null || compareFn.compare(other.max, max) > 0) {
+        max = other.max;
+      }
+      count += other.count;
+      while (levels.size() < other.levels.size()) {
+        levels.add(new ArrayList<>());
+      }
+      levels.get(0).addAll(other.levels.get(0));
+      for (int h = 1; h < other.levels.size(); ++h) {
+        List<T> otherLevel = other.levels.get(h);
+        if (!otherLevel.isEmpty()) {
+          levels.set(h, mergeSorted(levels.get(h), otherLevel));
+        }
+      }
+      numRetained += other.numRetained;
+      capacity = computeCapacity();
+      compactIfNeeded();
+    }
+
+    public boolean isEmpty() {
+      return count == 0;
+    }
+
+    /** Returns the number of elements the levels may hold given the current number of levels. */
+    private int computeCapacity() {
+      int total = 0;
+      for (int h = 0; h < levels.size(); ++h) {
+        total += levelCapacity(h);
+      }
+      return total;
+    }
+
+    private int levelCapacity(int level) {
+      int depth = levels.size() - level - 1;
+      return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void compactIfNeeded() {
+      while (numRetained > capacity) {
+        compact();
+      }
+    }
+
+    /** Promotes a random half of the elements of the lowest level at capacity to the next level. */
+    private void compact() {
+      int h = 0;
+      while (levels.get(h).size() < levelCapacity(h)) {
+        h += 1;
+      }
+      if (h + 1 == levels.size()) {
+        levels.add(new ArrayList<>());
+        capacity = computeCapacity();
+      }
+      List<T> level = levels.get(h);
+      if (h == 0) {
+        level.sort(compareFn);
+      }
+      // An odd element out stays behind, the remaining pairs each promote one of their elements.
+      int start = level.size() % 2;
+      boolean promoteOdd =
+          random == null ? ThreadLocalRandom.current().nextBoolean() : random.nextBoolean();
+      int offset = promoteOdd ? 1 : 0;
+      List<T> promoted = new ArrayList<>(level.size() / 2);
+      for (int i = start + offset; i < level.size(); i += 2) {
+        promoted.add(level.get(i));
+      }
+      List<T> remaining = new ArrayList<>();
+      if (start == 1) {
+        remaining.add(level.get(0));
+      }
+      levels.set(h, remaining);
+      levels.set(h + 1, mergeSorted(levels.get(h + 1), promoted));
+      numRetained -= level.size() - remaining.size() - promoted.size();
+    }
+
+    private List<T> mergeSorted(List<T> a, List<T> b) {
+      if (a.isEmpty()) {
+        return new ArrayList<>(b);
+      }
+      List<T> merged = new ArrayList<>(a.size() + b.size());
+      Iterators.addAll(
+          merged, Iterators.mergeSorted(Lists.newArrayList(a.iterator(), b.iterator()), compareFn));
+      return merged;
+    }
+
+    /**
+     * Outputs numQuantiles elements consisting of the minimum, maximum, and numQuantiles - 2 evenly
+     * spaced intermediate elements.
+     *
+     * <p>Returns the empty list if no elements have been added.
+     */
+    @Override
+    public List<T> extractOutput() {
+      if (isEmpty()) {
+        return Lists.newArrayList();
+      }
+      List<Iterator<KV<T, Long>>> iterators = new ArrayList<>(levels.size());
+      for (int h = 0; h < levels.size(); ++h) {
+        List<T> level = levels.get(h);
+        if (h == 0) {
+          level.sort(compareFn);
+        }
+        long weight = 1L << h;
+        iterators.add(Iterators.transform(level.iterator(), elem -> KV.of(elem, weight)));
+      }
+      Iterator<KV<T, Long>> sorted =
+          Iterators.mergeSorted(iterators, (a, b) -> compareFn.compare(a.getKey(), b.getKey()));
+
+      // The weights of the retained elements always add up to the number of added elements.
+      double step = 1.0 * count / (numQuantiles - 1);
+      double offset = (1.0 * count - 1) / (numQuantiles - 1);
+      List<T> quantiles = Lists.newArrayListWithCapacity(numQuantiles);
+      quantiles.add(min);
+      KV<T, Long> weightedElement = sorted.next();
+      long current = weightedElement.getValue();
+      for (int j = 0; j < numQuantiles - 2; j++) {
+        double target = j * step + offset;
+        while (current <= target && sorted.hasNext()) {
+          weightedElement = sorted.next();
+          current += weightedElement.getValue();
+        }
+        quantiles.add(weightedElement.getKey());
+      }
+      quantiles.add(max);
+      return quantiles;
+    }
+
+    int getNumRetained() {
+      return numRetained;
+    }
+
+    @VisibleForTesting
+    void setRandom(Random random) {
+      this.random = random;
+    }
+  }
+
+  /** Coder for {@link KllSketch}. */
+  private static class KllSketchCoder<T, ComparatorT extends Comparator<T> & Serializable>
+      extends CustomCoder<KllSketch<T, ComparatorT>> {
+    private static final Coder<Integer> INT_CODER = VarIntCoder.of();
+    private static final Coder<Long> LONG_CODER = VarLongCoder.of();
+
+    private final ComparatorT compareFn;
+    private final int numQuantiles;
+    private final int k;
+    private final Coder<T> elementCoder;
+    private final Coder<List<T>> elementListCoder;
+
+    KllSketchCoder(ComparatorT compareFn, int numQuantiles, int k, Coder<T> elementCoder) {
+      this.compareFn = compareFn;
+      this.numQuantiles = numQuantiles;
+      this.k = k;
+      this.elementCoder = elementCoder;
+      this.elementListCoder = ListCoder.of(elementCoder);
+    }
+
+    @Override
+    public void encode(KllSketch<T, ComparatorT> sketch, OutputStream outStream)
+        throws CoderException, IOException {
+      LONG_CODER.encode(sketch.count, outStream);
+      if (sketch.isEmpty()) {
+        return;
+      }
+      elementCoder.encode(sketch.min, outStream);
+      elementCoder.encode(sketch.max, outStream);
+      INT_CODER.encode(sketch.levels.size(), outStream);
+      for (List<T> level : sketch.levels) {
+        elementListCoder.encode(level, outStream);
+      }
+    }
+
+    @Override
+    public KllSketch<T, ComparatorT> decode(InputStream inStream)
+        throws CoderException, IOException {
+      long count = LONG_CODER.decode(inStream);
+      if (count == 0) {
+        return KllSketch.empty(compareFn, numQuantiles, k);
+      }
+      T min = elementCoder.decode(inStream);
+      T max = elementCoder.decode(inStream);
+      int numLevels = INT_CODER.decode(inStream);
+      List<List<T>> levels = new ArrayList<>(numLevels);
+      for (int h = 0; h < numLevels; ++h) {
+        levels.add(new ArrayList<>(elementListCoder.decode(inStream)));
+      }
+      return new KllSketch<>(compareFn, numQuantiles, k, count, min, max, levels);
+    }
+
+    @Override
+    public void registerByteSizeObserver(
+        KllSketch<T, ComparatorT> sketch, ElementByteSizeObserver observer) throws Exception {
+      LONG_CODER.registerByteSizeObserver(sketch.count, observer);
+      if (sketch.isEmpty()) {
+        return;
+      }
+      elementCoder.registerByteSizeObserver(sketch.min, observer);
+      elementCoder.registerByteSizeObserver(sketch.max, observer);
+      INT_CODER.registerByteSizeObserver(sketch.levels.size(), observer);
+      for (List<T> level : sketch.levels) {
+        elementListCoder.registerByteSizeObserver(level, observer);
+      }
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      if (other == this) {
+        return true;
+      }
+      if (!(other instanceof KllSketchCoder)) {
+        return false;
+      }
+      KllSketchCoder<?, ?> that = (KllSketchCoder<?, ?>) other;
+      return this.numQuantiles == that.numQuantiles
+          && this.k == that.k
+          && Objects.equals(this.elementCoder, that.elementCoder)
+          && Objects.equals(this.compareFn, that.compareFn);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(numQuantiles, k, elementCoder, compareFn);
+    }
+
+    @Override
+    public void verifyDeterministic() throws NonDeterministicException {
+      verifyDeterministic(this, "KllSketch.ElementCoder must be deterministic", elementCoder);
+    }
+  }
+}
@@ -301,7 +301,11 @@ class ByteBuddyDoFnInvokerFactory implements DoFnInvokerFactory {
     return byteBuddyInvokerConstructorCache.computeIfAbsent(
         fnClass,
         clazz -> {
-          Class<? extends DoFnInvoker<?, ?>> invokerClass = generateInvokerClass(signature);
+          Class<?> invokerClass =
+              PrecompiledInvokers.find(fnClass, DoFnInvoker.class.getSimpleName());
+          if (invokerClass == null) {
+            invokerClass = generateInvokerClass(signature);
+          }
           try {
             return invokerClass.getConstructor(clazz);
           } catch (IllegalArgumentException | NoSuchMethodException | SecurityException e) {
@@ -449,73 +453,8 @@ class ByteBuddyDoFnInvokerFactory implements DoFnInvokerFactory {
   private static Class<? extends DoFnInvoker<?, ?>> generateInvokerClass(DoFnSignature signature) {
     Class<? extends DoFn<?, ?>> fnClass = signature.fnClass();
 
-    final TypeDescription clazzDescription = new TypeDescription.ForLoadedType(fnClass);
-
-    DynamicType.Builder<?> builder =
-        new ByteBuddy()
-            // Create subclasses inside the target class, to have access to
-            // private and package-private bits
-            .with(
-                StableInvokerNamingStrategy.forDoFnClass(fnClass)
-                    .withSuffix(DoFnInvoker.class.getSimpleName()))
-
-            // class <invoker class> extends DoFnInvokerBase {
-            .subclass(DoFnInvokerBase.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
-
-            //   public <invoker class>(<fn class> delegate) { this.delegate = delegate; }
-            .defineConstructor(Visibility.PUBLIC)
-            .withParameter(fnClass)
-            .intercept(new InvokerConstructor(DoFnInvokerBase.class))
-
-            //   public invokeProcessElement(ProcessContext, ExtraContextFactory) {
-            //     delegate.<@ProcessElement>(... pass just the right args ...);
-            //   }
-            .method(ElementMatchers.named("invokeProcessElement"))
-            .intercept(new ProcessElementDelegation(clazzDescription, signature.processElement()))
-
-            //   public invokeStartBundle(Context c) { delegate.<@StartBundle>(c); }
-            //   ... etc ...
-            .method(ElementMatchers.named("invokeStartBundle"))
-            .intercept(
-                delegateMethodWithExtraParametersOrNoop(clazzDescription, signature.startBundle()))
-            .method(ElementMatchers.named("invokeFinishBundle"))
-            .intercept(
-                delegateMethodWithExtraParametersOrNoop(clazzDescription, signature.finishBundle()))
-            .method(ElementMatchers.named("invokeSetup"))
-            .intercept(delegateMethodWithExtraParametersOrNoop(clazzDescription, signature.setup()))
-            .method(ElementMatchers.named("invokeTeardown"))
-            .intercept(delegateOrNoop(clazzDescription, signature.teardown()))
-            .method(ElementMatchers.named("invokeOnWindowExpiration"))
-            .intercept(
-                delegateMethodWithExtraParametersOrNoop(
-                    clazzDescription, signature.onWindowExpiration()))
-            .method(ElementMatchers.named("invokeGetInitialRestriction"))
-            .intercept(
-                delegateMethodWithExtraParametersOrThrow(
-                    clazzDescription, signature.getInitialRestriction()))
-            .method(ElementMatchers.named("invokeSplitRestriction"))
-            .intercept(splitRestrictionDelegation(clazzDescription, signature.splitRestriction()))
-            .method(ElementMatchers.named("invokeTruncateRestriction"))
-            .intercept(
-                truncateRestrictionDelegation(clazzDescription, signature.truncateRestriction()))
-            .method(ElementMatchers.named("invokeGetRestrictionCoder"))
-            .intercept(getRestrictionCoderDelegation(clazzDescription, signature))
-            .method(ElementMatchers.named("invokeNewTracker"))
-            .intercept(newTrackerDelegation(clazzDescription, signature.newTracker()))
-            .method(ElementMatchers.named("invokeGetSize"))
-            .intercept(getSizeDelegation(clazzDescription, signature.getSize()))
-            .method(ElementMatchers.named("invokeGetWatermarkEstimatorStateCoder"))
-            .intercept(getWatermarkEstimatorStateCoderDelegation(clazzDescription, signature))
-            .method(ElementMatchers.named("invokeGetInitialWatermarkEstimatorState"))
-            .intercept(
-                getInitialWatermarkEstimatorStateDelegation(
-                    clazzDescription, signature.getInitialWatermarkEstimatorState()))
-            .method(ElementMatchers.named("invokeNewWatermarkEstimator"))
-            .intercept(
-                newWatermarkEstimatorDelegation(
-                    clazzDescription, signature.newWatermarkEstimator()));
-
-    DynamicType.Unloaded<?> unloaded = builder.make();
+    DynamicType.Unloaded<?> unloaded =
+        newInvokerTypeBuilder(signature, DoFnInvoker.class.getSimpleName()).make();
     @SuppressWarnings("unchecked")
     Class<? extends DoFnInvoker<?, ?>> res =
         (Class<? extends DoFnInvoker<?, ?>>)
@@ -525,6 +464,75 @@ class ByteBuddyDoFnInvokerFactory implements DoFnInvokerFactory {
     return res;
   }
 
+  /**
+   * Returns a builder of a {@link DoFnInvoker} class for the given {@link DoFnSignature} whose name
+   * is the {@link DoFn} class name followed by the suffix.
+   */
+  static DynamicType.Builder<?> newInvokerTypeBuilder(DoFnSignature signature, String suffix) {
+    Class<? extends DoFn<?, ?>> fnClass = signature.fnClass();
+
+    final TypeDescription clazzDescription = new TypeDescription.ForLoadedType(fnClass);
+
+    return new ByteBuddy()
+        // Create subclasses inside the target class, to have access to
+        // private and package-private bits
+        .with(StableInvokerNamingStrategy.forDoFnClass(fnClass).withSuffix(suffix))
+
+        // class <invoker class> extends DoFnInvokerBase {
+        .subclass(DoFnInvokerBase.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
+
+        //   public <invoker class>(<fn class> delegate) { this.delegate = delegate; }
+        .defineConstructor(Visibility.PUBLIC)
+        .withParameter(fnClass)
+        .intercept(new InvokerConstructor(DoFnInvokerBase.class))
+
+        //   public invokeProcessElement(ProcessContext, ExtraContextFactory) {
+        //     delegate.<@ProcessElement>(... pass just the right args ...);
+        //   }
+        .method(ElementMatchers.named("invokeProcessElement"))
+        .intercept(new ProcessElementDelegation(clazzDescription, signature.processElement()))
+
+        //   public invokeStartBundle(Context c) { delegate.<@StartBundle>(c); }
+        //   ... etc ...
+        .method(ElementMatchers.named("invokeStartBundle"))
+        .intercept(
+            delegateMethodWithExtraParametersOrNoop(clazzDescription, signature.startBundle()))
+        .method(ElementMatchers.named("invokeFinishBundle"))
+        .intercept(
+            delegateMethodWithExtraParametersOrNoop(clazzDescription, signature.finishBundle()))
+        .method(ElementMatchers.named("invokeSetup"))
+        .intercept(delegateMethodWithExtraParametersOrNoop(clazzDescription, signature.setup()))
+        .method(ElementMatchers.named("invokeTeardown"))
+        .intercept(delegateOrNoop(clazzDescription, signature.teardown()))
+        .method(ElementMatchers.named("invokeOnWindowExpiration"))
+        .intercept(
+            delegateMethodWithExtraParametersOrNoop(
+                clazzDescription, signature.onWindowExpiration()))
+        .method(ElementMatchers.named("invokeGetInitialRestriction"))
+        .intercept(
+            delegateMethodWithExtraParametersOrThrow(
+                clazzDescription, signature.getInitialRestriction()))
+        .method(ElementMatchers.named("invokeSplitRestriction"))
+        .intercept(splitRestrictionDelegation(clazzDescription, signature.splitRestriction()))
+        .method(ElementMatchers.named("invokeTruncateRestriction"))
+        .intercept(truncateRestrictionDelegation(clazzDescription, signature.truncateRestriction()))
+        .method(ElementMatchers.named("invokeGetRestrictionCoder"))
+        .intercept(getRestrictionCoderDelegation(clazzDescription, signature))
+        .method(ElementMatchers.named("invokeNewTracker"))
+        .intercept(newTrackerDelegation(clazzDescription, signature.newTracker()))
+        .method(ElementMatchers.named("invokeGetSize"))
+        .intercept(getSizeDelegation(clazzDescription, signature.getSize()))
+        .method(ElementMatchers.named("invokeGetWatermarkEstimatorStateCoder"))
+        .intercept(getWatermarkEstimatorStateCoderDelegation(clazzDescription, signature))
+        .method(ElementMatchers.named("invokeGetInitialWatermarkEstimatorState"))
+        .intercept(
+            getInitialWatermarkEstimatorStateDelegation(
+                clazzDescription, signature.getInitialWatermarkEstimatorState()))
+        .method(ElementMatchers.named("invokeNewWatermarkEstimator"))
+        .intercept(
+            newWatermarkEstimatorDelegation(clazzDescription, signature.newWatermarkEstimator()));
+  }
+
   private static ClassLoadingStrategy<ClassLoader> getClassLoadingStrategy(Class<?> targetClass) {
     try {
       ClassLoadingStrategy<ClassLoader> strategy;
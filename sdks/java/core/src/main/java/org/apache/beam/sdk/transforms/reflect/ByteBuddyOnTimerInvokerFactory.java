@@ -182,95 +182,115 @@ class ByteBuddyOnTimerInvokerFactory implements OnTimerInvokerFactory {
    */
   private static Class<? extends OnTimerInvoker<?, ?>> generateOnTimerInvokerClass(
       DoFnSignature signature, String timerId) {
+    Class<?> precompiled =
+        PrecompiledInvokers.find(signature.fnClass(), onTimerInvokerSuffix(timerId));
+    if (precompiled != null) {
+      @SuppressWarnings("unchecked")
+      Class<? extends OnTimerInvoker<?, ?>> res =
+          (Class<? extends OnTimerInvoker<?, ?>>) precompiled;
+      return res;
+    }
+    return load(
+        signature.fnClass(),
+        newOnTimerInvokerTypeBuilder(signature, timerId, onTimerInvokerSuffix(timerId)).make());
+  }
+
+  /** Returns the suffix of the name of the {@link OnTimerInvoker} class for the timer. */
+  static String onTimerInvokerSuffix(String timerId) {
+    return String.format(
+        "%s$%s$%s",
+        OnTimerInvoker.class.getSimpleName(),
+        CharMatcher.javaLetterOrDigit().retainFrom(timerId),
+        BaseEncoding.base64().omitPadding().encode(timerId.getBytes(Charsets.UTF_8)));
+  }
+
+  /**
+   * Returns a builder of an {@link OnTimerInvoker} class for the given {@link DoFnSignature} and
+   * {@link TimerId} whose name is the {@link DoFn} class name followed by the suffix.
+   */
+  static DynamicType.Builder<?> newOnTimerInvokerTypeBuilder(
+      DoFnSignature signature, String timerId, String suffix) {
     Class<? extends DoFn<?, ?>> fnClass = signature.fnClass();
 
     final TypeDescription clazzDescription = new TypeDescription.ForLoadedType(fnClass);
 
-    final String suffix =
-        String.format(
-            "%s$%s$%s",
-            OnTimerInvoker.class.getSimpleName(),
-            CharMatcher.javaLetterOrDigit().retainFrom(timerId),
-            BaseEncoding.base64().omitPadding().encode(timerId.getBytes(Charsets.UTF_8)));
-
-    DynamicType.Builder<?> builder =
-        new ByteBuddy()
-            // Create subclasses inside the target class, to have access to
-            // private and package-private bits
-            .with(StableInvokerNamingStrategy.forDoFnClass(fnClass).withSuffix(suffix))
-
-            // class <invoker class> implements OnTimerInvoker {
-            .subclass(OnTimerInvoker.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
-
-            //   private final <fn class> delegate;
-            .defineField(
-                FN_DELEGATE_FIELD_NAME, fnClass, Visibility.PRIVATE, FieldManifestation.FINAL)
-
-            //   <invoker class>(<fn class> delegate) { this.delegate = delegate; }
-            .defineConstructor(Visibility.PUBLIC)
-            .withParameter(fnClass)
-            .intercept(new InvokerConstructor())
-
-            //   public invokeOnTimer(DoFn.ArgumentProvider) {
-            //     this.delegate.<@OnTimer method>(... pass the right args ...)
-            //   }
-            .method(ElementMatchers.named("invokeOnTimer"))
-            .intercept(
-                new InvokeOnTimerDelegation(
-                    clazzDescription, signature.onTimerMethods().get(timerId)));
-
-    DynamicType.Unloaded<?> unloaded = builder.make();
+    return new ByteBuddy()
+        // Create subclasses inside the target class, to have access to
+        // private and package-private bits
+        .with(StableInvokerNamingStrategy.forDoFnClass(fnClass).withSuffix(suffix))
 
-    @SuppressWarnings("unchecked")
-    Class<? extends OnTimerInvoker<?, ?>> res =
-        (Class<? extends OnTimerInvoker<?, ?>>)
-            unloaded
-                .load(findClassLoader(fnClass.getClassLoader()), getClassLoadingStrategy(fnClass))
-                .getLoaded();
-    return res;
+        // class <invoker class> implements OnTimerInvoker {
+        .subclass(OnTimerInvoker.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
+
+        //   private final <fn class> delegate;
+        .defineField(FN_DELEGATE_FIELD_NAME, fnClass, Visibility.PRIVATE, FieldManifestation.FINAL)
+
+        //   <invoker class>(<fn class> delegate) { this.delegate = delegate; }
+        .defineConstructor(Visibility.PUBLIC)
+        .withParameter(fnClass)
+        .intercept(new InvokerConstructor())
+
+        //   public invokeOnTimer(DoFn.ArgumentProvider) {
+        //     this.delegate.<@OnTimer method>(... pass the right args ...)
+        //   }
+        .method(ElementMatchers.named("invokeOnTimer"))
+        .intercept(
+            new InvokeOnTimerDelegation(clazzDescription, signature.onTimerMethods().get(timerId)));
   }
 
   private static Class<? extends OnTimerInvoker<?, ?>> generateOnTimerFamilyInvokerClass(
       DoFnSignature signature, String timerId) {
+    Class<?> precompiled =
+        PrecompiledInvokers.find(signature.fnClass(), onTimerInvokerSuffix(timerId));
+    if (precompiled != null) {
+      @SuppressWarnings("unchecked")
+      Class<? extends OnTimerInvoker<?, ?>> res =
+          (Class<? extends OnTimerInvoker<?, ?>>) precompiled;
+      return res;
+    }
+    return load(
+        signature.fnClass(),
+        newOnTimerFamilyInvokerTypeBuilder(signature, timerId, onTimerInvokerSuffix(timerId))
+            .make());
+  }
+
+  /**
+   * Returns a builder of an {@link OnTimerInvoker} class for the given {@link DoFnSignature} and
+   * {@link DoFn.TimerFamily} whose name is the {@link DoFn} class name followed by the suffix.
+   */
+  static DynamicType.Builder<?> newOnTimerFamilyInvokerTypeBuilder(
+      DoFnSignature signature, String timerFamilyId, String suffix) {
     Class<? extends DoFn<?, ?>> fnClass = signature.fnClass();
 
     final TypeDescription clazzDescription = new TypeDescription.ForLoadedType(fnClass);
 
-    final String suffix =
-        String.format(
-            "%s$%s$%s",
-            OnTimerInvoker.class.getSimpleName(),
-            CharMatcher.javaLetterOrDigit().retainFrom(timerId),
-            BaseEncoding.base64().omitPadding().encode(timerId.getBytes(Charsets.UTF_8)));
-
-    DynamicType.Builder<?> builder =
-        new ByteBuddy()
-            // Create subclasses inside the target class, to have access to
-            // private and package-private bits
-            .with(StableInvokerNamingStrategy.forDoFnClass(fnClass).withSuffix(suffix))
-
-            // class <invoker class> implements OnTimerInvoker {
-            .subclass(OnTimerInvoker.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
-
-            //   private final <fn class> delegate;
-            .defineField(
-                FN_DELEGATE_FIELD_NAME, fnClass, Visibility.PRIVATE, FieldManifestation.FINAL)
-
-            //   <invoker class>(<fn class> delegate) { this.delegate = delegate; }
-            .defineConstructor(Visibility.PUBLIC)
-            .withParameter(fnClass)
-            .intercept(new InvokerConstructor())
-
-            //   public invokeOnTimer(DoFn.ArgumentProvider) {
-            //     this.delegate.<@OnTimer method>(... pass the right args ...)
-            //   }
-            .method(ElementMatchers.named("invokeOnTimer"))
-            .intercept(
-                new InvokeOnTimerFamilyDelegation(
-                    clazzDescription, signature.onTimerFamilyMethods().get(timerId)));
-
-    DynamicType.Unloaded<?> unloaded = builder.make();
+    return new ByteBuddy()
+        // Create subclasses inside the target class, to have access to
+        // private and package-private bits
+        .with(StableInvokerNamingStrategy.forDoFnClass(fnClass).withSuffix(suffix))
+
+        // class <invoker class> implements OnTimerInvoker {
+        .subclass(OnTimerInvoker.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
+
+        //   private final <fn class> delegate;
+        .defineField(FN_DELEGATE_FIELD_NAME, fnClass, Visibility.PRIVATE, FieldManifestation.FINAL)
+
+        //   <invoker class>(<fn class> delegate) { this.delegate = delegate; }
+        .defineConstructor(Visibility.PUBLIC)
+        .withParameter(fnClass)
+        .intercept(new InvokerConstructor())
+
+        //   public invokeOnTimer(DoFn.ArgumentProvider) {
+        //     this.delegate.<@OnTimer method>(... pass the right args ...)
+        //   }
+        .method(ElementMatchers.named("invokeOnTimer"))
+        .intercept(
+            new InvokeOnTimerFamilyDelegation(
+                clazzDescription, signature.onTimerFamilyMethods().get(timerFamilyId)));
+  }
 
+  private static Class<? extends OnTimerInvoker<?, ?>> load(
+      Class<? extends DoFn<?, ?>> fnClass, DynamicType.Unloaded<?> unloaded) {
     @SuppressWarnings("unchecked")
     Class<? extends OnTimerInvoker<?, ?>> res =
         (Class<? extends OnTimerInvoker<?, ?>>)
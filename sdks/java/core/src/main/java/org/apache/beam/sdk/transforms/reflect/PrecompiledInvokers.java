@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms.reflect;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.Ownership;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.util.ReleaseInfo;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates {@link DoFnInvoker} and {@link OnTimerInvoker} classes at build time so that they do
+ * not need to be generated when a {@link DoFn} is first used within each worker.
+ *
+ * <p>{@link #main} scans directories of compiled classes for {@link DoFn DoFns} and writes their
+ * invoker classes to an output directory which should be packaged alongside the scanned classes.
+ * The scanned classes and their dependencies must be on the classpath. For example using Gradle:
+ *
+ * <pre>{@code
+ * def precompileDoFnInvokers = tasks.register("precompileDoFnInvokers", JavaExec) {
+ *   classpath = sourceSets.main.runtimeClasspath
+ *   mainClass = "org.apache.beam.sdk.transforms.reflect.PrecompiledInvokers"
+ *   def outputDir = layout.buildDirectory.dir("precompiledInvokers")
+ *   args outputDir.get().asFile, *sourceSets.main.output.classesDirs.files
+ *   outputs.dir outputDir
+ * }
+ * tasks.named("jar") { from precompileDoFnInvokers }
+ * }</pre>
+ *
+ * <p>{@link DoFnInvokers} uses a precompiled invoker when one generated by the same Beam SDK
+ * version is found next to the {@link DoFn} class and otherwise generates one at runtime. Invokers
+ * which depend on objects created when the class is loaded, such as the default restriction coder
+ * of a splittable {@link DoFn}, are always generated at runtime.
+ */
+@Internal
+@SuppressWarnings({
+  "nullness", // TODO(https://github.com/apache/beam/issues/20497)
+  "rawtypes"
+})
+public class PrecompiledInvokers {
+  private static final Logger LOG = LoggerFactory.getLogger(PrecompiledInvokers.class);
+
+  /** Prefixes the suffix of the name of the invoker class generated at runtime. */
+  static final String PREFIX = "Precompiled";
+
+  /** The name of the constant holding the Beam SDK version which generated the invoker class. */
+  static final String SDK_VERSION_FIELD = "BEAM_SDK_VERSION";
+
+  private PrecompiledInvokers() {}
+
+  /**
+   * Returns the precompiled invoker class for the {@link DoFn} class whose name is suffixed by
+   * {@link #PREFIX} followed by the given suffix or {@code null} if there is no usable class.
+   */
+  static @Nullable Class<?> find(Class<?> fnClass, String suffix) {
+    String invokerClassName = String.format("%s$%s%s", fnClass.getName(), PREFIX, suffix);
+    Class<?> invokerClass;
+    try {
+      invokerClass = Class.forName(invokerClassName, true, fnClass.getClassLoader());
+    } catch (ClassNotFoundException | LinkageError e) {
+      return null;
+    }
+    Object sdkVersion;
+    try {
+      sdkVersion = invokerClass.getField(SDK_VERSION_FIELD).get(null);
+    } catch (ReflectiveOperationException e) {
+      sdkVersion = null;
+    }
+    if (!getSdkVersion().equals(sdkVersion)) {
+      LOG.warn(
+          "Ignoring {} generated by Beam SDK version {} since the current version is {}.",
+          invokerClassName,
+          sdkVersion,
+          getSdkVersion());
+      return null;
+    }
+    return invokerClass;
+  }
+
+  /**
+   * Generates the invoker classes of all {@link DoFn DoFns} contained within the given directories
+   * of compiled classes.
+   *
+   * <p>Usage: {@code PrecompiledInvokers <output directory> <classes directory>...}
+   */
+  public static void main(String[] args) throws IOException {
+    checkArgument(
+        args.length >= 1,
+        "Usage: %s <output directory> <classes directory>...",
+        PrecompiledInvokers.class.getSimpleName());
+    File outputDirectory = new File(args[0]);
+    ClassLoader classLoader = PrecompiledInvokers.class.getClassLoader();
+    int numInvokers = 0;
+    for (int i = 1; i < args.length; ++i) {
+      Path classesDirectory = Paths.get(args[i]);
+      if (!Files.isDirectory(classesDirectory)) {
+        continue;
+      }
+      List<String> classNames;
+      try (Stream<Path> paths = Files.walk(classesDirectory)) {
+        classNames =
+            paths
+                .map(path -> classesDirectory.relativize(path).toString())
+                .filter(path -> path.endsWith(".class"))
+                .map(
+                    path ->
+                        path.substring(0, path.length() - ".class".length())
+                            .replace(File.separatorChar, '.'))
+                .collect(Collectors.toList());
+      }
+      for (String className : classNames) {
+        Class<?> clazz;
+        try {
+          clazz = Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+          LOG.debug("Skipping {} which could not be loaded.", className, e);
+          continue;
+        }
+        numInvokers += generate(clazz, outputDirectory);
+      }
+    }
+    LOG.info("Generated {} invoker classes in {}.", numInvokers, outputDirectory);
+  }
+
+  /**
+   * Writes the invoker classes for the class to the output directory if it is a {@link DoFn},
+   * returning the number of classes written.
+   */
+  static int generate(Class<?> clazz, File outputDirectory) throws IOException {
+    if (!DoFn.class.isAssignableFrom(clazz)
+        || clazz.isInterface()
+        || Modifier.isAbstract(clazz.getModifiers())) {
+      return 0;
+    }
+    DoFnSignature signature;
+    try {
+      signature = DoFnSignatures.getSignature((Class) clazz);
+    } catch (RuntimeException e) {
+      LOG.debug("Skipping {} which is not a valid DoFn.", clazz.getName(), e);
+      return 0;
+    }
+    int numInvokers =
+        save(
+            ByteBuddyDoFnInvokerFactory.newInvokerTypeBuilder(
+                signature, PREFIX + DoFnInvoker.class.getSimpleName()),
+            outputDirectory);
+    for (String timerId : signature.onTimerMethods().keySet()) {
+      numInvokers +=
+          save(
+              ByteBuddyOnTimerInvokerFactory.newOnTimerInvokerTypeBuilder(
+                  signature,
+                  timerId,
+                  PREFIX + ByteBuddyOnTimerInvokerFactory.onTimerInvokerSuffix(timerId)),
+              outputDirectory);
+    }
+    for (String timerFamilyId : signature.onTimerFamilyMethods().keySet()) {
+      numInvokers +=
+          save(
+              ByteBuddyOnTimerInvokerFactory.newOnTimerFamilyInvokerTypeBuilder(
+                  signature,
+                  timerFamilyId,
+                  PREFIX + ByteBuddyOnTimerInvokerFactory.onTimerInvokerSuffix(timerFamilyId)),
+              outputDirectory);
+    }
+    return numInvokers;
+  }
+
+  private static int save(DynamicType.Builder<?> builder, File outputDirectory) throws IOException {
+    DynamicType.Unloaded<?> unloaded =
+        builder
+            .defineField(
+                SDK_VERSION_FIELD,
+                String.class,
+                Visibility.PUBLIC,
+                Ownership.STATIC,
+                FieldManifestation.FINAL)
+            .value(getSdkVersion())
+            .make();
+    if (unloaded.hasAliveLoadedTypeInitializers()) {
+      // The class relies on state which is injected when it is loaded at runtime.
+      return 0;
+    }
+    unloaded.saveIn(outputDirectory);
+    return 1;
+  }
+
+  private static String getSdkVersion() {
+    return ReleaseInfo.getReleaseInfo().getVersion();
+  }
+}
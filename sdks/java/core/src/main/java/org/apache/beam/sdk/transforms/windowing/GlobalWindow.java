@@ -19,6 +19,7 @@ package org.apache.beam.sdk.transforms.windowing;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import org.apache.beam.model.pipeline.v1.RunnerApi;
@@ -68,6 +69,19 @@ public class GlobalWindow extends BoundedWindow {
       return GlobalWindow.INSTANCE;
     }
 
+    @Override
+    public boolean supportsBufferCoding() {
+      return true;
+    }
+
+    @Override
+    public void encodeToBuffer(GlobalWindow window, ByteBuffer buffer) {}
+
+    @Override
+    public GlobalWindow decodeFromBuffer(ByteBuffer buffer) {
+      return GlobalWindow.INSTANCE;
+    }
+
     @Override
     public void verifyDeterministic() {}
 
@@ -20,6 +20,7 @@ package org.apache.beam.sdk.transforms.windowing;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import org.apache.beam.sdk.coders.Coder;
@@ -164,6 +165,25 @@ public class IntervalWindow extends BoundedWindow implements Comparable<Interval
       return new IntervalWindow(end.minus(duration), end);
     }
 
+    @Override
+    public boolean supportsBufferCoding() {
+      return true;
+    }
+
+    @Override
+    public void encodeToBuffer(IntervalWindow window, ByteBuffer buffer)
+        throws IOException, CoderException {
+      instantCoder.encodeToBuffer(window.end, buffer);
+      durationCoder.encodeToBuffer(new Duration(window.start, window.end), buffer);
+    }
+
+    @Override
+    public IntervalWindow decodeFromBuffer(ByteBuffer buffer) throws IOException, CoderException {
+      Instant end = instantCoder.decodeFromBuffer(buffer);
+      ReadableDuration duration = durationCoder.decodeFromBuffer(buffer);
+      return new IntervalWindow(end.minus(duration), end);
+    }
+
     @Override
     public void verifyDeterministic() throws NonDeterministicException {
       instantCoder.verifyDeterministic();
@@ -23,6 +23,7 @@ import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Prec
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 import org.apache.beam.sdk.coders.AtomicCoder;
 import org.apache.beam.sdk.coders.CoderException;
@@ -376,6 +377,54 @@ public final class PaneInfo {
       return new PaneInfo(base.isFirst, base.isLast, base.timing, index, onTimeIndex);
     }
 
+    @Override
+    public boolean supportsBufferCoding() {
+      return true;
+    }
+
+    @Override
+    public void encodeToBuffer(PaneInfo value, ByteBuffer buffer) throws CoderException {
+      Encoding encoding = chooseEncoding(value);
+      switch (encoding) {
+        case FIRST:
+          buffer.put(value.encodedByte);
+          break;
+        case ONE_INDEX:
+          buffer.put((byte) (value.encodedByte | encoding.tag));
+          VarInt.encode(value.index, buffer);
+          break;
+        case TWO_INDICES:
+          buffer.put((byte) (value.encodedByte | encoding.tag));
+          VarInt.encode(value.index, buffer);
+          VarInt.encode(value.nonSpeculativeIndex, buffer);
+          break;
+        default:
+          throw new CoderException("Unknown encoding " + encoding);
+      }
+    }
+
+    @Override
+    public PaneInfo decodeFromBuffer(ByteBuffer buffer) throws CoderException, IOException {
+      byte keyAndTag = buffer.get();
+      PaneInfo base = BYTE_TO_PANE_INFO.get((byte) (keyAndTag & 0x0F));
+      long index, onTimeIndex;
+      switch (Encoding.fromTag(keyAndTag)) {
+        case FIRST:
+          return base;
+        case ONE_INDEX:
+          index = VarInt.decodeLong(buffer);
+          onTimeIndex = base.timing == Timing.EARLY ? -1 : index;
+          break;
+        case TWO_INDICES:
+          index = VarInt.decodeLong(buffer);
+          onTimeIndex = VarInt.decodeLong(buffer);
+          break;
+        default:
+          throw new CoderException("Unknown encoding " + (keyAndTag & 0xF0));
+      }
+      return new PaneInfo(base.isFirst, base.isLast, base.timing, index, onTimeIndex);
+    }
+
     @Override
     public void verifyDeterministic() {}
   }
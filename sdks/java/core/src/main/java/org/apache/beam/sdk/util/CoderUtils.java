@@ -24,12 +24,18 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.SoftReference;
 import java.lang.reflect.ParameterizedType;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
 import org.apache.beam.sdk.values.TypeDescriptor;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Throwables;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.BaseEncoding;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.Ints;
 
 /** Utilities for working with Coders. */
 @SuppressWarnings({
@@ -41,6 +47,12 @@ public final class CoderUtils {
   private static ThreadLocal<SoftReference<ExposedByteArrayOutputStream>> threadLocalOutputStream =
       new ThreadLocal<>();
 
+  private static final int INITIAL_BUFFER_SIZE = 256;
+
+  private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+  private static ThreadLocal<SoftReference<ByteBuffer>> threadLocalBuffer = new ThreadLocal<>();
+
   /** If true, a call to {@code encodeToByteArray} is already on the call stack. */
   private static ThreadLocal<Boolean> threadLocalOutputStreamInUse =
       ThreadLocal.withInitial(() -> false);
@@ -66,6 +78,9 @@ public final class CoderUtils {
     } else {
       threadLocalOutputStreamInUse.set(true);
       try {
+        if (coder.supportsBufferCoding()) {
+          return encodeWithThreadLocalBuffer(coder, value, context);
+        }
         ByteArrayOutputStream stream = getThreadLocalOutputStream();
         encodeToSafeStream(coder, value, stream, context);
         return stream.toByteArray();
@@ -75,6 +90,71 @@ public final class CoderUtils {
     }
   }
 
+  /**
+   * Encodes {@code value} using {@link Coder#encodeToBuffer} into a reused thread local buffer.
+   *
+   * <p>If the encoded size of the value is cheap to compute, the buffer is sized to fit the value
+   * up front. Otherwise the value is encoded into the existing buffer once and, if it does not fit,
+   * encoded again using the thread local output stream rather than retrying with ever larger
+   * buffers. The buffer is then grown to fit the value for subsequent calls. Buffers larger than
+   * {@link #MAX_RETAINED_BUFFER_SIZE} are never retained.
+   */
+  private static <T> byte[] encodeWithThreadLocalBuffer(
+      Coder<T> coder, T value, Coder.Context context) throws CoderException {
+    SoftReference<ByteBuffer> refBuffer = threadLocalBuffer.get();
+    ByteBuffer buffer = refBuffer == null ? null : refBuffer.get();
+    if (buffer == null) {
+      buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+      threadLocalBuffer.set(new SoftReference<>(buffer));
+    }
+    try {
+      if (coder.isRegisterByteSizeObserverCheap(value)) {
+        ByteSizeObserver observer = new ByteSizeObserver();
+        coder.registerByteSizeObserver(value, observer);
+        observer.advance();
+        long size = observer.observedSize;
+        if (size > buffer.capacity()) {
+          if (size > MAX_RETAINED_BUFFER_SIZE) {
+            buffer = ByteBuffer.allocate(Ints.checkedCast(size));
+          } else {
+            buffer = ByteBuffer.allocate(Math.max((int) size, buffer.capacity() * 2));
+            threadLocalBuffer.set(new SoftReference<>(buffer));
+          }
+        }
+      }
+    } catch (Exception e) {
+      // Fall through and let the encoding attempt below surface any error.
+    }
+    buffer.clear();
+    try {
+      coder.encodeToBuffer(value, buffer, context);
+      return Arrays.copyOf(buffer.array(), buffer.position());
+    } catch (BufferOverflowException e) {
+      ByteArrayOutputStream stream = getThreadLocalOutputStream();
+      encodeToSafeStream(coder, value, stream, context);
+      if (stream.size() <= MAX_RETAINED_BUFFER_SIZE) {
+        // Grow the buffer so that similarly sized values fit next time.
+        threadLocalBuffer.set(
+            new SoftReference<>(
+                ByteBuffer.allocate(Math.max(stream.size(), buffer.capacity() * 2))));
+      }
+      return stream.toByteArray();
+    } catch (IOException exn) {
+      Throwables.propagateIfPossible(exn, CoderException.class);
+      throw new IllegalArgumentException("Forbidden IOException when writing to ByteBuffer", exn);
+    }
+  }
+
+  /** Basic implementation of {@link ElementByteSizeObserver} for use in sizing buffers. */
+  private static class ByteSizeObserver extends ElementByteSizeObserver {
+    private long observedSize = 0;
+
+    @Override
+    protected void reportElementSize(long elementSize) {
+      observedSize += elementSize;
+    }
+  }
+
   /**
    * Encodes {@code value} to the given {@code stream}, which should be a stream that never throws
    * {@code IOException}, such as {@code ByteArrayOutputStream} or {@link
@@ -98,6 +178,15 @@ public final class CoderUtils {
 
   public static <T> T decodeFromByteArray(
       Coder<T> coder, byte[] encodedValue, Coder.Context context) throws CoderException {
+    if (coder.supportsBufferCoding()) {
+      ByteBuffer buffer = ByteBuffer.wrap(encodedValue);
+      T result = decodeFromBuffer(coder, buffer, context);
+      if (buffer.hasRemaining()) {
+        throw new CoderException(
+            buffer.remaining() + " unexpected extra bytes after decoding " + result);
+      }
+      return result;
+    }
     try (ExposedByteArrayInputStream stream = new ExposedByteArrayInputStream(encodedValue)) {
       T result = decodeFromSafeStream(coder, stream, context);
       if (stream.available() != 0) {
@@ -131,6 +220,22 @@ public final class CoderUtils {
     return result;
   }
 
+  /**
+   * Decodes a value from the given {@code buffer} using {@link Coder#decodeFromBuffer}, reporting
+   * truncated input as a {@link CoderException}.
+   */
+  private static <T> T decodeFromBuffer(Coder<T> coder, ByteBuffer buffer, Coder.Context context)
+      throws CoderException {
+    try {
+      return coder.decodeFromBuffer(buffer, context);
+    } catch (BufferUnderflowException exn) {
+      throw new CoderException("Unexpected end of input while decoding", exn);
+    } catch (IOException exn) {
+      Throwables.propagateIfPossible(exn, CoderException.class);
+      throw new IllegalArgumentException("Forbidden IOException when reading from ByteBuffer", exn);
+    }
+  }
+
   /**
    * Decodes a value from the given {@code stream}, which should be a stream that never throws
    * {@code IOException}, such as {@code ByteArrayInputStream} or {@link
@@ -22,6 +22,7 @@ import java.io.Serializable;
 import java.math.RoundingMode;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.math.DoubleMath;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
@@ -30,21 +31,30 @@ import org.slf4j.LoggerFactory;
 /**
  * A histogram that supports estimated percentile with linear interpolation.
  *
- * <p>We may consider using Apache Commons or HdrHistogram library in the future for advanced
- * features such as sparsely populated histograms.
+ * <p>Recording is lock-free. The counts are kept in one or more stripes of atomic counters and a
+ * thread which observes contention on its stripe causes additional stripes to be allocated so that
+ * concurrently recording threads mostly update different counters. The number of stripes is bounded
+ * by the number of available processors and by a budget of counters so that histograms with many
+ * buckets are never striped. Reading a count sums it across all stripes. Reads are not atomic with
+ * respect to concurrent updates so a reader may observe some but not all of the concurrently
+ * recorded values.
  */
 public class HistogramData implements Serializable {
+  private static final long serialVersionUID = 1L;
+
   private static final Logger LOG = LoggerFactory.getLogger(HistogramData.class);
 
+  private static final int MAX_STRIPES =
+      Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+  // The number of counters across all stripes of a histogram beyond which no stripes are added.
+  private static final int MAX_STRIPED_COUNTERS = 1 << 12;
+
   private final BucketType bucketType;
+  private final int maxStripes;
 
-  // TODO(https://github.com/apache/beam/issues/20853): Update this function to remove the
-  // numTopRecords and numBottomRecords
-  // and include those counters in the buckets array.
-  private long[] buckets;
-  private long numBoundedBucketRecords;
-  private long numTopRecords;
-  private long numBottomRecords;
+  // Each stripe holds the counts of the bounded buckets followed by the bottom and top bucket
+  // counts. The number of stripes is always a power of two.
+  private volatile AtomicLongArray[] stripes;
 
   /**
    * Create a histogram.
@@ -53,10 +63,11 @@ public class HistogramData implements Serializable {
    */
   public HistogramData(BucketType bucketType) {
     this.bucketType = bucketType;
-    this.buckets = new long[bucketType.getNumBuckets()];
-    this.numBoundedBucketRecords = 0;
-    this.numTopRecords = 0;
-    this.numBottomRecords = 0;
+    int numCounters = bucketType.getNumBuckets() + 2;
+    this.maxStripes =
+        Math.min(
+            MAX_STRIPES, Integer.highestOneBit(Math.max(1, MAX_STRIPED_COUNTERS / numCounters)));
+    this.stripes = new AtomicLongArray[] {new AtomicLongArray(numCounters)};
   }
 
   public BucketType getBucketType() {
@@ -77,24 +88,35 @@ public class HistogramData implements Serializable {
     return new HistogramData(LinearBuckets.of(start, width, numBuckets));
   }
 
+  /**
+   * Create a histogram with log-linear buckets, suitable for recording non-negative integral values
+   * such as latencies or sizes with a bounded relative error.
+   *
+   * @param precision Controls the resolution of the buckets. Each power of two is split into {@code
+   *     2^precision} equally sized buckets so the relative error is at most {@code 2^-precision}.
+   *     The precision must be between 0 and 8.
+   * @param maxValue The largest value which is recorded within a bounded bucket.
+   * @return a new Histogram instance.
+   */
+  public static HistogramData logLinear(int precision, long maxValue) {
+    return new HistogramData(LogLinearBuckets.forMaxValue(precision, maxValue));
+  }
+
   public void record(double... values) {
     for (double value : values) {
       record(value);
     }
   }
 
-  public synchronized void update(HistogramData other) {
-    synchronized (other) {
-      if (!this.bucketType.equals(other.bucketType)
-          || this.buckets.length != other.buckets.length) {
-        LOG.warn("Failed to update HistogramData from another with a different buckets");
-        return;
-      }
-
-      incTopBucketCount(other.numTopRecords);
-      incBottomBucketCount(other.numBottomRecords);
-      for (int i = 0; i < other.buckets.length; i++) {
-        incBucketCount(i, other.buckets[i]);
+  public void update(HistogramData other) {
+    if (!this.bucketType.equals(other.bucketType)) {
+      LOG.warn("Failed to update HistogramData from another with a different buckets");
+      return;
+    }
+    long[] counts = other.snapshot();
+    for (int i = 0; i < counts.length; ++i) {
+      if (counts[i] != 0) {
+        increment(i, counts[i]);
       }
     }
   }
@@ -103,47 +125,57 @@ public class HistogramData implements Serializable {
   // the infinite buckets as well.
   // and remove the incTopBucketCount and incBotBucketCount methods.
   // Using 0 and length -1 as the bucketIndex.
-  public synchronized void incBucketCount(int bucketIndex, long count) {
-    this.buckets[bucketIndex] += count;
-    this.numBoundedBucketRecords += count;
+  public void incBucketCount(int bucketIndex, long count) {
+    if (bucketIndex < 0 || bucketIndex >= bucketType.getNumBuckets()) {
+      throw new ArrayIndexOutOfBoundsException(bucketIndex);
+    }
+    increment(bucketIndex, count);
   }
 
-  public synchronized void incTopBucketCount(long count) {
-    this.numTopRecords += count;
+  public void incTopBucketCount(long count) {
+    increment(topIndex(), count);
   }
 
-  public synchronized void incBottomBucketCount(long count) {
-    this.numBottomRecords += count;
+  public void incBottomBucketCount(long count) {
+    increment(bottomIndex(), count);
   }
 
-  public synchronized void clear() {
-    this.buckets = new long[bucketType.getNumBuckets()];
-    this.numBoundedBucketRecords = 0;
-    this.numTopRecords = 0;
-    this.numBottomRecords = 0;
+  public void clear() {
+    for (AtomicLongArray stripe : stripes) {
+      for (int i = 0; i < stripe.length(); ++i) {
+        stripe.set(i, 0);
+      }
+    }
   }
 
-  public synchronized void record(double value) {
-    double rangeTo = bucketType.getRangeTo();
-    double rangeFrom = bucketType.getRangeFrom();
-    if (value >= rangeTo) {
-      numTopRecords++;
-    } else if (value < rangeFrom) {
-      numBottomRecords++;
+  public void record(double value) {
+    int index;
+    if (value >= bucketType.getRangeTo()) {
+      index = topIndex();
+    } else if (value < bucketType.getRangeFrom()) {
+      index = bottomIndex();
     } else {
-      buckets[bucketType.getBucketIndex(value)]++;
-      numBoundedBucketRecords++;
+      index = bucketType.getBucketIndex(value);
     }
+    increment(index, 1);
   }
 
-  public synchronized long getTotalCount() {
-    return numBoundedBucketRecords + numTopRecords + numBottomRecords;
+  public long getTotalCount() {
+    return sum(snapshot());
   }
 
-  public synchronized String getPercentileString(String elemType, String unit) {
+  public String getPercentileString(String elemType, String unit) {
+    long[] counts = snapshot();
     return String.format(
         "Total number of %s: %s, P99: %.0f %s, P90: %.0f %s, P50: %.0f %s",
-        elemType, getTotalCount(), p99(), unit, p90(), unit, p50(), unit);
+        elemType,
+        sum(counts),
+        getLinearInterpolation(counts, 0.99),
+        unit,
+        getLinearInterpolation(counts, 0.90),
+        unit,
+        getLinearInterpolation(counts, 0.50),
+        unit);
   }
 
   /**
@@ -152,33 +184,115 @@ public class HistogramData implements Serializable {
    *
    * <p>This method does not guarantee the atomicity when sequentially accessing the multiple
    * buckets i.e. other threads may alter the value between consecutive invocations. For summing the
-   * total number of elements in the histogram, use `getTotalCount()` instead.
+   * total number of elements in the histogram, use `getTotalCount()` instead and for reading the
+   * counts of all buckets, use `getBucketCounts()` instead.
    *
    * @param bucketIndex index of the bucket
    * @return The number of elements in the specified bucket
    */
-  public synchronized long getCount(int bucketIndex) {
-    return buckets[bucketIndex];
+  public long getCount(int bucketIndex) {
+    if (bucketIndex < 0 || bucketIndex >= bucketType.getNumBuckets()) {
+      throw new ArrayIndexOutOfBoundsException(bucketIndex);
+    }
+    return count(bucketIndex);
+  }
+
+  /**
+   * Returns the counts of all buckets except for the bottom and top buckets, reading each count
+   * once.
+   */
+  public long[] getBucketCounts() {
+    return Arrays.copyOf(snapshot(), bucketType.getNumBuckets());
+  }
+
+  public long getTopBucketCount() {
+    return count(topIndex());
+  }
+
+  public long getBottomBucketCount() {
+    return count(bottomIndex());
   }
 
-  public synchronized long getTopBucketCount() {
-    return numTopRecords;
+  private int bottomIndex() {
+    return bucketType.getNumBuckets();
   }
 
-  public synchronized long getBottomBucketCount() {
-    return numBottomRecords;
+  private int topIndex() {
+    return bucketType.getNumBuckets() + 1;
+  }
+
+  private long count(int index) {
+    AtomicLongArray[] current = stripes;
+    long count = current[0].get(index);
+    for (int i = 1; i < current.length; ++i) {
+      count += current[i].get(index);
+    }
+    return count;
+  }
+
+  /** Returns the bucket counts followed by the bottom and top bucket counts. */
+  private long[] snapshot() {
+    AtomicLongArray[] current = stripes;
+    long[] counts = new long[bucketType.getNumBuckets() + 2];
+    for (AtomicLongArray stripe : current) {
+      for (int i = 0; i < counts.length; ++i) {
+        counts[i] += stripe.get(i);
+      }
+    }
+    return counts;
+  }
+
+  private static long sum(long[] counts) {
+    long sum = 0;
+    for (long count : counts) {
+      sum += count;
+    }
+    return sum;
+  }
+
+  private void increment(int index, long count) {
+    AtomicLongArray[] current = stripes;
+    AtomicLongArray stripe = current[stripeIndex(current.length)];
+    long previous = stripe.get(index);
+    if (!stripe.compareAndSet(index, previous, previous + count)) {
+      stripe.getAndAdd(index, count);
+      addStripes(current);
+    }
+  }
+
+  private static int stripeIndex(int numStripes) {
+    // Spreads the thread ids so that threads created consecutively land on different stripes.
+    long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+    return (int) (id >>> 32) & (numStripes - 1);
+  }
+
+  /** Doubles the number of stripes unless another thread has already done so. */
+  private void addStripes(AtomicLongArray[] current) {
+    if (current.length >= maxStripes) {
+      return;
+    }
+    synchronized (this) {
+      if (stripes != current) {
+        return;
+      }
+      AtomicLongArray[] expanded = Arrays.copyOf(current, current.length * 2);
+      for (int i = current.length; i < expanded.length; ++i) {
+        expanded[i] = new AtomicLongArray(current[0].length());
+      }
+      stripes = expanded;
+    }
   }
 
   public double p99() {
-    return getLinearInterpolation(0.99);
+    return getLinearInterpolation(snapshot(), 0.99);
   }
 
   public double p90() {
-    return getLinearInterpolation(0.90);
+    return getLinearInterpolation(snapshot(), 0.90);
   }
 
   public double p50() {
-    return getLinearInterpolation(0.50);
+    return getLinearInterpolation(snapshot(), 0.50);
   }
 
   /**
@@ -186,18 +300,18 @@ public class HistogramData implements Serializable {
    * includes the target percentile and projects the estimated point in the bucket by assuming all
    * the elements in the bucket are uniformly distributed.
    */
-  private synchronized double getLinearInterpolation(double percentile) {
-    long totalNumOfRecords = getTotalCount();
+  private double getLinearInterpolation(long[] counts, double percentile) {
+    long totalNumOfRecords = sum(counts);
     if (totalNumOfRecords == 0) {
       return Double.NaN;
     }
     int index;
-    double recordSum = numBottomRecords;
+    double recordSum = counts[bottomIndex()];
     if (recordSum / totalNumOfRecords >= percentile) {
       return Double.NEGATIVE_INFINITY;
     }
     for (index = 0; index < bucketType.getNumBuckets(); index++) {
-      recordSum += buckets[index];
+      recordSum += counts[index];
       if (recordSum / totalNumOfRecords >= percentile) {
         break;
       }
@@ -205,8 +319,8 @@ public class HistogramData implements Serializable {
     if (index == bucketType.getNumBuckets()) {
       return Double.POSITIVE_INFINITY;
     }
-    double fracPercentile = percentile - (recordSum - buckets[index]) / totalNumOfRecords;
-    double bucketPercentile = (double) buckets[index] / totalNumOfRecords;
+    double fracPercentile = percentile - (recordSum - counts[index]) / totalNumOfRecords;
+    double bucketPercentile = (double) counts[index] / totalNumOfRecords;
     double fracBucketSize = fracPercentile * bucketType.getBucketSize(index) / bucketPercentile;
     return bucketType.getRangeFrom() + bucketType.getAccumulatedBucketSize(index) + fracBucketSize;
   }
@@ -276,28 +390,112 @@ public class HistogramData implements Serializable {
     // Note: equals() and hashCode() are implemented by the AutoValue.
   }
 
+  /**
+   * HdrHistogram style buckets for non-negative values. Values below {@code 2^(precision + 1)} are
+   * recorded in buckets of width one and every larger power of two {@code [2^e, 2^(e+1))} is split
+   * into {@code 2^precision} buckets of width {@code 2^(e - precision)}. The relative error of any
+   * bucket is therefore bounded by {@code 2^-precision} while the bucket of a value is computed
+   * using only a few bit operations. Fractional values are recorded within the bucket of their
+   * integral part.
+   */
+  @AutoValue
+  public abstract static class LogLinearBuckets implements BucketType {
+    // Limits the number of buckets, and therefore the memory of a histogram, to at most 14336.
+    private static final int MAX_PRECISION = 8;
+
+    public abstract int getPrecision();
+
+    @Override
+    public abstract int getNumBuckets();
+
+    public static LogLinearBuckets of(int precision, int numBuckets) {
+      if (precision < 0 || precision > MAX_PRECISION) {
+        throw new IllegalArgumentException(
+            String.format("precision should be between 0 and %d: %d", MAX_PRECISION, precision));
+      }
+      if (numBuckets <= 0) {
+        throw new IllegalArgumentException(
+            String.format("numBuckets should be greater than zero: %d", numBuckets));
+      }
+      // Limits the buckets to values which are representable as a long.
+      int maxNumBuckets = (Long.SIZE - precision) << precision;
+      if (numBuckets > maxNumBuckets) {
+        throw new IllegalArgumentException(
+            String.format(
+                "numBuckets should be at most %d for precision %d: %d",
+                maxNumBuckets, precision, numBuckets));
+      }
+      return new AutoValue_HistogramData_LogLinearBuckets(precision, numBuckets);
+    }
+
+    /** Returns the buckets with the given precision whose range includes {@code maxValue}. */
+    public static LogLinearBuckets forMaxValue(int precision, long maxValue) {
+      if (maxValue < 0) {
+        throw new IllegalArgumentException(
+            String.format("maxValue should not be negative: %d", maxValue));
+      }
+      return of(precision, indexOf(precision, maxValue) + 1);
+    }
+
+    private static int indexOf(int precision, long value) {
+      if (value < (1L << precision)) {
+        return (int) value;
+      }
+      int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - precision;
+      return (shift << precision) + (int) (value >>> shift);
+    }
+
+    /** Returns the lower bound of the bucket with the given index. */
+    private double getLowerBound(int index) {
+      int precision = getPrecision();
+      if (index < (1 << precision)) {
+        return index;
+      }
+      int shift = Math.max(0, (index >>> precision) - 1);
+      int subBucket = (1 << precision) + (index & ((1 << precision) - 1));
+      return Math.scalb((double) subBucket, shift);
+    }
+
+    @Override
+    public int getBucketIndex(double value) {
+      return indexOf(getPrecision(), (long) value);
+    }
+
+    @Override
+    public double getBucketSize(int index) {
+      return getLowerBound(index + 1) - getLowerBound(index);
+    }
+
+    @Override
+    public double getAccumulatedBucketSize(int endIndex) {
+      return getLowerBound(endIndex);
+    }
+
+    @Override
+    public double getRangeFrom() {
+      return 0;
+    }
+
+    @Override
+    public double getRangeTo() {
+      return getLowerBound(getNumBuckets());
+    }
+
+    // Note: equals() and hashCode() are implemented by the AutoValue.
+  }
+
   @Override
-  public synchronized boolean equals(@Nullable Object object) {
+  public boolean equals(@Nullable Object object) {
     if (object instanceof HistogramData) {
       HistogramData other = (HistogramData) object;
-      synchronized (other) {
-        return Objects.equals(bucketType, other.bucketType)
-            && numBoundedBucketRecords == other.numBoundedBucketRecords
-            && numTopRecords == other.numTopRecords
-            && numBottomRecords == other.numBottomRecords
-            && Arrays.equals(buckets, other.buckets);
-      }
+      return Objects.equals(bucketType, other.bucketType)
+          && Arrays.equals(snapshot(), other.snapshot());
     }
     return false;
   }
 
   @Override
-  public synchronized int hashCode() {
-    return Objects.hash(
-        bucketType,
-        numBoundedBucketRecords,
-        numBottomRecords,
-        numTopRecords,
-        Arrays.hashCode(buckets));
+  public int hashCode() {
+    return Objects.hash(bucketType, Arrays.hashCode(snapshot()));
   }
 }
@@ -17,26 +17,32 @@
  */
 package org.apache.beam.sdk.util;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 /** Thrown when a value appears to have been mutated, but that mutation is forbidden. */
 public class IllegalMutationException extends RuntimeException {
-  private Object savedValue;
+  private @Nullable Object savedValue;
   private Object newValue;
 
-  public IllegalMutationException(String message, Object savedValue, Object newValue) {
+  public IllegalMutationException(String message, @Nullable Object savedValue, Object newValue) {
     super(message);
     this.savedValue = savedValue;
     this.newValue = newValue;
   }
 
   public IllegalMutationException(
-      String message, Object savedValue, Object newValue, Throwable cause) {
+      String message, @Nullable Object savedValue, Object newValue, Throwable cause) {
     super(message, cause);
     this.savedValue = savedValue;
     this.newValue = newValue;
   }
 
-  /** The original value, before the illegal mutation. */
-  public Object getSavedValue() {
+  /**
+   * The original value, before the illegal mutation. May be {@code null} if the original value was
+   * not retained, such as when mutations are detected by {@link
+   * MutationDetectors.DetectionMode#HASH hash}.
+   */
+  public @Nullable Object getSavedValue() {
     return savedValue;
   }
 
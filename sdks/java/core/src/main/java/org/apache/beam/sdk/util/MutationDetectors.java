@@ -17,10 +17,15 @@
  */
 package org.apache.beam.sdk.util;
 
+import java.io.IOException;
 import java.util.Objects;
 import org.apache.beam.sdk.annotations.Internal;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.HashCode;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hashing;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.HashingOutputStream;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.ByteStreams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +39,25 @@ public class MutationDetectors {
 
   private MutationDetectors() {}
 
+  /** How a {@link MutationDetector} created for a value with a {@link Coder} detects mutations. */
+  public enum DetectionMode {
+    /**
+     * Retains an encoded copy of the value. Every mutation is detected and reported along with the
+     * value before it was mutated.
+     */
+    FULL,
+
+    /**
+     * Retains only a 128-bit hash of the encoded value. Mutations are detected with very high
+     * probability for a fraction of the cost and memory of {@link #FULL}, but the value before it
+     * was mutated is not available when reporting a mutation.
+     *
+     * <p>Values are compared by their encoding only, so {@link Coder Coders} which do not encode an
+     * unmodified value to the same bytes every time will report spurious mutations.
+     */
+    HASH
+  }
+
   /**
    * Creates a new {@code MutationDetector} for the provided {@code value} that uses the provided
    * {@link Coder} to perform deep copies and comparisons by serializing and deserializing values.
@@ -43,8 +67,22 @@ public class MutationDetectors {
    */
   public static <T> MutationDetector forValueWithCoder(T value, Coder<T> coder)
       throws CoderException {
+    return forValueWithCoder(value, coder, DetectionMode.FULL);
+  }
+
+  /**
+   * Creates a new {@code MutationDetector} for the provided {@code value} that uses the provided
+   * {@link Coder} and {@link DetectionMode} to check that the value is not mutated.
+   *
+   * <p>It is permissible for {@code value} to be {@code null}. Since {@code null} is immutable, the
+   * mutation check will always succeed.
+   */
+  public static <T> MutationDetector forValueWithCoder(T value, Coder<T> coder, DetectionMode mode)
+      throws CoderException {
     if (value == null) {
       return noopMutationDetector();
+    } else if (mode == DetectionMode.HASH) {
+      return new HashedValueMutationDetector<>(value, coder);
     } else {
       return new CodedValueMutationDetector<>(value, coder);
     }
@@ -69,6 +107,58 @@ public class MutationDetectors {
     public void close() {}
   }
 
+  /**
+   * Given a value of type {@code T} and a {@link Coder} for that type, checks that the hash of the
+   * encoded value has not changed.
+   *
+   * @param <T> the type of values checked for mutation
+   */
+  private static class HashedValueMutationDetector<T> implements MutationDetector {
+    private final Coder<T> coder;
+    private final T possiblyModifiedObject;
+    private final HashCode originalHash;
+
+    HashedValueMutationDetector(T value, Coder<T> coder) throws CoderException {
+      this.coder = coder;
+      this.possiblyModifiedObject = value;
+      this.originalHash = hash(value);
+    }
+
+    @Override
+    public void verifyUnmodified() {
+      try {
+        HashCode newHash = hash(possiblyModifiedObject);
+        if (!originalHash.equals(newHash)) {
+          throw new IllegalMutationException(
+              String.format(
+                  "Value %s mutated illegally. Hash of encoding was %s, now %s.",
+                  possiblyModifiedObject, originalHash, newHash),
+              null,
+              possiblyModifiedObject);
+        }
+      } catch (CoderException exn) {
+        throw new RuntimeException(exn);
+      }
+    }
+
+    private HashCode hash(T value) throws CoderException {
+      try (HashingOutputStream stream =
+          new HashingOutputStream(Hashing.murmur3_128(), ByteStreams.nullOutputStream())) {
+        coder.encode(value, stream);
+        return stream.hash();
+      } catch (CoderException exn) {
+        throw exn;
+      } catch (IOException exn) {
+        throw new CoderException(exn);
+      }
+    }
+
+    @Override
+    public void close() {
+      verifyUnmodified();
+    }
+  }
+
   /**
    * Given a value of type {@code T} and a {@link Coder} for that type, provides facilities to save
    * check that the value has not changed.
@@ -21,6 +21,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Variable-length encoding for integers.
@@ -86,6 +87,63 @@ public class VarInt {
     return result;
   }
 
+  /**
+   * Encodes the given value into the buffer. Throws {@link java.nio.BufferOverflowException} if the
+   * buffer does not have enough remaining space.
+   */
+  public static void encode(int v, ByteBuffer buffer) {
+    encode(convertIntToLongNoSignExtend(v), buffer);
+  }
+
+  /**
+   * Encodes the given value into the buffer. Throws {@link java.nio.BufferOverflowException} if the
+   * buffer does not have enough remaining space.
+   */
+  public static void encode(long v, ByteBuffer buffer) {
+    while ((v & ~0x7FL) != 0) {
+      buffer.put((byte) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    buffer.put((byte) v);
+  }
+
+  /**
+   * Decodes an integer value from the buffer. Throws {@link java.nio.BufferUnderflowException} if
+   * the buffer ends before the value is terminated.
+   */
+  public static int decodeInt(ByteBuffer buffer) throws IOException {
+    long r = decodeLong(buffer);
+    if (r < 0 || r >= 1L << 32) {
+      throw new IOException("varint overflow " + r);
+    }
+    return (int) r;
+  }
+
+  /**
+   * Decodes a long value from the buffer. Throws {@link java.nio.BufferUnderflowException} if the
+   * buffer ends before the value is terminated.
+   */
+  public static long decodeLong(ByteBuffer buffer) throws IOException {
+    byte b = buffer.get();
+    if (b >= 0) {
+      // Single byte values are by far the most common.
+      return b;
+    }
+    long result = b & 0x7F;
+    int shift = 7;
+    do {
+      b = buffer.get();
+      long bits = b & 0x7F;
+      if (shift >= 64 || (shift == 63 && bits > 1)) {
+        // Out of range
+        throw new IOException("varint too long");
+      }
+      result |= bits << shift;
+      shift += 7;
+    } while (b < 0);
+    return result;
+  }
+
   /** Returns the length of the encoding of the given value (in bytes). */
   public static int getLength(int v) {
     return getLength(convertIntToLongNoSignExtend(v));
@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -625,6 +626,46 @@ public abstract class WindowedValue<T> {
       return WindowedValue.createWithoutValidation(value, timestamp, windows, pane);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@code true} if the value coder and the window coder support buffer coding.
+     */
+    @Override
+    public boolean supportsBufferCoding() {
+      return valueCoder.supportsBufferCoding() && windowsCoder.supportsBufferCoding();
+    }
+
+    @Override
+    public void encodeToBuffer(WindowedValue<T> windowedElem, ByteBuffer buffer)
+        throws CoderException, IOException {
+      encodeToBuffer(windowedElem, buffer, Context.NESTED);
+    }
+
+    @Override
+    public void encodeToBuffer(WindowedValue<T> windowedElem, ByteBuffer buffer, Context context)
+        throws CoderException, IOException {
+      InstantCoder.of().encodeToBuffer(windowedElem.getTimestamp(), buffer);
+      windowsCoder.encodeToBuffer(windowedElem.getWindows(), buffer);
+      PaneInfoCoder.INSTANCE.encodeToBuffer(windowedElem.getPane(), buffer);
+      valueCoder.encodeToBuffer(windowedElem.getValue(), buffer, context);
+    }
+
+    @Override
+    public WindowedValue<T> decodeFromBuffer(ByteBuffer buffer) throws CoderException, IOException {
+      return decodeFromBuffer(buffer, Context.NESTED);
+    }
+
+    @Override
+    public WindowedValue<T> decodeFromBuffer(ByteBuffer buffer, Context context)
+        throws CoderException, IOException {
+      Instant timestamp = InstantCoder.of().decodeFromBuffer(buffer);
+      Collection<? extends BoundedWindow> windows = windowsCoder.decodeFromBuffer(buffer);
+      PaneInfo pane = PaneInfoCoder.INSTANCE.decodeFromBuffer(buffer);
+      T value = valueCoder.decodeFromBuffer(buffer, context);
+      return WindowedValue.createWithoutValidation(value, timestamp, windows, pane);
+    }
+
     @Override
     public void verifyDeterministic() throws NonDeterministicException {
       verifyDeterministic(
@@ -709,6 +750,35 @@ public abstract class WindowedValue<T> {
       return WindowedValue.valueInGlobalWindow(value);
     }
 
+    @Override
+    public boolean supportsBufferCoding() {
+      return valueCoder.supportsBufferCoding();
+    }
+
+    @Override
+    public void encodeToBuffer(WindowedValue<T> windowedElem, ByteBuffer buffer)
+        throws CoderException, IOException {
+      encodeToBuffer(windowedElem, buffer, Context.NESTED);
+    }
+
+    @Override
+    public void encodeToBuffer(WindowedValue<T> windowedElem, ByteBuffer buffer, Context context)
+        throws CoderException, IOException {
+      valueCoder.encodeToBuffer(windowedElem.getValue(), buffer, context);
+    }
+
+    @Override
+    public WindowedValue<T> decodeFromBuffer(ByteBuffer buffer) throws CoderException, IOException {
+      return decodeFromBuffer(buffer, Context.NESTED);
+    }
+
+    @Override
+    public WindowedValue<T> decodeFromBuffer(ByteBuffer buffer, Context context)
+        throws CoderException, IOException {
+      T value = valueCoder.decodeFromBuffer(buffer, context);
+      return WindowedValue.valueInGlobalWindow(value);
+    }
+
     @Override
     public void verifyDeterministic() throws NonDeterministicException {
       verifyDeterministic(
@@ -819,6 +889,34 @@ public abstract class WindowedValue<T> {
       return windowedValuePrototype.withValue(valueCoder.decode(inStream, context));
     }
 
+    @Override
+    public boolean supportsBufferCoding() {
+      return valueCoder.supportsBufferCoding();
+    }
+
+    @Override
+    public void encodeToBuffer(WindowedValue<T> windowedElem, ByteBuffer buffer)
+        throws CoderException, IOException {
+      encodeToBuffer(windowedElem, buffer, Context.NESTED);
+    }
+
+    @Override
+    public void encodeToBuffer(WindowedValue<T> windowedElem, ByteBuffer buffer, Context context)
+        throws CoderException, IOException {
+      valueCoder.encodeToBuffer(windowedElem.getValue(), buffer, context);
+    }
+
+    @Override
+    public WindowedValue<T> decodeFromBuffer(ByteBuffer buffer) throws CoderException, IOException {
+      return decodeFromBuffer(buffer, Context.NESTED);
+    }
+
+    @Override
+    public WindowedValue<T> decodeFromBuffer(ByteBuffer buffer, Context context)
+        throws CoderException, IOException {
+      return windowedValuePrototype.withValue(valueCoder.decodeFromBuffer(buffer, context));
+    }
+
     @Override
     public void verifyDeterministic() throws NonDeterministicException {
       verifyDeterministic(
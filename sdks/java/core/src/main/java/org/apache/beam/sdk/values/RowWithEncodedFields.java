@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.values;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A concrete subclass of {@link Row} which holds the encoded bytes of its fields and only decodes a
+ * field the first time that it is accessed.
+ *
+ * <p>This allows transforms which only read a few fields of a wide {@link Row} to avoid the cost of
+ * decoding all the other fields. The encoded bytes are retained so that the row can be encoded
+ * again by copying them, see {@link org.apache.beam.sdk.coders.LazyRowCoder}.
+ *
+ * <p>Like {@link RowWithGetters}, decoded field values are cached without synchronization.
+ */
+@Internal
+@SuppressWarnings({
+  "nullness", // TODO(https://github.com/apache/beam/issues/20497)
+  "rawtypes"
+})
+public class RowWithEncodedFields extends Row {
+  private static final Object NOT_DECODED = new Object();
+
+  private final Coder[] coders;
+  private final byte[] encoded;
+  private final int encodedFieldCount;
+  private final BitSet nullFields;
+  private final int[] fieldOffsets;
+  private final Object[] values;
+
+  /**
+   * Creates a row whose field at index {@code i} is encoded within {@code encoded} starting at
+   * {@code fieldOffsets[i]} and ending at {@code fieldOffsets[i + 1]} and is decoded using {@code
+   * coders[i]}. Fields set within {@code nullFields} and fields at indices beyond {@code
+   * encodedFieldCount} are null.
+   */
+  public RowWithEncodedFields(
+      Schema schema,
+      Coder[] coders,
+      byte[] encoded,
+      int encodedFieldCount,
+      BitSet nullFields,
+      int[] fieldOffsets) {
+    super(schema);
+    checkArgument(
+        coders.length == schema.getFieldCount(),
+        "Expected %s coders but got %s",
+        schema.getFieldCount(),
+        coders.length);
+    checkArgument(
+        fieldOffsets.length == encodedFieldCount + 1,
+        "Expected %s field offsets but got %s",
+        encodedFieldCount + 1,
+        fieldOffsets.length);
+    this.coders = coders;
+    this.encoded = encoded;
+    this.encodedFieldCount = encodedFieldCount;
+    this.nullFields = nullFields;
+    this.fieldOffsets = fieldOffsets;
+    this.values = new Object[coders.length];
+    Arrays.fill(values, NOT_DECODED);
+  }
+
+  @Override
+  @SuppressWarnings({"TypeParameterUnusedInFormals", "unchecked"})
+  public <T extends @Nullable Object> T getValue(int fieldIdx) {
+    if (fieldIdx >= values.length) {
+      throw new IllegalArgumentException("No field at index " + fieldIdx);
+    }
+    Object value = values[fieldIdx];
+    if (value == NOT_DECODED) {
+      value = decodeField(fieldIdx);
+      values[fieldIdx] = value;
+    }
+    return (T) value;
+  }
+
+  private @Nullable Object decodeField(int fieldIdx) {
+    if (fieldIdx >= encodedFieldCount || nullFields.get(fieldIdx)) {
+      // Fields which were added to the schema after the row was encoded are null.
+      return null;
+    }
+    int start = fieldOffsets[fieldIdx];
+    int length = fieldOffsets[fieldIdx + 1] - start;
+    try {
+      return coders[fieldIdx].decode(new ByteArrayInputStream(encoded, start, length));
+    } catch (IOException e) {
+      throw new RuntimeException(
+          "Unable to decode field " + getSchema().getField(fieldIdx).getName(), e);
+    }
+  }
+
+  @Override
+  public int getFieldCount() {
+    return values.length;
+  }
+
+  @Override
+  public List<@Nullable Object> getValues() {
+    for (int i = 0; i < values.length; ++i) {
+      getValue(i);
+    }
+    return Collections.unmodifiableList(Arrays.asList(values));
+  }
+
+  /** Returns whether the field at the given index has been decoded. */
+  @Internal
+  public boolean isDecoded(int fieldIdx) {
+    return values[fieldIdx] != NOT_DECODED;
+  }
+
+  /**
+   * Returns whether this row was decoded from an encoding of all the fields of the given schema. If
+   * so, {@link #writeEncoded} reproduces that encoding.
+   */
+  @Internal
+  public boolean hasCompleteEncoding(Schema schema) {
+    return encodedFieldCount == schema.getFieldCount() && getSchema().equals(schema);
+  }
+
+  /** Writes the encoded bytes that this row was created from. */
+  @Internal
+  public void writeEncoded(OutputStream outputStream) throws IOException {
+    outputStream.write(encoded);
+  }
+
+  /** Returns the number of encoded bytes that this row was created from. */
+  @Internal
+  public int getEncodedSize() {
+    return encoded.length;
+  }
+
+  /** Serializes a copy of this row which stores all the decoded values. */
+  private Object writeReplace() {
+    return Row.withSchema(getSchema()).attachValues(new ArrayList<>(getValues()));
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o instanceof RowWithEncodedFields) {
+      RowWithEncodedFields other = (RowWithEncodedFields) o;
+      // Equal encodings always decode to equal values, otherwise compare the decoded values.
+      if (Arrays.equals(encoded, other.encoded) && getSchema().equals(other.getSchema())) {
+        return true;
+      }
+    }
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+}
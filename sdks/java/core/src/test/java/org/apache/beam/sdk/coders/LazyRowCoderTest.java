@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.SerializableUtils;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedFields;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link LazyRowCoder}. */
+@RunWith(JUnit4.class)
+public class LazyRowCoderTest {
+  private static final Schema NESTED_SCHEMA =
+      Schema.builder().addInt32Field("f1_int").addStringField("f1_str").build();
+  private static final Schema SCHEMA =
+      Schema.builder()
+          .addByteField("f_byte")
+          .addInt64Field("f_int64")
+          .addDecimalField("f_decimal")
+          .addDoubleField("f_double")
+          .addNullableField("f_string", FieldType.STRING)
+          .addDateTimeField("f_datetime")
+          .addArrayField("f_array", FieldType.STRING)
+          .addMapField("f_map", FieldType.STRING, FieldType.INT32)
+          .addNullableField("f_row", FieldType.row(NESTED_SCHEMA))
+          .build();
+
+  private static Row createRow(String string, Row nested) {
+    return Row.withSchema(SCHEMA)
+        .addValues(
+            (byte) 1,
+            2L,
+            new BigDecimal("2.3"),
+            3.0d,
+            string,
+            new DateTime().withDate(1979, 3, 14).withTime(1, 2, 3, 4).withZone(DateTimeZone.UTC))
+        .addArray("one", "two")
+        .addValue(ImmutableMap.of("a", 1, "b", 2))
+        .addValue(nested)
+        .build();
+  }
+
+  @Test
+  public void testDecodeEncodeEqual() throws Exception {
+    LazyRowCoder coder = LazyRowCoder.of(SCHEMA);
+    CoderProperties.coderDecodeEncodeEqual(
+        coder, createRow("str", Row.withSchema(NESTED_SCHEMA).addValues(18, "foobar").build()));
+    CoderProperties.coderDecodeEncodeEqual(coder, createRow(null, null));
+    CoderProperties.coderSerializable(coder);
+  }
+
+  @Test
+  public void testFieldsAreDecodedOnAccess() throws Exception {
+    LazyRowCoder coder = LazyRowCoder.of(SCHEMA);
+    Row row = createRow("str", null);
+    Row decoded = CoderUtils.clone(coder, row);
+
+    assertTrue(decoded instanceof RowWithEncodedFields);
+    RowWithEncodedFields lazyRow = (RowWithEncodedFields) decoded;
+    assertEquals("str", lazyRow.getString("f_string"));
+    assertNull(lazyRow.getRow("f_row"));
+    int stringIndex = SCHEMA.indexOf("f_string");
+    for (int i = 0; i < SCHEMA.getFieldCount(); ++i) {
+      assertEquals(i == stringIndex || i == SCHEMA.indexOf("f_row"), lazyRow.isDecoded(i));
+    }
+    assertEquals(row, decoded);
+    assertEquals(row.hashCode(), decoded.hashCode());
+  }
+
+  @Test
+  public void testReencodingCopiesEncodedBytes() throws Exception {
+    LazyRowCoder coder = LazyRowCoder.of(SCHEMA);
+    byte[] encoded = CoderUtils.encodeToByteArray(coder, createRow("str", null));
+    RowWithEncodedFields decoded =
+        (RowWithEncodedFields) CoderUtils.decodeFromByteArray(coder, encoded);
+
+    assertArrayEquals(encoded, CoderUtils.encodeToByteArray(coder, decoded));
+    // Re-encoding did not need to decode any fields.
+    for (int i = 0; i < SCHEMA.getFieldCount(); ++i) {
+      assertFalse(decoded.isDecoded(i));
+    }
+  }
+
+  @Test
+  public void testDecodedRowIsSerializable() throws Exception {
+    LazyRowCoder coder = LazyRowCoder.of(SCHEMA);
+    Row row = createRow("str", Row.withSchema(NESTED_SCHEMA).addValues(18, "foobar").build());
+    Row decoded = CoderUtils.clone(coder, row);
+    assertEquals(row, SerializableUtils.clone(decoded));
+  }
+
+  @Test
+  public void testSchemaWithAddedFields() throws Exception {
+    Schema oldSchema = Schema.builder().addInt32Field("f_int").addStringField("f_str").build();
+    Schema newSchema =
+        Schema.builder()
+            .addInt32Field("f_int")
+            .addStringField("f_str")
+            .addNullableField("f_added", FieldType.INT64)
+            .build();
+    byte[] encoded =
+        CoderUtils.encodeToByteArray(
+            LazyRowCoder.of(oldSchema), Row.withSchema(oldSchema).addValues(1, "a").build());
+
+    Row decoded = CoderUtils.decodeFromByteArray(LazyRowCoder.of(newSchema), encoded);
+    assertEquals(Row.withSchema(newSchema).addValues(1, "a", null).build(), decoded);
+    // Since the encoding lacks the added field the row is encoded field by field.
+    assertEquals(
+        Row.withSchema(newSchema).addValues(1, "a", null).build(),
+        CoderUtils.clone(LazyRowCoder.of(newSchema), decoded));
+  }
+
+  @Test(expected = CoderException.class)
+  public void testDecodeCorruptFieldLengthsFails() throws Exception {
+    Schema schema = Schema.builder().addStringField("f_str").build();
+    byte[] encoded =
+        CoderUtils.encodeToByteArray(
+            LazyRowCoder.of(schema), Row.withSchema(schema).addValues("abc").build());
+    // Corrupt the length of the only field.
+    encoded[encoded.length - 5] = 7;
+    CoderUtils.decodeFromByteArray(LazyRowCoder.of(schema), encoded);
+  }
+}
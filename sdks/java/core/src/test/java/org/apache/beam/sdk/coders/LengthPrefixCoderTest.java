@@ -27,6 +27,7 @@ import java.util.List;
 import org.apache.beam.sdk.testing.CoderProperties;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -128,4 +129,14 @@ public class LengthPrefixCoderTest {
     assertArrayEquals(userEncoded, reencodedBytes);
     assertEquals(22L, userDecoded);
   }
+
+  @Test
+  public void testBufferCodingWithMultiByteLengthPrefix() throws Exception {
+    byte[] value = new byte[1000];
+    Arrays.fill(value, (byte) 7);
+    CoderProperties.coderBufferCodingConsistentWithStreams(TEST_CODER, value);
+    CoderProperties.coderBufferCodingConsistentWithStreams(
+        LengthPrefixCoder.of(KvCoder.of(StringUtf8Coder.of(), ByteArrayCoder.of())),
+        KV.of("key", value));
+  }
 }
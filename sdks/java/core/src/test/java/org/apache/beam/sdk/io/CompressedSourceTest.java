@@ -20,6 +20,8 @@ package org.apache.beam.sdk.io;
 import static org.apache.beam.sdk.transforms.display.DisplayDataMatchers.hasDisplayItem;
 import static org.apache.beam.sdk.transforms.display.DisplayDataMatchers.includesDisplayDataFor;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
@@ -35,7 +37,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -49,6 +54,7 @@ import org.apache.beam.sdk.coders.SerializableCoder;
 import org.apache.beam.sdk.io.BoundedSource.BoundedReader;
 import org.apache.beam.sdk.io.CompressedSource.CompressedReader;
 import org.apache.beam.sdk.io.FileBasedSource.FileBasedReader;
+import org.apache.beam.sdk.io.fs.EmptyMatchTreatment;
 import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
@@ -718,6 +724,161 @@ public class CompressedSourceTest {
     assertFalse(source.isSplittable());
   }
 
+  @Test
+  public void testBgzfFileIsSplittable() throws Exception {
+    runFramedSplitTest(Compression.GZIP, generateInput(300_000), 30_000);
+  }
+
+  @Test
+  public void testSeekableZstdFileIsSplittable() throws Exception {
+    runFramedSplitTest(Compression.ZSTD, generateInput(3_000_000), 300_000);
+  }
+
+  @Test
+  public void testFramedFileBelowMinimumSizeIsNotSplittable() throws Exception {
+    byte[] input = generateInput(300_000);
+    File compressedFile = tmpFolder.newFile("test-input.gz");
+    writeSplittableFile(compressedFile, input, Compression.GZIP);
+
+    Metadata metadata = FileSystems.matchSingleFileSpec(compressedFile.getPath());
+    FileBasedSource<Byte> source =
+        CompressedSource.from(new ByteSource(compressedFile.getPath(), 1))
+            .createForSubrangeOfFile(metadata, 0, metadata.sizeBytes());
+    assertFalse(source.isSplittable());
+    // Framed files remain readable as regular compressed files.
+    verifyReadContents(input, compressedFile, null /* default auto decompression factory */);
+  }
+
+  @Test
+  public void testUnframedGzipFileIsNotSplittable() throws Exception {
+    File compressedFile = tmpFolder.newFile("test-input.gz");
+    writeFile(compressedFile, generateInput(300_000), Compression.GZIP);
+
+    assertFalse(framedSource(compressedFile).isSplittable());
+  }
+
+  @Test
+  public void testUnframedZstdFileIsNotSplittable() throws Exception {
+    File compressedFile = tmpFolder.newFile("test-input.zst");
+    writeFile(compressedFile, generateInput(3_000_000), Compression.ZSTD);
+
+    assertFalse(framedSource(compressedFile).isSplittable());
+  }
+
+  @Test
+  public void testSplittableZstdReadableByZstd() throws Exception {
+    byte[] input = generateInput(3_000_000);
+    File compressedFile = tmpFolder.newFile("test-input.zst");
+    writeSplittableFile(compressedFile, input, Compression.ZSTD);
+    verifyReadContents(input, compressedFile, Compression.ZSTD);
+  }
+
+  @Test
+  public void testReadLinesAcrossFrames() throws Exception {
+    List<String> lines = new ArrayList<>();
+    StringBuilder contents = new StringBuilder();
+    Random random = new Random(1234);
+    for (int i = 0; i < 20_000; ++i) {
+      StringBuilder line = new StringBuilder();
+      for (int j = random.nextInt(60); j >= 0; --j) {
+        line.append((char) ('a' + random.nextInt(26)));
+      }
+      lines.add(line.toString());
+      contents.append(line).append('\n');
+    }
+    File compressedFile = tmpFolder.newFile("test-input.txt.gz");
+    writeSplittableFile(
+        compressedFile, contents.toString().getBytes(StandardCharsets.UTF_8), Compression.GZIP);
+
+    PipelineOptions options = PipelineOptionsFactory.create();
+    CompressedSource<String> source =
+        CompressedSource.from(
+                new TextSource(
+                    StaticValueProvider.of(compressedFile.getPath()),
+                    EmptyMatchTreatment.DISALLOW,
+                    null))
+            .withMinFramedFileSizeBytes(0);
+    List<? extends BoundedSource<String>> splits = source.split(10_000, options);
+    assertThat(splits.size(), greaterThan(2));
+    assertThat(
+        SourceTestUtils.readFromSplitsOfSource(source, 10_000, options),
+        containsInAnyOrder(lines.toArray()));
+    SourceTestUtils.assertSplitAtFractionSucceedsAndConsistent(splits.get(0), 100, 0.5, options);
+  }
+
+  @Test
+  public void testDecompressedChannelSize() throws Exception {
+    byte[] input = generateInput(3_000_000);
+    File zstdFile = tmpFolder.newFile("test-input.zst");
+    writeSplittableFile(zstdFile, input, Compression.ZSTD);
+    File gzipFile = tmpFolder.newFile("test-input.gz");
+    writeSplittableFile(gzipFile, input, Compression.GZIP);
+
+    try (FileChannel channel = FileChannel.open(zstdFile.toPath())) {
+      CompressedFrames frames = CompressedFrames.detect(Compression.ZSTD, channel);
+      assertNotNull(frames);
+      assertEquals(input.length, frames.decompress(0, 0).size());
+      // The size covers the lookback and every following frame listed by the seek table.
+      CompressedFrames.DecompressedChannel decompressed =
+          frames.decompress(channel.size() / 2, 1_000);
+      long size = decompressed.size();
+      ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      while (decompressed.read(buffer) >= 0) {
+        buffer.clear();
+      }
+      assertEquals(decompressed.position(), size);
+    }
+    try (FileChannel channel = FileChannel.open(gzipFile.toPath())) {
+      CompressedFrames frames = CompressedFrames.detect(Compression.GZIP, channel);
+      assertNotNull(frames);
+      // BGZF blocks do not record the decompressed size of the rest of the file.
+      assertEquals(Long.MAX_VALUE, frames.decompress(0, 0).size());
+      frames.close();
+    }
+  }
+
+  /** Writes the input using splittable compression and verifies reading it in splits. */
+  private void runFramedSplitTest(Compression compression, byte[] input, long bundleSize)
+      throws Exception {
+    File compressedFile = tmpFolder.newFile("test-input" + compression.getSuggestedSuffix());
+    writeSplittableFile(compressedFile, input, compression);
+
+    PipelineOptions options = PipelineOptionsFactory.create();
+    CompressedSource<Byte> source = framedSource(compressedFile);
+    assertTrue(source.isSplittable());
+    verifyReadContents(input, source);
+
+    List<? extends FileBasedSource<Byte>> splits = source.split(bundleSize, options);
+    assertThat(splits.size(), greaterThan(2));
+    // Splits are produced in order so reading each in turn yields the input in order.
+    List<Byte> actual = new ArrayList<>();
+    for (FileBasedSource<Byte> split : splits) {
+      actual.addAll(SourceTestUtils.readFromSource(split, options));
+    }
+    assertEquals(Bytes.asList(input), actual);
+    SourceTestUtils.assertSplitAtFractionSucceedsAndConsistent(source, 10, 0.5, options);
+    SourceTestUtils.assertSplitAtFractionFails(source, input.length - 10, 0.5, options);
+  }
+
+  /** Returns a source for the whole file which looks for frames regardless of its size. */
+  private static CompressedSource<Byte> framedSource(File file) throws IOException {
+    Metadata metadata = FileSystems.matchSingleFileSpec(file.getPath());
+    return (CompressedSource<Byte>)
+        CompressedSource.from(new ByteSource(file.getPath(), 1))
+            .withMinFramedFileSizeBytes(0)
+            .createForSubrangeOfFile(metadata, 0, metadata.sizeBytes());
+  }
+
+  /** Writes a single output file using splittable compression. */
+  private void writeSplittableFile(File file, byte[] input, Compression compression)
+      throws IOException {
+    try (WritableByteChannel channel =
+        FileBasedSink.splittableCompression(compression)
+            .create(Channels.newChannel(new FileOutputStream(file)))) {
+      channel.write(ByteBuffer.wrap(input));
+    }
+  }
+
   @Test
   public void testBzip2FileIsNotSplittable() throws Exception {
     String baseName = "test-input";
@@ -1061,6 +1222,11 @@ public class CompressedSourceTest {
     if (compression != null) {
       source = source.withCompression(compression);
     }
+    verifyReadContents(expected, source);
+  }
+
+  private void verifyReadContents(byte[] expected, CompressedSource<Byte> source)
+      throws IOException {
     List<KV<Long, Byte>> actualOutput = Lists.newArrayList();
     try (BoundedReader<Byte> reader = source.createReader(PipelineOptionsFactory.create())) {
       for (boolean more = reader.start(); more; more = reader.advance()) {
@@ -22,8 +22,10 @@ import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Char
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeFalse;
@@ -48,11 +50,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.zip.GZIPInputStream;
 import org.apache.beam.sdk.io.FileBasedSink.CompressionType;
 import org.apache.beam.sdk.io.FileBasedSink.FileResult;
 import org.apache.beam.sdk.io.FileBasedSink.FilenamePolicy;
+import org.apache.beam.sdk.io.FileBasedSink.WritableByteChannelFactory;
 import org.apache.beam.sdk.io.FileBasedSink.WriteOperation;
 import org.apache.beam.sdk.io.FileBasedSink.Writer;
 import org.apache.beam.sdk.io.fs.ResolveOptions.StandardResolveOptions;
@@ -62,8 +66,10 @@ import org.apache.beam.sdk.transforms.windowing.PaneInfo;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Sets;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.ByteStreams;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.deflate.DeflateCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
 import org.apache.commons.lang3.SystemUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -495,6 +501,69 @@ public class FileBasedSinkTest {
         "123");
   }
 
+  /** {@link FileBasedSink#parallelCompression} writes the same BGZF data as a single thread. */
+  @Test
+  public void testParallelCompressionGZIP() throws IOException {
+    byte[] expected = generateLines(5_000_000);
+    File sequential =
+        writeWithFactory(FileBasedSink.splittableCompression(Compression.GZIP), expected);
+    File parallel =
+        writeWithFactory(FileBasedSink.parallelCompression(Compression.GZIP, 4), expected);
+    assertArrayEquals(
+        Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath()));
+    // Read the concatenated gzip members back in using standard API.
+    assertArrayEquals(
+        expected, ByteStreams.toByteArray(new GZIPInputStream(new FileInputStream(parallel))));
+  }
+
+  /** {@link FileBasedSink#parallelCompression} writes the same zstd frames as a single thread. */
+  @Test
+  public void testParallelCompressionZSTD() throws IOException {
+    byte[] expected = generateLines(5_000_000);
+    File sequential =
+        writeWithFactory(FileBasedSink.splittableCompression(Compression.ZSTD), expected);
+    File parallel =
+        writeWithFactory(FileBasedSink.parallelCompression(Compression.ZSTD, 4), expected);
+    assertArrayEquals(
+        Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath()));
+    assertArrayEquals(
+        expected,
+        ByteStreams.toByteArray(new ZstdCompressorInputStream(new FileInputStream(parallel))));
+  }
+
+  @Test
+  public void testParallelCompressionUnsupported() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> FileBasedSink.parallelCompression(Compression.BZIP2, 4));
+  }
+
+  private static byte[] generateLines(int size) {
+    Random random = new Random(1234);
+    StringBuilder lines = new StringBuilder(size);
+    while (lines.length() < size) {
+      lines
+          .append(random.nextInt(1_000_000))
+          .append(",value-")
+          .append(random.nextInt(100))
+          .append('\n');
+    }
+    return lines.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private File writeWithFactory(WritableByteChannelFactory factory, byte[] data)
+      throws IOException {
+    File file = tmpFolder.newFile();
+    try (WritableByteChannel channel =
+        factory.create(Channels.newChannel(new FileOutputStream(file)))) {
+      // Write in pieces which do not line up with the frames.
+      for (int offset = 0; offset < data.length; offset += 10_000) {
+        channel.write(ByteBuffer.wrap(data, offset, Math.min(10_000, data.length - offset)));
+      }
+    }
+    return file;
+  }
+
   private void assertReadValues(final BufferedReader br, String... values) throws IOException {
     try (final BufferedReader lbr = br) {
       for (String value : values) {
@@ -19,11 +19,15 @@ package org.apache.beam.sdk.io;
 
 import static org.apache.beam.sdk.io.fs.ResolveOptions.StandardResolveOptions.RESOLVE_FILE;
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.MoreObjects.firstNonNull;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.isA;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -31,12 +35,15 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Serializable;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.CopyOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -515,6 +522,47 @@ public class FileIOTest implements Serializable {
                 Compression.UNCOMPRESSED));
   }
 
+  @Test
+  @Category(NeedsRunner.class)
+  public void testWriteWithParallelCompression() throws IOException {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 50_000; ++i) {
+      lines.add("line " + i);
+    }
+    String outputDir = tmpFolder.newFolder().getAbsolutePath();
+
+    p.apply(Create.of(lines))
+        .apply(
+            FileIO.<String>write()
+                .via(TextIO.sink())
+                .to(outputDir)
+                .withPrefix("out")
+                .withNumShards(1)
+                .withParallelCompression(Compression.GZIP, 4));
+    p.run();
+
+    MatchResult.Metadata metadata = FileSystems.matchSingleFileSpec(outputDir + "/out*");
+    assertTrue(metadata.resourceId().getFilename().endsWith(".gz"));
+    try (SeekableByteChannel channel =
+        Files.newByteChannel(Paths.get(metadata.resourceId().toString()))) {
+      CompressedFrames frames = CompressedFrames.detect(Compression.GZIP, channel);
+      assertNotNull(frames);
+      assertTrue(frames.nextFrameStart(1) < frames.nextFrameStart(channel.size()));
+      frames.close();
+    }
+    List<String> actual = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(
+            Channels.newReader(
+                Compression.GZIP.readDecompressed(FileSystems.open(metadata.resourceId())),
+                Charsets.UTF_8.name()))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        actual.add(line);
+      }
+    }
+    assertThat(actual, containsInAnyOrder(lines.toArray()));
+  }
+
   @Test
   @Category(NeedsRunner.class)
   public void testFileIoDynamicNaming() throws IOException {
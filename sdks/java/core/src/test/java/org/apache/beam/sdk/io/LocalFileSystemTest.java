@@ -18,6 +18,7 @@
 package org.apache.beam.sdk.io;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertEquals;
@@ -40,6 +41,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import org.apache.beam.sdk.io.fs.CreateOptions.StandardCreateOptions;
@@ -55,6 +58,7 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.Files;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.LineReader;
 import org.apache.commons.lang3.SystemUtils;
 import org.hamcrest.Matchers;
+import org.joda.time.Duration;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -237,6 +241,76 @@ public class LocalFileSystemTest {
         toLocalResourceIds(ImmutableList.of(destPath1, destPath2), false /* isDirectory */));
   }
 
+  @Test
+  public void testCopyReplacesExistingDestination() throws Exception {
+    Path srcPath = temporaryFolder.newFile().toPath();
+    Path destPath = temporaryFolder.newFile().toPath();
+    createFileWithContent(srcPath, "content");
+    createFileWithContent(destPath, "longer existing content");
+    java.nio.file.Files.setLastModifiedTime(srcPath, FileTime.fromMillis(1_000_000_000L));
+
+    localFileSystem.copy(
+        toLocalResourceIds(ImmutableList.of(srcPath, srcPath), false /* isDirectory */),
+        toLocalResourceIds(ImmutableList.of(destPath, srcPath), false /* isDirectory */));
+
+    assertContents(ImmutableList.of(destPath, srcPath), ImmutableList.of("content", "content"));
+    assertEquals(
+        FileTime.fromMillis(1_000_000_000L), java.nio.file.Files.getLastModifiedTime(destPath));
+  }
+
+  @Test
+  public void testParallelCopyAndMove() throws Exception {
+    LocalFileSystem parallelFileSystem = new LocalFileSystem(4, null);
+    List<Path> srcPaths = new ArrayList<>();
+    List<Path> copyPaths = new ArrayList<>();
+    List<Path> movePaths = new ArrayList<>();
+    List<String> contents = new ArrayList<>();
+    Path root = temporaryFolder.getRoot().toPath();
+    for (int i = 0; i < 50; i++) {
+      Path srcPath = root.resolve("src-" + i);
+      createFileWithContent(srcPath, "content" + i);
+      srcPaths.add(srcPath);
+      copyPaths.add(root.resolve("copies").resolve("copy-" + i));
+      movePaths.add(root.resolve("moved").resolve("moved-" + i));
+      contents.add("content" + i);
+    }
+
+    parallelFileSystem.copy(
+        toLocalResourceIds(srcPaths, false /* isDirectory */),
+        toLocalResourceIds(copyPaths, false /* isDirectory */));
+    assertContents(copyPaths, contents);
+
+    parallelFileSystem.rename(
+        toLocalResourceIds(copyPaths, false /* isDirectory */),
+        toLocalResourceIds(movePaths, false /* isDirectory */));
+    assertContents(movePaths, contents);
+    assertContents(srcPaths, contents);
+    for (Path copyPath : copyPaths) {
+      assertFalse(copyPath + " exists", copyPath.toFile().exists());
+    }
+  }
+
+  @Test
+  public void testParallelCopyWithNonExistingSrcFile() throws Exception {
+    LocalFileSystem parallelFileSystem = new LocalFileSystem(4, null);
+    Path existentSrc = temporaryFolder.newFile().toPath();
+    Path nonExistentSrc = temporaryFolder.getRoot().toPath().resolve("non-existent-file.txt");
+
+    Path destPath1 = temporaryFolder.getRoot().toPath().resolve("nonexistentdir").resolve("dest1");
+    Path destPath2 = destPath1.resolveSibling("dest2");
+
+    createFileWithContent(existentSrc, "content");
+
+    assertThrows(
+        NoSuchFileException.class,
+        () ->
+            parallelFileSystem.copy(
+                toLocalResourceIds(
+                    ImmutableList.of(existentSrc, nonExistentSrc), false /* isDirectory */),
+                toLocalResourceIds(
+                    ImmutableList.of(destPath1, destPath2), false /* isDirectory */)));
+  }
+
   @Test
   public void testMoveFilesWithException() throws Exception {
     Path srcPath1 = temporaryFolder.newFile().toPath();
@@ -508,6 +582,133 @@ public class LocalFileSystemTest {
     assertTrue(toFilenames(localFileSystem.match(ImmutableList.of(pattern.toString()))).isEmpty());
   }
 
+  @Test
+  public void testParallelMatchMultipleSpecs() throws Exception {
+    LocalFileSystem parallelFileSystem = new LocalFileSystem(4, null);
+    List<String> specs = new ArrayList<>();
+    List<List<String>> expected = new ArrayList<>();
+    for (int i = 0; i < 10; ++i) {
+      File dir = temporaryFolder.newFolder("dir" + i);
+      List<String> files = new ArrayList<>();
+      for (int j = 0; j <= i; ++j) {
+        files.add(new File(dir, "file" + j).getAbsolutePath());
+        createFileWithContent(Paths.get(files.get(j)), "content" + j);
+      }
+      specs.add(new File(dir, "*").getAbsolutePath());
+      expected.add(files);
+    }
+    specs.add(temporaryFolder.getRoot().toPath().resolve("missing*").toString());
+
+    List<MatchResult> results = parallelFileSystem.match(specs);
+    assertEquals(specs.size(), results.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      assertThat(
+          toFilenames(ImmutableList.of(results.get(i))),
+          containsInAnyOrder(expected.get(i).toArray(new String[0])));
+    }
+    assertEquals(MatchResult.Status.NOT_FOUND, Iterables.getLast(results).status());
+  }
+
+  @Test
+  public void testMatchWithListingCache() throws Exception {
+    LocalFileSystem cachingFileSystem = new LocalFileSystem(1, Duration.standardHours(1));
+    File dir = temporaryFolder.newFolder("cached");
+    String spec = new File(dir, "*").getAbsolutePath();
+    String first = new File(dir, "first").getAbsolutePath();
+    createFileWithContent(Paths.get(first), "content");
+    assertThat(toFilenames(cachingFileSystem.match(ImmutableList.of(spec))), contains(first));
+
+    // Files created outside of the file system are not visible until the listing expires.
+    assertTrue(new File(dir, "external").createNewFile());
+    assertThat(toFilenames(cachingFileSystem.match(ImmutableList.of(spec))), contains(first));
+
+    // Files created by the file system are visible immediately.
+    String second = new File(dir, "second").getAbsolutePath();
+    try (Writer writer =
+        Channels.newWriter(
+            cachingFileSystem.create(
+                LocalResourceId.fromPath(Paths.get(second), false /* isDirectory */),
+                StandardCreateOptions.builder().setMimeType(MimeTypes.TEXT).build()),
+            StandardCharsets.UTF_8.name())) {
+      writer.write("content");
+    }
+    assertThat(
+        toFilenames(cachingFileSystem.match(ImmutableList.of(spec))),
+        containsInAnyOrder(first, second, new File(dir, "external").getAbsolutePath()));
+
+    cachingFileSystem.delete(
+        ImmutableList.of(LocalResourceId.fromPath(Paths.get(second), false /* isDirectory */)));
+    assertThat(
+        toFilenames(cachingFileSystem.match(ImmutableList.of(spec))),
+        containsInAnyOrder(first, new File(dir, "external").getAbsolutePath()));
+  }
+
+  @Test
+  public void testMatchWithListingCacheNormalizesSpec() throws Exception {
+    LocalFileSystem cachingFileSystem = new LocalFileSystem(1, Duration.standardHours(1));
+    File dir = temporaryFolder.newFolder("normalized");
+    File subDir = new File(dir, "sub");
+    assertTrue(subDir.mkdir());
+    File file = new File(dir, "file");
+    assertTrue(file.createNewFile());
+    File nestedFile = new File(subDir, "file");
+    assertTrue(nestedFile.createNewFile());
+
+    String dotted = String.join(File.separator, dir.getAbsolutePath(), ".", "sub", "..", "*");
+    assertThat(
+        toFilenames(cachingFileSystem.match(ImmutableList.of(dotted))),
+        contains(file.getAbsolutePath()));
+    // The listings cached by the previous match are shared with differently spelled specs.
+    String absolute = String.join(File.separator, dir.getAbsolutePath(), "*", "*");
+    assertThat(
+        toFilenames(cachingFileSystem.match(ImmutableList.of(absolute))),
+        contains(nestedFile.getAbsolutePath()));
+  }
+
+  @Test
+  public void testMatchRevalidatesListingUsingModificationTime() throws Exception {
+    LocalFileSystem cachingFileSystem = new LocalFileSystem(1, Duration.ZERO);
+    File dir = temporaryFolder.newFolder("revalidated");
+    File subDir = new File(dir, "sub");
+    assertTrue(subDir.mkdir());
+    String spec = new File(dir, "**").getAbsolutePath();
+    String first = new File(subDir, "first").getAbsolutePath();
+    createFileWithContent(Paths.get(first), "content");
+    FileTime lastModifiedTime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+    java.nio.file.Files.setLastModifiedTime(dir.toPath(), lastModifiedTime);
+    java.nio.file.Files.setLastModifiedTime(subDir.toPath(), lastModifiedTime);
+    assertThat(toFilenames(cachingFileSystem.match(ImmutableList.of(spec))), contains(first));
+
+    // The listing is reused while the modification time of the directory is unchanged.
+    File second = new File(subDir, "second");
+    assertTrue(second.createNewFile());
+    java.nio.file.Files.setLastModifiedTime(subDir.toPath(), lastModifiedTime);
+    assertThat(toFilenames(cachingFileSystem.match(ImmutableList.of(spec))), contains(first));
+
+    java.nio.file.Files.setLastModifiedTime(
+        subDir.toPath(), FileTime.fromMillis(lastModifiedTime.toMillis() + 1000));
+    assertThat(
+        toFilenames(cachingFileSystem.match(ImmutableList.of(spec))),
+        containsInAnyOrder(first, second.getAbsolutePath()));
+  }
+
+  @Test
+  public void testMatchDoesNotDescendDeeperThanGlob() throws Exception {
+    File dir = temporaryFolder.newFolder("shallow");
+    File nested = new File(dir, "nested");
+    assertTrue(nested.mkdir());
+    String expected = temporaryFolder.newFile("shallow/file").getAbsolutePath();
+    assertTrue(new File(nested, "file").createNewFile());
+
+    assertThat(
+        toFilenames(localFileSystem.match(ImmutableList.of(new File(dir, "*").getAbsolutePath()))),
+        contains(expected));
+    assertThat(
+        toFilenames(
+            localFileSystem.match(ImmutableList.of(new File(dir, "*/*").getAbsolutePath()))),
+        contains(new File(nested, "file").getAbsolutePath()));
+  }
+
   @Test
   public void testMatchNewResource() {
     // TODO: Java core test failing on windows, https://github.com/apache/beam/issues/20461
@@ -57,6 +57,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
@@ -1036,6 +1037,46 @@ public class TextIOReadTest {
   @RunWith(JUnit4.class)
   public static class TextSourceTest {
     @Rule public transient TestPipeline pipeline = TestPipeline.create();
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testMemoryMappedReadingMatchesBufferedReading() throws Exception {
+      Random random = new Random(1234);
+      String[] fragments = {"a", "bc", "テスト", "\n", "\r", "\r\n", "\n\n", "\r\r"};
+      for (int i = 0; i < 50; ++i) {
+        StringBuilder data = new StringBuilder();
+        for (int j = random.nextInt(40); j > 0; --j) {
+          data.append(fragments[random.nextInt(fragments.length)]);
+        }
+        Path path = tempFolder.newFile().toPath();
+        Files.write(path, data.toString().getBytes(UTF_8));
+        Metadata metadata = FileSystems.matchSingleFileSpec(path.toString());
+        long size = metadata.sizeBytes();
+
+        // Reading from a channel which is not a FileChannel uses the buffered reader.
+        FileBasedReader<String> bufferedReader =
+            new TextSource(metadata, 0, size, null)
+                .createSingleFileReader(PipelineOptionsFactory.create());
+        bufferedReader.startReading(Channels.newChannel(Files.newInputStream(path)));
+        List<String> expected = SourceTestUtils.readFromStartedReader(bufferedReader);
+
+        // Small windows force records and CRLF delimiters to span multiple windows.
+        for (int windowSize : new int[] {1, 2, 3, 8, 13, 1024}) {
+          assertEquals(expected, readMapped(metadata, 0, size, windowSize));
+          long split = random.nextInt((int) size + 1);
+          List<String> actual = new ArrayList<>(readMapped(metadata, 0, split, windowSize));
+          actual.addAll(readMapped(metadata, split, size, windowSize));
+          assertEquals(expected, actual);
+        }
+      }
+    }
+
+    private static List<String> readMapped(Metadata metadata, long start, long end, int windowSize)
+        throws IOException {
+      TextSource source = new TextSource(metadata, start, end, null);
+      return SourceTestUtils.readFromUnstartedReader(
+          new TextSource.TextBasedReader(source, null, windowSize));
+    }
 
     @Test
     @Category(NeedsRunner.class)
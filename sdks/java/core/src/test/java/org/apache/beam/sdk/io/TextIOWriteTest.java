@@ -26,6 +26,7 @@ import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.More
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeFalse;
 
@@ -38,6 +39,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -635,6 +637,42 @@ public class TextIOWriteTest {
         write.inner.getShardTemplate());
   }
 
+  @Test
+  @Category(NeedsRunner.class)
+  public void testWriteWithParallelCompression() throws Exception {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 200_000; ++i) {
+      lines.add("line " + i);
+    }
+    File outputFile = new File(tempFolder.newFolder(), "file.txt");
+
+    p.apply(Create.of(lines).withCoder(StringUtf8Coder.of()))
+        .apply(
+            TextIO.write()
+                .to(outputFile.getPath())
+                .withoutSharding()
+                .withParallelCompression(Compression.ZSTD, 4));
+    p.run();
+
+    File compressedFile = new File(outputFile.getPath() + Compression.ZSTD.getSuggestedSuffix());
+    try (SeekableByteChannel channel = Files.newByteChannel(compressedFile.toPath())) {
+      CompressedFrames frames = CompressedFrames.detect(Compression.ZSTD, channel);
+      assertNotNull(frames);
+      assertTrue(frames.nextFrameStart(1) < frames.nextFrameStart(channel.size()));
+    }
+    List<String> actual = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(
+            Channels.newReader(
+                Compression.ZSTD.readDecompressed(Files.newByteChannel(compressedFile.toPath())),
+                Charsets.UTF_8.name()))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        actual.add(line);
+      }
+    }
+    assertThat(actual, containsInAnyOrder(lines.toArray()));
+  }
+
   @Test
   public void testWriteDisplayData() {
     // TODO: Java core test failing on windows, https://github.com/apache/beam/issues/20467
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io.fs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.io.fs.MatchResult.Metadata;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.Uninterruptibles;
+import org.joda.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DirectoryListingCache}. */
+@RunWith(JUnit4.class)
+public class DirectoryListingCacheTest {
+  private static final List<String> ROOT = ImmutableList.of("/");
+  private static final List<String> DIR = ImmutableList.of("/", "dir");
+  private static final List<String> SUB_DIR = ImmutableList.of("/", "dir", "sub");
+
+  private long nowMillis = 0;
+  private final DirectoryListingCache cache =
+      new DirectoryListingCache(Duration.millis(100), () -> nowMillis);
+
+  @Test
+  public void testListingIsReusedWithinTimeToLive() throws Exception {
+    List<Metadata> children = ImmutableList.of(file("/dir/a"));
+    cache.put(DIR, cache.getGeneration(), null, children);
+    nowMillis = 99;
+    assertEquals(children, cache.get(DIR, () -> "ignored"));
+    nowMillis = 100;
+    // Listings without a version cannot be revalidated.
+    assertNull(cache.get(DIR, () -> null));
+  }
+
+  @Test
+  public void testListingIsRevalidatedUsingVersion() throws Exception {
+    AtomicInteger versionReads = new AtomicInteger();
+    DirectoryListingCache.VersionSupplier version =
+        () -> {
+          versionReads.incrementAndGet();
+          return 1L;
+        };
+    List<Metadata> children = ImmutableList.of(file("/dir/a"));
+    cache.put(DIR, cache.getGeneration(), 1L, children);
+    nowMillis = 150;
+    assertEquals(children, cache.get(DIR, version));
+    // Revalidation restarts the time to live.
+    nowMillis = 200;
+    assertEquals(children, cache.get(DIR, version));
+    assertEquals(1, versionReads.get());
+
+    nowMillis = 300;
+    assertNull(cache.get(DIR, () -> 2L));
+    assertNull(cache.get(DIR, () -> 1L));
+  }
+
+  @Test
+  public void testInvalidateDiscardsParentAndSubtree() throws Exception {
+    cache.put(ROOT, cache.getGeneration(), 1L, ImmutableList.of(directory("/dir/")));
+    cache.put(
+        DIR, cache.getGeneration(), 1L, ImmutableList.of(directory("/dir/sub/"), file("/dir/a")));
+    cache.put(SUB_DIR, cache.getGeneration(), 1L, ImmutableList.of(file("/dir/sub/b")));
+
+    cache.invalidate(ImmutableList.of("/", "dir", "sub"));
+    assertEquals(ImmutableList.of(directory("/dir/")), cache.get(ROOT, () -> 1L));
+    assertNull(cache.get(DIR, () -> 1L));
+    assertNull(cache.get(SUB_DIR, () -> 1L));
+  }
+
+  @Test
+  public void testInvalidateDiscardsAncestorsMissingTheResource() throws Exception {
+    cache.put(ROOT, cache.getGeneration(), 1L, ImmutableList.of(directory("/dir/")));
+    cache.put(DIR, cache.getGeneration(), 1L, ImmutableList.of(file("/dir/a")));
+
+    // Creating /dir/new/b may also have created the directory /dir/new.
+    cache.invalidate(ImmutableList.of("/", "dir", "new", "b"));
+    assertEquals(ImmutableList.of(directory("/dir/")), cache.get(ROOT, () -> 1L));
+    assertNull(cache.get(DIR, () -> 1L));
+  }
+
+  @Test
+  public void testPutDiscardsRemovedSubdirectories() throws Exception {
+    cache.put(DIR, cache.getGeneration(), 1L, ImmutableList.of(directory("/dir/sub/")));
+    cache.put(SUB_DIR, cache.getGeneration(), 1L, ImmutableList.of(file("/dir/sub/b")));
+    cache.put(DIR, cache.getGeneration(), 1L, ImmutableList.of(file("/dir/a")));
+    assertNull(cache.get(SUB_DIR, () -> 1L));
+  }
+
+  @Test
+  public void testPutAfterInvalidateIsDiscarded() throws Exception {
+    long generation = cache.getGeneration();
+    // The directory is modified and invalidated while it is being listed.
+    cache.invalidate(ImmutableList.of("/", "dir", "a"));
+    cache.put(DIR, generation, 1L, ImmutableList.of(file("/dir/b")));
+    assertNull(cache.get(DIR, () -> 1L));
+
+    cache.put(DIR, cache.getGeneration(), 1L, ImmutableList.of(file("/dir/a")));
+    assertEquals(ImmutableList.of(file("/dir/a")), cache.get(DIR, () -> 1L));
+  }
+
+  @Test
+  public void testVersionIsReadWithoutHoldingLock() throws Exception {
+    cache.put(DIR, cache.getGeneration(), 1L, ImmutableList.of(file("/dir/a")));
+    nowMillis = 100;
+    Thread invalidator = new Thread(() -> cache.invalidate(DIR));
+    assertNull(
+        cache.get(
+            DIR,
+            () -> {
+              invalidator.start();
+              Uninterruptibles.joinUninterruptibly(invalidator, 10, TimeUnit.SECONDS);
+              assertFalse(invalidator.isAlive());
+              return 1L;
+            }));
+  }
+
+  private static Metadata file(String path) {
+    return metadata(FileSystems.matchNewResource(path, false /* isDirectory */));
+  }
+
+  private static Metadata directory(String path) {
+    return metadata(FileSystems.matchNewResource(path, true /* isDirectory */));
+  }
+
+  private static Metadata metadata(ResourceId resourceId) {
+    return Metadata.builder()
+        .setResourceId(resourceId)
+        .setIsReadSeekEfficient(true)
+        .setSizeBytes(0)
+        .setLastModifiedMillis(0)
+        .build();
+  }
+}
@@ -41,6 +41,7 @@ import org.apache.beam.sdk.testing.ValidatesRunner;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
 import org.joda.time.Duration;
@@ -223,6 +224,20 @@ public class MetricsTest implements Serializable {
       counter.dec(5L);
       verify(mockCounter).inc(-5);
     }
+
+    @Test
+    public void testHistogramToCell() {
+      HistogramData.BucketType bucketType = HistogramData.LogLinearBuckets.of(3, 100);
+      MetricsContainer mockContainer = Mockito.mock(MetricsContainer.class);
+      Histogram mockHistogram = Mockito.mock(Histogram.class);
+      when(mockContainer.getHistogram(METRIC_NAME, bucketType)).thenReturn(mockHistogram);
+
+      Histogram histogram = Metrics.histogram(NS, NAME, bucketType);
+
+      MetricsEnvironment.setCurrentContainer(mockContainer);
+      histogram.update(5);
+      verify(mockHistogram).update(5);
+    }
   }
 
   /** Tests for committed metrics. */
@@ -18,23 +18,30 @@
 package org.apache.beam.sdk.schemas;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.fail;
 
 import com.google.auto.value.AutoValue;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
 import org.apache.avro.reflect.AvroSchema;
 import org.apache.beam.sdk.coders.Coder.NonDeterministicException;
 import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.coders.UserTypeEncoderGenerator;
 import org.apache.beam.sdk.schemas.Schema.Field;
 import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.schemas.annotations.DefaultSchema;
 import org.apache.beam.sdk.schemas.logicaltypes.NanosInstant;
 import org.apache.beam.sdk.schemas.utils.SchemaTestUtils;
 import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.sdk.values.TypeDescriptor;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
@@ -76,6 +83,47 @@ public class SchemaCoderTest {
       assertNotEquals(autovalueCoder.getToRowFunction(), javabeanCoder.getToRowFunction());
       assertNotEquals(autovalueCoder.getFromRowFunction(), javabeanCoder.getFromRowFunction());
     }
+
+    @Test
+    public void encodesFieldValuesInRowCoderFormat() throws Exception {
+      SchemaCoder<NestedPojo> coder = coderFrom(TypeDescriptor.of(NestedPojo.class));
+      NestedPojo value =
+          new NestedPojo(
+              new InnerPojo("foo", 9001), null, ImmutableList.of(new InnerPojo("bar", 9002)));
+
+      byte[] encoded = CoderUtils.encodeToByteArray(coder, value);
+      Row row = coder.getToRowFunction().apply(value);
+      assertArrayEquals(CoderUtils.encodeToByteArray(RowCoder.of(coder.getSchema()), row), encoded);
+      assertEquals(value, CoderUtils.decodeFromByteArray(coder, encoded));
+    }
+
+    @Test
+    public void generatedEncoderEncodesInRowCoderFormat() throws Exception {
+      SchemaCoder<PrimitivePojo> coder = coderFrom(TypeDescriptor.of(PrimitivePojo.class));
+      assertNotNull(
+          UserTypeEncoderGenerator.generate(
+              PrimitivePojo.class,
+              coder.getSchema(),
+              new JavaFieldSchema()
+                  .fieldValueTypeInformations(PrimitivePojo.class, coder.getSchema())));
+      PrimitivePojo value =
+          new PrimitivePojo((byte) 3, (short) -7, -42, 1L << 40, 1.5f, -2.25, true, 9001, "foo");
+
+      byte[] encoded = CoderUtils.encodeToByteArray(coder, value);
+      Row row = coder.getToRowFunction().apply(value);
+      assertArrayEquals(CoderUtils.encodeToByteArray(RowCoder.of(coder.getSchema()), row), encoded);
+      assertEquals(value, CoderUtils.decodeFromByteArray(coder, encoded));
+
+      value.string = null;
+      assertThrows(RuntimeException.class, () -> CoderUtils.encodeToByteArray(coder, value));
+    }
+
+    @Test
+    public void encodeNullNonNullableFieldFails() throws Exception {
+      SchemaCoder<SimplePojo> coder = coderFrom(TypeDescriptor.of(SimplePojo.class));
+      SimplePojo value = new SimplePojo(null, 9001, 0L, new DateTime());
+      assertThrows(RuntimeException.class, () -> CoderUtils.encodeToByteArray(coder, value));
+    }
   }
 
   @AutoValue
@@ -196,6 +244,131 @@ public class SchemaCoderTest {
     }
   }
 
+  @DefaultSchema(JavaFieldSchema.class)
+  private static class InnerPojo {
+    public String string;
+    public int int32;
+
+    public InnerPojo() {}
+
+    public InnerPojo(String string, int int32) {
+      this.string = string;
+      this.int32 = int32;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      InnerPojo that = (InnerPojo) o;
+      return string.equals(that.string) && int32 == that.int32;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(string, int32);
+    }
+  }
+
+  @DefaultSchema(JavaFieldSchema.class)
+  private static class PrimitivePojo {
+    public byte int8;
+    public short int16;
+    public int int32;
+    public long int64;
+    public float float32;
+    public double float64;
+    public boolean bool;
+    public Integer boxed;
+    public String string;
+
+    public PrimitivePojo() {}
+
+    public PrimitivePojo(
+        byte int8,
+        short int16,
+        int int32,
+        long int64,
+        float float32,
+        double float64,
+        boolean bool,
+        Integer boxed,
+        String string) {
+      this.int8 = int8;
+      this.int16 = int16;
+      this.int32 = int32;
+      this.int64 = int64;
+      this.float32 = float32;
+      this.float64 = float64;
+      this.bool = bool;
+      this.boxed = boxed;
+      this.string = string;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      PrimitivePojo that = (PrimitivePojo) o;
+      return int8 == that.int8
+          && int16 == that.int16
+          && int32 == that.int32
+          && int64 == that.int64
+          && float32 == that.float32
+          && float64 == that.float64
+          && bool == that.bool
+          && boxed.equals(that.boxed)
+          && string.equals(that.string);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(int8, int16, int32, int64, float32, float64, bool, boxed, string);
+    }
+  }
+
+  @DefaultSchema(JavaFieldSchema.class)
+  private static class NestedPojo {
+    public InnerPojo nested;
+    public @Nullable String nullable;
+    public List<InnerPojo> repeated;
+
+    public NestedPojo() {}
+
+    public NestedPojo(InnerPojo nested, @Nullable String nullable, List<InnerPojo> repeated) {
+      this.nested = nested;
+      this.nullable = nullable;
+      this.repeated = repeated;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      NestedPojo that = (NestedPojo) o;
+      return nested.equals(that.nested)
+          && Objects.equals(nullable, that.nullable)
+          && repeated.equals(that.repeated);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(nested, nullable, repeated);
+    }
+  }
+
   @DefaultSchema(AvroRecordSchema.class)
   private static class SimpleAvro {
     public String string;
@@ -24,11 +24,16 @@ import static org.junit.Assert.fail;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import org.apache.beam.sdk.coders.AtomicCoder;
 import org.apache.beam.sdk.coders.Coder.Context;
 import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.NullableCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Strings;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.hamcrest.CoreMatchers;
@@ -267,4 +272,45 @@ public class CoderPropertiesTest {
     assertThat(
         error.getMessage(), CoreMatchers.containsString("consumed bytes equal to encoded bytes"));
   }
+
+  /** Coder whose buffer based encoding differs from its stream based encoding. */
+  private static class InconsistentBufferCoder extends AtomicCoder<Long> {
+    @Override
+    public void encode(Long value, OutputStream outStream) throws IOException {
+      VarLongCoder.of().encode(value, outStream);
+    }
+
+    @Override
+    public Long decode(InputStream inStream) throws IOException {
+      return VarLongCoder.of().decode(inStream);
+    }
+
+    @Override
+    public boolean supportsBufferCoding() {
+      return true;
+    }
+
+    @Override
+    public void encodeToBuffer(Long value, ByteBuffer buffer) {
+      buffer.putLong(value);
+    }
+
+    @Override
+    public Long decodeFromBuffer(ByteBuffer buffer) {
+      return buffer.getLong();
+    }
+  }
+
+  @Test
+  public void testBufferCodingConsistentWithStreams() throws Exception {
+    CoderProperties.coderBufferCodingConsistentWithStreams(VarLongCoder.of(), 1234L);
+    CoderProperties.coderBufferCodingConsistentWithStreams(
+        KvCoder.of(StringUtf8Coder.of(), NullableCoder.of(VarLongCoder.of())), KV.of("k", null));
+  }
+
+  @Test
+  public void testBufferCodingInconsistentWithStreamsFails() throws Exception {
+    expectedException.expect(AssertionError.class);
+    CoderProperties.coderDecodeEncodeEqual(new InconsistentBufferCoder(), 1234L);
+  }
 }
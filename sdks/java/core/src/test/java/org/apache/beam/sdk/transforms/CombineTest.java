@@ -738,6 +738,41 @@ public class CombineTest implements Serializable {
       pipeline.run();
     }
 
+    @Test
+    @Category({ValidatesRunner.class})
+    public void testAdaptiveHotKeyCombining() {
+      List<KV<String, Integer>> elements = new ArrayList<>();
+      for (int i = 0; i < 1000; ++i) {
+        elements.add(KV.of("hot", i % 10));
+        if (i % 100 == 0) {
+          elements.add(KV.of("cold" + i, i));
+        }
+      }
+      PCollection<KV<String, Integer>> input = createInput(pipeline, elements);
+
+      PCollection<KV<String, Integer>> sum =
+          input.apply(
+              "AdaptiveSum",
+              Combine.<String, Integer, Integer>perKey(Sum.ofIntegers())
+                  .withAdaptiveHotKeyFanout(4));
+      PCollection<KV<String, Integer>> detectedSum =
+          input.apply(
+              "DetectedSum",
+              Combine.<String, Integer, Integer>perKey(Sum.ofIntegers())
+                  .withHotKeyFanout(SPLIT_HOT_KEY_FANOUT)
+                  .withHotKeyDetection(0.5));
+
+      List<KV<String, Integer>> expected = new ArrayList<>();
+      expected.add(KV.of("hot", 4500));
+      for (int i = 0; i < 1000; i += 100) {
+        expected.add(KV.of("cold" + i, i));
+      }
+      PAssert.that(sum).containsInAnyOrder(expected);
+      PAssert.that(detectedSum).containsInAnyOrder(expected);
+
+      pipeline.run();
+    }
+
     @Test
     @Category(ValidatesRunner.class)
     public void testHotKeyCombiningWithAccumulationMode() {
@@ -887,6 +922,20 @@ public class CombineTest implements Serializable {
           hasItem(hasDisplayItem("fanout", hotKeyFanout)));
     }
 
+    @Test
+    public void testCombinePerKeyWithHotKeyDetectionDisplayData() {
+      Combine.PerKeyWithHotKeyFanout<Integer, Integer, Set<Integer>> combine =
+          Combine.<Integer, Integer, Set<Integer>>perKey(new UniqueInts())
+              .withAdaptiveHotKeyFanout(2);
+      DisplayData displayData = DisplayData.from(combine);
+
+      assertThat(displayData, hasDisplayItem("fanout", 2));
+      assertThat(
+          displayData,
+          hasDisplayItem(
+              "hotKeyFraction", Combine.PerKeyWithHotKeyFanout.DEFAULT_HOT_KEY_FRACTION));
+    }
+
     /** Tests creation of a per-key {@link Combine} via a Java 8 lambda. */
     @Test
     @Category(ValidatesRunner.class)
@@ -21,6 +21,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.coders.VarLongCoder;
@@ -29,6 +31,8 @@ import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.testing.UsesMapState;
+import org.apache.beam.sdk.testing.UsesOrderedListState;
 import org.apache.beam.sdk.testing.UsesTestStream;
 import org.apache.beam.sdk.testing.UsesTestStreamWithProcessingTime;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
@@ -166,6 +170,136 @@ public class DeduplicateTest {
     p.run();
   }
 
+  @Test
+  @Category({NeedsRunner.class, UsesTestStream.class, UsesMapState.class})
+  public void testEventTimeWithBloomFilter() {
+    Instant base = new Instant(0);
+    TestStream<String> values =
+        TestStream.create(StringUtf8Coder.of())
+            .advanceWatermarkTo(base)
+            .addElements(
+                TimestampedValue.of("k1", base),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(10))),
+                TimestampedValue.of("k3", base.plus(Duration.standardSeconds(20))),
+                TimestampedValue.of("maybedup", base.plus(Duration.standardSeconds(59))))
+            .advanceWatermarkTo(base.plus(Duration.standardMinutes(1)))
+            .addElements(
+                TimestampedValue.of("k1", base.plus(Duration.standardSeconds(30))),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(40))),
+                TimestampedValue.of("k3", base.plus(Duration.standardSeconds(50))))
+            .advanceWatermarkTo(
+                base.plus(Duration.standardMinutes(2)).plus(Deduplicate.DEFAULT_DURATION))
+            .addElements(TimestampedValue.of("maybedup", base.plus(Duration.standardSeconds(59))))
+            .advanceWatermarkToInfinity();
+
+    PCollection<String> distinctValues =
+        p.apply(values)
+            .apply(
+                Deduplicate.<String>values()
+                    .withTimeDomain(TimeDomain.EVENT_TIME)
+                    .withBloomFilter(1000, 0.001));
+    PAssert.that(distinctValues)
+        .satisfies(
+            (Iterable<String> input) -> {
+              assertEquals(1, Iterables.frequency(input, "k1"));
+              assertEquals(1, Iterables.frequency(input, "k2"));
+              assertEquals(1, Iterables.frequency(input, "k3"));
+              assertTrue(
+                  Iterables.frequency(input, "maybedup") == 1
+                      || Iterables.frequency(input, "maybedup") == 2);
+              return null;
+            });
+    p.run();
+  }
+
+  @Test
+  @Category({NeedsRunner.class, UsesMapState.class})
+  public void testBloomFilterSpanningMultipleChunks() {
+    List<String> elements = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 100; ++i) {
+      elements.add("k" + i);
+      elements.add("k" + i);
+      expected.add("k" + i);
+    }
+
+    // The filter of each generation is large enough to be held in several chunks of state.
+    PCollection<String> distinctValues =
+        p.apply(Create.of(elements))
+            .apply(Deduplicate.<String>values().withBloomFilter(100_000_000, 0.01));
+    PAssert.that(distinctValues).containsInAnyOrder(expected);
+    p.run();
+  }
+
+  @Test
+  @Category({NeedsRunner.class, UsesMapState.class, UsesOrderedListState.class})
+  public void testBloomFilterWithExactFallback() {
+    List<String> elements = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; ++i) {
+      elements.add("k" + i);
+      elements.add("k" + i);
+      expected.add("k" + i);
+    }
+
+    // The filters are undersized so that they report most keys as seen.
+    PCollection<String> distinctValues =
+        p.apply(Create.of(elements))
+            .apply(Deduplicate.<String>values().withBloomFilter(10, 0.5).withExactFallback());
+    PAssert.that(distinctValues).containsInAnyOrder(expected);
+    p.run();
+  }
+
+  @Test
+  @Category({
+    NeedsRunner.class,
+    UsesTestStream.class,
+    UsesMapState.class,
+    UsesOrderedListState.class
+  })
+  public void testEventTimeWithExactFallbackForgetsKeysAfterDuration() {
+    Instant base = new Instant(0);
+    TestStream.Builder<String> builder =
+        TestStream.create(StringUtf8Coder.of())
+            .advanceWatermarkTo(base)
+            .addElements(
+                TimestampedValue.of("k1", base),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(10))))
+            .advanceWatermarkTo(base.plus(Duration.standardMinutes(1)))
+            .addElements(
+                TimestampedValue.of("k1", base.plus(Duration.standardSeconds(30))),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(40))));
+    // Advance the watermark one rotation period at a time. A generation is started every quarter
+    // of the duration and the generation holding the keys is dropped by the fifth rotation. Each
+    // rotation is scheduled relative to the watermark at which the previous one fired so further
+    // steps leave room for rotations which fire late.
+    Duration rotationPeriod = Deduplicate.DEFAULT_DURATION.dividedBy(4);
+    for (int i = 1; i <= 10; ++i) {
+      builder = builder.advanceWatermarkTo(base.plus(rotationPeriod.multipliedBy(i)));
+    }
+    TestStream<String> values =
+        builder
+            .addElements(TimestampedValue.of("k1", base.plus(Duration.standardSeconds(50))))
+            .advanceWatermarkToInfinity();
+
+    // The filters are undersized so that they report most keys as seen.
+    PCollection<String> distinctValues =
+        p.apply(values)
+            .apply(
+                Deduplicate.<String>values()
+                    .withTimeDomain(TimeDomain.EVENT_TIME)
+                    .withBloomFilter(10, 0.5)
+                    .withExactFallback());
+    PAssert.that(distinctValues).containsInAnyOrder("k1", "k2", "k1");
+    p.run();
+  }
+
+  @Test
+  public void testExactFallbackRequiresBloomFilter() {
+    assertThrows(
+        IllegalStateException.class, () -> Deduplicate.<String>values().withExactFallback());
+  }
+
   private static class Keys<T> implements SerializableFunction<KV<T, String>, T> {
     @Override
     public T apply(KV<T, String> input) {
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link HotKeyDetector}. */
+@RunWith(JUnit4.class)
+public class HotKeyDetectorTest {
+
+  @Test
+  public void testDetectsHotKeysAmongUniformKeys() {
+    HotKeyDetector detector = new HotKeyDetector(0.01);
+    Random random = new Random(1234);
+    int hotObservations = 0;
+    int coldObservations = 0;
+    for (int i = 0; i < 100_000; ++i) {
+      if (random.nextInt(10) == 0) {
+        // The hot key accounts for 10% of the elements.
+        if (detector.observe(42) && i > 1_000) {
+          hotObservations += 1;
+        }
+      } else if (detector.observe(1_000 + random.nextInt(100_000))) {
+        coldObservations += 1;
+      }
+    }
+    assertTrue(hotObservations > 9_000);
+    assertTrue(coldObservations < 100);
+  }
+
+  @Test
+  public void testKeysAreNotHotUntilObservedSeveralTimes() {
+    HotKeyDetector detector = new HotKeyDetector(0.5);
+    for (int i = 1; i < HotKeyDetector.MIN_HOT_KEY_COUNT; ++i) {
+      assertFalse(detector.observe(42));
+    }
+    assertTrue(detector.observe(42));
+  }
+
+  @Test
+  public void testFollowsChangesInKeyDistribution() {
+    HotKeyDetector detector = new HotKeyDetector(0.05);
+    for (int i = 0; i < 100_000; ++i) {
+      detector.observe(i % 2 == 0 ? 1 : 1_000 + i);
+    }
+    assertTrue(detector.observe(1));
+    // The first key is no longer observed so it cools down as the counts are aged.
+    for (int i = 0; i < 100_000; ++i) {
+      detector.observe(i % 2 == 0 ? 2 : 1_000 + i);
+    }
+    assertTrue(detector.observe(2));
+    assertFalse(detector.observe(1));
+  }
+
+  @Test
+  public void testInvalidHotKeyFraction() {
+    assertThrows(IllegalArgumentException.class, () -> new HotKeyDetector(0));
+    assertThrows(IllegalArgumentException.class, () -> new HotKeyDetector(1));
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms;
+
+import static org.apache.beam.sdk.testing.CombineFnTester.testCombineFn;
+import static org.apache.beam.sdk.transforms.display.DisplayDataMatchers.hasDisplayItem;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.testing.NeedsRunner;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.KllQuantiles.KllQuantilesCombineFn;
+import org.apache.beam.sdk.transforms.KllQuantiles.KllSketch;
+import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link KllQuantiles}. */
+@RunWith(JUnit4.class)
+public class KllQuantilesTest {
+  @Rule public TestPipeline p = TestPipeline.create();
+
+  @Test
+  @Category(NeedsRunner.class)
+  public void testQuantilesGlobally() {
+    PCollection<Integer> input = p.apply(Create.of(intRange(101)));
+    PCollection<List<Integer>> quantiles = input.apply(KllQuantiles.globally(5));
+
+    PAssert.that(quantiles).containsInAnyOrder(Arrays.asList(0, 25, 50, 75, 100));
+    p.run();
+  }
+
+  @Test
+  @Category(NeedsRunner.class)
+  public void testQuantilesPerKey() {
+    PCollection<KV<String, Integer>> input =
+        p.apply(
+            Create.of(
+                    KV.of("a", 1),
+                    KV.of("a", 2),
+                    KV.of("a", 3),
+                    KV.of("b", 1),
+                    KV.of("b", 10),
+                    KV.of("b", 10),
+                    KV.of("b", 100))
+                .withCoder(KvCoder.of(StringUtf8Coder.of(), BigEndianIntegerCoder.of())));
+    PCollection<KV<String, List<Integer>>> quantiles =
+        input.apply(KllQuantiles.perKey(2, new Top.Reversed<Integer>()));
+
+    PAssert.that(quantiles)
+        .containsInAnyOrder(KV.of("a", Arrays.asList(3, 1)), KV.of("b", Arrays.asList(100, 1)));
+    p.run();
+  }
+
+  @Test
+  public void testSingleton() {
+    testCombineFn(
+        KllQuantilesCombineFn.create(5),
+        Arrays.asList(389),
+        Arrays.asList(389, 389, 389, 389, 389));
+  }
+
+  @Test
+  public void testSimpleQuantiles() {
+    testCombineFn(
+        KllQuantilesCombineFn.create(5), intRange(101), Arrays.asList(0, 25, 50, 75, 100));
+  }
+
+  @Test
+  public void testLotsOfDuplicates() {
+    List<Integer> all = new ArrayList<>();
+    all.add(1);
+    for (int i = 1; i < 300; i++) {
+      all.add(2);
+    }
+    for (int i = 300; i < 1000; i++) {
+      all.add(3);
+    }
+    testCombineFn(KllQuantilesCombineFn.create(5), all, Arrays.asList(1, 2, 3, 3, 3));
+  }
+
+  @Test
+  public void testRankErrorIsBounded() {
+    int size = 1_000_000;
+    int numQuantiles = 11;
+    KllQuantilesCombineFn<Integer, ?> combineFn =
+        KllQuantilesCombineFn.<Integer>create(numQuantiles).withEpsilon(0.01);
+    List<Integer> elements = intRange(size);
+    Collections.shuffle(elements, new Random(1234));
+
+    // Combine in several shards to exercise merging.
+    // Seed the compactions so that the rank error is deterministic.
+    Random random = new Random(5678);
+    List<KllSketch<Integer, ?>> accumulators = new ArrayList<>();
+    for (List<Integer> shard : partition(elements, 7)) {
+      KllSketch accumulator = combineFn.createAccumulator();
+      accumulator.setRandom(new Random(random.nextLong()));
+      for (Integer element : shard) {
+        accumulator.addInput(element);
+      }
+      assertThat(accumulator.getNumRetained(), lessThanOrEqualTo(3 * combineFn.getK()));
+      accumulators.add(accumulator);
+    }
+    List<Integer> quantiles =
+        combineFn.extractOutput(combineFn.mergeAccumulators((List) accumulators));
+
+    assertEquals(numQuantiles, quantiles.size());
+    assertEquals(0, (int) quantiles.get(0));
+    assertEquals(size - 1, (int) quantiles.get(numQuantiles - 1));
+    for (int i = 1; i < numQuantiles - 1; ++i) {
+      int expected = (int) ((long) (size - 1) * i / (numQuantiles - 1));
+      assertThat(Math.abs(quantiles.get(i) - expected), lessThanOrEqualTo(size / 100));
+    }
+  }
+
+  @Test
+  public void testAccumulatorCoder() throws Exception {
+    KllQuantilesCombineFn<Integer, ?> combineFn = KllQuantilesCombineFn.<Integer>create(5).withK(8);
+    Coder<KllSketch<Integer, ?>> coder =
+        (Coder) combineFn.getAccumulatorCoder(null, VarIntCoder.of());
+    KllSketch accumulator = combineFn.createAccumulator();
+    CoderProperties.structuralValueDecodeEncodeEqual(coder, accumulator);
+    for (int i = 0; i < 1000; ++i) {
+      accumulator.addInput(i);
+    }
+    KllSketch<Integer, ?> decoded = CoderUtils.clone(coder, accumulator);
+    assertEquals(accumulator.getNumRetained(), decoded.getNumRetained());
+    assertEquals(accumulator.extractOutput(), decoded.extractOutput());
+    CoderProperties.coderDeterministic(coder, accumulator, accumulator);
+  }
+
+  @Test
+  public void testWithEpsilon() {
+    assertEquals(200, KllQuantilesCombineFn.create(5).withEpsilon(0.0133).getK());
+    assertEquals(
+        KllQuantilesCombineFn.MIN_K, KllQuantilesCombineFn.create(5).withEpsilon(0.9).getK());
+  }
+
+  @Test
+  public void testDisplayData() {
+    Top.Natural<Integer> comparer = new Top.Natural<>();
+    PTransform<?, ?> quantiles = KllQuantiles.globally(20, comparer);
+    DisplayData displayData = DisplayData.from(quantiles);
+
+    assertThat(displayData, hasDisplayItem("numQuantiles", 20));
+    assertThat(displayData, hasDisplayItem("k", KllQuantilesCombineFn.DEFAULT_K));
+    assertThat(displayData, hasDisplayItem("comparer", comparer.getClass()));
+  }
+
+  private static List<Integer> intRange(int size) {
+    List<Integer> all = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      all.add(i);
+    }
+    return all;
+  }
+
+  private static <T> List<List<T>> partition(List<T> elements, int numPartitions) {
+    List<List<T>> partitions = new ArrayList<>();
+    int partitionSize = (elements.size() + numPartitions - 1) / numPartitions;
+    for (int i = 0; i < elements.size(); i += partitionSize) {
+      partitions.add(elements.subList(i, Math.min(elements.size(), i + partitionSize)));
+    }
+    return partitions;
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms.reflect;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import org.apache.beam.sdk.state.TimeDomain;
+import org.apache.beam.sdk.state.TimerSpec;
+import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.reflect.DoFnSignature.TimerDeclaration;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.ByteStreams;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link PrecompiledInvokers}. */
+@RunWith(JUnit4.class)
+public class PrecompiledInvokersTest {
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  /** A {@link DoFn} which records the methods which were invoked. */
+  public static class TimerDoFn extends DoFn<String, String> {
+    static final String TIMER_ID = "timer";
+
+    public String status = "";
+
+    @TimerId(TIMER_ID)
+    private final TimerSpec timer = TimerSpecs.timer(TimeDomain.EVENT_TIME);
+
+    @Setup
+    public void setup() {
+      status += "setup;";
+    }
+
+    @ProcessElement
+    public void processElement() {}
+
+    @OnTimer(TIMER_ID)
+    public void onTimer() {
+      status += "onTimer;";
+    }
+  }
+
+  @Test
+  public void testPrecompiledInvokersAreUsed() throws Exception {
+    File outputDirectory = tmpFolder.newFolder();
+    assertEquals(2, PrecompiledInvokers.generate(TimerDoFn.class, outputDirectory));
+
+    Class<?> fnClass =
+        Class.forName(
+            TimerDoFn.class.getName(),
+            true,
+            new ChildFirstClassLoader(outputDirectory, getClass().getClassLoader()));
+    DoFn<String, String> fn = (DoFn<String, String>) fnClass.getConstructor().newInstance();
+
+    DoFnInvoker<String, String> invoker = DoFnInvokers.invokerFor(fn);
+    assertThat(
+        invoker.getClass().getName(),
+        equalTo(fnClass.getName() + "$" + PrecompiledInvokers.PREFIX + "DoFnInvoker"));
+    assertThat(
+        OnTimerInvokers.forTimer(fn, TimerDeclaration.PREFIX + TimerDoFn.TIMER_ID)
+            .getClass()
+            .getName(),
+        startsWith(fnClass.getName() + "$" + PrecompiledInvokers.PREFIX + "OnTimerInvoker$"));
+    invoker.invokeSetup(mock(DoFnInvoker.ArgumentProvider.class));
+    invoker.invokeOnTimer(
+        TimerDeclaration.PREFIX + TimerDoFn.TIMER_ID, "", mock(DoFnInvoker.ArgumentProvider.class));
+    assertEquals("setup;onTimer;", fnClass.getField("status").get(fn));
+  }
+
+  @Test
+  public void testFallsBackToRuntimeGeneration() throws Exception {
+    TimerDoFn fn = new TimerDoFn();
+    DoFnInvoker<String, String> invoker = DoFnInvokers.invokerFor(fn);
+    assertThat(invoker.getClass().getName(), endsWith("$DoFnInvoker"));
+    invoker.invokeSetup(mock(DoFnInvoker.ArgumentProvider.class));
+    assertEquals("setup;", fn.status);
+  }
+
+  @Test
+  public void testFindIgnoresMissingInvokers() {
+    assertNull(PrecompiledInvokers.find(TimerDoFn.class, "DoFnInvoker"));
+  }
+
+  @Test
+  public void testGenerateSkipsNonDoFns() throws Exception {
+    File outputDirectory = tmpFolder.newFolder();
+    assertEquals(0, PrecompiledInvokers.generate(String.class, outputDirectory));
+    assertEquals(0, outputDirectory.list().length);
+  }
+
+  /**
+   * Loads this test and its nested classes itself, finding the classes written by {@link
+   * PrecompiledInvokers} within the given directory.
+   */
+  private static class ChildFirstClassLoader extends ClassLoader {
+    private final File directory;
+
+    ChildFirstClassLoader(File directory, ClassLoader parent) {
+      super(parent);
+      this.directory = directory;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.startsWith(PrecompiledInvokersTest.class.getName())) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> clazz = findLoadedClass(name);
+        if (clazz == null) {
+          byte[] bytes = readClass(name);
+          clazz = defineClass(name, bytes, 0, bytes.length);
+        }
+        return clazz;
+      }
+    }
+
+    private byte[] readClass(String name) throws ClassNotFoundException {
+      String resource = name.replace('.', '/') + ".class";
+      File file = new File(directory, resource);
+      try {
+        if (file.exists()) {
+          return Files.readAllBytes(file.toPath());
+        }
+        try (InputStream in = getParent().getResourceAsStream(resource)) {
+          if (in == null) {
+            throw new ClassNotFoundException(name);
+          }
+          return ByteStreams.toByteArray(in);
+        }
+      } catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
+    }
+  }
+}
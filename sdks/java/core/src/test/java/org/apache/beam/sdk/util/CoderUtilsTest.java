@@ -17,6 +17,7 @@
  */
 package org.apache.beam.sdk.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -24,15 +25,24 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import org.apache.beam.sdk.coders.AtomicCoder;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.Coder.Context;
 import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.testing.CoderProperties;
 import org.apache.beam.sdk.testing.CoderPropertiesTest.ClosingCoder;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Strings;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -142,4 +152,99 @@ public class CoderUtilsTest {
         CoderException.class,
         () -> CoderUtils.decodeFromByteString(StringUtf8Coder.of(), byteString, Context.NESTED));
   }
+
+  @Test
+  public void testEncodeAndDecodeUsingBuffers() throws Exception {
+    Coder<KV<String, Long>> coder = KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of());
+    // Larger than the initial thread local buffer to exercise growing it.
+    KV<String, Long> value = KV.of(Strings.repeat("a", 10_000), 42L);
+    for (Context context : CoderProperties.ALL_CONTEXTS) {
+      byte[] expected = encodeToStream(coder, value, context);
+      byte[] encoded = CoderUtils.encodeToByteArray(coder, value, context);
+      assertArrayEquals(expected, encoded);
+      assertEquals(value, CoderUtils.decodeFromByteArray(coder, encoded, context));
+      // Encoding a smaller value afterwards reuses the grown buffer.
+      assertArrayEquals(
+          encodeToStream(coder, KV.of("b", 1L), context),
+          CoderUtils.encodeToByteArray(coder, KV.of("b", 1L), context));
+    }
+  }
+
+  @Test
+  public void testEncodeUsingBuffersFallsBackToStreamOnOverflow() throws Exception {
+    CountingBufferCoder coder = new CountingBufferCoder();
+    // Larger than any retained thread local buffer.
+    String value = Strings.repeat("a", 100_000);
+    for (int i = 0; i < 3; ++i) {
+      coder.bufferEncodings = 0;
+      coder.streamEncodings = 0;
+      assertArrayEquals(
+          encodeToStream(StringUtf8Coder.of(), value, Context.NESTED),
+          CoderUtils.encodeToByteArray(coder, value));
+      // The value is encoded at most once into the buffer before falling back to the stream.
+      assertEquals(1, coder.bufferEncodings);
+      assertEquals(1, coder.streamEncodings);
+    }
+  }
+
+  /** A buffer coding {@link Coder} for strings which counts how often it encodes. */
+  private static class CountingBufferCoder extends AtomicCoder<String> {
+    private int bufferEncodings;
+    private int streamEncodings;
+
+    @Override
+    public void encode(String value, OutputStream outStream) throws IOException {
+      streamEncodings++;
+      StringUtf8Coder.of().encode(value, outStream);
+    }
+
+    @Override
+    public String decode(InputStream inStream) throws IOException {
+      return StringUtf8Coder.of().decode(inStream);
+    }
+
+    @Override
+    public boolean supportsBufferCoding() {
+      return true;
+    }
+
+    @Override
+    public void encodeToBuffer(String value, ByteBuffer buffer) throws IOException {
+      bufferEncodings++;
+      StringUtf8Coder.of().encodeToBuffer(value, buffer);
+    }
+
+    @Override
+    public String decodeFromBuffer(ByteBuffer buffer) throws IOException {
+      return StringUtf8Coder.of().decodeFromBuffer(buffer);
+    }
+  }
+
+  @Test
+  public void testDecodeFromByteArrayUsingBuffersWithExtraDataThrows() throws Exception {
+    byte[] data = CoderUtils.encodeToByteArray(VarLongCoder.of(), 5L);
+    byte[] extended = Arrays.copyOf(data, data.length + 2);
+
+    assertThrows(
+        "2 unexpected extra bytes after decoding 5",
+        CoderException.class,
+        () -> CoderUtils.decodeFromByteArray(VarLongCoder.of(), extended));
+  }
+
+  @Test
+  public void testDecodeFromByteArrayUsingBuffersWithTruncatedDataThrows() throws Exception {
+    byte[] data = CoderUtils.encodeToByteArray(StringUtf8Coder.of(), "test string", Context.NESTED);
+    byte[] truncated = Arrays.copyOf(data, data.length - 1);
+
+    assertThrows(
+        CoderException.class,
+        () -> CoderUtils.decodeFromByteArray(StringUtf8Coder.of(), truncated, Context.NESTED));
+  }
+
+  private static <T> byte[] encodeToStream(Coder<T> coder, T value, Context context)
+      throws Exception {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    coder.encode(value, stream, context);
+    return stream.toByteArray();
+  }
 }
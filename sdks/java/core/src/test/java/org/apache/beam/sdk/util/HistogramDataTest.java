@@ -19,7 +19,14 @@ package org.apache.beam.sdk.util;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThrows;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -200,4 +207,99 @@ public class HistogramDataTest {
     assertThat(data.getTopBucketCount(), equalTo(4L));
     assertThat(data.getTotalCount(), equalTo(10L));
   }
+
+  @Test
+  public void testLogLinearBuckets() {
+    HistogramData histogramData = HistogramData.logLinear(1, 20);
+    // Unit buckets for [0, 4) followed by two buckets per power of two.
+    assertThat(histogramData.getBucketType().getNumBuckets(), equalTo(9));
+    assertThat(histogramData.getBucketType().getRangeFrom(), equalTo(0.0));
+    assertThat(histogramData.getBucketType().getRangeTo(), equalTo(24.0));
+    histogramData.record(-1, 0, 3.5, 4, 5, 6, 23, 24);
+    assertThat(histogramData.getBottomBucketCount(), equalTo(1L));
+    assertThat(histogramData.getCount(0), equalTo(1L));
+    assertThat(histogramData.getCount(3), equalTo(1L));
+    assertThat(histogramData.getCount(4), equalTo(2L));
+    assertThat(histogramData.getCount(5), equalTo(1L));
+    assertThat(histogramData.getCount(8), equalTo(1L));
+    assertThat(histogramData.getTopBucketCount(), equalTo(1L));
+  }
+
+  @Test
+  public void testLogLinearBucketBoundaries() {
+    HistogramData.LogLinearBuckets buckets = HistogramData.LogLinearBuckets.of(3, 300);
+    double accumulated = 0;
+    for (int i = 0; i < buckets.getNumBuckets(); ++i) {
+      double size = buckets.getBucketSize(i);
+      assertThat(buckets.getAccumulatedBucketSize(i), equalTo(accumulated));
+      assertThat(buckets.getBucketIndex(accumulated), equalTo(i));
+      assertThat(buckets.getBucketIndex(accumulated + size - 1), equalTo(i));
+      assertThat(size <= Math.max(1, accumulated / 8), equalTo(true));
+      accumulated += size;
+    }
+    assertThat(buckets.getRangeTo(), equalTo(accumulated));
+  }
+
+  @Test
+  public void testLogLinearBucketsCoverLongRange() {
+    HistogramData.LogLinearBuckets buckets =
+        HistogramData.LogLinearBuckets.forMaxValue(4, Long.MAX_VALUE);
+    assertThat(buckets.getRangeTo(), equalTo(Math.scalb(1.0, 63)));
+    assertThat(buckets.getBucketIndex(Long.MAX_VALUE), equalTo(buckets.getNumBuckets() - 1));
+  }
+
+  @Test
+  public void testLogLinearP50HasBoundedRelativeError() {
+    HistogramData histogramData = HistogramData.logLinear(5, 10_000_000);
+    for (int i = 1; i <= 1_000_000; i *= 10) {
+      histogramData.record(i, i, i);
+    }
+    histogramData.record(1000);
+    double p50 = histogramData.p50();
+    assertThat(Math.abs(p50 - 1000) / 1000 < 1.0 / 32, equalTo(true));
+  }
+
+  @Test
+  public void testLogLinearPrecisionIsBounded() {
+    assertThrows(IllegalArgumentException.class, () -> HistogramData.LogLinearBuckets.of(9, 100));
+  }
+
+  @Test
+  public void testGetBucketCounts() {
+    HistogramData histogramData = HistogramData.logLinear(1, 20);
+    histogramData.record(-1, 0, 4, 5, 24);
+    assertThat(histogramData.getBucketCounts(), equalTo(new long[] {1, 0, 0, 0, 2, 0, 0, 0, 0}));
+  }
+
+  @Test
+  public void testConcurrentRecording() throws Exception {
+    HistogramData histogramData = HistogramData.logLinear(3, 1000);
+    int numThreads = 8;
+    int recordsPerThread = 100_000;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < numThreads; ++t) {
+      futures.add(
+          executor.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < recordsPerThread; ++i) {
+                  histogramData.record(i % 2000);
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    assertThat(histogramData.getTotalCount(), equalTo((long) numThreads * recordsPerThread));
+    assertThat(histogramData.getCount(7), equalTo((long) numThreads * recordsPerThread / 2000));
+    HistogramData copy = HistogramData.logLinear(3, 1000);
+    copy.update(histogramData);
+    assertThat(copy, equalTo(histogramData));
+  }
 }
@@ -17,6 +17,10 @@
  */
 package org.apache.beam.sdk.util;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -33,6 +37,7 @@ import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.sdk.coders.IterableCoder;
 import org.apache.beam.sdk.coders.ListCoder;
 import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.util.MutationDetectors.DetectionMode;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.FluentIterable;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Sets;
@@ -134,6 +139,32 @@ public class MutationDetectorsTest {
     detector.verifyUnmodified();
   }
 
+  /** Tests that {@link DetectionMode#HASH} detects a mutation to a list. */
+  @Test
+  public void testMutatingListWithHashDetection() throws Exception {
+    List<Integer> value = Arrays.asList(1, 2, 3, 4);
+    MutationDetector detector =
+        MutationDetectors.forValueWithCoder(
+            value, ListCoder.of(VarIntCoder.of()), DetectionMode.HASH);
+    detector.verifyUnmodified();
+    value.set(0, 37);
+
+    IllegalMutationException exn =
+        assertThrows(IllegalMutationException.class, detector::verifyUnmodified);
+    assertNull(exn.getSavedValue());
+    assertEquals(value, exn.getNewValue());
+  }
+
+  /** Tests that {@link DetectionMode#HASH} does not false positive on an unmodified array. */
+  @Test
+  public void testUnmodifiedArrayWithHashDetection() throws Exception {
+    byte[] value = new byte[] {0x1, 0x2, 0x3, 0x4};
+    MutationDetector detector =
+        MutationDetectors.forValueWithCoder(value, ByteArrayCoder.of(), DetectionMode.HASH);
+    detector.verifyUnmodified();
+    detector.close();
+  }
+
   /**
    * Tests that {@link MutationDetectors#forValueWithCoder} does not false positive on a {@link
    * LinkedList} that will clone as an {@code ArrayList}.
@@ -25,6 +25,9 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -308,4 +311,37 @@ public class VarIntTest {
     thrown.expect(IOException.class);
     VarInt.decodeInt(inStream);
   }
+
+  @Test
+  public void encodeAndDecodeValuesWithBuffers() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(10);
+    for (int i = 0; i < LONG_VALUES.length; ++i) {
+      buffer.clear();
+      VarInt.encode(LONG_VALUES[i], buffer);
+      assertThat(Arrays.copyOf(buffer.array(), buffer.position()), equalTo(LONG_ENCODED[i]));
+      buffer.flip();
+      assertEquals(LONG_VALUES[i], VarInt.decodeLong(buffer));
+      assertEquals(0, buffer.remaining());
+    }
+    for (int i = 0; i < INT_VALUES.length; ++i) {
+      buffer.clear();
+      VarInt.encode(INT_VALUES[i], buffer);
+      assertThat(Arrays.copyOf(buffer.array(), buffer.position()), equalTo(INT_ENCODED[i]));
+      buffer.flip();
+      assertEquals(INT_VALUES[i], VarInt.decodeInt(buffer));
+      assertEquals(0, buffer.remaining());
+    }
+  }
+
+  @Test
+  public void bufferDecodeThrowsExceptionForIntOverflow() throws IOException {
+    thrown.expect(IOException.class);
+    VarInt.decodeInt(ByteBuffer.wrap(encodeLong(1L << 32)));
+  }
+
+  @Test
+  public void bufferUnterminatedThrowsException() throws Exception {
+    thrown.expect(BufferUnderflowException.class);
+    VarInt.decodeLong(ByteBuffer.wrap(new byte[] {(byte) 0xff, (byte) 0xff}));
+  }
 }
@@ -21,6 +21,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderException;
@@ -85,6 +87,26 @@ public class WindowedValueTest {
         WindowedValue.getParamWindowedValueCoder(GlobalWindow.Coder.INSTANCE));
   }
 
+  @Test
+  public void testParamWindowedValueCoderBufferCodingMatchesStreamCoding() throws Exception {
+    Coder<WindowedValue<String>> coder =
+        WindowedValue.getParamWindowedValueCoder(StringUtf8Coder.of());
+    WindowedValue<String> value = WindowedValue.valueInGlobalWindow("abc");
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    coder.encode(value, expected);
+    expected.write(new byte[] {1, 2});
+
+    ByteBuffer buffer = ByteBuffer.allocate(expected.size());
+    coder.encodeToBuffer(value, buffer);
+    buffer.put(new byte[] {1, 2});
+    Assert.assertArrayEquals(expected.toByteArray(), buffer.array());
+
+    buffer.flip();
+    Assert.assertEquals(value, coder.decodeFromBuffer(buffer));
+    Assert.assertEquals(2, buffer.remaining());
+  }
+
   @Test
   public void testValueOnlyWindowedValueCoderIsSerializableWithWellKnownCoderType() {
     CoderProperties.coderSerializable(WindowedValue.getValueOnlyCoder(GlobalWindow.Coder.INSTANCE));
@@ -22,19 +22,35 @@ import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Prec
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
 import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
 import org.apache.arrow.vector.VectorLoader;
 import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.arrow.vector.ipc.ReadChannel;
 import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
 import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
 import org.apache.arrow.vector.types.TimeUnit;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.util.Text;
@@ -48,10 +64,11 @@ import org.apache.beam.sdk.schemas.logicaltypes.FixedBytes;
 import org.apache.beam.sdk.values.Row;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.ReadableInstant;
 
 /**
  * Utilities to create {@link Iterable}s of Beam {@link Row} instances backed by Arrow record
- * batches.
+ * batches, and to create Arrow record batches from Beam {@link Row}s.
  */
 public class ArrowConversion {
 
@@ -490,11 +507,141 @@ public class ArrowConversion {
     }
   }
 
+  /**
+   * Returns a {@link VectorSchemaRoot} allocated from {@code allocator} which contains the {@code
+   * rows} as a single Arrow record batch. The caller is responsible for closing the returned {@link
+   * VectorSchemaRoot}.
+   *
+   * <p>Only schemas whose fields are of a primitive type, {@link FieldType#STRING}, {@link
+   * FieldType#BYTES} or {@link FieldType#DATETIME} are supported, see {@link
+   * ArrowSchemaTranslator#toArrowSchema}.
+   */
+  public static VectorSchemaRoot recordBatchFromRows(
+      Schema schema, Iterable<Row> rows, BufferAllocator allocator) {
+    VectorSchemaRoot vectorSchemaRoot =
+        VectorSchemaRoot.create(ArrowSchemaTranslator.toArrowSchema(schema), allocator);
+    try {
+      vectorSchemaRoot.allocateNew();
+      List<FieldVector> fieldVectors = vectorSchemaRoot.getFieldVectors();
+      int rowIndex = 0;
+      for (Row row : rows) {
+        for (int i = 0; i < schema.getFieldCount(); i++) {
+          setValue(fieldVectors.get(i), schema.getField(i).getType(), rowIndex, row.getValue(i));
+        }
+        rowIndex += 1;
+      }
+      vectorSchemaRoot.setRowCount(rowIndex);
+      return vectorSchemaRoot;
+    } catch (RuntimeException e) {
+      vectorSchemaRoot.close();
+      throw e;
+    }
+  }
+
+  private static void setValue(
+      FieldVector fieldVector, FieldType fieldType, int index, @Nullable Object value) {
+    if (value == null) {
+      checkArgument(
+          fieldType.getNullable(),
+          "Encountered null value for non-nullable field %s",
+          fieldVector.getField().getName());
+      if (fieldVector instanceof BaseFixedWidthVector) {
+        ((BaseFixedWidthVector) fieldVector).setNull(index);
+      } else {
+        ((BaseVariableWidthVector) fieldVector).setNull(index);
+      }
+      return;
+    }
+    switch (fieldType.getTypeName()) {
+      case BYTE:
+        ((TinyIntVector) fieldVector).setSafe(index, (Byte) value);
+        break;
+      case INT16:
+        ((SmallIntVector) fieldVector).setSafe(index, (Short) value);
+        break;
+      case INT32:
+        ((IntVector) fieldVector).setSafe(index, (Integer) value);
+        break;
+      case INT64:
+        ((BigIntVector) fieldVector).setSafe(index, (Long) value);
+        break;
+      case FLOAT:
+        ((Float4Vector) fieldVector).setSafe(index, (Float) value);
+        break;
+      case DOUBLE:
+        ((Float8Vector) fieldVector).setSafe(index, (Double) value);
+        break;
+      case BOOLEAN:
+        ((BitVector) fieldVector).setSafe(index, ((Boolean) value) ? 1 : 0);
+        break;
+      case STRING:
+        ((VarCharVector) fieldVector)
+            .setSafe(index, ((String) value).getBytes(StandardCharsets.UTF_8));
+        break;
+      case BYTES:
+        ((VarBinaryVector) fieldVector).setSafe(index, (byte[]) value);
+        break;
+      case DATETIME:
+        ((TimeStampMilliTZVector) fieldVector)
+            .setSafe(index, ((ReadableInstant) value).getMillis());
+        break;
+      default:
+        throw new IllegalArgumentException(
+            "Type \'" + fieldType.getTypeName() + "\' not supported.");
+    }
+  }
+
   private ArrowConversion() {}
 
-  /** Converts Arrow schema to Beam row schema. */
+  /** Converts between Arrow schemas and Beam row schemas. */
   public static class ArrowSchemaTranslator {
 
+    /**
+     * Converts a Beam row schema to an Arrow schema. Only fields of a primitive type, {@link
+     * FieldType#STRING}, {@link FieldType#BYTES} or {@link FieldType#DATETIME} are supported.
+     * {@link FieldType#DATETIME} fields are represented as millisecond timestamps in UTC.
+     */
+    public static org.apache.arrow.vector.types.pojo.Schema toArrowSchema(Schema schema) {
+      List<org.apache.arrow.vector.types.pojo.Field> fields = new ArrayList<>();
+      for (Field field : schema.getFields()) {
+        fields.add(
+            new org.apache.arrow.vector.types.pojo.Field(
+                field.getName(),
+                new org.apache.arrow.vector.types.pojo.FieldType(
+                    field.getType().getNullable(), toArrowType(field.getType()), null),
+                null));
+      }
+      return new org.apache.arrow.vector.types.pojo.Schema(fields);
+    }
+
+    private static ArrowType toArrowType(FieldType fieldType) {
+      switch (fieldType.getTypeName()) {
+        case BYTE:
+          return new ArrowType.Int(8, true);
+        case INT16:
+          return new ArrowType.Int(16, true);
+        case INT32:
+          return new ArrowType.Int(32, true);
+        case INT64:
+          return new ArrowType.Int(64, true);
+        case FLOAT:
+          return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+        case DOUBLE:
+          return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+        case BOOLEAN:
+          return new ArrowType.Bool();
+        case STRING:
+          return new ArrowType.Utf8();
+        case BYTES:
+          return new ArrowType.Binary();
+        case DATETIME:
+          return new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC");
+        default:
+          throw new IllegalArgumentException(
+              "Type \'" + fieldType.getTypeName() + "\' not supported.");
+      }
+    }
+
     public static Schema toBeamSchema(org.apache.arrow.vector.types.pojo.Schema schema) {
       return toBeamSchema(schema.getFields());
     }
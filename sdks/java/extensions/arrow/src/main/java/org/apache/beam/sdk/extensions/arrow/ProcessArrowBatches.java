@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.arrow;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.beam.sdk.extensions.arrow.ArrowConversion.RecordBatchRowIterator;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Instant;
+
+/**
+ * A {@link PTransform} which applies a {@link BatchFn} to Arrow record batches built from the
+ * {@link Row}s of a schema'd {@link PCollection}.
+ *
+ * <p>Rows are buffered per window and pane within a bundle and converted into a {@link
+ * VectorSchemaRoot} once {@link #withMaxBatchSize the maximum batch size} is reached or the bundle
+ * finishes. The {@link BatchFn} can then operate on whole columns, for example with vectorized
+ * numeric loops, without materializing a {@link Row} for each element. The record batch it returns
+ * is converted back into {@link Row}s of the output schema.
+ *
+ * <p>The {@link BatchFn} must be element-wise: the returned record batch must contain exactly one
+ * row for each input row, in the same order. Each output {@link Row} is emitted with the timestamp,
+ * window and pane of the corresponding input {@link Row}.
+ *
+ * <p>A full batch is output while processing the element which filled it if no buffered {@link Row}
+ * has an earlier timestamp than that element, as is the case when all rows share a timestamp.
+ * Otherwise, and for the remaining rows, the batch is output when the bundle finishes. Rows output
+ * when the bundle finishes keep their timestamp and window but, since {@link DoFn.FinishBundle} can
+ * not specify a pane, are output with {@link PaneInfo#NO_FIRING}.
+ *
+ * <p>Only schemas supported by {@link ArrowConversion.ArrowSchemaTranslator#toArrowSchema} can be
+ * used for the input.
+ *
+ * <p>Example usage:
+ *
+ * <pre>{@code
+ * PCollection<Row> scaled =
+ *     rows.apply(
+ *         ProcessArrowBatches.of(
+ *             outputSchema,
+ *             (batch, allocator) -> {
+ *               Float8Vector values = (Float8Vector) batch.getVector("value");
+ *               for (int i = 0; i < batch.getRowCount(); i++) {
+ *                 values.set(i, values.get(i) * 2);
+ *               }
+ *               return batch;
+ *             }));
+ * }</pre>
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+public class ProcessArrowBatches extends PTransform<PCollection<Row>, PCollection<Row>> {
+
+  /** The default maximum number of rows within a record batch. */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+  /** A function which processes an Arrow record batch. */
+  @FunctionalInterface
+  public interface BatchFn extends Serializable {
+    /**
+     * Returns a record batch containing one row for each row of {@code batch}.
+     *
+     * <p>The returned record batch may be {@code batch} itself after modifying it in place, or a
+     * new record batch allocated from {@code allocator}. All record batches are closed once their
+     * rows have been output.
+     */
+    VectorSchemaRoot processBatch(VectorSchemaRoot batch, BufferAllocator allocator)
+        throws Exception;
+  }
+
+  private final Schema outputSchema;
+  private final BatchFn batchFn;
+  private final int maxBatchSize;
+
+  private ProcessArrowBatches(Schema outputSchema, BatchFn batchFn, int maxBatchSize) {
+    this.outputSchema = outputSchema;
+    this.batchFn = batchFn;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Returns a {@link ProcessArrowBatches} which applies {@code batchFn} to record batches of the
+   * input producing {@link Row}s with {@code outputSchema}.
+   */
+  public static ProcessArrowBatches of(Schema outputSchema, BatchFn batchFn) {
+    return new ProcessArrowBatches(outputSchema, batchFn, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /** Returns a new {@link ProcessArrowBatches} with the maximum number of rows per batch. */
+  public ProcessArrowBatches withMaxBatchSize(int maxBatchSize) {
+    checkArgument(maxBatchSize > 0, "Expected positive batch size but got %s", maxBatchSize);
+    return new ProcessArrowBatches(outputSchema, batchFn, maxBatchSize);
+  }
+
+  @Override
+  public PCollection<Row> expand(PCollection<Row> input) {
+    checkArgument(input.hasSchema(), "%s requires an input PCollection with a schema", getName());
+    // Fail at construction time rather than when processing if the schema can't be converted.
+    ArrowConversion.ArrowSchemaTranslator.toArrowSchema(input.getSchema());
+    return input
+        .apply(
+            ParDo.of(new ProcessBatchesFn(input.getSchema(), outputSchema, batchFn, maxBatchSize)))
+        .setRowSchema(outputSchema);
+  }
+
+  @Override
+  public void populateDisplayData(DisplayData.Builder builder) {
+    super.populateDisplayData(builder);
+    builder
+        .add(DisplayData.item("batchFn", batchFn.getClass()).withLabel("Batch Function"))
+        .add(DisplayData.item("maxBatchSize", maxBatchSize).withLabel("Maximum Batch Size"));
+  }
+
+  /** The window and pane shared by the rows of a batch. */
+  private static class BatchKey {
+    private final BoundedWindow window;
+    private final PaneInfo pane;
+
+    private BatchKey(BoundedWindow window, PaneInfo pane) {
+      this.window = window;
+      this.pane = pane;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BatchKey)) {
+        return false;
+      }
+      BatchKey that = (BatchKey) o;
+      return window.equals(that.window) && pane.equals(that.pane);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(window, pane);
+    }
+  }
+
+  /** The buffered rows of a batch along with their earliest timestamp. */
+  private static class Batch {
+    private final BatchKey key;
+    private final List<TimestampedValue<Row>> rows = new ArrayList<>();
+    private Instant minTimestamp = BoundedWindow.TIMESTAMP_MAX_VALUE;
+
+    private Batch(BatchKey key) {
+      this.key = key;
+    }
+
+    private void add(Row row, Instant timestamp) {
+      rows.add(TimestampedValue.of(row, timestamp));
+      if (timestamp.isBefore(minTimestamp)) {
+        minTimestamp = timestamp;
+      }
+    }
+  }
+
+  private static class ProcessBatchesFn extends DoFn<Row, Row> {
+    private final Schema inputSchema;
+    private final Schema outputSchema;
+    private final BatchFn batchFn;
+    private final int maxBatchSize;
+
+    private transient BufferAllocator allocator;
+    private transient Map<BatchKey, Batch> pending;
+    // Full batches which could not be output from the element which filled them.
+    private transient List<Batch> deferred;
+
+    private ProcessBatchesFn(
+        Schema inputSchema, Schema outputSchema, BatchFn batchFn, int maxBatchSize) {
+      this.inputSchema = inputSchema;
+      this.outputSchema = outputSchema;
+      this.batchFn = batchFn;
+      this.maxBatchSize = maxBatchSize;
+    }
+
+    @Setup
+    public void setup() {
+      allocator = new RootAllocator(Long.MAX_VALUE);
+    }
+
+    @StartBundle
+    public void startBundle() {
+      pending = new HashMap<>();
+      deferred = new ArrayList<>();
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element Row row,
+        @Timestamp Instant timestamp,
+        BoundedWindow window,
+        PaneInfo pane,
+        OutputReceiver<Row> r)
+        throws Exception {
+      BatchKey key = new BatchKey(window, pane);
+      Batch batch = pending.get(key);
+      if (batch == null) {
+        batch = new Batch(key);
+        pending.put(key, batch);
+      }
+      batch.add(row, timestamp);
+      if (batch.rows.size() >= maxBatchSize) {
+        pending.remove(key);
+        // The element's window and pane are those of the batch, outputting here only requires
+        // that no row is output with a timestamp before the element's.
+        if (!batch.minTimestamp.isBefore(timestamp)) {
+          processBatch(batch, r);
+        } else {
+          deferred.add(batch);
+        }
+      }
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext c) throws Exception {
+      for (Batch batch : deferred) {
+        processBatch(batch, new OutputReceiverForFinishBundle(c, batch.key.window));
+      }
+      for (Batch batch : pending.values()) {
+        processBatch(batch, new OutputReceiverForFinishBundle(c, batch.key.window));
+      }
+      deferred.clear();
+      pending.clear();
+    }
+
+    @Teardown
+    public void teardown() {
+      if (allocator != null) {
+        allocator.close();
+      }
+    }
+
+    private void processBatch(Batch batch, OutputReceiver<Row> r) throws Exception {
+      List<Row> rows = new ArrayList<>(batch.rows.size());
+      for (TimestampedValue<Row> row : batch.rows) {
+        rows.add(row.getValue());
+      }
+      VectorSchemaRoot input = ArrowConversion.recordBatchFromRows(inputSchema, rows, allocator);
+      VectorSchemaRoot output = null;
+      try {
+        output = batchFn.processBatch(input, allocator);
+        checkState(
+            output.getRowCount() == rows.size(),
+            "Expected the batch function to return %s rows but got %s",
+            rows.size(),
+            output.getRowCount());
+        RecordBatchRowIterator outputRows =
+            ArrowConversion.rowsFromRecordBatch(outputSchema, output);
+        for (TimestampedValue<Row> inputRow : batch.rows) {
+          // The rows returned by the iterator are only valid while the record batch is open.
+          Row outputRow =
+              Row.withSchema(outputSchema).addValues(outputRows.next().getValues()).build();
+          r.outputWithTimestamp(outputRow, inputRow.getTimestamp());
+        }
+      } finally {
+        if (output != null && output != input) {
+          output.close();
+        }
+        input.close();
+      }
+    }
+  }
+
+  // TODO(https://github.com/apache/beam/issues/18203): Remove this when FinishBundle has added
+  // support for an {@link OutputReceiver}
+  private static class OutputReceiverForFinishBundle implements DoFn.OutputReceiver<Row> {
+    private final DoFn<Row, Row>.FinishBundleContext c;
+    private final BoundedWindow w;
+
+    private OutputReceiverForFinishBundle(DoFn<Row, Row>.FinishBundleContext c, BoundedWindow w) {
+      this.c = c;
+      this.w = w;
+    }
+
+    @Override
+    public void output(Row output) {
+      throw new UnsupportedOperationException("Output requires a timestamp.");
+    }
+
+    @Override
+    public void outputWithTimestamp(Row output, Instant timestamp) {
+      c.output(output, timestamp, w);
+    }
+  }
+}
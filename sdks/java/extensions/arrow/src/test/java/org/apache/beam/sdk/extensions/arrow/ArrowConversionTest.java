@@ -20,6 +20,7 @@ package org.apache.beam.sdk.extensions.arrow;
 import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThrows;
 
 import java.util.ArrayList;
 import org.apache.arrow.memory.BufferAllocator;
@@ -158,6 +159,64 @@ public class ArrowConversionTest {
     expectedSchemaRoot.close();
   }
 
+  @Test
+  public void recordBatchFromRows_roundTripsRows() {
+    Schema beamSchema =
+        Schema.builder()
+            .addByteField("int8")
+            .addInt16Field("int16")
+            .addInt32Field("int32")
+            .addInt64Field("int64")
+            .addFloatField("float32")
+            .addDoubleField("float64")
+            .addBooleanField("boolean")
+            .addStringField("string")
+            .addByteArrayField("bytes")
+            .addDateTimeField("datetime")
+            .addNullableField("nullable_int32", FieldType.INT32)
+            .addNullableField("nullable_string", FieldType.STRING)
+            .build();
+
+    ArrayList<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      rows.add(
+          Row.withSchema(beamSchema)
+              .addValues(
+                  (byte) i,
+                  (short) i,
+                  i,
+                  (long) i << 32,
+                  i + .5f,
+                  i + .1 * i,
+                  (i % 2) != 0,
+                  "" + i,
+                  new byte[] {(byte) i, (byte) (i + 1)},
+                  new DateTime(2019, 1, 1, 0, 0, DateTimeZone.UTC).plusSeconds(i),
+                  (i % 3) == 0 ? null : i,
+                  (i % 3) == 1 ? null : "" + i)
+              .build());
+    }
+
+    try (VectorSchemaRoot vectorSchemaRoot =
+        ArrowConversion.recordBatchFromRows(beamSchema, rows, allocator)) {
+      assertThat(
+          ArrowConversion.ArrowSchemaTranslator.toBeamSchema(vectorSchemaRoot.getSchema()),
+          equalTo(beamSchema));
+      assertThat(vectorSchemaRoot.getRowCount(), equalTo(rows.size()));
+      assertThat(
+          ImmutableList.copyOf(ArrowConversion.rowsFromRecordBatch(beamSchema, vectorSchemaRoot)),
+          equalTo(rows));
+    }
+  }
+
+  @Test
+  public void toArrowSchema_unsupportedType() {
+    Schema beamSchema = Schema.builder().addDecimalField("decimal").build();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ArrowConversion.ArrowSchemaTranslator.toArrowSchema(beamSchema));
+  }
+
   private static org.apache.arrow.vector.types.pojo.Field field(
       String name,
       boolean nullable,
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.arrow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.util.TransferPair;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.testing.NeedsRunner;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.Flatten;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.Values;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ProcessArrowBatches}. */
+@RunWith(JUnit4.class)
+public class ProcessArrowBatchesTest {
+  private static final Schema INPUT_SCHEMA =
+      Schema.builder().addStringField("name").addInt64Field("value").build();
+  private static final Schema OUTPUT_SCHEMA =
+      Schema.builder().addStringField("name").addDoubleField("half").build();
+
+  @Rule public final transient TestPipeline p = TestPipeline.create();
+
+  /** Replaces the value column with a column containing half of each value. */
+  private static VectorSchemaRoot halve(VectorSchemaRoot batch, BufferAllocator allocator) {
+    BigIntVector values = (BigIntVector) batch.getVector("value");
+    Float8Vector half = new Float8Vector("half", allocator);
+    half.allocateNew(batch.getRowCount());
+    for (int i = 0; i < batch.getRowCount(); i++) {
+      half.set(i, values.get(i) / 2.0);
+    }
+    half.setValueCount(batch.getRowCount());
+    TransferPair names = batch.getVector("name").getTransferPair(allocator);
+    names.transfer();
+    return new VectorSchemaRoot(Arrays.asList((FieldVector) names.getTo(), half));
+  }
+
+  private static List<Row> inputRows(int count) {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(Row.withSchema(INPUT_SCHEMA).addValues("" + i, (long) i).build());
+    }
+    return rows;
+  }
+
+  private static List<Row> expectedRows(int count) {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(Row.withSchema(OUTPUT_SCHEMA).addValues("" + i, i / 2.0).build());
+    }
+    return rows;
+  }
+
+  @Test
+  @Category(NeedsRunner.class)
+  public void testProcessBatches() {
+    PCollection<Row> output =
+        p.apply(Create.of(inputRows(1000)).withRowSchema(INPUT_SCHEMA))
+            .apply(
+                ProcessArrowBatches.of(OUTPUT_SCHEMA, ProcessArrowBatchesTest::halve)
+                    .withMaxBatchSize(64));
+    PAssert.that(output).containsInAnyOrder(expectedRows(1000));
+    p.run();
+  }
+
+  @Test
+  @Category(NeedsRunner.class)
+  public void testModifyBatchInPlace() {
+    PCollection<Row> output =
+        p.apply(Create.of(inputRows(100)).withRowSchema(INPUT_SCHEMA))
+            .apply(
+                ProcessArrowBatches.of(
+                    INPUT_SCHEMA,
+                    (batch, allocator) -> {
+                      BigIntVector values = (BigIntVector) batch.getVector("value");
+                      for (int i = 0; i < batch.getRowCount(); i++) {
+                        values.set(i, values.get(i) + 1);
+                      }
+                      return batch;
+                    }));
+    List<Row> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      expected.add(Row.withSchema(INPUT_SCHEMA).addValues("" + i, i + 1L).build());
+    }
+    PAssert.that(output).containsInAnyOrder(expected);
+    p.run();
+  }
+
+  @Test
+  @Category(NeedsRunner.class)
+  public void testPreservesTimestampsAndWindows() {
+    List<TimestampedValue<Row>> input = new ArrayList<>();
+    List<Row> expected = expectedRows(20);
+    for (int i = 0; i < 20; i++) {
+      input.add(TimestampedValue.of(inputRows(20).get(i), new Instant(i * 1000L)));
+    }
+    PCollection<Row> output =
+        p.apply(Create.timestamped(input).withCoder(RowCoder.of(INPUT_SCHEMA)))
+            .apply(Window.into(FixedWindows.of(Duration.standardSeconds(10))))
+            .apply(ProcessArrowBatches.of(OUTPUT_SCHEMA, ProcessArrowBatchesTest::halve));
+    PAssert.that(output)
+        .inWindow(new IntervalWindow(new Instant(0), new Instant(10_000)))
+        .containsInAnyOrder(expected.subList(0, 10));
+    PAssert.that(output)
+        .inWindow(new IntervalWindow(new Instant(10_000), new Instant(20_000)))
+        .containsInAnyOrder(expected.subList(10, 20));
+    p.run();
+  }
+
+  @Test
+  @Category(NeedsRunner.class)
+  public void testPreservesPanes() {
+    List<TimestampedValue<KV<String, Row>>> input = new ArrayList<>();
+    for (Row row : inputRows(8)) {
+      input.add(TimestampedValue.of(KV.of("key", row), new Instant(0)));
+    }
+    // All rows are output with the end of the window as their timestamp in the on time pane.
+    PCollection<Row> grouped =
+        p.apply(
+                Create.timestamped(input)
+                    .withCoder(KvCoder.of(StringUtf8Coder.of(), RowCoder.of(INPUT_SCHEMA))))
+            .apply(Window.into(FixedWindows.of(Duration.standardSeconds(10))))
+            .apply(GroupByKey.create())
+            .apply(Values.create())
+            .apply(Flatten.iterables())
+            .setRowSchema(INPUT_SCHEMA);
+    PCollection<Row> output =
+        grouped.apply(
+            ProcessArrowBatches.of(OUTPUT_SCHEMA, ProcessArrowBatchesTest::halve)
+                .withMaxBatchSize(4));
+    PAssert.that(output)
+        .inOnTimePane(new IntervalWindow(new Instant(0), new Instant(10_000)))
+        .containsInAnyOrder(expectedRows(8));
+    p.run();
+  }
+}
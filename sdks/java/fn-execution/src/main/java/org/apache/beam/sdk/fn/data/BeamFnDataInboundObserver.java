@@ -17,7 +17,6 @@
  */
 package org.apache.beam.sdk.fn.data;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -151,12 +150,9 @@ public class BeamFnDataInboundObserver implements CloseableFnDataReceiver<BeamFn
                 "Received data after inbound data receiver is done for instruction %s and transform %s.",
                 data.getInstructionId(), data.getTransformId()));
       }
-      InputStream inputStream = data.getData().newInput();
       Coder<Object> coder = (Coder<Object>) endpoint.endpoint.getCoder();
       FnDataReceiver<Object> receiver = (FnDataReceiver<Object>) endpoint.endpoint.getReceiver();
-      while (inputStream.available() > 0) {
-        receiver.accept(coder.decode(inputStream));
-      }
+      DecodingFnDataReceiver.decodeAll(coder, data.getData(), receiver);
       if (data.getIsLast()) {
         endpoint.isDone = true;
         numEndpointsThatAreIncomplete -= 1;
@@ -185,12 +181,9 @@ public class BeamFnDataInboundObserver implements CloseableFnDataReceiver<BeamFn
                 "Received timer after inbound timer receiver is done for instruction %s, transform %s, and timer family %s.",
                 timers.getInstructionId(), timers.getTransformId(), timers.getTimerFamilyId()));
       }
-      InputStream inputStream = timers.getTimers().newInput();
       Coder<Object> coder = (Coder<Object>) endpoint.endpoint.getCoder();
       FnDataReceiver<Object> receiver = (FnDataReceiver<Object>) endpoint.endpoint.getReceiver();
-      while (inputStream.available() > 0) {
-        receiver.accept(coder.decode(inputStream));
-      }
+      DecodingFnDataReceiver.decodeAll(coder, timers.getTimers(), receiver);
       if (timers.getIsLast()) {
         endpoint.isDone = true;
         numEndpointsThatAreIncomplete -= 1;
@@ -28,6 +28,8 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -35,7 +37,6 @@ import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
-import org.apache.beam.sdk.util.ByteStringOutputStream;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.stub.StreamObserver;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
@@ -52,15 +53,30 @@ import org.slf4j.LoggerFactory;
  *
  * <p>The default time-based buffer threshold can be overridden by specifying the experiment {@code
  * data_buffer_time_limit_ms=<milliseconds>}
+ *
+ * <p>Specifying the experiment {@code data_buffer_latency_target_ms=<milliseconds>} makes the
+ * size-based threshold adaptive. The rate at which bytes are output is measured whenever the buffer
+ * is flushed and the threshold is lowered, down to {@link #MIN_ADAPTIVE_BUFFER_LIMIT_BYTES}, such
+ * that buffered bytes are flushed within approximately the target latency. The size-based threshold
+ * remains the upper bound. Buffered bytes are additionally flushed at least once per target
+ * latency, as if {@code data_buffer_time_limit_ms} were set to it.
+ *
+ * <p>While the supplied memory pressure signal is raised, buffered bytes are flushed once they
+ * exceed {@link #MIN_ADAPTIVE_BUFFER_LIMIT_BYTES} regardless of the size-based threshold.
+ *
+ * <p>Elements are encoded into chunks which are wrapped without copying when building {@link
+ * Elements}, see {@link SlicingByteStringOutputStream}.
  */
 @SuppressWarnings({
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
 })
-// The calling thread that invokes sendBufferedDataAndFinishOutboundStreams synchronizes on
+// The calling thread that invokes sendBufferedDataAndFinishOutboundStreams acquires
 // flushLock effectively making the periodic flushing no longer read or mutate hasFlushedForBundle
 // and allowing the calling thread to read and mutate hasFlushedForBundle safely without needing to
-// create another memory barrier. Also note that flush is always invoked when synchronizing on
-// flushLock when there is a periodic flushing thread.
+// create another memory barrier. Also note that flush is always invoked while holding flushLock
+// when there is a periodic flushing thread. flushLock is a ReentrantLock rather than a monitor so
+// that virtual threads blocked on the outbound observer while flushing do not pin their carrier
+// thread.
 @NotThreadSafe
 public class BeamFnDataOutboundAggregator {
 
@@ -68,18 +84,33 @@ public class BeamFnDataOutboundAggregator {
   public static final int DEFAULT_BUFFER_LIMIT_BYTES = 1_000_000;
   public static final String DATA_BUFFER_TIME_LIMIT_MS = "data_buffer_time_limit_ms=";
   public static final long DEFAULT_BUFFER_LIMIT_TIME_MS = -1L;
+  public static final String DATA_BUFFER_LATENCY_TARGET_MS = "data_buffer_latency_target_ms=";
+  public static final long DEFAULT_BUFFER_LATENCY_TARGET_MS = -1L;
+
+  /**
+   * The lowest size-based threshold used when adapting to {@code data_buffer_latency_target_ms}.
+   */
+  public static final int MIN_ADAPTIVE_BUFFER_LIMIT_BYTES = 16 * 1024;
+
+  // The weight given to the most recent output rate sample.
+  private static final double OUTPUT_RATE_SMOOTHING = 0.25;
 
   private static final Logger LOG = LoggerFactory.getLogger(BeamFnDataOutboundAggregator.class);
   private final int sizeLimit;
   private final long timeLimit;
+  private final long latencyTargetNanos;
+  private int adaptiveSizeLimit;
+  private double outputBytesPerNano;
+  private long lastFlushNanos;
   private final Supplier<String> processBundleRequestIdSupplier;
   @VisibleForTesting final Map<String, Receiver<?>> outputDataReceivers;
   @VisibleForTesting final Map<TimerEndpoint, Receiver<?>> outputTimersReceivers;
   private final StreamObserver<Elements> outboundObserver;
   @Nullable @VisibleForTesting ScheduledFuture<?> flushFuture;
   private long bytesWrittenSinceFlush;
-  private final Object flushLock;
+  private final ReentrantLock flushLock;
   private final boolean collectElementsIfNoFlushes;
+  private final BooleanSupplier isUnderMemoryPressure;
   private boolean hasFlushedForBundle;
 
   public BeamFnDataOutboundAggregator(
@@ -87,19 +118,43 @@ public class BeamFnDataOutboundAggregator {
       Supplier<String> processBundleRequestIdSupplier,
       StreamObserver<Elements> outboundObserver,
       boolean collectElementsIfNoFlushes) {
+    this(
+        options,
+        processBundleRequestIdSupplier,
+        outboundObserver,
+        collectElementsIfNoFlushes,
+        () -> false);
+  }
+
+  public BeamFnDataOutboundAggregator(
+      PipelineOptions options,
+      Supplier<String> processBundleRequestIdSupplier,
+      StreamObserver<Elements> outboundObserver,
+      boolean collectElementsIfNoFlushes,
+      BooleanSupplier isUnderMemoryPressure) {
     this.sizeLimit = getSizeLimit(options);
-    this.timeLimit = getTimeLimit(options);
+    long latencyTarget = getLatencyTarget(options);
+    // Buffered bytes are also flushed periodically at the latency target so that they are sent
+    // within it even when output is too slow to ever cross the adaptive size-based threshold.
+    this.timeLimit = minPositive(getTimeLimit(options), latencyTarget);
+    this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTarget);
+    this.adaptiveSizeLimit = sizeLimit;
+    this.lastFlushNanos = System.nanoTime();
     this.collectElementsIfNoFlushes = collectElementsIfNoFlushes;
+    this.isUnderMemoryPressure = isUnderMemoryPressure;
     this.outputDataReceivers = new HashMap<>();
     this.outputTimersReceivers = new HashMap<>();
     this.outboundObserver = outboundObserver;
     this.processBundleRequestIdSupplier = processBundleRequestIdSupplier;
     this.bytesWrittenSinceFlush = 0L;
-    this.flushLock = new Object();
+    this.flushLock = new ReentrantLock();
     this.hasFlushedForBundle = false;
   }
 
-  /** Starts the flushing daemon thread if data_buffer_time_limit_ms is set. */
+  /**
+   * Starts the flushing daemon thread if data_buffer_time_limit_ms or data_buffer_latency_target_ms
+   * is set.
+   */
   public void start() {
     if (timeLimit > 0 && this.flushFuture == null) {
       this.flushFuture =
@@ -126,8 +181,11 @@ public class BeamFnDataOutboundAggregator {
       outputDataReceivers.put(pTransformId, receiver);
       return data -> {
         checkFlushThreadException();
-        synchronized (flushLock) {
+        flushLock.lock();
+        try {
           receiver.accept(data);
+        } finally {
+          flushLock.unlock();
         }
       };
     }
@@ -151,8 +209,11 @@ public class BeamFnDataOutboundAggregator {
       outputTimersReceivers.put(timerKey, receiver);
       return timers -> {
         checkFlushThreadException();
-        synchronized (flushLock) {
+        flushLock.lock();
+        try {
           receiver.accept(timers);
+        } finally {
+          flushLock.unlock();
         }
       };
     }
@@ -164,6 +225,9 @@ public class BeamFnDataOutboundAggregator {
     if (bytesWrittenSinceFlush == 0) {
       return;
     }
+    if (latencyTargetNanos > 0) {
+      updateAdaptiveSizeLimit();
+    }
     Elements.Builder elements = convertBufferForTransmission();
     if (elements.getDataCount() > 0 || elements.getTimersCount() > 0) {
       outboundObserver.onNext(elements.build());
@@ -183,8 +247,11 @@ public class BeamFnDataOutboundAggregator {
     }
     Elements.Builder bufferedElements;
     if (timeLimit > 0) {
-      synchronized (flushLock) {
+      flushLock.lock();
+      try {
         bufferedElements = convertBufferForTransmission();
+      } finally {
+        flushLock.unlock();
       }
     } else {
       bufferedElements = convertBufferForTransmission();
@@ -213,6 +280,9 @@ public class BeamFnDataOutboundAggregator {
           .setIsLast(true);
       entry.getValue().resetStats();
     }
+    // Don't measure the output rate across bundle boundaries since the time in between bundles
+    // isn't spent producing output.
+    lastFlushNanos = System.nanoTime();
     if (collectElementsIfNoFlushes && !hasFlushedForBundle) {
       return bufferedElements.build();
     }
@@ -263,10 +333,41 @@ public class BeamFnDataOutboundAggregator {
     return bufferedElements;
   }
 
+  /**
+   * Updates the size-based threshold such that the bytes buffered at the observed output rate are
+   * flushed within the latency target.
+   */
+  private void updateAdaptiveSizeLimit() {
+    long now = System.nanoTime();
+    long elapsedNanos = now - lastFlushNanos;
+    lastFlushNanos = now;
+    if (elapsedNanos <= 0) {
+      return;
+    }
+    double sample = (double) bytesWrittenSinceFlush / elapsedNanos;
+    outputBytesPerNano =
+        outputBytesPerNano == 0
+            ? sample
+            : outputBytesPerNano + OUTPUT_RATE_SMOOTHING * (sample - outputBytesPerNano);
+    adaptiveSizeLimit =
+        (int)
+            Math.max(
+                Math.min(MIN_ADAPTIVE_BUFFER_LIMIT_BYTES, sizeLimit),
+                Math.min(sizeLimit, outputBytesPerNano * latencyTargetNanos));
+  }
+
+  @VisibleForTesting
+  int getAdaptiveSizeLimit() {
+    return adaptiveSizeLimit;
+  }
+
   void flush() {
     try {
-      synchronized (flushLock) {
+      flushLock.lock();
+      try {
         flushInternal();
+      } finally {
+        flushLock.unlock();
       }
     } catch (Throwable t) {
       throw new RuntimeException(t);
@@ -310,6 +411,23 @@ public class BeamFnDataOutboundAggregator {
     return DEFAULT_BUFFER_LIMIT_BYTES;
   }
 
+  private static long getLatencyTarget(PipelineOptions options) {
+    List<String> experiments = options.as(ExperimentalOptions.class).getExperiments();
+    for (String experiment : experiments == null ? Collections.<String>emptyList() : experiments) {
+      if (experiment.startsWith(DATA_BUFFER_LATENCY_TARGET_MS)) {
+        return Long.parseLong(experiment.substring(DATA_BUFFER_LATENCY_TARGET_MS.length()));
+      }
+    }
+    return DEFAULT_BUFFER_LATENCY_TARGET_MS;
+  }
+
+  private static long minPositive(long a, long b) {
+    if (a <= 0) {
+      return b;
+    }
+    return b <= 0 ? a : Math.min(a, b);
+  }
+
   private static long getTimeLimit(PipelineOptions options) {
     List<String> experiments = options.as(ExperimentalOptions.class).getExperiments();
     for (String experiment : experiments == null ? Collections.<String>emptyList() : experiments) {
@@ -322,14 +440,16 @@ public class BeamFnDataOutboundAggregator {
 
   @VisibleForTesting
   class Receiver<T> implements FnDataReceiver<T> {
-    private final ByteStringOutputStream output;
+    private final SlicingByteStringOutputStream output;
     private final Coder<T> coder;
+    private final boolean supportsBufferCoding;
     private long perBundleByteCount;
     private long perBundleElementCount;
 
     public Receiver(Coder<T> coder) {
-      this.output = new ByteStringOutputStream();
+      this.output = new SlicingByteStringOutputStream();
       this.coder = coder;
+      this.supportsBufferCoding = coder.supportsBufferCoding();
       this.perBundleByteCount = 0L;
       this.perBundleElementCount = 0L;
     }
@@ -337,7 +457,11 @@ public class BeamFnDataOutboundAggregator {
     @Override
     public void accept(T input) throws Exception {
       int size = output.size();
-      coder.encode(input, output);
+      if (supportsBufferCoding) {
+        output.encode(coder, input);
+      } else {
+        coder.encode(input, output);
+      }
       if (output.size() - size == 0) {
         output.write(0);
       }
@@ -345,7 +469,9 @@ public class BeamFnDataOutboundAggregator {
       bytesWrittenSinceFlush += delta;
       perBundleByteCount += delta;
       perBundleElementCount += 1;
-      if (bytesWrittenSinceFlush > sizeLimit) {
+      if (bytesWrittenSinceFlush > adaptiveSizeLimit
+          || (bytesWrittenSinceFlush > MIN_ADAPTIVE_BUFFER_LIMIT_BYTES
+              && isUnderMemoryPressure.getAsBoolean())) {
         flushInternal();
       }
     }
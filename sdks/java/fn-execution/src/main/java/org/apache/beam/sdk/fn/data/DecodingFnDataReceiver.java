@@ -18,7 +18,11 @@
 package org.apache.beam.sdk.fn.data;
 
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 
 /** A receiver of encoded data, decoding it and passing it onto a downstream consumer. */
@@ -38,6 +42,32 @@ public class DecodingFnDataReceiver<T> implements FnDataReceiver<ByteString> {
 
   @Override
   public void accept(ByteString input) throws Exception {
+    decodeAll(coder, input, consumer);
+  }
+
+  /**
+   * Decodes every value within {@code input} passing each one to the {@code consumer}. Values are
+   * decoded directly from the underlying buffer if the {@link Coder} supports buffer coding and the
+   * {@link ByteString} is backed by a single buffer.
+   */
+  static <T> void decodeAll(Coder<T> coder, ByteString input, FnDataReceiver<T> consumer)
+      throws Exception {
+    if (coder.supportsBufferCoding()) {
+      List<ByteBuffer> buffers = input.asReadOnlyByteBufferList();
+      if (buffers.size() == 1) {
+        ByteBuffer buffer = buffers.get(0);
+        while (buffer.hasRemaining()) {
+          T value;
+          try {
+            value = coder.decodeFromBuffer(buffer);
+          } catch (BufferUnderflowException e) {
+            throw new CoderException("Unexpected end of input while decoding", e);
+          }
+          consumer.accept(value);
+        }
+        return;
+      }
+    }
     InputStream inputStream = input.newInput();
     while (inputStream.available() > 0) {
       consumer.accept(coder.decode(inputStream));
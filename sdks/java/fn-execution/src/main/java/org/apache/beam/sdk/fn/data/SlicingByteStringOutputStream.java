@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.UnsafeByteOperations;
+
+/**
+ * An {@link OutputStream} which produces {@link ByteString}s that wrap slices of the chunks which
+ * were written to without copying them.
+ *
+ * <p>Unlike {@link org.apache.beam.sdk.util.ByteStringOutputStream}, {@link #toByteStringAndReset}
+ * neither copies the partially filled chunk nor allocates a replacement for it. Instead the bytes
+ * written since the previous call are wrapped and subsequent writes continue within the remainder
+ * of the same chunk. A chunk is only replaced once it is full, growing geometrically up to {@link
+ * #MAX_CHUNK_SIZE}.
+ *
+ * <p>Slices smaller than {@code 1/}{@link #COPY_SLICE_FRACTION} of their chunk are copied instead
+ * of wrapped, so that a small retained {@link ByteString} does not keep a much larger chunk alive.
+ *
+ * <p>Bytes which have been returned are never written to again so the returned {@link ByteString}s
+ * remain immutable. Chunks are not recycled since the returned {@link ByteString}s may be retained
+ * by outbound observers which buffer messages or by in-process transports.
+ */
+@NotThreadSafe
+final class SlicingByteStringOutputStream extends OutputStream {
+  private static final int MIN_CHUNK_SIZE = 1024;
+  static final int MAX_CHUNK_SIZE = 256 * 1024;
+  // Slices smaller than chunk.length / COPY_SLICE_FRACTION are copied rather than wrapped.
+  static final int COPY_SLICE_FRACTION = 8;
+
+  // Slices of full chunks which were written to since the last reset.
+  private ByteString result;
+
+  // The chunk being written to, bytes before sliceStart have already been returned.
+  private byte[] chunk;
+  private int sliceStart;
+  private int chunkPos;
+
+  // Wraps chunk, used to encode values directly into the chunk.
+  private ByteBuffer chunkBuffer;
+
+  // The encoded size of the last value which overflowed the current chunk, values are encoded using
+  // the stream based encoding while less space than this remains.
+  private int overflowSizeHint;
+
+  private final ByteSizeObserver sizeObserver = new ByteSizeObserver();
+
+  SlicingByteStringOutputStream() {
+    this.result = ByteString.EMPTY;
+    this.chunk = new byte[MIN_CHUNK_SIZE];
+  }
+
+  @Override
+  public void write(int b) {
+    if (chunkPos == chunk.length) {
+      nextChunk();
+    }
+    chunk[chunkPos++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int offset, int length) {
+    int remainingSpaceInChunk = chunk.length - chunkPos;
+    while (length > remainingSpaceInChunk) {
+      System.arraycopy(b, offset, chunk, chunkPos, remainingSpaceInChunk);
+      chunkPos += remainingSpaceInChunk;
+      offset += remainingSpaceInChunk;
+      length -= remainingSpaceInChunk;
+      nextChunk();
+      remainingSpaceInChunk = chunk.length;
+    }
+    System.arraycopy(b, offset, chunk, chunkPos, length);
+    chunkPos += length;
+  }
+
+  /**
+   * Encodes the value using {@link Coder#encodeToBuffer} directly into the remaining space of the
+   * current chunk. Falls back to encoding using this output stream, which may span chunks, if the
+   * value does not fit.
+   *
+   * <p>The buffer based encoding is skipped when the value is not expected to fit, either because
+   * its encoded size is cheap to compute or because less space remains than was needed by the last
+   * value which did not fit. This avoids repeatedly encoding large values twice.
+   */
+  <T> void encode(Coder<T> coder, T value) throws IOException {
+    int remaining = chunk.length - chunkPos;
+    if (remaining < overflowSizeHint) {
+      coder.encode(value, this);
+      return;
+    }
+    try {
+      if (coder.isRegisterByteSizeObserverCheap(value)) {
+        sizeObserver.observedSize = 0;
+        coder.registerByteSizeObserver(value, sizeObserver);
+        sizeObserver.advance();
+        if (sizeObserver.observedSize > remaining) {
+          coder.encode(value, this);
+          return;
+        }
+      }
+    } catch (Exception e) {
+      // Fall through and let the encoding attempt below surface any error.
+    }
+    if (chunkBuffer == null || chunkBuffer.array() != chunk) {
+      chunkBuffer = ByteBuffer.wrap(chunk);
+    }
+    chunkBuffer.clear();
+    chunkBuffer.position(chunkPos);
+    try {
+      coder.encodeToBuffer(value, chunkBuffer);
+      chunkPos = chunkBuffer.position();
+    } catch (BufferOverflowException e) {
+      // Only the space after chunkPos was written to which has never been returned.
+      int size = size();
+      coder.encode(value, this);
+      overflowSizeHint = size() - size;
+    }
+  }
+
+  /** Basic implementation of {@link ElementByteSizeObserver} for use in size estimation. */
+  private static class ByteSizeObserver extends ElementByteSizeObserver {
+    private long observedSize = 0;
+
+    @Override
+    protected void reportElementSize(long elementSize) {
+      observedSize += elementSize;
+    }
+  }
+
+  private void nextChunk() {
+    result = result.concat(currentSlice());
+    chunk = new byte[Math.min(chunk.length * 2, MAX_CHUNK_SIZE)];
+    sliceStart = 0;
+    chunkPos = 0;
+  }
+
+  private ByteString currentSlice() {
+    if (chunkPos == sliceStart) {
+      return ByteString.EMPTY;
+    }
+    int length = chunkPos - sliceStart;
+    if (length < chunk.length / COPY_SLICE_FRACTION) {
+      return ByteString.copyFrom(chunk, sliceStart, length);
+    }
+    return UnsafeByteOperations.unsafeWrap(chunk, sliceStart, length);
+  }
+
+  /**
+   * Returns the bytes written since the last reset and resets the output stream. The returned
+   * {@link ByteString} shares the underlying chunks with this output stream unless the bytes only
+   * make up a small part of a chunk.
+   */
+  public ByteString toByteStringAndReset() {
+    ByteString rval = result.concat(currentSlice());
+    result = ByteString.EMPTY;
+    sliceStart = chunkPos;
+    return rval;
+  }
+
+  /** Returns the number of bytes written since the last reset. */
+  public int size() {
+    return result.size() + chunkPos - sliceStart;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "<SlicingByteStringOutputStream@%s size=%d>",
+        Integer.toHexString(System.identityHashCode(this)), size());
+  }
+}
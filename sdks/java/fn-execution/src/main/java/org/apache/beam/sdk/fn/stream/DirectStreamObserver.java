@@ -20,6 +20,8 @@ package org.apache.beam.sdk.fn.stream;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.stub.CallStreamObserver;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.stub.StreamObserver;
@@ -52,7 +54,11 @@ public final class DirectStreamObserver<T> implements StreamObserver<T> {
    */
   private final int maxMessagesBeforeCheck;
 
-  private final Object lock = new Object();
+  // A ReentrantLock rather than a monitor so that virtual threads waiting for the outbound observer
+  // to become ready do not pin their carrier thread.
+  private final ReentrantLock lock = new ReentrantLock();
+
+  @GuardedBy("lock")
   private int numMessages = -1;
 
   public DirectStreamObserver(Phaser phaser, CallStreamObserver<T> outboundObserver) {
@@ -68,7 +74,8 @@ public final class DirectStreamObserver<T> implements StreamObserver<T> {
 
   @Override
   public void onNext(T value) {
-    synchronized (lock) {
+    lock.lock();
+    try {
       if (++numMessages >= maxMessagesBeforeCheck) {
         numMessages = 0;
         int waitSeconds = 1;
@@ -110,20 +117,28 @@ public final class DirectStreamObserver<T> implements StreamObserver<T> {
         }
       }
       outboundObserver.onNext(value);
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public void onError(Throwable t) {
-    synchronized (lock) {
+    lock.lock();
+    try {
       outboundObserver.onError(t);
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public void onCompleted() {
-    synchronized (lock) {
+    lock.lock();
+    try {
       outboundObserver.onCompleted();
+    } finally {
+      lock.unlock();
     }
   }
 }
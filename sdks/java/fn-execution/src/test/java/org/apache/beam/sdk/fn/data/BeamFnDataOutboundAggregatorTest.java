@@ -23,12 +23,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
@@ -206,6 +209,157 @@ public class BeamFnDataOutboundAggregatorTest {
     assertEquals(messageWithData(new byte[1]), values.get(0));
   }
 
+  @Test
+  public void testConfiguredLatencyTargetFlushesPeriodically() throws Exception {
+    List<Elements> values = new ArrayList<>();
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(Arrays.asList("data_buffer_latency_target_ms=1"));
+    final CountDownLatch waitForFlush = new CountDownLatch(1);
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            options,
+            endpoint::getInstructionId,
+            TestStreams.withOnNext(
+                    (Consumer<Elements>)
+                        e -> {
+                          values.add(e);
+                          waitForFlush.countDown();
+                        })
+                .build(),
+            false);
+
+    // Test that it emits well below the size-based threshold once the latency target passed.
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+    dataReceiver.accept(new byte[1]);
+    waitForFlush.await();
+    assertEquals(messageWithData(new byte[1]), values.get(0));
+    aggregator.discard();
+  }
+
+  @Test
+  public void testConfiguredLatencyTargetLowersBufferLimit() throws Exception {
+    List<Elements> values = new ArrayList<>();
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(Arrays.asList("data_buffer_latency_target_ms=1"));
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            options,
+            endpoint::getInstructionId,
+            TestStreams.<Elements>withOnNext(values::add).build(),
+            false);
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+    assertEquals(
+        BeamFnDataOutboundAggregator.DEFAULT_BUFFER_LIMIT_BYTES, aggregator.getAdaptiveSizeLimit());
+
+    // Producing the default buffer size over at least 100ms is at most 10kb per millisecond which
+    // is below the minimum adaptive limit.
+    Thread.sleep(100);
+    dataReceiver.accept(new byte[BeamFnDataOutboundAggregator.DEFAULT_BUFFER_LIMIT_BYTES]);
+    assertEquals(1, values.size());
+    assertEquals(
+        BeamFnDataOutboundAggregator.MIN_ADAPTIVE_BUFFER_LIMIT_BYTES,
+        aggregator.getAdaptiveSizeLimit());
+
+    // Test that we now emit once the lowered limit is crossed.
+    dataReceiver.accept(new byte[BeamFnDataOutboundAggregator.MIN_ADAPTIVE_BUFFER_LIMIT_BYTES]);
+    assertEquals(2, values.size());
+    assertEquals(
+        messageWithData(new byte[BeamFnDataOutboundAggregator.MIN_ADAPTIVE_BUFFER_LIMIT_BYTES]),
+        values.get(1));
+  }
+
+  @Test
+  public void testMemoryPressureLowersBufferLimit() throws Exception {
+    List<BeamFnApi.Elements> values = new ArrayList<>();
+    AtomicBoolean underMemoryPressure = new AtomicBoolean();
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            PipelineOptionsFactory.create(),
+            endpoint::getInstructionId,
+            TestStreams.<Elements>withOnNext(values::add).build(),
+            false,
+            underMemoryPressure::get);
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+    dataReceiver.accept(new byte[BeamFnDataOutboundAggregator.MIN_ADAPTIVE_BUFFER_LIMIT_BYTES]);
+    assertThat(values, empty());
+
+    // Buffered data is flushed once it exceeds the minimum limit while under memory pressure.
+    underMemoryPressure.set(true);
+    dataReceiver.accept(new byte[1]);
+    assertEquals(1, values.size());
+    dataReceiver.accept(new byte[1]);
+    assertEquals(1, values.size());
+
+    // The configured limit applies again once memory pressure subsides.
+    underMemoryPressure.set(false);
+    dataReceiver.accept(new byte[BeamFnDataOutboundAggregator.MIN_ADAPTIVE_BUFFER_LIMIT_BYTES]);
+    assertEquals(1, values.size());
+  }
+
+  /**
+   * A virtual thread which blocks while holding a monitor pins its carrier thread, so the lock
+   * shared with the periodic flushing thread must not be a monitor.
+   */
+  @Test
+  public void testFlushBlockedOnOutboundObserverHoldsNoMonitors() throws Exception {
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options
+        .as(ExperimentalOptions.class)
+        .setExperiments(Arrays.asList("data_buffer_time_limit_ms=3600000"));
+    CountDownLatch unblockOnNext = new CountDownLatch(1);
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            options,
+            endpoint::getInstructionId,
+            TestStreams.withOnNext(
+                    (Consumer<Elements>)
+                        e -> {
+                          try {
+                            unblockOnNext.await();
+                          } catch (InterruptedException ie) {
+                            throw new RuntimeException(ie);
+                          }
+                        })
+                .build(),
+            false);
+    FnDataReceiver<byte[]> dataReceiver = registerOutputLocation(aggregator, endpoint, CODER);
+    aggregator.start();
+
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    Thread producer =
+        new Thread(
+            () -> {
+              try {
+                dataReceiver.accept(
+                    new byte[BeamFnDataOutboundAggregator.DEFAULT_BUFFER_LIMIT_BYTES]);
+              } catch (Exception e) {
+                failure.set(e);
+              }
+            });
+    producer.start();
+    while (producer.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+
+    ThreadInfo info =
+        ManagementFactory.getThreadMXBean()
+            .getThreadInfo(new long[] {producer.getId()}, true, true)[0];
+    assertEquals(0, info.getLockedMonitors().length);
+    assertEquals(1, info.getLockedSynchronizers().length);
+
+    unblockOnNext.countDown();
+    producer.join();
+    assertEquals(null, failure.get());
+    aggregator.discard();
+  }
+
   @Test
   public void testConfiguredTimeLimitExceptionPropagation() throws Exception {
     PipelineOptions options = PipelineOptionsFactory.create();
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteOutput;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.UnsafeByteOperations;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Strings;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SlicingByteStringOutputStream}. */
+@RunWith(JUnit4.class)
+public class SlicingByteStringOutputStreamTest {
+
+  @Test
+  public void testWritesAcrossChunksAndResets() throws Exception {
+    Random random = new Random(1234);
+    SlicingByteStringOutputStream output = new SlicingByteStringOutputStream();
+    for (int i = 0; i < 100; ++i) {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      int writes = random.nextInt(20);
+      for (int j = 0; j < writes; ++j) {
+        if (random.nextBoolean()) {
+          int b = random.nextInt(256);
+          output.write(b);
+          expected.write(b);
+        } else {
+          byte[] bytes =
+              new byte[random.nextInt(4 * SlicingByteStringOutputStream.MAX_CHUNK_SIZE / 10)];
+          random.nextBytes(bytes);
+          output.write(bytes, 0, bytes.length);
+          expected.write(bytes, 0, bytes.length);
+        }
+      }
+      assertEquals(expected.size(), output.size());
+      assertEquals(ByteString.copyFrom(expected.toByteArray()), output.toByteStringAndReset());
+      assertEquals(0, output.size());
+    }
+  }
+
+  @Test
+  public void testReturnedByteStringsAreNotModifiedBySubsequentWrites() throws Exception {
+    SlicingByteStringOutputStream output = new SlicingByteStringOutputStream();
+    output.write(new byte[] {1, 2, 3}, 0, 3);
+    ByteString first = output.toByteStringAndReset();
+    output.write(new byte[] {4, 5}, 0, 2);
+    ByteString second = output.toByteStringAndReset();
+    output.write(new byte[2 * SlicingByteStringOutputStream.MAX_CHUNK_SIZE], 0, 100);
+
+    assertEquals(ByteString.copyFrom(new byte[] {1, 2, 3}), first);
+    assertEquals(ByteString.copyFrom(new byte[] {4, 5}), second);
+    assertEquals(ByteString.EMPTY, new SlicingByteStringOutputStream().toByteStringAndReset());
+  }
+
+  @Test
+  public void testCopiesSmallSlicesAndWrapsLargeSlices() throws Exception {
+    SlicingByteStringOutputStream output = new SlicingByteStringOutputStream();
+    // Exactly fill the growing chunks of 1KiB to 128KiB and the first chunk of the largest size so
+    // that subsequent writes start a new chunk of the largest size.
+    int fill = 2 * SlicingByteStringOutputStream.MAX_CHUNK_SIZE - 1024;
+    output.write(new byte[fill], 0, fill);
+    output.toByteStringAndReset();
+
+    output.write(new byte[] {1, 2, 3}, 0, 3);
+    assertEquals(3, backingArrayLength(output.toByteStringAndReset()));
+
+    int large = SlicingByteStringOutputStream.MAX_CHUNK_SIZE / 2;
+    output.write(new byte[large], 0, large);
+    assertEquals(
+        SlicingByteStringOutputStream.MAX_CHUNK_SIZE,
+        backingArrayLength(output.toByteStringAndReset()));
+  }
+
+  /** Returns the length of the array backing the single segment of the given {@link ByteString}. */
+  private static int backingArrayLength(ByteString bytes) throws Exception {
+    int[] length = new int[] {-1};
+    UnsafeByteOperations.unsafeWriteTo(
+        bytes,
+        new ByteOutput() {
+          @Override
+          public void write(byte value) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public void write(byte[] value, int offset, int len) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public void writeLazy(byte[] value, int offset, int len) {
+            assertEquals(-1, length[0]);
+            length[0] = value.length;
+          }
+
+          @Override
+          public void write(ByteBuffer value) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public void writeLazy(ByteBuffer value) {
+            throw new UnsupportedOperationException();
+          }
+        });
+    return length[0];
+  }
+
+  @Test
+  public void testEncodesValuesDirectlyIntoChunks() throws Exception {
+    Random random = new Random(1234);
+    Coder<KV<String, Long>> coder = KvCoder.of(StringUtf8Coder.of(), VarLongCoder.of());
+    SlicingByteStringOutputStream output = new SlicingByteStringOutputStream();
+    for (int i = 0; i < 20; ++i) {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      List<KV<String, Long>> values = new ArrayList<>();
+      int writes = random.nextInt(100);
+      for (int j = 0; j < writes; ++j) {
+        // Some values are larger than the remaining space within the current chunk.
+        KV<String, Long> value =
+            KV.of(Strings.repeat("a", random.nextInt(2000)), random.nextLong());
+        values.add(value);
+        output.encode(coder, value);
+        coder.encode(value, expected);
+      }
+      ByteString encoded = output.toByteStringAndReset();
+      assertEquals(ByteString.copyFrom(expected.toByteArray()), encoded);
+
+      List<KV<String, Long>> decoded = new ArrayList<>();
+      DecodingFnDataReceiver.decodeAll(coder, encoded, decoded::add);
+      assertEquals(values, decoded);
+    }
+  }
+}
@@ -23,6 +23,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -32,6 +34,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.beam.sdk.fn.test.TestExecutors;
 import org.apache.beam.sdk.fn.test.TestExecutors.TestExecutorService;
 import org.apache.beam.sdk.fn.test.TestStreams;
@@ -129,6 +132,46 @@ public class DirectStreamObserverTest {
     streamObserver.onCompleted();
   }
 
+  /**
+   * A virtual thread which blocks while holding a monitor pins its carrier thread, so the lock
+   * serializing writers must not be a monitor.
+   */
+  @Test
+  public void testWaitingForReadinessHoldsNoMonitors() throws Exception {
+    AdvancingPhaser phaser = new AdvancingPhaser(1);
+    final AtomicBoolean elementsAllowed = new AtomicBoolean();
+    final DirectStreamObserver<String> streamObserver =
+        new DirectStreamObserver<>(
+            phaser,
+            TestStreams.withOnNext((String t) -> assertTrue(elementsAllowed.get()))
+                .withIsReady(elementsAllowed::get)
+                .build(),
+            0);
+
+    AtomicReference<Thread> writer = new AtomicReference<>();
+    Future<?> result =
+        executor.submit(
+            () -> {
+              writer.set(Thread.currentThread());
+              streamObserver.onNext("0");
+            });
+    while (writer.get() == null
+        || (writer.get().getState() != Thread.State.WAITING
+            && writer.get().getState() != Thread.State.TIMED_WAITING)) {
+      Thread.sleep(1);
+    }
+
+    ThreadInfo info =
+        ManagementFactory.getThreadMXBean()
+            .getThreadInfo(new long[] {writer.get().getId()}, true, true)[0];
+    assertEquals(0, info.getLockedMonitors().length);
+
+    elementsAllowed.set(true);
+    phaser.arrive();
+    result.get();
+    streamObserver.onCompleted();
+  }
+
   /**
    * This test specifically covers the case if the outbound observer is being invoked on the same
    * thread that the inbound observer is. gRPC documentation states:
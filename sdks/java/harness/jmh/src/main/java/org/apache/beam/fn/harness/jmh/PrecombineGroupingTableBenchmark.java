@@ -26,10 +26,12 @@ import org.apache.beam.fn.harness.Caches;
 import org.apache.beam.fn.harness.Caches.ClearableCache;
 import org.apache.beam.fn.harness.PrecombineGroupingTable;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.util.WindowedValue;
 import org.apache.beam.sdk.values.KV;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -41,6 +43,12 @@ import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.infra.Blackhole;
 
+/**
+ * Benchmarks for {@link PrecombineGroupingTable}.
+ *
+ * <p>Run with {@code -prof gc} to compare the allocation rate of grouping on structural keys
+ * against grouping on encoded keys (see {@link PrecombineGroupingTable#BINARY_KEYS_EXPERIMENT}).
+ */
 public class PrecombineGroupingTableBenchmark {
   private static final int TOTAL_VALUES = 1_000_000;
   private static final int KEY_SPACE = 1_000;
@@ -60,8 +68,15 @@ public class PrecombineGroupingTableBenchmark {
     @Param({"uniform", "normal", "hotKey", "uniqueKeys"})
     public String distribution;
 
+    @Param({"false", "true"})
+    public String binaryKeys;
+
     @Setup(Level.Trial)
     public void setUp() {
+      if (Boolean.valueOf(binaryKeys)) {
+        ExperimentalOptions.addExperiment(
+            options.as(ExperimentalOptions.class), PrecombineGroupingTable.BINARY_KEYS_EXPERIMENT);
+      }
       this.elements = generateTestData(distribution);
     }
   }
@@ -118,6 +133,7 @@ public class PrecombineGroupingTableBenchmark {
             cache,
             table.sumInts,
             StringUtf8Coder.of(),
+            GlobalWindow.Coder.INSTANCE,
             .001,
             Boolean.valueOf(table.globallyWindowed));
     for (int i = 0, size = table.elements.size(); i < size; ++i) {
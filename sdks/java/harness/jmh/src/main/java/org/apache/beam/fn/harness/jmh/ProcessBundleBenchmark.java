@@ -38,6 +38,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.beam.fn.harness.Caches;
 import org.apache.beam.fn.harness.FnHarness;
+import org.apache.beam.fn.harness.state.BeamFnStateGrpcClientCache;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.LogEntry;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.ProcessBundleRequest.CacheToken;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
@@ -78,6 +79,7 @@ import org.apache.beam.sdk.fn.server.GrpcContextHeaderAccessorProvider;
 import org.apache.beam.sdk.fn.server.GrpcFnServer;
 import org.apache.beam.sdk.fn.server.ServerFactory;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.state.BagState;
@@ -95,8 +97,10 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Strings;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Threads;
@@ -106,24 +110,32 @@ public class ProcessBundleBenchmark {
 
   private static final String WORKER_ID = "benchmark_worker";
 
-  /** Sets up the {@link ExecutionStateTracker} and an execution state. */
+  /**
+   * Sets up the {@link ExecutionStateTracker} and an execution state.
+   *
+   * <p>The harness is started by {@link #startHarness} instead of the constructor since JMH only
+   * injects {@link Param} values after the state has been constructed.
+   */
   @State(Scope.Benchmark)
   public static class SdkHarness {
     @Param({"true", "false"})
     public String elementsEmbedding = "false";
 
-    final GrpcFnServer<FnApiControlClientPoolService> controlServer;
-    final GrpcFnServer<GrpcDataService> dataServer;
-    final GrpcFnServer<GrpcStateService> stateServer;
-    final GrpcFnServer<GrpcLoggingService> loggingServer;
-    final GrpcStateService stateDelegator;
-    final SdkHarnessClient controlClient;
+    @Param({"false", "true"})
+    public String stateRequestCoalescing = "false";
 
-    final ExecutorService serverExecutor;
-    final ExecutorService sdkHarnessExecutor;
-    final Future<?> sdkHarnessExecutorFuture;
+    GrpcFnServer<FnApiControlClientPoolService> controlServer;
+    GrpcFnServer<GrpcDataService> dataServer;
+    GrpcFnServer<GrpcStateService> stateServer;
+    GrpcFnServer<GrpcLoggingService> loggingServer;
+    GrpcStateService stateDelegator;
+    SdkHarnessClient controlClient;
 
-    public SdkHarness() {
+    ExecutorService serverExecutor;
+    ExecutorService sdkHarnessExecutor;
+    Future<?> sdkHarnessExecutorFuture;
+
+    void startHarness() {
       Set<String> runnerCapabilities = new HashSet<>();
       if (Boolean.parseBoolean(elementsEmbedding)) {
         runnerCapabilities.add(
@@ -155,7 +167,7 @@ public class ProcessBundleBenchmark {
                       }
                     }),
                 serverFactory);
-        stateDelegator = GrpcStateService.create();
+        stateDelegator = GrpcStateService.create(Boolean.parseBoolean(stateRequestCoalescing));
         stateServer = GrpcFnServer.allocatePortAndCreateFor(stateDelegator, serverFactory);
 
         ControlClientPool clientPool = MapControlClientPool.create();
@@ -166,6 +178,11 @@ public class ProcessBundleBenchmark {
                 serverFactory);
 
         PipelineOptions pipelineOptions = PipelineOptionsFactory.create();
+        if (Boolean.parseBoolean(stateRequestCoalescing)) {
+          ExperimentalOptions.addExperiment(
+              pipelineOptions.as(ExperimentalOptions.class),
+              BeamFnStateGrpcClientCache.STATE_REQUEST_COALESCING_EXPERIMENT);
+        }
         // Create the SDK harness, and wait until it connects
         sdkHarnessExecutor = Executors.newSingleThreadExecutor(threadFactory);
         sdkHarnessExecutorFuture =
@@ -217,8 +234,8 @@ public class ProcessBundleBenchmark {
 
   @State(Scope.Benchmark)
   public static class TrivialTransform extends SdkHarness {
-    final BundleProcessor processor;
-    final ExecutableProcessBundleDescriptor descriptor;
+    BundleProcessor processor;
+    ExecutableProcessBundleDescriptor descriptor;
 
     private static class OutputZeroOneTwo extends DoFn<byte[], String> {
       @ProcessElement
@@ -236,7 +253,9 @@ public class ProcessBundleBenchmark {
       }
     }
 
-    public TrivialTransform() {
+    @Setup(Level.Trial)
+    public void setUp() {
+      startHarness();
       try {
         Pipeline p = Pipeline.create();
         p.apply("impulse", Impulse.create())
@@ -322,10 +341,10 @@ public class ProcessBundleBenchmark {
 
   @State(Scope.Benchmark)
   public static class StatefulTransform extends SdkHarness {
-    final BundleProcessor processor;
-    final ExecutableProcessBundleDescriptor descriptor;
-    final StateRequestHandler nonCachingStateRequestHandler;
-    final StateRequestHandler cachingStateRequestHandler;
+    BundleProcessor processor;
+    ExecutableProcessBundleDescriptor descriptor;
+    StateRequestHandler nonCachingStateRequestHandler;
+    StateRequestHandler cachingStateRequestHandler;
 
     @SuppressWarnings({
       // TODO(https://github.com/apache/beam/issues/21230): Remove when new version of
@@ -360,7 +379,9 @@ public class ProcessBundleBenchmark {
       }
     }
 
-    public StatefulTransform() {
+    @Setup(Level.Trial)
+    public void setUp() {
+      startHarness();
       try {
         Pipeline p = Pipeline.create();
         p.apply("impulse", Impulse.create())
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness.jmh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.fn.harness.Caches;
+import org.apache.beam.fn.harness.state.BeamFnStateClient;
+import org.apache.beam.fn.harness.state.StateFetchingIterators;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateGetResponse;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for iterating over a multi-chunk state stream with {@link StateFetchingIterators}
+ * where every state request incurs a simulated round trip latency that varies between zero and
+ * twice {@code latencyMicros} and the consumer performs a fixed amount of work per value.
+ *
+ * <p>Compare {@code maxReadAheadPages=1}, which only ever requests the chunk following the one
+ * being consumed, against larger read-ahead windows which buffer several received chunks ahead of
+ * the consumer and so absorb the variation in latency. Since a chunk can only be requested once the
+ * preceding one has been received, reading ahead only helps if the time spent consuming a chunk is
+ * comparable to the latency, which the default parameters approximate.
+ */
+public class StateFetchingIteratorsBenchmark {
+  private static final int CHUNKS = 64;
+  private static final int VALUES_PER_CHUNK = 1_000;
+
+  @State(Scope.Benchmark)
+  public static class DelayedStateClient implements BeamFnStateClient {
+    @Param({"1", "8"})
+    public int maxReadAheadPages;
+
+    @Param({"1000"})
+    public int latencyMicros;
+
+    @Param({"300"})
+    public int workPerValue;
+
+    private final List<StateResponse> responses = new ArrayList<>();
+    private ScheduledExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      executor = Executors.newScheduledThreadPool(4);
+      responses.clear();
+      for (int i = 0; i < CHUNKS; ++i) {
+        ByteString.Output output = ByteString.newOutput();
+        for (int j = 0; j < VALUES_PER_CHUNK; ++j) {
+          VarLongCoder.of().encode((long) i * VALUES_PER_CHUNK + j, output);
+        }
+        responses.add(
+            StateResponse.newBuilder()
+                .setGet(
+                    StateGetResponse.newBuilder()
+                        .setData(output.toByteString())
+                        .setContinuationToken(
+                            i + 1 == CHUNKS
+                                ? ByteString.EMPTY
+                                : ByteString.copyFromUtf8(Integer.toString(i + 1))))
+                .build());
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      executor.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<StateResponse> handle(StateRequest.Builder requestBuilder) {
+      ByteString continuationToken = requestBuilder.getGet().getContinuationToken();
+      int chunk =
+          continuationToken.isEmpty() ? 0 : Integer.parseInt(continuationToken.toStringUtf8());
+      CompletableFuture<StateResponse> response = new CompletableFuture<>();
+      executor.schedule(
+          () -> response.complete(responses.get(chunk)),
+          ThreadLocalRandom.current().nextInt(2 * latencyMicros + 1),
+          TimeUnit.MICROSECONDS);
+      return response;
+    }
+  }
+
+  @Benchmark
+  public long iterateAllChunks(DelayedStateClient client) {
+    Iterable<Long> values =
+        StateFetchingIterators.readAllAndDecodeStartingFrom(
+            Caches.noop(),
+            client,
+            StateRequest.getDefaultInstance(),
+            VarLongCoder.of(),
+            client.maxReadAheadPages,
+            Long.MAX_VALUE);
+    long sum = 0;
+    for (long value : values) {
+      Blackhole.consumeCPU(client.workPerValue);
+      sum += value;
+    }
+    return sum;
+  }
+}
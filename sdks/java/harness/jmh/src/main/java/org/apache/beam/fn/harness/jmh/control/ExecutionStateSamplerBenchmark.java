@@ -17,19 +17,25 @@
  */
 package org.apache.beam.fn.harness.jmh.control;
 
+import static org.apache.beam.runners.core.metrics.ExecutionStateTracker.PROCESS_STATE_NAME;
+
 import java.io.Closeable;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.beam.runners.core.metrics.ExecutionStateSampler;
 import org.apache.beam.runners.core.metrics.ExecutionStateTracker;
+import org.apache.beam.runners.core.metrics.MetricsContainerImpl;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Labels;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants.Urns;
 import org.apache.beam.runners.core.metrics.SimpleExecutionState;
+import org.apache.beam.sdk.metrics.MetricsEnvironment;
+import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -104,9 +110,10 @@ public class ExecutionStateSamplerBenchmark {
     @Setup
     public void setup(HarnessStateSampler sharedState) {
       tracker = sharedState.sampler.create();
-      state1 = tracker.create("1", PTRANSFORM, PTRANSFORM + "Name", "1");
-      state2 = tracker.create("2", PTRANSFORM, PTRANSFORM + "Name", "2");
-      state3 = tracker.create("3", PTRANSFORM, PTRANSFORM + "Name", "3");
+      // Uses process states so that process element latencies are recorded when enabled.
+      state1 = tracker.create("1", PTRANSFORM + "1", PTRANSFORM + "Name1", PROCESS_STATE_NAME);
+      state2 = tracker.create("2", PTRANSFORM + "2", PTRANSFORM + "Name2", PROCESS_STATE_NAME);
+      state3 = tracker.create("3", PTRANSFORM + "3", PTRANSFORM + "Name3", PROCESS_STATE_NAME);
     }
 
     @TearDown
@@ -120,13 +127,31 @@ public class ExecutionStateSamplerBenchmark {
 
   @State(Scope.Benchmark)
   public static class HarnessStateSampler {
-    public final org.apache.beam.fn.harness.control.ExecutionStateSampler sampler =
-        new org.apache.beam.fn.harness.control.ExecutionStateSampler(
-            PipelineOptionsFactory.create(), System::currentTimeMillis);
+    @Param({"false", "true"})
+    public boolean recordProcessElementLatencies;
+
+    public org.apache.beam.fn.harness.control.ExecutionStateSampler sampler;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      MetricsEnvironment.setProcessWideContainer(MetricsContainerImpl.createProcessWideContainer());
+      PipelineOptions options =
+          recordProcessElementLatencies
+              ? PipelineOptionsFactory.fromArgs(
+                      "--experiments="
+                          + org.apache.beam.fn.harness.control.ExecutionStateSampler
+                              .PROCESS_ELEMENT_LATENCIES_EXPERIMENT)
+                  .create()
+              : PipelineOptionsFactory.create();
+      sampler =
+          new org.apache.beam.fn.harness.control.ExecutionStateSampler(
+              options, System::currentTimeMillis);
+    }
 
     @TearDown(Level.Trial)
     public void tearDown() {
       sampler.stop();
+      MetricsEnvironment.setProcessWideContainer(null);
     }
   }
 
@@ -19,20 +19,26 @@ package org.apache.beam.fn.harness.jmh.control;
 
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.beam.fn.harness.control.Metrics;
 import org.apache.beam.fn.harness.control.Metrics.BundleCounter;
 import org.apache.beam.runners.core.metrics.CounterCell;
+import org.apache.beam.runners.core.metrics.DistributionCell;
+import org.apache.beam.runners.core.metrics.MetricsContainerImpl;
 import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
 import org.apache.beam.sdk.metrics.MetricName;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
 
 /** Benchmarks for updating metrics objects during processing. */
 public class MetricsBenchmark {
@@ -64,12 +70,75 @@ public class MetricsBenchmark {
     }
   }
 
+  @State(Scope.Benchmark)
+  public static class DistributionCellState {
+    public DistributionCell distributionCell = new DistributionCell(TEST_NAME);
+
+    @TearDown(Level.Trial)
+    public void check() {
+      checkState(distributionCell.getCumulative().count() > 0);
+      distributionCell.reset();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class MetricsContainerState {
+    private static final int NUM_METRICS = 100;
+
+    public MetricsContainerImpl container = new MetricsContainerImpl(TEST_ID);
+    public List<CounterCell> counters = new ArrayList<>();
+    public List<DistributionCell> distributions = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+      for (int i = 0; i < NUM_METRICS; ++i) {
+        counters.add(container.getCounter(MetricName.named("testNamespace", "counter" + i)));
+        distributions.add(
+            container.getDistribution(MetricName.named("testNamespace", "distribution" + i)));
+      }
+    }
+  }
+
   @Benchmark
   @Threads(1)
   public void testCounterCellMutation(CounterCellState counterState) throws Exception {
     counterState.counterCell.inc();
   }
 
+  @Benchmark
+  @Threads(16)
+  public void testCounterCellMutationMultipleThreads(CounterCellState counterState)
+      throws Exception {
+    counterState.counterCell.inc();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void testDistributionCellMutation(DistributionCellState distributionState)
+      throws Exception {
+    distributionState.distributionCell.update(42L);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void testDistributionCellMutationMultipleThreads(DistributionCellState distributionState)
+      throws Exception {
+    distributionState.distributionCell.update(42L);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void testMetricsContainerGetMonitoringInfos(
+      MetricsContainerState containerState, Blackhole bh) throws Exception {
+    // Dirties every metric so that each one is extracted.
+    for (int i = 0; i < containerState.counters.size(); ++i) {
+      containerState.counters.get(i).inc();
+      containerState.distributions.get(i).update(i);
+    }
+    bh.consume(containerState.container.getMonitoringInfos());
+    containerState.container.commitUpdates();
+  }
+
   @Benchmark
   @Threads(1)
   public void testCounterCellReset(CounterCellState counterState) throws Exception {
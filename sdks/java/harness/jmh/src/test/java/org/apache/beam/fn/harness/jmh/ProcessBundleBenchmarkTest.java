@@ -40,6 +40,7 @@ public class ProcessBundleBenchmarkTest {
   public void testTinyBundle() throws Exception {
     TrivialTransform transform = new TrivialTransform();
     transform.elementsEmbedding = elementsEmbedding;
+    transform.setUp();
     new ProcessBundleBenchmark().testTinyBundle(transform);
     transform.tearDown();
   }
@@ -48,6 +49,7 @@ public class ProcessBundleBenchmarkTest {
   public void testLargeBundle() throws Exception {
     TrivialTransform transform = new TrivialTransform();
     transform.elementsEmbedding = elementsEmbedding;
+    transform.setUp();
     new ProcessBundleBenchmark().testLargeBundle(transform);
     transform.tearDown();
   }
@@ -56,6 +58,7 @@ public class ProcessBundleBenchmarkTest {
   public void testStateWithoutCaching() throws Exception {
     StatefulTransform transform = new StatefulTransform();
     transform.elementsEmbedding = elementsEmbedding;
+    transform.setUp();
     new ProcessBundleBenchmark().testStateWithoutCaching(transform);
     transform.tearDown();
   }
@@ -64,6 +67,7 @@ public class ProcessBundleBenchmarkTest {
   public void testStateWithCaching() throws Exception {
     StatefulTransform transform = new StatefulTransform();
     transform.elementsEmbedding = elementsEmbedding;
+    transform.setUp();
     new ProcessBundleBenchmark().testStateWithCaching(transform);
     transform.tearDown();
   }
@@ -65,6 +65,7 @@ public class ExecutionStateSamplerBenchmarkTest {
   public void testTinyBundleHarnessStateSampler() throws Exception {
     HarnessStateSampler state = new HarnessStateSampler();
     HarnessStateTracker threadState = new HarnessStateTracker();
+    state.setup();
     threadState.setup(state);
     new ExecutionStateSamplerBenchmark().testTinyBundleHarnessStateSampler(threadState, blackhole);
     state.tearDown();
@@ -75,6 +76,20 @@ public class ExecutionStateSamplerBenchmarkTest {
   public void testLargeBundleHarnessStateSampler() throws Exception {
     HarnessStateSampler state = new HarnessStateSampler();
     HarnessStateTracker threadState = new HarnessStateTracker();
+    state.setup();
+    threadState.setup(state);
+    new ExecutionStateSamplerBenchmark().testLargeBundleHarnessStateSampler(threadState, blackhole);
+    state.tearDown();
+    threadState.tearDown();
+  }
+
+  @Test
+  public void testLargeBundleHarnessStateSamplerRecordingProcessElementLatencies()
+      throws Exception {
+    HarnessStateSampler state = new HarnessStateSampler();
+    state.recordProcessElementLatencies = true;
+    HarnessStateTracker threadState = new HarnessStateTracker();
+    state.setup();
     threadState.setup(state);
     new ExecutionStateSamplerBenchmark().testLargeBundleHarnessStateSampler(threadState, blackhole);
     state.tearDown();
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.beam.sdk.util.Weighted;
+
+/**
+ * An open-addressing hash table keyed by encoded byte sequences.
+ *
+ * <p>Keys are copied into a single byte slab and referenced by offset and length so that looking up
+ * an existing key does not allocate. Collisions are resolved using linear probing and removals use
+ * backward shift deletion so no tombstones are required.
+ *
+ * <p>Each slot carries a reference bit which is set on lookup and cleared by the clock hand used by
+ * {@link #evict()}, giving an approximation of LRU without maintaining a linked list.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://github.com/apache/beam/issues/20497)
+})
+@NotThreadSafe
+final class BinaryKeyTable<V> implements Weighted {
+  private static final int MIN_CAPACITY = 16;
+  private static final int MIN_SLAB_SIZE = 1024;
+
+  /** Approximate number of bytes used per slot across all the parallel arrays. */
+  static final long BYTES_PER_SLOT = 4 + 4 + 4 + 1 + Caches.REFERENCE_SIZE;
+
+  private int mask;
+  private int[] hashes;
+  private int[] keyOffsets;
+  private int[] keyLengths;
+  private boolean[] referenced;
+  private @Nullable Object[] values;
+  private int size;
+  private int clockHand;
+
+  private byte[] slab;
+  private int slabUsed;
+  private int slabGarbage;
+
+  BinaryKeyTable() {
+    this(MIN_CAPACITY);
+  }
+
+  BinaryKeyTable(int initialCapacity) {
+    checkArgument(initialCapacity > 0, "Expected positive capacity but got %s", initialCapacity);
+    allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(initialCapacity - 1) << 1));
+    this.slab = new byte[MIN_SLAB_SIZE];
+  }
+
+  private void allocate(int capacity) {
+    this.mask = capacity - 1;
+    this.hashes = new int[capacity];
+    this.keyOffsets = new int[capacity];
+    this.keyLengths = new int[capacity];
+    this.referenced = new boolean[capacity];
+    this.values = new Object[capacity];
+    this.clockHand = 0;
+  }
+
+  /** Returns a well mixed hash of the provided byte range. */
+  static int hash(byte[] buf, int offset, int length) {
+    int h = length;
+    for (int i = offset, end = offset + length; i < end; ++i) {
+      h = 31 * h + buf[i];
+    }
+    // Murmur3 finalization mix so that linear probing sees well distributed low order bits.
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /** Returns the number of keys stored in this table. */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the value associated with the key contained within {@code buf[offset, offset + length)}
+   * or {@code null} if there is none. Marks the entry as recently used.
+   */
+  @Nullable
+  V get(byte[] buf, int offset, int length, int hash) {
+    int slot = hash & mask;
+    while (values[slot] != null) {
+      if (hashes[slot] == hash && keyEquals(slot, buf, offset, length)) {
+        referenced[slot] = true;
+        return (V) values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Associates the value with a copy of the key contained within {@code buf[offset, offset +
+   * length)}. The key must not already be present within the table.
+   */
+  void putAbsent(byte[] buf, int offset, int length, int hash, V value) {
+    checkArgument(value != null, "Null values are not supported.");
+    if ((size + 1) * 4L > (mask + 1) * 3L) {
+      resize((mask + 1) << 1);
+    }
+    int keyOffset = appendToSlab(buf, offset, length);
+    int slot = hash & mask;
+    while (values[slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+    hashes[slot] = hash;
+    keyOffsets[slot] = keyOffset;
+    keyLengths[slot] = length;
+    referenced[slot] = true;
+    values[slot] = value;
+    size += 1;
+  }
+
+  /**
+   * Removes and returns a value using the clock algorithm. Entries which have been accessed since
+   * the clock hand last passed them are given a second chance.
+   */
+  V evict() {
+    checkState(size > 0, "Unable to evict from an empty table.");
+    while (true) {
+      int slot = clockHand;
+      if (values[slot] != null) {
+        if (!referenced[slot]) {
+          V value = (V) values[slot];
+          // Backward shift deletion may move a later entry into this slot so the clock hand stays
+          // where it is.
+          removeAt(slot);
+          return value;
+        }
+        referenced[slot] = false;
+      }
+      clockHand = (slot + 1) & mask;
+    }
+  }
+
+  /** Invokes the consumer for every value within the table. */
+  void forEachValue(Consumer<V> consumer) {
+    for (int i = 0; i <= mask; ++i) {
+      if (values[i] != null) {
+        consumer.accept((V) values[i]);
+      }
+    }
+  }
+
+  /** Removes all entries retaining the currently allocated storage. */
+  void clear() {
+    Arrays.fill(values, null);
+    Arrays.fill(referenced, false);
+    size = 0;
+    slabUsed = 0;
+    slabGarbage = 0;
+    clockHand = 0;
+  }
+
+  /** Returns the number of bytes retained by the table excluding the values. */
+  @Override
+  public long getWeight() {
+    return (mask + 1) * BYTES_PER_SLOT + slab.length;
+  }
+
+  private boolean keyEquals(int slot, byte[] buf, int offset, int length) {
+    if (keyLengths[slot] != length) {
+      return false;
+    }
+    int keyOffset = keyOffsets[slot];
+    for (int i = 0; i < length; ++i) {
+      if (slab[keyOffset + i] != buf[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void removeAt(int slot) {
+    slabGarbage += keyLengths[slot];
+    size -= 1;
+    int hole = slot;
+    int current = slot;
+    while (true) {
+      current = (current + 1) & mask;
+      if (values[current] == null) {
+        break;
+      }
+      int home = hashes[current] & mask;
+      // Entries whose home slot lies cyclically within (hole, current] must stay where they are.
+      boolean stays =
+          hole <= current ? hole < home && home <= current : hole < home || home <= current;
+      if (stays) {
+        continue;
+      }
+      hashes[hole] = hashes[current];
+      keyOffsets[hole] = keyOffsets[current];
+      keyLengths[hole] = keyLengths[current];
+      referenced[hole] = referenced[current];
+      values[hole] = values[current];
+      hole = current;
+    }
+    values[hole] = null;
+    referenced[hole] = false;
+  }
+
+  private int appendToSlab(byte[] buf, int offset, int length) {
+    if (slabUsed + length > slab.length) {
+      if (slabGarbage > 0 && slabGarbage >= slabUsed / 2) {
+        compactSlab(Math.max(slab.length, (slabUsed - slabGarbage + length) * 2));
+      }
+      if (slabUsed + length > slab.length) {
+        slab = Arrays.copyOf(slab, Math.max(slab.length * 2, slabUsed + length));
+      }
+    }
+    System.arraycopy(buf, offset, slab, slabUsed, length);
+    int keyOffset = slabUsed;
+    slabUsed += length;
+    return keyOffset;
+  }
+
+  /** Copies all live keys into a new slab dropping the bytes of removed keys. */
+  private void compactSlab(int newSlabSize) {
+    byte[] newSlab = new byte[Math.max(MIN_SLAB_SIZE, newSlabSize)];
+    int used = 0;
+    for (int i = 0; i <= mask; ++i) {
+      if (values[i] != null) {
+        System.arraycopy(slab, keyOffsets[i], newSlab, used, keyLengths[i]);
+        keyOffsets[i] = used;
+        used += keyLengths[i];
+      }
+    }
+    slab = newSlab;
+    slabUsed = used;
+    slabGarbage = 0;
+  }
+
+  private void resize(int newCapacity) {
+    int[] oldHashes = hashes;
+    int[] oldKeyOffsets = keyOffsets;
+    int[] oldKeyLengths = keyLengths;
+    boolean[] oldReferenced = referenced;
+    Object[] oldValues = values;
+    allocate(newCapacity);
+    for (int i = 0; i < oldValues.length; ++i) {
+      if (oldValues[i] != null) {
+        int slot = oldHashes[i] & mask;
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        hashes[slot] = oldHashes[i];
+        keyOffsets[slot] = oldKeyOffsets[i];
+        keyLengths[slot] = oldKeyLengths[i];
+        referenced[slot] = oldReferenced[i];
+        values[slot] = oldValues[i];
+      }
+    }
+    if (slabGarbage > 0) {
+      compactSlab(slab.length);
+    }
+  }
+}
@@ -17,17 +17,22 @@
  */
 package org.apache.beam.fn.harness;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import org.apache.beam.fn.harness.Cache.Shrinkable;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.SdkHarnessOptions;
+import org.apache.beam.sdk.options.SdkHarnessOptions.CacheAdmissionPolicy;
 import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.sdk.util.WeightedValue;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
@@ -71,6 +76,20 @@ public final class Caches {
   /** The size of a reference. */
   public static final long REFERENCE_SIZE = 8;
 
+  /**
+   * The maximum number and weight of the entries used to temporarily reserve weight when shrinking
+   * the cache, see {@link #shrinkForMemoryPressure}.
+   */
+  private static final long MAX_BALLAST_ENTRIES = 16;
+
+  private static final long MAX_BALLAST_ENTRY_WEIGHT_IN_BYTES =
+      (long) Integer.MAX_VALUE << WEIGHT_RATIO;
+
+  private static final Object BALLAST = new Object();
+
+  /** The name used to describe the statistics of entries stored directly in the root cache. */
+  @VisibleForTesting static final String ROOT_PREFIX_NAME = "<root>";
+
   /** Returns the amount of memory in bytes the provided object consumes. */
   public static long weigh(Object o) {
     if (o == null) {
@@ -113,11 +132,15 @@ public final class Caches {
             CompositeKey, WeightedValue<Object>>
         cache;
     private final LongAdder weightInBytes;
+    private final ConcurrentMap<Object, PrefixStats> statsByPrefix;
 
     ShrinkOnEviction(
-        CacheBuilder<CompositeKey, WeightedValue<Object>> cacheBuilder, LongAdder weightInBytes) {
+        CacheBuilder<CompositeKey, WeightedValue<Object>> cacheBuilder,
+        LongAdder weightInBytes,
+        ConcurrentMap<Object, PrefixStats> statsByPrefix) {
       this.cache = cacheBuilder.removalListener(this).build();
       this.weightInBytes = weightInBytes;
+      this.statsByPrefix = statsByPrefix;
     }
 
     public org.apache.beam.vendor.guava.v26_0_jre.com.google.common.cache.Cache<
@@ -132,6 +155,10 @@ public final class Caches {
       weightInBytes.add(
           -(removalNotification.getKey().getWeight() + removalNotification.getValue().getWeight()));
       if (removalNotification.wasEvicted()) {
+        PrefixStats stats = statsByPrefix.get(removalNotification.getKey().rootPrefix());
+        if (stats != null) {
+          stats.evictions.increment();
+        }
         if (!(removalNotification.getValue().getValue() instanceof Cache.Shrinkable)) {
           return;
         }
@@ -160,8 +187,23 @@ public final class Caches {
    * parameters within {@link SdkHarnessOptions}.
    */
   public static <K, V> Cache<K, V> fromOptions(PipelineOptions options) {
+    SdkHarnessOptions sdkHarnessOptions = options.as(SdkHarnessOptions.class);
+    long maximumBytes = ((long) sdkHarnessOptions.getMaxCacheMemoryUsageMb()) << 20;
     return forMaximumBytes(
-        ((long) options.as(SdkHarnessOptions.class).getMaxCacheMemoryUsageMb()) << 20);
+        maximumBytes, admissionPolicy(sdkHarnessOptions.getCacheAdmissionPolicy(), maximumBytes));
+  }
+
+  @VisibleForTesting
+  static AdmissionPolicy admissionPolicy(CacheAdmissionPolicy policy, long maximumBytes) {
+    switch (policy) {
+      case ALWAYS:
+        return ALWAYS_ADMIT;
+      case FREQUENCY:
+        return new FrequencyAdmissionPolicy(maximumBytes);
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unknown cache admission policy %s.", policy));
+    }
   }
 
   /**
@@ -177,7 +219,9 @@ public final class Caches {
           ((SubCache<?, ?>) cache).cache,
           ((SubCache<?, ?>) cache).keyPrefix.subKey(keyPrefix, additionalKeyPrefix),
           ((SubCache<?, ?>) cache).maxWeightInBytes,
-          ((SubCache<?, ?>) cache).weightInBytes);
+          ((SubCache<?, ?>) cache).weightInBytes,
+          ((SubCache<?, ?>) cache).admissionPolicy,
+          ((SubCache<?, ?>) cache).statsByPrefix);
     }
     throw new IllegalArgumentException(
         String.format(
@@ -185,11 +229,110 @@ public final class Caches {
             cache == null ? "null" : cache.getClass()));
   }
 
+  /** Returns the maximum weight in bytes of the root cache backing the provided cache. */
+  public static long getMaximumWeight(Cache<?, ?> cache) {
+    if (!(cache instanceof SubCache)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "An unsupported type of cache was passed in. Received %s.",
+              cache == null ? "null" : cache.getClass()));
+    }
+    return ((SubCache<?, ?>) cache).maxWeightInBytes;
+  }
+
+  /**
+   * Releases memory held by the root cache backing the provided cache in response to memory
+   * pressure.
+   *
+   * <p>All {@link Shrinkable} entries are shrunk, which for example forces {@link
+   * PrecombineGroupingTable}s to flush, and then the least recently used entries are evicted until
+   * at most half of the previously retained weight remains. Only the weight currently held is
+   * reduced, the maximum weight of the cache is unchanged.
+   */
+  public static void shrinkForMemoryPressure(Cache<?, ?> cache) {
+    if (!(cache instanceof SubCache)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "An unsupported type of cache was passed in. Received %s.",
+              cache == null ? "null" : cache.getClass()));
+    }
+    SubCache<?, ?> subCache = (SubCache<?, ?>) cache;
+    ConcurrentMap<CompositeKey, WeightedValue<Object>> entries = subCache.cache.asMap();
+    long targetWeightInBytes = subCache.weightInBytes.longValue() >> 1;
+    // Explicit removals and replacements update the weight using the removal listener but are not
+    // considered evictions so the listener does not shrink the entries a second time.
+    for (Map.Entry<CompositeKey, WeightedValue<Object>> entry : entries.entrySet()) {
+      if (!(entry.getValue().getValue() instanceof Shrinkable)) {
+        continue;
+      }
+      Object updatedEntry = ((Shrinkable<?>) entry.getValue().getValue()).shrink();
+      if (updatedEntry == null) {
+        entries.remove(entry.getKey(), entry.getValue());
+      } else {
+        WeightedValue<Object> updatedValue = toWeightedValue(updatedEntry);
+        if (entries.replace(entry.getKey(), entry.getValue(), updatedValue)) {
+          subCache.weightInBytes.add(entry.getKey().getWeight() + updatedValue.getWeight());
+        }
+      }
+    }
+    if (subCache.weightInBytes.longValue() <= targetWeightInBytes) {
+      return;
+    }
+
+    // Guava does not allow lowering the maximum weight so instead reserve the weight above the
+    // target with ballast entries, which makes the cache evict its least recently used entries as
+    // usual, and then release it again.
+    long ballastWeightInBytes = subCache.maxWeightInBytes - targetWeightInBytes;
+    if (ballastWeightInBytes > MAX_BALLAST_ENTRIES * MAX_BALLAST_ENTRY_WEIGHT_IN_BYTES) {
+      // The cache is effectively unbounded so fall back to evicting in iteration order.
+      for (Map.Entry<CompositeKey, WeightedValue<Object>> entry : entries.entrySet()) {
+        if (subCache.weightInBytes.longValue() <= targetWeightInBytes) {
+          break;
+        }
+        if (!(entry.getValue().getValue() instanceof Shrinkable)) {
+          entries.remove(entry.getKey(), entry.getValue());
+        }
+      }
+      return;
+    }
+    List<CompositeKey> ballastKeys = new ArrayList<>();
+    try {
+      while (ballastWeightInBytes > 0) {
+        long weight = Math.min(ballastWeightInBytes, MAX_BALLAST_ENTRY_WEIGHT_IN_BYTES);
+        CompositeKey ballastKey =
+            CompositeKeyPrefix.ROOT.valueKey(WeightedValue.of(new Object(), 0));
+        ballastKeys.add(ballastKey);
+        subCache.cache.put(
+            ballastKey,
+            addWeightedValue(
+                ballastKey, WeightedValue.of(BALLAST, weight), subCache.weightInBytes));
+        ballastWeightInBytes -= weight;
+      }
+    } finally {
+      subCache.cache.invalidateAll(ballastKeys);
+    }
+  }
+
+  /** Returns the statistics shared by all sub-caches with the same root prefix as this cache. */
+  @VisibleForTesting
+  static PrefixStats getPrefixStats(Cache<?, ?> cache) {
+    return ((SubCache<?, ?>) cache).stats;
+  }
+
   @VisibleForTesting
   static <K, V> Cache<K, V> forMaximumBytes(long maximumBytes) {
+    return forMaximumBytes(maximumBytes, ALWAYS_ADMIT);
+  }
+
+  @VisibleForTesting
+  static <K, V> Cache<K, V> forMaximumBytes(long maximumBytes, AdmissionPolicy admissionPolicy) {
     // We specifically use Guava cache since it allows for recursive computeIfAbsent calls
     // preventing deadlock from occurring when a loading function mutates the underlying cache
     LongAdder weightInBytes = new LongAdder();
+    // Statistics are only retained while a sub-cache using the prefix is reachable so that the
+    // statistics of prefixes such as expired cache tokens do not accumulate.
+    ConcurrentMap<Object, PrefixStats> statsByPrefix =
+        CacheBuilder.newBuilder().weakValues().<Object, PrefixStats>build().asMap();
     return new SubCache<>(
         new ShrinkOnEviction(
                 CacheBuilder.newBuilder()
@@ -227,11 +370,14 @@ public final class Caches {
                     // recursive computeIfAbsent calls since it doesn't have this limit.
                     .concurrencyLevel(1)
                     .recordStats(),
-                weightInBytes)
+                weightInBytes,
+                statsByPrefix)
             .getCache(),
         CompositeKeyPrefix.ROOT,
         maximumBytes,
-        weightInBytes);
+        weightInBytes,
+        admissionPolicy,
+        statsByPrefix);
   }
 
   private static long findWeight(Object o) {
@@ -246,16 +392,169 @@ public final class Caches {
 
   private static WeightedValue<Object> addWeightedValue(
       CompositeKey key, Object o, LongAdder weightInBytes) {
-    WeightedValue<Object> rval;
+    WeightedValue<Object> rval = toWeightedValue(o);
+    weightInBytes.add(key.getWeight() + rval.getWeight());
+    return rval;
+  }
+
+  private static WeightedValue<Object> toWeightedValue(Object o) {
     if (o instanceof WeightedValue) {
-      rval = (WeightedValue<Object>) o;
+      return (WeightedValue<Object>) o;
     } else if (o instanceof Weighted) {
-      rval = WeightedValue.of(o, ((Weighted) o).getWeight());
+      return WeightedValue.of(o, ((Weighted) o).getWeight());
     } else {
-      rval = WeightedValue.of(o, weigh(o));
+      return WeightedValue.of(o, weigh(o));
+    }
+  }
+
+  /**
+   * Decides whether a new entry is stored within the cache.
+   *
+   * <p>Implementations are invoked concurrently from any thread accessing the cache.
+   */
+  @VisibleForTesting
+  interface AdmissionPolicy {
+    /** Records that the key was requested. */
+    void recordAccess(CompositeKey key);
+
+    /**
+     * Returns whether the value should be inserted into the cache. {@code weightInBytes} and {@code
+     * maxWeightInBytes} describe the current and maximum weight of the cache.
+     */
+    boolean admit(
+        CompositeKey key, WeightedValue<Object> value, long weightInBytes, long maxWeightInBytes);
+
+    /**
+     * Returns whether every entry is admitted. This allows the cache to load missing values while
+     * holding the lock for the key instead of loading the value before deciding to admit it.
+     */
+    boolean admitsAll();
+  }
+
+  private static final AdmissionPolicy ALWAYS_ADMIT =
+      new AdmissionPolicy() {
+        @Override
+        public void recordAccess(CompositeKey key) {}
+
+        @Override
+        public boolean admit(
+            CompositeKey key,
+            WeightedValue<Object> value,
+            long weightInBytes,
+            long maxWeightInBytes) {
+          return true;
+        }
+
+        @Override
+        public boolean admitsAll() {
+          return true;
+        }
+      };
+
+  /**
+   * A TinyLFU style admission policy.
+   *
+   * <p>Entries are always admitted while they fit within the cache. Once the cache is full, new
+   * entries are only admitted if the {@link FrequencySketch} estimates that they were requested at
+   * least {@link #MIN_ADMISSION_FREQUENCY} times recently. This prevents large scans over values
+   * that are only read once, such as iterating over a large side input, from evicting all the
+   * frequently used entries. {@link Shrinkable} values are always admitted since they rely on the
+   * cache to bound their size.
+   */
+  @VisibleForTesting
+  static class FrequencyAdmissionPolicy implements AdmissionPolicy {
+    @VisibleForTesting static final int MIN_ADMISSION_FREQUENCY = 2;
+
+    /** The expected average entry size used to size the frequency sketch. */
+    private static final int EXPECTED_ENTRY_SIZE_SHIFT = 12;
+
+    private static final int MIN_EXPECTED_ENTRIES = 1 << 10;
+    private static final int MAX_EXPECTED_ENTRIES = 1 << 22;
+
+    private final FrequencySketch sketch;
+
+    FrequencyAdmissionPolicy(long maximumBytes) {
+      this.sketch =
+          new FrequencySketch(
+              (int)
+                  Math.min(
+                      MAX_EXPECTED_ENTRIES,
+                      Math.max(MIN_EXPECTED_ENTRIES, maximumBytes >> EXPECTED_ENTRY_SIZE_SHIFT)));
+    }
+
+    @Override
+    public void recordAccess(CompositeKey key) {
+      sketch.increment(key.frequencyHash());
+    }
+
+    @Override
+    public boolean admit(
+        CompositeKey key, WeightedValue<Object> value, long weightInBytes, long maxWeightInBytes) {
+      if (weightInBytes + key.getWeight() + value.getWeight() <= maxWeightInBytes) {
+        return true;
+      }
+      if (value.getValue() instanceof Shrinkable) {
+        return true;
+      }
+      return sketch.frequency(key.frequencyHash()) >= MIN_ADMISSION_FREQUENCY;
+    }
+
+    @Override
+    public boolean admitsAll() {
+      return false;
+    }
+  }
+
+  /**
+   * Statistics for all sub-caches sharing the same root prefix. The root prefix is the first key
+   * prefix passed to {@link #subCache} such as the cache token for user state and side inputs. The
+   * statistics are discarded once no sub-cache with the root prefix remains reachable.
+   */
+  @VisibleForTesting
+  static class PrefixStats {
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @VisibleForTesting
+    long hitCount() {
+      return requests.longValue() - misses.longValue();
+    }
+
+    @VisibleForTesting
+    long missCount() {
+      return misses.longValue();
+    }
+
+    @VisibleForTesting
+    long admissionCount() {
+      return admissions.longValue();
+    }
+
+    @VisibleForTesting
+    long rejectionCount() {
+      return rejections.longValue();
+    }
+
+    @VisibleForTesting
+    long evictionCount() {
+      return evictions.longValue();
+    }
+
+    String describe() {
+      long requestCount = requests.longValue();
+      long missCount = misses.longValue();
+      return String.format(
+          "hit %.2f%%, lookups %d, misses %d, admitted %d, rejected %d, evictions %d",
+          requestCount == 0 ? 100. : (requestCount - missCount) * 100. / requestCount,
+          requestCount,
+          missCount,
+          admissions.longValue(),
+          rejections.longValue(),
+          evictions.longValue());
     }
-    weightInBytes.add(key.getWeight() + rval.getWeight());
-    return rval;
   }
 
   /**
@@ -271,6 +570,9 @@ public final class Caches {
     private final CompositeKeyPrefix keyPrefix;
     private final long maxWeightInBytes;
     private final LongAdder weightInBytes;
+    private final AdmissionPolicy admissionPolicy;
+    private final ConcurrentMap<Object, PrefixStats> statsByPrefix;
+    private final PrefixStats stats;
 
     SubCache(
         org.apache.beam.vendor.guava.v26_0_jre.com.google.common.cache.Cache<
@@ -278,17 +580,26 @@ public final class Caches {
             cache,
         CompositeKeyPrefix keyPrefix,
         long maxWeightInBytes,
-        LongAdder weightInBytes) {
+        LongAdder weightInBytes,
+        AdmissionPolicy admissionPolicy,
+        ConcurrentMap<Object, PrefixStats> statsByPrefix) {
       this.cache = cache;
       this.keyPrefix = keyPrefix;
       this.maxWeightInBytes = maxWeightInBytes;
       this.weightInBytes = weightInBytes;
+      this.admissionPolicy = admissionPolicy;
+      this.statsByPrefix = statsByPrefix;
+      this.stats = statsByPrefix.computeIfAbsent(keyPrefix.rootPrefix(), k -> new PrefixStats());
     }
 
     @Override
     public V peek(K key) {
-      WeightedValue<Object> value = cache.getIfPresent(keyPrefix.valueKey(key));
+      CompositeKey compositeKey = keyPrefix.valueKey(key);
+      admissionPolicy.recordAccess(compositeKey);
+      stats.requests.increment();
+      WeightedValue<Object> value = cache.getIfPresent(compositeKey);
       if (value == null) {
+        stats.misses.increment();
         return null;
       }
       return (V) value.getValue();
@@ -296,25 +607,84 @@ public final class Caches {
 
     @Override
     public V computeIfAbsent(K key, Function<K, V> loadingFunction) {
+      CompositeKey compositeKey = keyPrefix.valueKey(key);
+      admissionPolicy.recordAccess(compositeKey);
+      stats.requests.increment();
+      if (!admissionPolicy.admitsAll()) {
+        return computeIfAbsentWithAdmission(compositeKey, key, loadingFunction);
+      }
       try {
-        CompositeKey compositeKey = keyPrefix.valueKey(key);
         return (V)
             cache
                 .get(
                     compositeKey,
-                    () -> addWeightedValue(compositeKey, loadingFunction.apply(key), weightInBytes))
+                    () -> {
+                      stats.misses.increment();
+                      stats.admissions.increment();
+                      return addWeightedValue(
+                          compositeKey, loadingFunction.apply(key), weightInBytes);
+                    })
                 .getValue();
       } catch (ExecutionException e) {
         throw new RuntimeException(e);
       }
     }
 
+    /**
+     * Loads the value before consulting the {@link AdmissionPolicy} since the policy requires the
+     * weight of the value. Concurrent loads of the same key may occur in which case the first value
+     * to be inserted is returned.
+     */
+    private V computeIfAbsentWithAdmission(
+        CompositeKey compositeKey, K key, Function<K, V> loadingFunction) {
+      WeightedValue<Object> existing = cache.getIfPresent(compositeKey);
+      if (existing != null) {
+        return (V) existing.getValue();
+      }
+      stats.misses.increment();
+      V value = loadingFunction.apply(key);
+      WeightedValue<Object> weightedValue = toWeightedValue(value);
+      if (!admit(compositeKey, weightedValue)) {
+        return (V) weightedValue.getValue();
+      }
+      long weight = compositeKey.getWeight() + weightedValue.getWeight();
+      weightInBytes.add(weight);
+      WeightedValue<Object> current = cache.asMap().putIfAbsent(compositeKey, weightedValue);
+      if (current != null) {
+        // Another thread inserted a value concurrently, prefer it and undo our accounting.
+        weightInBytes.add(-weight);
+        return (V) current.getValue();
+      }
+      return (V) weightedValue.getValue();
+    }
+
     @Override
     public void put(K key, V value) {
       CompositeKey compositeKey = keyPrefix.valueKey(key);
+      admissionPolicy.recordAccess(compositeKey);
+      if (!admissionPolicy.admitsAll()) {
+        WeightedValue<Object> weightedValue = toWeightedValue(value);
+        // Replacing an existing entry is always allowed.
+        if (!cache.asMap().containsKey(compositeKey) && !admit(compositeKey, weightedValue)) {
+          return;
+        }
+        cache.put(compositeKey, addWeightedValue(compositeKey, weightedValue, weightInBytes));
+        return;
+      }
+      stats.admissions.increment();
       cache.put(compositeKey, addWeightedValue(compositeKey, value, weightInBytes));
     }
 
+    private boolean admit(CompositeKey compositeKey, WeightedValue<Object> weightedValue) {
+      if (admissionPolicy.admit(
+          compositeKey, weightedValue, weightInBytes.longValue(), maxWeightInBytes)) {
+        stats.admissions.increment();
+        return true;
+      }
+      stats.rejections.increment();
+      return false;
+    }
+
     @Override
     public void remove(K key) {
       cache.invalidate(keyPrefix.valueKey(key));
@@ -324,17 +694,35 @@ public final class Caches {
     public String describeStats() {
       CacheStats stats = cache.stats();
       return String.format(
-          "used/max %d/%d MB, hit %.2f%%, lookups %d, avg load time %.0f ns, loads %d, evictions %d",
-          weightInBytes.longValue() >> 20,
-          maxWeightInBytes >> 20,
-          stats.hitRate() * 100.,
-          stats.requestCount(),
-          stats.averageLoadPenalty(),
-          stats.loadCount(),
-          stats.evictionCount());
+              "used/max %d/%d MB, hit %.2f%%, lookups %d, avg load time %.0f ns, loads %d, evictions %d",
+              weightInBytes.longValue() >> 20,
+              maxWeightInBytes >> 20,
+              stats.hitRate() * 100.,
+              stats.requestCount(),
+              stats.averageLoadPenalty(),
+              stats.loadCount(),
+              stats.evictionCount())
+          + describePrefixStats();
+    }
+
+    private String describePrefixStats() {
+      StringBuilder builder = new StringBuilder();
+      for (Map.Entry<Object, PrefixStats> entry : statsByPrefix.entrySet()) {
+        builder
+            .append("\n  ")
+            .append(entry.getKey())
+            .append(": ")
+            .append(entry.getValue().describe());
+      }
+      return builder.toString();
     }
   }
 
+  /** Returns the first element of the namespace which statistics are aggregated by. */
+  private static Object rootPrefix(Object[] namespace) {
+    return namespace.length == 0 ? ROOT_PREFIX_NAME : namespace[0];
+  }
+
   /** A key prefix used to generate keys that are stored within a sub-cache. */
   static class CompositeKeyPrefix {
     public static final CompositeKeyPrefix ROOT = new CompositeKeyPrefix(new Object[0], 0);
@@ -364,6 +752,10 @@ public final class Caches {
       return new CompositeKey(namespace, weight, k);
     }
 
+    Object rootPrefix() {
+      return Caches.rootPrefix(namespace);
+    }
+
     boolean isProperPrefixOf(CompositeKey otherKey) {
       if (namespace.length > otherKey.namespace.length) {
         return false;
@@ -409,6 +801,18 @@ public final class Caches {
       return "CompositeKey{namespace=" + Arrays.toString(namespace) + ", key=" + key + "}";
     }
 
+    Object rootPrefix() {
+      return Caches.rootPrefix(namespace);
+    }
+
+    /**
+     * Returns a hash of both the namespace and the key. Unlike {@link #hashCode} this distinguishes
+     * keys within the same namespace and is used to estimate access frequencies.
+     */
+    int frequencyHash() {
+      return 31 * Arrays.hashCode(namespace) + Objects.hashCode(key);
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) {
@@ -446,7 +850,9 @@ public final class Caches {
           ((SubCache<K, V>) cache).cache,
           ((SubCache<CompositeKey, V>) cache).keyPrefix,
           ((SubCache<CompositeKey, V>) cache).maxWeightInBytes,
-          ((SubCache<CompositeKey, V>) cache).weightInBytes);
+          ((SubCache<CompositeKey, V>) cache).weightInBytes,
+          ((SubCache<CompositeKey, V>) cache).admissionPolicy,
+          ((SubCache<CompositeKey, V>) cache).statsByPrefix);
       // We specifically use a weak hash map so that once the key is no longer referenced we don't
       // have to keep track of it anymore and the weak hash map will garbage collect it for us.
       this.weakHashSet = Collections.newSetFromMap(new WeakHashMap<>());
@@ -32,7 +32,9 @@ import org.apache.beam.sdk.fn.data.FnDataReceiver;
 import org.apache.beam.sdk.function.ThrowingFunction;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.transforms.windowing.WindowFn;
 import org.apache.beam.sdk.util.SerializableUtils;
 import org.apache.beam.sdk.util.WindowedValue;
 import org.apache.beam.sdk.util.WindowedValue.WindowedValueCoder;
@@ -40,6 +42,7 @@ import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Executes different components of Combine PTransforms. */
 @SuppressWarnings({
@@ -76,6 +79,7 @@ public class CombineRunners {
     private final CombineFn<InputT, AccumT, ?> combineFn;
     private final FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> output;
     private final Coder<KeyT> keyCoder;
+    private final @Nullable Coder<? extends BoundedWindow> windowCoder;
     private PrecombineGroupingTable<KeyT, InputT, AccumT> groupingTable;
     private boolean isGloballyWindowed;
 
@@ -86,7 +90,7 @@ public class CombineRunners {
         CombineFn<InputT, AccumT, ?> combineFn,
         FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> output,
         Coder<KeyT> keyCoder) {
-      this(options, ptransformId, bundleCache, combineFn, output, keyCoder, false);
+      this(options, ptransformId, bundleCache, combineFn, output, keyCoder, null, false);
     }
 
     PrecombineRunner(
@@ -96,6 +100,7 @@ public class CombineRunners {
         CombineFn<InputT, AccumT, ?> combineFn,
         FnDataReceiver<WindowedValue<KV<KeyT, AccumT>>> output,
         Coder<KeyT> keyCoder,
+        @Nullable Coder<? extends BoundedWindow> windowCoder,
         boolean isGloballyWindowed) {
       this.options = options;
       this.ptransformId = ptransformId;
@@ -103,6 +108,7 @@ public class CombineRunners {
       this.combineFn = combineFn;
       this.output = output;
       this.keyCoder = keyCoder;
+      this.windowCoder = windowCoder;
       this.isGloballyWindowed = isGloballyWindowed;
     }
 
@@ -113,6 +119,7 @@ public class CombineRunners {
               Caches.subCache(bundleCache.get(), ptransformId),
               combineFn,
               keyCoder,
+              windowCoder,
               0.001 /*sizeEstimatorSampleRate*/,
               isGloballyWindowed);
     }
@@ -151,11 +158,11 @@ public class CombineRunners {
       // expected KvCoder.
       Coder<?> uncastInputCoder = rehydratedComponents.getCoder(mainInput.getCoderId());
       KvCoder<KeyT, InputT> inputCoder;
-      boolean isGloballyWindowed =
+      WindowFn<?, ?> windowFn =
           rehydratedComponents
               .getWindowingStrategy(mainInput.getWindowingStrategyId())
-              .getWindowFn()
-              .equals(new GlobalWindows());
+              .getWindowFn();
+      boolean isGloballyWindowed = windowFn.equals(new GlobalWindows());
       if (uncastInputCoder instanceof WindowedValueCoder) {
         inputCoder =
             (KvCoder<KeyT, InputT>)
@@ -185,6 +192,7 @@ public class CombineRunners {
               combineFn,
               consumer,
               keyCoder,
+              windowFn.windowCoder(),
               isGloballyWindowed);
 
       // Register the appropriate handlers.
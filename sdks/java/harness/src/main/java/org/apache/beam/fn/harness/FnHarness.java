@@ -34,6 +34,7 @@ import org.apache.beam.fn.harness.debug.DataSampler;
 import org.apache.beam.fn.harness.logging.BeamFnLoggingClient;
 import org.apache.beam.fn.harness.state.BeamFnStateGrpcClientCache;
 import org.apache.beam.fn.harness.status.BeamFnStatusClient;
+import org.apache.beam.fn.harness.status.MemoryMonitor;
 import org.apache.beam.fn.harness.stream.HarnessStreamObserverFactories;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.InstructionRequest;
@@ -55,6 +56,7 @@ import org.apache.beam.sdk.metrics.MetricsEnvironment;
 import org.apache.beam.sdk.options.ExecutorOptions;
 import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.TextFormat;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.ManagedChannel;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
@@ -225,6 +227,8 @@ public class FnHarness {
     ExecutionStateSampler executionStateSampler =
         new ExecutionStateSampler(options, System::currentTimeMillis);
     final DataSampler dataSampler = new DataSampler();
+    ExecutorService instructionExecutorService = createInstructionExecutorService(options);
+    MemoryMonitor memoryMonitor = MemoryMonitor.createAndStart(options);
 
     // The logging client variable is not used per se, but during its lifetime (until close()) it
     // intercepts logging and sends it to the logging service.
@@ -247,8 +251,26 @@ public class FnHarness {
       BeamFnDataGrpcClient beamFnDataMultiplexer =
           new BeamFnDataGrpcClient(options, channelFactory::forDescriptor, outboundObserverFactory);
 
+      // While the JVM is thrashing, release cached memory, which also forces grouping tables to
+      // flush, and flush outbound data buffers early. Bundle intake is paused below.
+      memoryMonitor.addMemoryPressureListener(
+          underPressure -> {
+            beamFnDataMultiplexer.setUnderMemoryPressure(underPressure);
+            if (underPressure) {
+              Caches.shrinkForMemoryPressure(processWideCache);
+              LOG.warn(
+                  "Shrunk caches due to memory pressure, cache is {}",
+                  processWideCache.describeStats());
+            }
+          });
+
       BeamFnStateGrpcClientCache beamFnStateGrpcClientCache =
-          new BeamFnStateGrpcClientCache(idGenerator, channelFactory, outboundObserverFactory);
+          new BeamFnStateGrpcClientCache(
+              idGenerator,
+              channelFactory,
+              outboundObserverFactory,
+              ExperimentalOptions.hasExperiment(
+                  options, BeamFnStateGrpcClientCache.STATE_REQUEST_COALESCING_EXPERIMENT));
 
       FinalizeBundleHandler finalizeBundleHandler = new FinalizeBundleHandler(executorService);
 
@@ -300,8 +322,8 @@ public class FnHarness {
                 statusApiServiceDescriptor,
                 channelFactory::forDescriptor,
                 processBundleHandler.getBundleProcessorCache(),
-                options,
-                processWideCache);
+                processWideCache,
+                memoryMonitor);
       }
 
       // TODO(https://github.com/apache/beam/issues/20270): Remove once runners no longer send this
@@ -316,7 +338,12 @@ public class FnHarness {
           finalizeBundleHandler::finalizeBundle);
       handlers.put(
           BeamFnApi.InstructionRequest.RequestCase.PROCESS_BUNDLE,
-          processBundleHandler::processBundle);
+          request -> {
+            // Hold back new bundles while the JVM is thrashing so that bundles which are already
+            // in progress can complete instead of the harness running out of memory.
+            memoryMonitor.waitForResources("process bundle " + request.getInstructionId());
+            return processBundleHandler.processBundle(request);
+          });
       handlers.put(
           BeamFnApi.InstructionRequest.RequestCase.PROCESS_BUNDLE_PROGRESS,
           processBundleHandler::progress);
@@ -352,19 +379,45 @@ public class FnHarness {
           new BeamFnControlClient(
               controlStub.withExecutor(MoreExecutors.directExecutor()),
               outboundObserverFactory,
-              executorService,
+              instructionExecutorService == null ? executorService : instructionExecutorService,
               handlers);
       CompletableFuture.anyOf(control.terminationFuture(), logging.terminationFuture()).get();
       if (beamFnStatusClient != null) {
         beamFnStatusClient.close();
       }
       processBundleHandler.shutdown();
+      beamFnStateGrpcClientCache.close();
     } catch (Exception e) {
       System.out.println("Shutting down harness due to exception: " + e.toString());
     } finally {
       System.out.println("Shutting SDK harness down.");
       executionStateSampler.stop();
+      memoryMonitor.stop();
       executorService.shutdown();
+      if (instructionExecutorService != null) {
+        instructionExecutorService.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Returns an executor which runs each instruction on a new virtual thread if requested by {@link
+   * SdkHarnessOptions#getEnableVirtualThreads} and supported, or {@code null} if instructions
+   * should be processed using the {@link ExecutorOptions#getScheduledExecutorService}.
+   */
+  private static @Nullable ExecutorService createInstructionExecutorService(
+      PipelineOptions options) {
+    if (!options.as(SdkHarnessOptions.class).getEnableVirtualThreads()) {
+      return null;
+    }
+    if (!VirtualThreads.isSupported()) {
+      LOG.warn(
+          "Virtual threads were requested but are not supported on Java {}, processing bundles "
+              + "on platform threads.",
+          System.getProperty("java.specification.version"));
+      return null;
     }
+    LOG.info("Processing bundles on virtual threads.");
+    return VirtualThreads.newThreadPerTaskExecutor("beam-fn-harness-instruction-");
   }
 }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A Count-Min sketch of 4-bit counters that estimates how often a hash has been recorded recently.
+ *
+ * <p>Once the number of recorded increments reaches ten times the number of counters, all counters
+ * are halved so that the sketch reflects recent history rather than all history. This is the
+ * frequency estimator used by TinyLFU admission policies.
+ *
+ * <p>Updates are not synchronized. Concurrent updates may be lost which only reduces the accuracy
+ * of the estimates and never blocks callers.
+ */
+@ThreadSafe
+final class FrequencySketch {
+  /** The maximum value a 4-bit counter can hold. */
+  static final int MAX_FREQUENCY = 15;
+
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  /** Creates a sketch sized to track approximately {@code expectedEntries} distinct hashes. */
+  FrequencySketch(int expectedEntries) {
+    checkArgument(expectedEntries > 0, "Expected positive entries but got %s", expectedEntries);
+    // Each long holds sixteen 4-bit counters.
+    int tableSize = Math.max(16, Integer.highestOneBit(Math.max(1, expectedEntries - 1)) << 1);
+    this.table = new long[tableSize];
+    this.tableMask = tableSize - 1;
+    this.sampleSize = 10 * tableSize;
+  }
+
+  /**
+   * Returns the estimated number of times the hash was recorded, at most {@link #MAX_FREQUENCY}.
+   */
+  int frequency(int hash) {
+    int frequency = MAX_FREQUENCY;
+    for (int i = 0; i < SEEDS.length; ++i) {
+      int index = indexOf(hash, i);
+      int offset = counterOffset(hash, i);
+      frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+    }
+    return frequency;
+  }
+
+  /** Records an occurrence of the hash. */
+  void increment(int hash) {
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; ++i) {
+      int index = indexOf(hash, i);
+      int offset = counterOffset(hash, i);
+      long value = table[index];
+      if (((value >>> offset) & 0xfL) != MAX_FREQUENCY) {
+        table[index] = value + (1L << offset);
+        added = true;
+      }
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  /** Halves every counter to age out old occurrences. */
+  private void reset() {
+    for (int i = 0; i < table.length; ++i) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions = additions >>> 1;
+  }
+
+  private int indexOf(int hash, int row) {
+    long h = (hash + SEEDS[row]) * SEEDS[row];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  private static int counterOffset(int hash, int row) {
+    // Selects one of the sixteen counters within the long, using a different one per row.
+    return (((hash >>> (row << 3)) & 3) << 2 | row) << 2;
+  }
+}
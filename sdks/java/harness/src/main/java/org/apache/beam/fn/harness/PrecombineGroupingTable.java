@@ -17,6 +17,9 @@
  */
 package org.apache.beam.fn.harness;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -30,12 +33,15 @@ import org.apache.beam.runners.core.GlobalCombineFnRunner;
 import org.apache.beam.runners.core.GlobalCombineFnRunners;
 import org.apache.beam.runners.core.NullSideInputReader;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.Coder.NonDeterministicException;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.transforms.Combine.CombineFn;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.sdk.util.WindowedValue;
 import org.apache.beam.sdk.values.KV;
@@ -45,6 +51,12 @@ import org.joda.time.Instant;
 /**
  * Static utility methods that provide a grouping table implementation.
  *
+ * <p>By default the table groups on the {@link Coder#structuralValue structural value} of each key
+ * and evicts entries in least recently used order. When the {@link #BINARY_KEYS_EXPERIMENT} is
+ * enabled and the key and window coders are deterministic, the table instead groups on the encoded
+ * key and window bytes using a {@link BinaryKeyTable} which avoids allocating per element for keys
+ * that are already present and evicts entries using the clock algorithm.
+ *
  * <p>{@link NotThreadSafe} because the caller must use the bundle processing thread when invoking
  * {@link #put} and {@link #flush}. {@link #shrink} may be called from any thread.
  */
@@ -55,23 +67,48 @@ import org.joda.time.Instant;
 public class PrecombineGroupingTable<K, InputT, AccumT>
     implements Shrinkable<PrecombineGroupingTable<K, InputT, AccumT>>, Weighted {
 
+  /**
+   * Experiment which enables grouping on the encoded key and window bytes instead of the structural
+   * value of the key.
+   */
+  public static final String BINARY_KEYS_EXPERIMENT = "enable_binary_precombine_grouping_table";
+
+  /**
+   * Returns a grouping table that combines inputs into an accumulator. The grouping table uses the
+   * cache to defer flushing output until the cache evicts the table.
+   */
+  public static <K, InputT, AccumT> PrecombineGroupingTable<K, InputT, AccumT> combining(
+      PipelineOptions options,
+      Cache<Object, Object> cache,
+      CombineFn<InputT, AccumT, ?> combineFn,
+      Coder<K> keyCoder,
+      boolean isGloballyWindowed) {
+    return combining(options, cache, combineFn, keyCoder, null, isGloballyWindowed);
+  }
+
   /**
    * Returns a grouping table that combines inputs into an accumulator. The grouping table uses the
    * cache to defer flushing output until the cache evicts the table.
+   *
+   * <p>The {@code windowCoder} is used to group on the encoded windows when the {@link
+   * #BINARY_KEYS_EXPERIMENT} is enabled and may be {@code null} if the input is globally windowed.
    */
   public static <K, InputT, AccumT> PrecombineGroupingTable<K, InputT, AccumT> combining(
       PipelineOptions options,
       Cache<Object, Object> cache,
       CombineFn<InputT, AccumT, ?> combineFn,
       Coder<K> keyCoder,
+      @Nullable Coder<? extends BoundedWindow> windowCoder,
       boolean isGloballyWindowed) {
     return new PrecombineGroupingTable<>(
         options,
         cache,
         keyCoder,
+        windowCoder,
         GlobalCombineFnRunners.create(combineFn),
         Caches::weigh,
-        isGloballyWindowed);
+        isGloballyWindowed,
+        useBinaryKeys(options, keyCoder, windowCoder, isGloballyWindowed));
   }
 
   /**
@@ -86,13 +123,62 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
       Coder<K> keyCoder,
       double sizeEstimatorSampleRate,
       boolean isGloballyWindowed) {
+    return combiningAndSampling(
+        options, cache, combineFn, keyCoder, null, sizeEstimatorSampleRate, isGloballyWindowed);
+  }
+
+  /**
+   * Returns a grouping table that combines inputs into an accumulator with sampling {@link
+   * SizeEstimator SizeEstimators}. The grouping table uses the cache to defer flushing output until
+   * the cache evicts the table.
+   *
+   * <p>The {@code windowCoder} is used to group on the encoded windows when the {@link
+   * #BINARY_KEYS_EXPERIMENT} is enabled and may be {@code null} if the input is globally windowed.
+   */
+  public static <K, InputT, AccumT> PrecombineGroupingTable<K, InputT, AccumT> combiningAndSampling(
+      PipelineOptions options,
+      Cache<Object, Object> cache,
+      CombineFn<InputT, AccumT, ?> combineFn,
+      Coder<K> keyCoder,
+      @Nullable Coder<? extends BoundedWindow> windowCoder,
+      double sizeEstimatorSampleRate,
+      boolean isGloballyWindowed) {
     return new PrecombineGroupingTable<>(
         options,
         cache,
         keyCoder,
+        windowCoder,
         GlobalCombineFnRunners.create(combineFn),
         new SamplingSizeEstimator(Caches::weigh, sizeEstimatorSampleRate, 1.0),
-        isGloballyWindowed);
+        isGloballyWindowed,
+        useBinaryKeys(options, keyCoder, windowCoder, isGloballyWindowed));
+  }
+
+  /**
+   * Returns whether the encoded form of the key and windows can be used for grouping. This requires
+   * the experiment to be enabled and the coders to be deterministic since otherwise equal keys may
+   * have different encodings.
+   */
+  private static boolean useBinaryKeys(
+      PipelineOptions options,
+      Coder<?> keyCoder,
+      @Nullable Coder<? extends BoundedWindow> windowCoder,
+      boolean isGloballyWindowed) {
+    if (!ExperimentalOptions.hasExperiment(options, BINARY_KEYS_EXPERIMENT)) {
+      return false;
+    }
+    if (!isGloballyWindowed && windowCoder == null) {
+      return false;
+    }
+    try {
+      keyCoder.verifyDeterministic();
+      if (!isGloballyWindowed) {
+        windowCoder.verifyDeterministic();
+      }
+      return true;
+    } catch (NonDeterministicException e) {
+      return false;
+    }
   }
 
   @Nullable
@@ -113,6 +199,11 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
     return maxWeight.get();
   }
 
+  @VisibleForTesting
+  boolean usesBinaryKeys() {
+    return binaryTable != null;
+  }
+
   /** Provides client-specific operations for size estimates. */
   @FunctionalInterface
   public interface SizeEstimator {
@@ -125,6 +216,10 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
   private final SizeEstimator sizer;
   private final Cache<Key, PrecombineGroupingTable<K, InputT, AccumT>> cache;
   private final LinkedHashMap<GroupingTableKey, GroupingTableEntry> lruMap;
+  // Only set when grouping on the encoded key and window bytes.
+  private final @Nullable BinaryKeyTable<GroupingTableEntry> binaryTable;
+  private final @Nullable Coder<BoundedWindow> windowCoder;
+  private final @Nullable EncodingBuffer encodingBuffer;
   private final AtomicLong maxWeight;
   private long weight;
   private final boolean isGloballyWindowed;
@@ -154,6 +249,18 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
       GlobalCombineFnRunner<InputT, AccumT, ?> combineFn,
       SizeEstimator sizer,
       boolean isGloballyWindowed) {
+    this(options, cache, keyCoder, null, combineFn, sizer, isGloballyWindowed, false);
+  }
+
+  PrecombineGroupingTable(
+      PipelineOptions options,
+      Cache<?, ?> cache,
+      Coder<K> keyCoder,
+      @Nullable Coder<? extends BoundedWindow> windowCoder,
+      GlobalCombineFnRunner<InputT, AccumT, ?> combineFn,
+      SizeEstimator sizer,
+      boolean isGloballyWindowed,
+      boolean useBinaryKeys) {
     this.options = options;
     this.cache = (Cache<Key, PrecombineGroupingTable<K, InputT, AccumT>>) cache;
     this.keyCoder = keyCoder;
@@ -161,6 +268,15 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
     this.sizer = sizer;
     this.isGloballyWindowed = isGloballyWindowed;
     this.lruMap = new LinkedHashMap<>(16, 0.75f, true);
+    if (useBinaryKeys) {
+      this.binaryTable = new BinaryKeyTable<>();
+      this.windowCoder = (Coder<BoundedWindow>) windowCoder;
+      this.encodingBuffer = new EncodingBuffer();
+    } else {
+      this.binaryTable = null;
+      this.windowCoder = null;
+      this.encodingBuffer = null;
+    }
     this.maxWeight = new AtomicLong();
     this.weight = 0L;
     this.cache.put(Key.INSTANCE, this);
@@ -285,6 +401,85 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
     }
   }
 
+  /**
+   * A grouping key for entries stored within the {@link BinaryKeyTable}. The encoded key bytes are
+   * owned by the table so this only retains the windows and the weight of the encoded key.
+   */
+  @VisibleForTesting
+  static class EncodedGroupingTableKey implements GroupingTableKey {
+    private final Object userKey;
+    private final Collection<? extends BoundedWindow> windows;
+    private final long weight;
+
+    private EncodedGroupingTableKey(
+        Object userKey, Collection<? extends BoundedWindow> windows, int encodedLength) {
+      this.userKey = userKey;
+      this.windows = windows;
+      this.weight = encodedLength + BinaryKeyTable.BYTES_PER_SLOT;
+    }
+
+    /**
+     * Returns the user key since grouping is performed on the encoded form stored within the {@link
+     * BinaryKeyTable}.
+     */
+    @Override
+    public Object getStructuralKey() {
+      return userKey;
+    }
+
+    @Override
+    public Collection<? extends BoundedWindow> getWindows() {
+      return windows;
+    }
+
+    @Override
+    public long getWeight() {
+      return weight;
+    }
+
+    @Override
+    public String toString() {
+      return "EncodedGroupingTableKey{"
+          + "userKey="
+          + userKey
+          + ", windows="
+          + windows
+          + ", weight="
+          + weight
+          + '}';
+    }
+  }
+
+  /** An {@link OutputStream} exposing its unsynchronized buffer to avoid copying encoded keys. */
+  private static final class EncodingBuffer extends OutputStream {
+    private byte[] buffer = new byte[64];
+    private int count;
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(count + 1);
+      buffer[count] = (byte) b;
+      count += 1;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ensureCapacity(count + len);
+      System.arraycopy(b, off, buffer, count, len);
+      count += len;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+      if (minCapacity > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, minCapacity));
+      }
+    }
+
+    void reset() {
+      count = 0;
+    }
+  }
+
   @VisibleForTesting
   class GroupingTableEntry implements Weighted {
     private final GroupingTableKey groupingKey;
@@ -384,6 +579,10 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
   public void put(
       WindowedValue<KV<K, InputT>> value, FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
       throws Exception {
+    if (binaryTable != null) {
+      putEncoded(value, receiver);
+      return;
+    }
     // Ignore timestamp for grouping purposes.
     // The Pre-combine output will inherit the timestamp of one of its inputs.
     GroupingTableKey groupingKey =
@@ -420,6 +619,58 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
     }
   }
 
+  private void putEncoded(
+      WindowedValue<KV<K, InputT>> value, FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
+      throws Exception {
+    encodeGroupingKey(value);
+    byte[] buffer = encodingBuffer.buffer;
+    int length = encodingBuffer.count;
+    int hash = BinaryKeyTable.hash(buffer, 0, length);
+    GroupingTableEntry tableEntry = binaryTable.get(buffer, 0, length, hash);
+    if (tableEntry == null) {
+      GroupingTableKey groupingKey =
+          new EncodedGroupingTableKey(
+              value.getValue().getKey(),
+              isGloballyWindowed
+                  ? GloballyWindowedTableGroupingKey.GLOBAL_WINDOWS
+                  : value.getWindows(),
+              length);
+      tableEntry =
+          new GroupingTableEntry(
+              groupingKey,
+              value.getTimestamp(),
+              value.getValue().getKey(),
+              value.getValue().getValue());
+      binaryTable.putAbsent(buffer, 0, length, hash, tableEntry);
+      weight += groupingKey.getWeight();
+    } else {
+      weight -= tableEntry.getWeight();
+      tableEntry.add(value.getValue().getValue());
+    }
+    weight += tableEntry.getWeight();
+
+    if (binaryTable.size() >= DEFAULT_MAX_GROUPING_TABLE_SIZE) {
+      flush(receiver);
+      lastWeightForFlush = weight;
+    } else if (Caches.shouldUpdateOnSizeChange(lastWeightForFlush, weight)) {
+      flushIfNeeded(receiver);
+      lastWeightForFlush = weight;
+    }
+  }
+
+  /** Encodes the key and, if not globally windowed, the windows into the encoding buffer. */
+  private void encodeGroupingKey(WindowedValue<KV<K, InputT>> value) throws IOException {
+    encodingBuffer.reset();
+    keyCoder.encode(value.getValue().getKey(), encodingBuffer);
+    if (!isGloballyWindowed) {
+      Collection<? extends BoundedWindow> windows = value.getWindows();
+      VarInt.encode(windows.size(), encodingBuffer);
+      for (BoundedWindow window : windows) {
+        windowCoder.encode(window, encodingBuffer);
+      }
+    }
+  }
+
   private void flushIfNeeded(FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver)
       throws Exception {
     // Increase the maximum only if we require it
@@ -435,7 +686,22 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
     // Only compact and output from the bundle processing thread that is inserting elements into the
     // grouping table. This ensures that we honor the guarantee that transforms for a single bundle
     // execute using the same thread.
-    if (weight > currentMax) {
+    if (weight > currentMax && binaryTable != null) {
+      // Try to compact as many the values as possible and only flush values if compaction wasn't
+      // enough.
+      binaryTable.forEachValue(
+          valueToCompact -> {
+            long currentWeight = valueToCompact.getWeight();
+            valueToCompact.compact();
+            weight += valueToCompact.getWeight() - currentWeight;
+          });
+
+      while (weight > currentMax && binaryTable.size() > 0) {
+        GroupingTableEntry valueToFlush = binaryTable.evict();
+        weight -= valueToFlush.getWeight() + valueToFlush.getGroupingKey().getWeight();
+        output(valueToFlush, receiver);
+      }
+    } else if (weight > currentMax) {
       // Try to compact as many the values as possible and only flush values if compaction wasn't
       // enough.
       for (GroupingTableEntry valueToCompact : lruMap.values()) {
@@ -480,10 +746,17 @@ public class PrecombineGroupingTable<K, InputT, AccumT>
   /** Flushes all entries in this table to output. */
   public void flush(FnDataReceiver<WindowedValue<KV<K, AccumT>>> receiver) throws Exception {
     cache.remove(Key.INSTANCE);
-    for (GroupingTableEntry valueToFlush : lruMap.values()) {
-      output(valueToFlush, receiver);
+    if (binaryTable != null) {
+      while (binaryTable.size() > 0) {
+        output(binaryTable.evict(), receiver);
+      }
+      binaryTable.clear();
+    } else {
+      for (GroupingTableEntry valueToFlush : lruMap.values()) {
+        output(valueToFlush, receiver);
+      }
+      lruMap.clear();
     }
-    lruMap.clear();
     weight = 0;
   }
 
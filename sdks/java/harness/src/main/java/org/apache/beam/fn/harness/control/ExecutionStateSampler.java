@@ -19,6 +19,8 @@ package org.apache.beam.fn.harness.control;
 
 import com.google.auto.value.AutoValue;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -30,22 +32,29 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.concurrent.GuardedBy;
 import org.apache.beam.fn.harness.control.ProcessBundleHandler.BundleProcessor;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
+import org.apache.beam.runners.core.metrics.HistogramCell;
+import org.apache.beam.runners.core.metrics.MetricsContainerImpl;
 import org.apache.beam.runners.core.metrics.MetricsContainerStepMap;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
 import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
+import org.apache.beam.runners.core.metrics.MonitoringInfoMetricName;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.metrics.Gauge;
 import org.apache.beam.sdk.metrics.Histogram;
 import org.apache.beam.sdk.metrics.MetricName;
 import org.apache.beam.sdk.metrics.MetricsContainer;
+import org.apache.beam.sdk.metrics.MetricsEnvironment;
 import org.apache.beam.sdk.options.ExecutorOptions;
 import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Joiner;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.DateTimeUtils.MillisProvider;
@@ -55,8 +64,24 @@ import org.joda.time.format.PeriodFormatterBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Monitors the execution of one or more execution threads. */
+/**
+ * Monitors the execution of one or more execution threads.
+ *
+ * <p>If the {@link #PROCESS_ELEMENT_LATENCIES_EXPERIMENT} experiment is enabled, the time spent
+ * processing each element, excluding the time spent within downstream fused transforms, is also
+ * recorded per transform. The latencies are recorded without synchronization by the bundle
+ * processing thread and merged into a histogram within the process wide {@link
+ * MetricsContainerImpl} at the end of each bundle. They are reported in nanoseconds as {@link
+ * MonitoringInfoConstants.Urns#PROCESS_ELEMENT_LATENCIES}.
+ */
 public class ExecutionStateSampler {
+  public static final String PROCESS_ELEMENT_LATENCIES_EXPERIMENT =
+      "enable_process_element_latency_histograms";
+
+  // Covers latencies up to ~18 minutes with a relative error of at most 25%.
+  @VisibleForTesting
+  static final HistogramData.BucketType PROCESS_ELEMENT_LATENCIES_BUCKET_TYPE =
+      HistogramData.LogLinearBuckets.forMaxValue(2, (1L << 40) - 1);
 
   private static final Logger LOG = LoggerFactory.getLogger(ExecutionStateSampler.class);
   private static final int DEFAULT_SAMPLING_PERIOD_MS = 200;
@@ -76,8 +101,13 @@ public class ExecutionStateSampler {
           .toFormatter();
   private final int periodMs;
   private final MillisProvider clock;
+  private final boolean recordProcessElementLatencies;
+
+  // A ReentrantLock rather than a monitor so that bundle processing on virtual threads does not pin
+  // the carrier thread while waiting for the sampling thread.
+  private final ReentrantLock activeStateTrackersLock;
 
-  @GuardedBy("activeStateTrackers")
+  @GuardedBy("activeStateTrackersLock")
   private final Set<ExecutionStateTracker> activeStateTrackers;
 
   private final Future<Void> stateSamplingThread;
@@ -92,6 +122,9 @@ public class ExecutionStateSampler {
             ? DEFAULT_SAMPLING_PERIOD_MS
             : Integer.parseInt(samplingPeriodMills);
     this.clock = clock;
+    this.recordProcessElementLatencies =
+        ExperimentalOptions.hasExperiment(options, PROCESS_ELEMENT_LATENCIES_EXPERIMENT);
+    this.activeStateTrackersLock = new ReentrantLock();
     this.activeStateTrackers = new HashSet<>();
     // We specifically synchronize to ensure that this object can complete
     // being published before the state sampler thread starts.
@@ -155,10 +188,13 @@ public class ExecutionStateSampler {
         Thread.sleep(difference);
       } else {
         long millisSinceLastSample = currentTimeMillis - lastSampleTimeMillis;
-        synchronized (activeStateTrackers) {
+        activeStateTrackersLock.lock();
+        try {
           for (ExecutionStateTracker activeTracker : activeStateTrackers) {
             activeTracker.takeSample(currentTimeMillis, millisSinceLastSample);
           }
+        } finally {
+          activeStateTrackersLock.unlock();
         }
         lastSampleTimeMillis = currentTimeMillis;
         targetTimeMillis = lastSampleTimeMillis + periodMs;
@@ -252,6 +288,9 @@ public class ExecutionStateSampler {
     private final AtomicReference<@Nullable ExecutionStateImpl> currentStateLazy;
     // Read and written by the ExecutionStateSampler thread
     private long transitionsAtLastSample;
+    // Read and written by the bundle processing thread frequently. Only maintained when recording
+    // process element latencies.
+    private long lastTransitionNanos;
 
     // Ignore the @UnderInitialization for ExecutionStateTracker since it will be initialized by the
     // time this method returns and no references are leaked to other threads during construction.
@@ -297,7 +336,13 @@ public class ExecutionStateSampler {
               ptransformId,
               ptransformUniqueName,
               stateName,
-              metricsContainerRegistry.getContainer(ptransformId));
+              metricsContainerRegistry.getContainer(ptransformId),
+              recordProcessElementLatencies
+                      && org.apache.beam.runners.core.metrics.ExecutionStateTracker
+                          .PROCESS_STATE_NAME
+                          .equals(stateName)
+                  ? new ProcessElementLatencies(ptransformId)
+                  : null);
       executionStates.add(newState);
       return newState;
     }
@@ -401,19 +446,26 @@ public class ExecutionStateSampler {
       private long lastReportedValue;
       // Read and written by the bundle processing thread frequently.
       private @Nullable ExecutionStateImpl previousState;
+      // Read and written by the bundle processing thread frequently. Only maintained when recording
+      // process element latencies.
+      private long activeNanos;
+      // Only present for process states when recording process element latencies.
+      private final @Nullable ProcessElementLatencies processElementLatencies;
 
       private ExecutionStateImpl(
           String shortId,
           String ptransformId,
           String ptransformName,
           String stateName,
-          MetricsContainer metricsContainer) {
+          MetricsContainer metricsContainer,
+          @Nullable ProcessElementLatencies processElementLatencies) {
         this.shortId = shortId;
         this.ptransformId = ptransformId;
         this.ptransformUniqueName = ptransformName;
         this.stateName = stateName;
         this.metricsContainer = metricsContainer;
         this.lazyMsecs = new AtomicLong();
+        this.processElementLatencies = processElementLatencies;
       }
 
       /**
@@ -449,6 +501,14 @@ public class ExecutionStateSampler {
 
       @Override
       public void activate() {
+        if (recordProcessElementLatencies) {
+          long nanos = System.nanoTime();
+          if (currentState != null) {
+            currentState.activeNanos += nanos - lastTransitionNanos;
+          }
+          lastTransitionNanos = nanos;
+          activeNanos = 0;
+        }
         previousState = currentState;
         currentState = this;
         currentStateLazy.lazySet(this);
@@ -458,6 +518,14 @@ public class ExecutionStateSampler {
 
       @Override
       public void deactivate() {
+        if (recordProcessElementLatencies) {
+          long nanos = System.nanoTime();
+          activeNanos += nanos - lastTransitionNanos;
+          lastTransitionNanos = nanos;
+          if (processElementLatencies != null) {
+            processElementLatencies.record(activeNanos);
+          }
+        }
         currentState = previousState;
         currentStateLazy.lazySet(previousState);
         previousState = null;
@@ -476,8 +544,11 @@ public class ExecutionStateSampler {
       this.processBundleId.lazySet(processBundleId);
       this.lastTransitionTime.lazySet(clock.getMillis());
       this.trackedThread.lazySet(Thread.currentThread());
-      synchronized (activeStateTrackers) {
+      activeStateTrackersLock.lock();
+      try {
         activeStateTrackers.add(this);
+      } finally {
+        activeStateTrackersLock.unlock();
       }
     }
 
@@ -501,12 +572,22 @@ public class ExecutionStateSampler {
      */
     @Override
     public void reset() {
-      synchronized (activeStateTrackers) {
+      if (recordProcessElementLatencies) {
+        for (ExecutionStateImpl executionState : executionStates) {
+          if (executionState.processElementLatencies != null) {
+            executionState.processElementLatencies.flush();
+          }
+        }
+      }
+      activeStateTrackersLock.lock();
+      try {
         activeStateTrackers.remove(this);
         for (ExecutionStateImpl executionState : executionStates) {
           executionState.reset();
         }
         this.transitionsAtLastSample = 0;
+      } finally {
+        activeStateTrackersLock.unlock();
       }
       this.processBundleId.lazySet(null);
       this.trackedThread.lazySet(null);
@@ -517,6 +598,65 @@ public class ExecutionStateSampler {
     }
   }
 
+  /**
+   * The latencies of processing elements for a single transform which are recorded by the bundle
+   * processing thread without synchronization.
+   */
+  private static class ProcessElementLatencies {
+    private final MetricName metricName;
+    private final long[] counts;
+    private long bottomCount;
+    private long topCount;
+    private boolean hasValues;
+
+    private ProcessElementLatencies(String ptransformId) {
+      this.metricName =
+          MonitoringInfoMetricName.named(
+              MonitoringInfoConstants.Urns.PROCESS_ELEMENT_LATENCIES,
+              Collections.singletonMap(MonitoringInfoConstants.Labels.PTRANSFORM, ptransformId));
+      this.counts = new long[PROCESS_ELEMENT_LATENCIES_BUCKET_TYPE.getNumBuckets()];
+    }
+
+    private void record(long nanos) {
+      hasValues = true;
+      if (nanos < PROCESS_ELEMENT_LATENCIES_BUCKET_TYPE.getRangeFrom()) {
+        bottomCount += 1;
+      } else if (nanos >= PROCESS_ELEMENT_LATENCIES_BUCKET_TYPE.getRangeTo()) {
+        topCount += 1;
+      } else {
+        counts[PROCESS_ELEMENT_LATENCIES_BUCKET_TYPE.getBucketIndex(nanos)] += 1;
+      }
+    }
+
+    /** Merges the recorded latencies into the process wide histogram and clears them. */
+    private void flush() {
+      if (!hasValues) {
+        return;
+      }
+      MetricsContainer container = MetricsEnvironment.getProcessWideContainer();
+      if (container instanceof MetricsContainerImpl) {
+        HistogramCell cell =
+            ((MetricsContainerImpl) container)
+                .getHistogram(metricName, PROCESS_ELEMENT_LATENCIES_BUCKET_TYPE);
+        if (bottomCount > 0) {
+          cell.incBottomBucketCount(bottomCount);
+        }
+        if (topCount > 0) {
+          cell.incTopBucketCount(topCount);
+        }
+        for (int i = 0; i < counts.length; ++i) {
+          if (counts[i] > 0) {
+            cell.incBucketCount(i, counts[i]);
+          }
+        }
+      }
+      Arrays.fill(counts, 0L);
+      bottomCount = 0;
+      topCount = 0;
+      hasValues = false;
+    }
+  }
+
   @AutoValue
   public abstract static class ExecutionStateTrackerStatus {
     public static ExecutionStateTrackerStatus create(
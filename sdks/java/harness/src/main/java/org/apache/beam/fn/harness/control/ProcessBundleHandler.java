@@ -1204,6 +1204,8 @@ public class ProcessBundleHandler {
 
     @Override
     public void close() throws Exception {
+      // Release any requests held back by the underlying client so that they can complete.
+      beamFnStateClient.flush();
       int unarrivedParties = phaser.getUnarrivedParties();
       if (unarrivedParties > 0) {
         LOG.debug(
@@ -1225,6 +1227,18 @@ public class ProcessBundleHandler {
       response.whenComplete((stateResponse, throwable) -> phaser.arriveAndDeregister());
       return response;
     }
+
+    @Override
+    public CompletableFuture<StateResponse> handleSpeculatively(
+        StateRequest.Builder requestBuilder) {
+      // Responses which may never be used are not waited for.
+      return beamFnStateClient.handleSpeculatively(requestBuilder);
+    }
+
+    @Override
+    public void flush() {
+      beamFnStateClient.flush();
+    }
   }
 
   /**
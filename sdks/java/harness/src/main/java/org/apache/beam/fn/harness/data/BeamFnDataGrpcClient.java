@@ -49,6 +49,7 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
   private final Function<Endpoints.ApiServiceDescriptor, ManagedChannel> channelFactory;
   private final OutboundObserverFactory outboundObserverFactory;
   private final PipelineOptions options;
+  private volatile boolean underMemoryPressure;
 
   public BeamFnDataGrpcClient(
       PipelineOptions options,
@@ -91,7 +92,16 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
         options,
         processBundleRequestIdSupplier,
         getClientFor(apiServiceDescriptor).getOutboundObserver(),
-        collectElementsIfNoFlushes);
+        collectElementsIfNoFlushes,
+        () -> underMemoryPressure);
+  }
+
+  /**
+   * Sets whether the harness is under memory pressure, in which case all outbound aggregators
+   * created by this client flush their buffers at a lower threshold.
+   */
+  public void setUnderMemoryPressure(boolean underMemoryPressure) {
+    this.underMemoryPressure = underMemoryPressure;
   }
 
   private BeamFnDataGrpcMultiplexer getClientFor(
@@ -30,7 +30,26 @@ public interface BeamFnStateClient {
   /**
    * Consumes a state request populating a unique id returning a future to the response.
    *
+   * <p>Must not be invoked while completing a returned future, for example from a callback
+   * registered on it, since responses may be completed on the thread receiving them.
+   *
    * @param requestBuilder A partially completed state request. The id will be populated the client.
    */
   CompletableFuture<StateResponse> handle(BeamFnApi.StateRequest.Builder requestBuilder);
+
+  /**
+   * Like {@link #handle} but for a request whose response may never be used, such as reading ahead
+   * of a consumer. Unlike {@link #handle}, the bundle is not required to wait for the response
+   * before it completes.
+   */
+  default CompletableFuture<StateResponse> handleSpeculatively(
+      BeamFnApi.StateRequest.Builder requestBuilder) {
+    return handle(requestBuilder);
+  }
+
+  /**
+   * Sends any requests which the client may be holding back, for example to coalesce them, so that
+   * the returned futures are guaranteed to complete.
+   */
+  default void flush() {}
 }
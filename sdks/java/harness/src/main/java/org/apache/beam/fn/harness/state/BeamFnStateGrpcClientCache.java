@@ -18,9 +18,22 @@
 package org.apache.beam.fn.harness.state;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateAppendRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateClearRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
 import org.apache.beam.model.fnexecution.v1.BeamFnStateGrpc;
@@ -28,8 +41,12 @@ import org.apache.beam.model.pipeline.v1.Endpoints.ApiServiceDescriptor;
 import org.apache.beam.sdk.fn.IdGenerator;
 import org.apache.beam.sdk.fn.channel.ManagedChannelFactory;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.ManagedChannel;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.stub.StreamObserver;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,24 +58,81 @@ import org.slf4j.LoggerFactory;
 @SuppressWarnings({
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
 })
-public class BeamFnStateGrpcClientCache {
+public class BeamFnStateGrpcClientCache implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(BeamFnStateGrpcClientCache.class);
 
+  /**
+   * Experiment which enables coalescing appends to the same state into fewer {@link StateRequest}s.
+   *
+   * <p>Appends and clears are held back for at most {@link #COALESCING_WINDOW_MICROS} or until any
+   * other request is made or the client is {@link BeamFnStateClient#flush flushed}. Appends for the
+   * same instruction and {@link StateKey} which are held back together are sent as a single append
+   * request with the concatenated data. A clear drops the data of the appends held back before it
+   * and is sent ahead of the appends held back after it. Gets are never held back since the caller
+   * is blocked on their response.
+   */
+  public static final String STATE_REQUEST_COALESCING_EXPERIMENT =
+      "enable_state_request_coalescing";
+
+  /** The maximum amount of time an append is held back waiting for further appends. */
+  @VisibleForTesting static final long COALESCING_WINDOW_MICROS = 1000;
+
+  /**
+   * The maximum number of bytes of appends held back, matching the limit {@link BagUserState} uses
+   * to split appends so that coalesced requests do not exceed runner limits.
+   */
+  @VisibleForTesting
+  static final int MAX_COALESCED_APPEND_BYTES = BagUserState.BAG_APPEND_BATCHING_LIMIT;
+
   private final Map<ApiServiceDescriptor, BeamFnStateClient> cache;
   private final ManagedChannelFactory channelFactory;
   private final OutboundObserverFactory outboundObserverFactory;
   private final IdGenerator idGenerator;
+  private final @Nullable ScheduledExecutorService coalescingExecutor;
+  private final long coalescingWindowMicros;
 
   public BeamFnStateGrpcClientCache(
       IdGenerator idGenerator,
       ManagedChannelFactory channelFactory,
       OutboundObserverFactory outboundObserverFactory) {
+    this(idGenerator, channelFactory, outboundObserverFactory, false);
+  }
+
+  public BeamFnStateGrpcClientCache(
+      IdGenerator idGenerator,
+      ManagedChannelFactory channelFactory,
+      OutboundObserverFactory outboundObserverFactory,
+      boolean coalesceAppends) {
+    this(
+        idGenerator,
+        channelFactory,
+        outboundObserverFactory,
+        coalesceAppends,
+        COALESCING_WINDOW_MICROS);
+  }
+
+  @VisibleForTesting
+  BeamFnStateGrpcClientCache(
+      IdGenerator idGenerator,
+      ManagedChannelFactory channelFactory,
+      OutboundObserverFactory outboundObserverFactory,
+      boolean coalesceAppends,
+      long coalescingWindowMicros) {
     this.idGenerator = idGenerator;
     // We use the directExecutor because we just complete futures when handling responses.
     // This showed a 1-2% improvement in the ProcessBundleBenchmark#testState* benchmarks.
     this.channelFactory = channelFactory.withDirectExecutor();
     this.outboundObserverFactory = outboundObserverFactory;
     this.cache = new HashMap<>();
+    this.coalescingExecutor =
+        coalesceAppends
+            ? Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("BeamFnStateCoalescing-thread")
+                    .build())
+            : null;
+    this.coalescingWindowMicros = coalescingWindowMicros;
   }
 
   /**
@@ -87,9 +161,32 @@ public class BeamFnStateGrpcClientCache {
     return rval;
   }
 
+  /**
+   * Sends any appends held back by the clients of this cache and stops the thread used to send them
+   * once the coalescing window elapses. Subsequent appends are sent immediately.
+   */
+  @Override
+  public void close() {
+    if (coalescingExecutor == null) {
+      return;
+    }
+    // Already scheduled flushes still run after shutdown.
+    coalescingExecutor.shutdown();
+    List<BeamFnStateClient> clients;
+    synchronized (cache) {
+      clients = new ArrayList<>(cache.values());
+    }
+    for (BeamFnStateClient client : clients) {
+      client.flush();
+    }
+  }
+
   /** A {@link BeamFnStateClient} for a given {@link ApiServiceDescriptor}. */
   private class GrpcStateClient implements BeamFnStateClient {
-    private final Object lock = new Object();
+    // Guards the outstanding requests and closing the client. A ReentrantLock rather than a monitor
+    // since it is held while completing the outbound observer when closing, which may be done by a
+    // virtual thread.
+    private final ReentrantLock lock = new ReentrantLock();
     private final ApiServiceDescriptor apiServiceDescriptor;
     private final Map<String, CompletableFuture<StateResponse>> outstandingRequests;
     private final StreamObserver<StateRequest> outboundObserver;
@@ -97,9 +194,27 @@ public class BeamFnStateGrpcClientCache {
     private RuntimeException closed;
     private boolean errorDuringConstruction;
 
+    // Ensures that requests are sent in the order that they were made or released from the
+    // coalescing buffer. Never acquired by the inbound observer since that runs on a gRPC thread,
+    // which is why requests must not be made while completing responses, see
+    // BeamFnStateClient#handle.
+    // A ReentrantLock rather than a monitor since it is held while blocking on the outbound
+    // observer which would otherwise pin the carrier of a virtual thread.
+    private final ReentrantLock sendLock = new ReentrantLock();
+
+    @GuardedBy("sendLock")
+    private final Map<KV<String, StateKey>, CoalescedWrites> pendingWrites;
+
+    @GuardedBy("sendLock")
+    private long pendingAppendBytes;
+
+    @GuardedBy("sendLock")
+    private boolean flushScheduled;
+
     private GrpcStateClient(ApiServiceDescriptor apiServiceDescriptor) {
       this.apiServiceDescriptor = apiServiceDescriptor;
       this.outstandingRequests = new HashMap<>();
+      this.pendingWrites = new LinkedHashMap<>();
       this.channel = channelFactory.forDescriptor(apiServiceDescriptor);
       this.errorDuringConstruction = false;
       this.outboundObserver =
@@ -108,34 +223,209 @@ public class BeamFnStateGrpcClientCache {
       // Due to safe object publishing, the InboundObserver may invoke closeAndCleanUp before this
       // constructor completes. In that case there is a race where outboundObserver may have not
       // been initialized and hence we invoke onCompleted here.
-      synchronized (lock) {
+      lock.lock();
+      try {
         if (errorDuringConstruction) {
           outboundObserver.onCompleted();
         }
+      } finally {
+        lock.unlock();
       }
     }
 
     @Override
     public CompletableFuture<StateResponse> handle(StateRequest.Builder requestBuilder) {
+      CompletableFuture<StateResponse> response = new CompletableFuture<>();
+      if (coalescingExecutor == null) {
+        send(requestBuilder, response);
+        return response;
+      }
+
+      sendLock.lock();
+      try {
+        if (!(requestBuilder.hasAppend() || requestBuilder.hasClear())
+            || coalescingExecutor.isShutdown()) {
+          // Writes must be sent before any other request to preserve their ordering.
+          flushPendingWrites();
+          send(requestBuilder, response);
+          return response;
+        }
+
+        KV<String, StateKey> key =
+            KV.of(requestBuilder.getInstructionId(), requestBuilder.getStateKey());
+        if (requestBuilder.hasClear()) {
+          CoalescedWrites pending = pendingWrites.get(key);
+          if (pending == null) {
+            pending = new CoalescedWrites(key);
+            pendingWrites.put(key, pending);
+          }
+          pendingAppendBytes -= pending.clear(response);
+        } else {
+          ByteString data = requestBuilder.getAppend().getData();
+          if (pendingAppendBytes + data.size() > MAX_COALESCED_APPEND_BYTES) {
+            flushPendingWrites();
+            if (data.size() >= MAX_COALESCED_APPEND_BYTES) {
+              send(requestBuilder, response);
+              return response;
+            }
+          }
+          CoalescedWrites pending = pendingWrites.get(key);
+          if (pending == null) {
+            pending = new CoalescedWrites(key);
+            pendingWrites.put(key, pending);
+          }
+          pending.append(data, response);
+          pendingAppendBytes += data.size();
+        }
+        if (!flushScheduled) {
+          try {
+            coalescingExecutor.schedule(
+                this::flushFromTimer, coalescingWindowMicros, TimeUnit.MICROSECONDS);
+            flushScheduled = true;
+          } catch (RejectedExecutionException e) {
+            // The cache has been closed so nothing is held back anymore.
+            flushPendingWrites();
+          }
+        }
+      } finally {
+        sendLock.unlock();
+      }
+      return response;
+    }
+
+    @Override
+    public void flush() {
+      if (coalescingExecutor == null) {
+        return;
+      }
+      sendLock.lock();
+      try {
+        flushPendingWrites();
+      } finally {
+        sendLock.unlock();
+      }
+    }
+
+    private void flushFromTimer() {
+      sendLock.lock();
+      try {
+        flushScheduled = false;
+        flushPendingWrites();
+      } finally {
+        sendLock.unlock();
+      }
+    }
+
+    @GuardedBy("sendLock")
+    private void flushPendingWrites() {
+      if (pendingWrites.isEmpty()) {
+        return;
+      }
+      for (CoalescedWrites pending : pendingWrites.values()) {
+        pending.send();
+      }
+      pendingWrites.clear();
+      pendingAppendBytes = 0;
+    }
+
+    private void send(
+        StateRequest.Builder requestBuilder, CompletableFuture<StateResponse> response) {
       requestBuilder.setId(idGenerator.getId());
       StateRequest request = requestBuilder.build();
-      CompletableFuture<StateResponse> response = new CompletableFuture<>();
-      synchronized (lock) {
+      lock.lock();
+      try {
         if (closed != null) {
           response.completeExceptionally(closed);
-          return response;
+          return;
         }
         outstandingRequests.put(request.getId(), response);
+      } finally {
+        lock.unlock();
       }
 
       // If the server closes, gRPC will throw an error if onNext is called.
       LOG.debug("Sending StateRequest {}", request);
       outboundObserver.onNext(request);
-      return response;
+    }
+
+    /**
+     * Clears and appends for the same instruction and state which are sent as at most a single
+     * clear followed by a single append.
+     */
+    private class CoalescedWrites {
+      private final KV<String, StateKey> key;
+      // The responses completed by the clear, including those of the appends it superseded.
+      private final List<CompletableFuture<StateResponse>> clearResponses;
+      private final List<ByteString> data;
+      private final List<CompletableFuture<StateResponse>> appendResponses;
+      private long dataBytes;
+
+      private CoalescedWrites(KV<String, StateKey> key) {
+        this.key = key;
+        this.clearResponses = new ArrayList<>();
+        this.data = new ArrayList<>();
+        this.appendResponses = new ArrayList<>();
+      }
+
+      private void append(ByteString data, CompletableFuture<StateResponse> response) {
+        this.data.add(data);
+        this.appendResponses.add(response);
+        this.dataBytes += data.size();
+      }
+
+      /** Drops the data appended so far returning its size in bytes. */
+      private long clear(CompletableFuture<StateResponse> response) {
+        clearResponses.addAll(appendResponses);
+        clearResponses.add(response);
+        appendResponses.clear();
+        data.clear();
+        long droppedBytes = dataBytes;
+        dataBytes = 0;
+        return droppedBytes;
+      }
+
+      private void send() {
+        if (!clearResponses.isEmpty()) {
+          sendCombined(
+              newRequestBuilder().setClear(StateClearRequest.getDefaultInstance()), clearResponses);
+        }
+        if (!appendResponses.isEmpty()) {
+          // Concatenating the data uses a rope avoiding copying the appended bytes.
+          sendCombined(
+              newRequestBuilder()
+                  .setAppend(StateAppendRequest.newBuilder().setData(ByteString.copyFrom(data))),
+              appendResponses);
+        }
+      }
+
+      private StateRequest.Builder newRequestBuilder() {
+        return StateRequest.newBuilder().setInstructionId(key.getKey()).setStateKey(key.getValue());
+      }
+
+      private void sendCombined(
+          StateRequest.Builder requestBuilder, List<CompletableFuture<StateResponse>> responses) {
+        if (responses.size() == 1) {
+          GrpcStateClient.this.send(requestBuilder, responses.get(0));
+          return;
+        }
+        CompletableFuture<StateResponse> response = new CompletableFuture<>();
+        response.whenComplete(
+            (stateResponse, error) -> {
+              for (CompletableFuture<StateResponse> coalesced : responses) {
+                if (error == null) {
+                  coalesced.complete(stateResponse);
+                } else {
+                  coalesced.completeExceptionally(error);
+                }
+              }
+            });
+        GrpcStateClient.this.send(requestBuilder, response);
+      }
     }
 
     private void closeAndCleanUp(RuntimeException cause) {
-      synchronized (lock) {
+      lock.lock();
+      try {
         if (closed != null) {
           return;
         }
@@ -161,6 +451,8 @@ public class BeamFnStateGrpcClientCache {
         } else {
           outboundObserver.onCompleted();
         }
+      } finally {
+        lock.unlock();
       }
     }
 
@@ -178,8 +470,11 @@ public class BeamFnStateGrpcClientCache {
       public void onNext(StateResponse value) {
         LOG.debug("Received StateResponse {}", value);
         CompletableFuture<StateResponse> responseFuture;
-        synchronized (lock) {
+        lock.lock();
+        try {
           responseFuture = outstandingRequests.remove(value.getId());
+        } finally {
+          lock.unlock();
         }
         if (responseFuture == null) {
           LOG.warn("Dropped unknown StateResponse {}", value);
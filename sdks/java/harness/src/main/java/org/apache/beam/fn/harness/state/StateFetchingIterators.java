@@ -17,11 +17,14 @@
  */
 package org.apache.beam.fn.harness.state;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
 
 import com.google.auto.value.AutoValue;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -29,7 +32,10 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import org.apache.beam.fn.harness.Cache;
 import org.apache.beam.fn.harness.Cache.Shrinkable;
 import org.apache.beam.fn.harness.Caches;
@@ -45,6 +51,9 @@ import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Throwables;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Adapters which convert a logical series of chunks using continuation tokens over the Beam Fn
@@ -54,6 +63,25 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Throwables;
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
 })
 public class StateFetchingIterators {
+  private static final Logger LOG = LoggerFactory.getLogger(StateFetchingIterators.class);
+
+  /** The default maximum number of chunks which are requested ahead of the consumer. */
+  public static final int DEFAULT_MAX_READ_AHEAD_PAGES = 8;
+
+  /**
+   * The maximum number of bytes of received chunks buffered ahead of the consumer by default is the
+   * maximum weight of the cache shifted right by this amount.
+   */
+  private static final int READ_AHEAD_BYTES_SHIFT = 6;
+
+  // Requests the chunks ahead of the consumer once the preceding chunk has been received since the
+  // thread completing a response must not make requests, see BeamFnStateClient#handle.
+  private static final Executor READ_AHEAD_EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("StateFetchingIterators-read-ahead-%d")
+              .build());
 
   // do not instantiate
   private StateFetchingIterators() {}
@@ -83,11 +111,50 @@ public class StateFetchingIterators {
       BeamFnStateClient beamFnStateClient,
       StateRequest stateRequestForFirstChunk,
       Coder<T> valueCoder) {
+    return readAllAndDecodeStartingFrom(
+        cache,
+        beamFnStateClient,
+        stateRequestForFirstChunk,
+        valueCoder,
+        DEFAULT_MAX_READ_AHEAD_PAGES,
+        maxReadAheadBytes(cache));
+  }
+
+  /**
+   * Returns the maximum number of bytes of received chunks buffered ahead of the consumer for
+   * iterables using the cache. Received chunks are held outside of the cache until they are decoded
+   * into cached blocks so they are bounded by a fraction of the maximum weight of the cache. A
+   * cache which stores nothing therefore only ever fetches the next chunk.
+   */
+  @VisibleForTesting
+  static long maxReadAheadBytes(Cache<?, ?> cache) {
+    return Caches.getMaximumWeight(cache) >> READ_AHEAD_BYTES_SHIFT;
+  }
+
+  /**
+   * Like {@link #readAllAndDecodeStartingFrom(Cache, BeamFnStateClient, StateRequest, Coder)} but
+   * allows configuring how far ahead of the consumer chunks are fetched.
+   *
+   * <p>While iterating, the number of chunks requested ahead of the consumer grows whenever the
+   * consumer has to wait for a chunk up to {@code maxReadAheadPages}. Chunks which have been
+   * received are buffered outside of the cache until they are decoded into cached blocks so their
+   * size is bounded by {@code maxReadAheadBytes}. Passing {@code 1} for {@code maxReadAheadPages}
+   * or {@code 0} for {@code maxReadAheadBytes} only ever fetches the next chunk.
+   */
+  public static <T> CachingStateIterable<T> readAllAndDecodeStartingFrom(
+      Cache<?, ?> cache,
+      BeamFnStateClient beamFnStateClient,
+      StateRequest stateRequestForFirstChunk,
+      Coder<T> valueCoder,
+      int maxReadAheadPages,
+      long maxReadAheadBytes) {
     return new CachingStateIterable<>(
         (Cache<IterableCacheKey, Blocks<T>>) cache,
         beamFnStateClient,
         stateRequestForFirstChunk,
-        valueCoder);
+        valueCoder,
+        maxReadAheadPages,
+        maxReadAheadBytes);
   }
 
   @VisibleForTesting
@@ -207,16 +274,36 @@ public class StateFetchingIterators {
     private final BeamFnStateClient beamFnStateClient;
     private final StateRequest stateRequestForFirstChunk;
     private final Coder<T> valueCoder;
+    private final int maxReadAheadPages;
+    private final long maxReadAheadBytes;
 
     public CachingStateIterable(
         Cache<IterableCacheKey, Blocks<T>> cache,
         BeamFnStateClient beamFnStateClient,
         StateRequest stateRequestForFirstChunk,
         Coder<T> valueCoder) {
+      this(
+          cache,
+          beamFnStateClient,
+          stateRequestForFirstChunk,
+          valueCoder,
+          DEFAULT_MAX_READ_AHEAD_PAGES,
+          maxReadAheadBytes(cache));
+    }
+
+    public CachingStateIterable(
+        Cache<IterableCacheKey, Blocks<T>> cache,
+        BeamFnStateClient beamFnStateClient,
+        StateRequest stateRequestForFirstChunk,
+        Coder<T> valueCoder,
+        int maxReadAheadPages,
+        long maxReadAheadBytes) {
       this.cache = cache;
       this.beamFnStateClient = beamFnStateClient;
       this.stateRequestForFirstChunk = stateRequestForFirstChunk;
       this.valueCoder = valueCoder;
+      this.maxReadAheadPages = maxReadAheadPages;
+      this.maxReadAheadBytes = maxReadAheadBytes;
     }
 
     /**
@@ -346,7 +433,8 @@ public class StateFetchingIterators {
 
       public CachingStateIterator() {
         this.underlyingStateFetchingIterator =
-            new LazyBlockingStateFetchingIterator(beamFnStateClient, stateRequestForFirstChunk);
+            new LazyBlockingStateFetchingIterator(
+                beamFnStateClient, stateRequestForFirstChunk, maxReadAheadPages, maxReadAheadBytes);
         this.dataStreamDecoder =
             new DataStreamDecoder<>(valueCoder, underlyingStateFetchingIterator);
         this.currentBlock =
@@ -486,21 +574,83 @@ public class StateFetchingIterators {
    * An {@link Iterator} which fetches {@link ByteString} chunks using the State API.
    *
    * <p>This iterator will only request a chunk on first access. Subsequently it eagerly pre-fetches
-   * one future chunk at a time.
+   * future chunks using a read-ahead window. Since the continuation token for a chunk is only known
+   * once the previous chunk has been received, the request for the following chunk is issued as
+   * soon as the previous chunk arrives, so that the requests for the whole window are in flight
+   * while the consumer processes a chunk. These requests are issued on a separate executor since
+   * the threads completing the responses must not make requests.
+   *
+   * <p>The window starts at one chunk and doubles whenever the consumer has to block waiting for a
+   * chunk, up to {@code maxReadAheadPages}. It halves whenever requested chunks are discarded
+   * unused by seeking. The chunks which have been received but not yet consumed are bounded by
+   * {@code maxReadAheadBytes}. Chunks requested ahead of the consumer use {@link
+   * BeamFnStateClient#handleSpeculatively} so that bundles do not wait for them to complete.
    */
   @VisibleForTesting
   static class LazyBlockingStateFetchingIterator implements PrefetchableIterator<ByteString> {
 
     private final BeamFnStateClient beamFnStateClient;
     private final StateRequest stateRequestForFirstChunk;
+    private final int maxReadAheadPages;
+    private final long maxReadAheadBytes;
+    private final Executor readAheadExecutor;
     private ByteString continuationToken;
-    private CompletableFuture<StateResponse> prefetchedResponse;
+
+    // Chunks which have been requested but not yet consumed in stream order. The first chunk, if
+    // any, is the one for the current continuation token.
+    @GuardedBy("this")
+    private final Deque<CompletableFuture<StateResponse>> pendingChunks;
+
+    // The chunk which was requested last since seeking, which may already have been removed from
+    // the pending chunks by the consumer waiting for it.
+    @GuardedBy("this")
+    private @Nullable CompletableFuture<StateResponse> lastRequestedChunk;
+
+    // Only modified while synchronized but read by the threads completing responses to skip
+    // reading ahead without synchronizing.
+    private volatile int readAheadWindow;
 
     LazyBlockingStateFetchingIterator(
         BeamFnStateClient beamFnStateClient, StateRequest stateRequestForFirstChunk) {
+      this(
+          beamFnStateClient,
+          stateRequestForFirstChunk,
+          DEFAULT_MAX_READ_AHEAD_PAGES,
+          Long.MAX_VALUE);
+    }
+
+    LazyBlockingStateFetchingIterator(
+        BeamFnStateClient beamFnStateClient,
+        StateRequest stateRequestForFirstChunk,
+        int maxReadAheadPages,
+        long maxReadAheadBytes) {
+      this(
+          beamFnStateClient,
+          stateRequestForFirstChunk,
+          maxReadAheadPages,
+          maxReadAheadBytes,
+          READ_AHEAD_EXECUTOR);
+    }
+
+    @VisibleForTesting
+    LazyBlockingStateFetchingIterator(
+        BeamFnStateClient beamFnStateClient,
+        StateRequest stateRequestForFirstChunk,
+        int maxReadAheadPages,
+        long maxReadAheadBytes,
+        Executor readAheadExecutor) {
+      checkArgument(
+          maxReadAheadPages >= 1,
+          "Expected at least one read-ahead page but got %s",
+          maxReadAheadPages);
       this.beamFnStateClient = beamFnStateClient;
       this.stateRequestForFirstChunk = stateRequestForFirstChunk;
+      this.maxReadAheadPages = maxReadAheadPages;
+      this.maxReadAheadBytes = maxReadAheadBytes;
+      this.readAheadExecutor = readAheadExecutor;
       this.continuationToken = stateRequestForFirstChunk.getGet().getContinuationToken();
+      this.pendingChunks = new ArrayDeque<>();
+      this.readAheadWindow = 1;
     }
 
     /**
@@ -520,35 +670,111 @@ public class StateFetchingIterators {
      * <p>This is a no-op if the continuation token passed in is the same as the current
      * continuation token.
      */
-    public void seekToContinuationToken(@Nullable ByteString continuationToken) {
-      // Don't clear the prefetched response if no seeking is required.
+    public synchronized void seekToContinuationToken(@Nullable ByteString continuationToken) {
+      // Don't clear the prefetched responses if no seeking is required.
       if (Objects.equals(this.continuationToken, continuationToken)) {
         return;
       }
       this.continuationToken = continuationToken;
-      this.prefetchedResponse = null;
+      lastRequestedChunk = null;
+      if (!pendingChunks.isEmpty()) {
+        // The requested chunks were not used so read ahead less.
+        pendingChunks.clear();
+        readAheadWindow = Math.max(1, readAheadWindow / 2);
+      }
     }
 
     @Override
-    public boolean isReady() {
-      if (prefetchedResponse == null) {
+    public synchronized boolean isReady() {
+      CompletableFuture<StateResponse> chunk = pendingChunks.peekFirst();
+      if (chunk == null) {
         return continuationToken == null;
       }
-      return prefetchedResponse.isDone();
+      return chunk.isDone();
     }
 
     @Override
-    public void prefetch() {
-      if (continuationToken != null && prefetchedResponse == null) {
-        prefetchedResponse = loadPrefetchedResponse(continuationToken);
+    public synchronized void prefetch() {
+      if (continuationToken != null && pendingChunks.isEmpty()) {
+        addPendingChunk(loadPrefetchedResponse(continuationToken));
       }
+      readAhead();
     }
 
     public CompletableFuture<StateResponse> loadPrefetchedResponse(ByteString continuationToken) {
-      return beamFnStateClient.handle(
-          stateRequestForFirstChunk
-              .toBuilder()
-              .setGet(StateGetRequest.newBuilder().setContinuationToken(continuationToken)));
+      return beamFnStateClient.handle(requestFor(continuationToken));
+    }
+
+    private StateRequest.Builder requestFor(ByteString continuationToken) {
+      return stateRequestForFirstChunk
+          .toBuilder()
+          .setGet(StateGetRequest.newBuilder().setContinuationToken(continuationToken));
+    }
+
+    /** Returns the number of chunks which have been requested but not yet consumed. */
+    @VisibleForTesting
+    synchronized int getPendingChunkCount() {
+      return pendingChunks.size();
+    }
+
+    @VisibleForTesting
+    int getReadAheadWindow() {
+      return readAheadWindow;
+    }
+
+    @GuardedBy("this")
+    @SuppressWarnings("FutureReturnValueIgnored") // The chained request is tracked when issued.
+    private void addPendingChunk(CompletableFuture<StateResponse> chunk) {
+      pendingChunks.addLast(chunk);
+      lastRequestedChunk = chunk;
+      chunk.whenComplete(
+          (response, error) -> {
+            // Avoid a thread hop when the chunk is the last one or there is no read-ahead.
+            if (error == null
+                && readAheadWindow > 1
+                && !response.getGet().getContinuationToken().isEmpty()) {
+              readAheadExecutor.execute(() -> onChunkReceived(chunk));
+            }
+          });
+    }
+
+    private synchronized void onChunkReceived(CompletableFuture<StateResponse> chunk) {
+      // The chunk has been discarded by seeking or the following chunk was already requested.
+      if (lastRequestedChunk != chunk) {
+        return;
+      }
+      try {
+        readAhead();
+      } catch (RuntimeException e) {
+        // The consumer issues the request itself once it reaches the chunk and observes the error.
+        LOG.debug("Failed to read ahead of the consumer.", e);
+      }
+    }
+
+    /**
+     * Requests the chunk following the last requested chunk while the read-ahead window and byte
+     * budget permit. Stops at a chunk whose response has not yet arrived since its continuation
+     * token is still unknown, the request following it is issued once it arrives.
+     */
+    @GuardedBy("this")
+    private void readAhead() {
+      long bufferedBytes = 0;
+      for (CompletableFuture<StateResponse> chunk : pendingChunks) {
+        if (chunk.isDone() && !chunk.isCompletedExceptionally()) {
+          bufferedBytes += chunk.join().getGet().getData().size();
+        }
+      }
+      while (pendingChunks.size() < readAheadWindow && bufferedBytes < maxReadAheadBytes) {
+        CompletableFuture<StateResponse> last = lastRequestedChunk;
+        if (last == null || !last.isDone() || last.isCompletedExceptionally()) {
+          return;
+        }
+        ByteString nextToken = last.join().getGet().getContinuationToken();
+        if (nextToken.isEmpty()) {
+          return;
+        }
+        addPendingChunk(beamFnStateClient.handleSpeculatively(requestFor(nextToken)));
+      }
     }
 
     @Override
@@ -562,10 +788,18 @@ public class StateFetchingIterators {
         throw new NoSuchElementException();
       }
 
-      prefetch();
+      CompletableFuture<StateResponse> chunk;
+      synchronized (this) {
+        prefetch();
+        chunk = pendingChunks.removeFirst();
+        if (!chunk.isDone()) {
+          // The consumer is outpacing the state API so keep more requests in flight.
+          readAheadWindow = Math.min(maxReadAheadPages, readAheadWindow * 2);
+        }
+      }
       StateResponse stateResponse;
       try {
-        stateResponse = prefetchedResponse.get();
+        stateResponse = chunk.get();
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
         throw new IllegalStateException(e);
@@ -576,7 +810,6 @@ public class StateFetchingIterators {
         Throwables.throwIfUnchecked(e.getCause());
         throw new IllegalStateException(e.getCause());
       }
-      prefetchedResponse = null;
 
       // If the continuation token is empty, that means we have reached EOF.
       if (ByteString.EMPTY.equals(stateResponse.getGet().getContinuationToken())) {
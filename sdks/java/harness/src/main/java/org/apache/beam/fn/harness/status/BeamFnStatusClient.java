@@ -62,18 +62,28 @@ public class BeamFnStatusClient implements AutoCloseable {
       BundleProcessorCache processBundleCache,
       PipelineOptions options,
       Cache<?, ?> cache) {
+    this(
+        apiServiceDescriptor,
+        channelFactory,
+        processBundleCache,
+        cache,
+        MemoryMonitor.createAndStart(options));
+  }
+
+  /** Creates a client which reports the memory status of the already started memory monitor. */
+  public BeamFnStatusClient(
+      ApiServiceDescriptor apiServiceDescriptor,
+      Function<ApiServiceDescriptor, ManagedChannel> channelFactory,
+      BundleProcessorCache processBundleCache,
+      Cache<?, ?> cache,
+      MemoryMonitor memoryMonitor) {
     this.channel = channelFactory.apply(apiServiceDescriptor);
     this.outboundObserver =
         BeamFnWorkerStatusGrpc.newStub(channel).workerStatus(new InboundObserver());
     this.processBundleCache = processBundleCache;
-    this.memoryMonitor = MemoryMonitor.fromOptions(options);
+    this.memoryMonitor = memoryMonitor;
     this.cache = cache;
     this.inboundObserverCompletion = new CompletableFuture<>();
-    Thread thread = new Thread(memoryMonitor);
-    thread.setDaemon(true);
-    thread.setPriority(Thread.MIN_PRIORITY);
-    thread.setName("MemoryMonitor");
-    thread.start();
   }
 
   @Override
@@ -31,6 +31,7 @@ import java.nio.file.attribute.PosixFilePermission;
 import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.management.InstanceNotFoundException;
@@ -74,6 +75,10 @@ import org.slf4j.LoggerFactory;
  *   <li>It can also shutdown the current jvm runtime when a threshold of consecutive gc thrashing
  *       count is met. A heap dump is made before shutdown.
  * </ul>
+ *
+ * <p>{@link MemoryPressureListener}s are notified after every period that the server is evaluated
+ * to be in GC thrashing and once more when it recovers, allowing callers to release memory and slow
+ * down processing before the JVM runs out of memory.
  */
 @SuppressWarnings({
   "nullness" // TODO(https://github.com/apache/beam/issues/20497)
@@ -182,6 +187,9 @@ public class MemoryMonitor implements Runnable {
 
   private final AtomicBoolean isThrashing = new AtomicBoolean(false);
 
+  private final CopyOnWriteArrayList<MemoryPressureListener> memoryPressureListeners =
+      new CopyOnWriteArrayList<>();
+
   private final AtomicBoolean isRunning = new AtomicBoolean(false);
 
   private final AtomicDouble lastMeasuredGCPercentage = new AtomicDouble(0.0);
@@ -201,6 +209,28 @@ public class MemoryMonitor implements Runnable {
 
   private final File localDumpFolder;
 
+  /** Notified by the monitor thread about the memory pressure the server is under. */
+  public interface MemoryPressureListener {
+    /**
+     * Invoked after every period that the server is evaluated to be in GC thrashing with {@code
+     * true} and once with {@code false} when the server is no longer in GC thrashing.
+     */
+    void onMemoryPressure(boolean underPressure);
+  }
+
+  /**
+   * Creates a {@link MemoryMonitor} using {@link #fromOptions} and starts it on a daemon thread.
+   */
+  public static MemoryMonitor createAndStart(PipelineOptions options) {
+    MemoryMonitor memoryMonitor = fromOptions(options);
+    Thread thread = new Thread(memoryMonitor);
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.setName("MemoryMonitor");
+    thread.start();
+    return memoryMonitor;
+  }
+
   public static MemoryMonitor fromOptions(PipelineOptions options) {
     String uploadFilePath = options.getTempLocation();
     PortablePipelineOptions portableOptions = options.as(PortablePipelineOptions.class);
@@ -355,6 +385,21 @@ public class MemoryMonitor implements Runnable {
     return isThrashing.get();
   }
 
+  /** Registers a listener which is invoked on the monitor thread. */
+  public void addMemoryPressureListener(MemoryPressureListener listener) {
+    memoryPressureListeners.add(listener);
+  }
+
+  private void notifyMemoryPressureListeners(boolean underPressure) {
+    for (MemoryPressureListener listener : memoryPressureListeners) {
+      try {
+        listener.onMemoryPressure(underPressure);
+      } catch (RuntimeException e) {
+        LOG.warn("Memory pressure listener {} failed.", listener, e);
+      }
+    }
+  }
+
   /**
    * Check if we've observed high gc workload in sufficient sample periods to justify classifying
    * the server as in gc thrashing.
@@ -506,6 +551,7 @@ public class MemoryMonitor implements Runnable {
         }
         long now = System.currentTimeMillis();
 
+        boolean wasThrashing = isThrashing.get();
         updateData(now, lastTimeWokeUp);
         updateIsThrashing();
 
@@ -521,9 +567,13 @@ public class MemoryMonitor implements Runnable {
               && (currentThrashingCount >= shutDownAfterNumGCThrashing)) {
             shutDownDueToGcThrashing(currentThrashingCount);
           }
+          notifyMemoryPressureListeners(true);
         } else {
           // Reset the counter whenever the server is evaluated not under gc thrashing.
           currentThrashingCount = 0;
+          if (wasThrashing) {
+            notifyMemoryPressureListeners(false);
+          }
         }
 
         lastTimeWokeUp = now;
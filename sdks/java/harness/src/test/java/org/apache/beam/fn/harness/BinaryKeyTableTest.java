@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BinaryKeyTable}. */
+@RunWith(JUnit4.class)
+public class BinaryKeyTableTest {
+
+  @Test
+  public void testPutAndGet() {
+    BinaryKeyTable<String> table = new BinaryKeyTable<>();
+    put(table, "A");
+    put(table, "BB");
+    put(table, "");
+    assertEquals(3, table.size());
+    assertEquals("A", get(table, "A"));
+    assertEquals("BB", get(table, "BB"));
+    assertEquals("", get(table, ""));
+    assertNull(get(table, "B"));
+  }
+
+  @Test
+  public void testLookupWithinLargerBuffer() {
+    BinaryKeyTable<String> table = new BinaryKeyTable<>();
+    put(table, "key");
+    byte[] buffer = "prefix-key-suffix".getBytes(StandardCharsets.UTF_8);
+    assertEquals("key", table.get(buffer, 7, 3, BinaryKeyTable.hash(buffer, 7, 3)));
+  }
+
+  @Test
+  public void testGrowsAndEvictsAllValues() {
+    BinaryKeyTable<String> table = new BinaryKeyTable<>();
+    Set<String> expected = new HashSet<>();
+    for (int i = 0; i < 10_000; ++i) {
+      put(table, Integer.toString(i));
+      expected.add(Integer.toString(i));
+    }
+    assertEquals(10_000, table.size());
+    for (String key : expected) {
+      assertEquals(key, get(table, key));
+    }
+
+    Set<String> evicted = new HashSet<>();
+    while (table.size() > 0) {
+      evicted.add(table.evict());
+    }
+    assertEquals(expected, evicted);
+  }
+
+  @Test
+  public void testEvictionGivesReferencedEntriesASecondChance() {
+    BinaryKeyTable<String> table = new BinaryKeyTable<>();
+    put(table, "A");
+    put(table, "B");
+    put(table, "C");
+    // Clears all the reference bits and evicts one value.
+    String first = table.evict();
+    List<String> remaining = new ArrayList<>();
+    for (String key : new String[] {"A", "B", "C"}) {
+      if (!key.equals(first)) {
+        remaining.add(key);
+      }
+    }
+    // Accessing a value sets its reference bit so the other one is evicted next.
+    get(table, remaining.get(0));
+    assertEquals(remaining.get(1), table.evict());
+    assertEquals(remaining.get(0), table.evict());
+  }
+
+  @Test
+  public void testRandomizedRemovalsKeepRemainingKeysReachable() {
+    Random random = new Random(1234);
+    BinaryKeyTable<String> table = new BinaryKeyTable<>();
+    Set<String> present = new HashSet<>();
+    for (int i = 0; i < 50_000; ++i) {
+      String key = Integer.toString(random.nextInt(5_000));
+      if (get(table, key) == null) {
+        put(table, key);
+        present.add(key);
+      }
+      if (random.nextInt(4) == 0) {
+        present.remove(table.evict());
+      }
+    }
+    assertEquals(present.size(), table.size());
+    for (String key : present) {
+      assertEquals(key, get(table, key));
+    }
+  }
+
+  @Test
+  public void testClear() {
+    BinaryKeyTable<String> table = new BinaryKeyTable<>();
+    put(table, "A");
+    put(table, "B");
+    table.clear();
+    assertEquals(0, table.size());
+    assertNull(get(table, "A"));
+    put(table, "C");
+    List<String> values = new ArrayList<>();
+    table.forEachValue(values::add);
+    assertThat(values, containsInAnyOrder("C"));
+  }
+
+  @Test
+  public void testEvictFromEmptyTableFails() {
+    BinaryKeyTable<String> table = new BinaryKeyTable<>();
+    assertThrows(IllegalStateException.class, table::evict);
+  }
+
+  private static void put(BinaryKeyTable<String> table, String key) {
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    table.putAbsent(bytes, 0, bytes.length, BinaryKeyTable.hash(bytes, 0, bytes.length), key);
+  }
+
+  private static String get(BinaryKeyTable<String> table, String key) {
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    return table.get(bytes, 0, bytes.length, BinaryKeyTable.hash(bytes, 0, bytes.length));
+  }
+}
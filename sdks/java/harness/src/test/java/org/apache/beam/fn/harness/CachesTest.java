@@ -20,12 +20,17 @@ package org.apache.beam.fn.harness;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
 import org.apache.beam.fn.harness.Cache.Shrinkable;
 import org.apache.beam.fn.harness.Caches.ClearableCache;
+import org.apache.beam.fn.harness.Caches.PrefixStats;
+import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
+import org.apache.beam.sdk.options.SdkHarnessOptions.CacheAdmissionPolicy;
 import org.apache.beam.sdk.util.Weighted;
 import org.apache.beam.sdk.util.WeightedValue;
 import org.junit.Test;
@@ -221,4 +226,145 @@ public class CachesTest {
         .put(WeightedValue.of("subCacheKey", 8 * MB), WeightedValue.of("subCacheValue", 3 * MB));
     assertThat(cache.describeStats(), containsString("used/max 650/1000 MB"));
   }
+
+  @Test
+  public void testShrinkForMemoryPressure() throws Exception {
+    Cache<WeightedValue<Integer>, Object> cache = Caches.forMaximumBytes(1000 * MB);
+    cache.put(WeightedValue.of(0, MB), new ShrinkableString("value", 898 * MB));
+    for (int i = 1; i <= 50; ++i) {
+      cache.put(WeightedValue.of(i, MB), WeightedValue.of("value", MB));
+    }
+    assertThat(cache.describeStats(), containsString("used/max 999/1000 MB"));
+
+    // 1 + 449 + 100 = 550 after shrinking, then 26 other entries are evicted to get below 500.
+    Caches.shrinkForMemoryPressure(cache);
+    assertEquals(449 * MB, ((ShrinkableString) cache.peek(WeightedValue.of(0, MB))).getWeight());
+    assertThat(cache.describeStats(), containsString("used/max 498/1000 MB"));
+
+    // Shrinkable values which can not be shrunk further are removed.
+    Caches.shrinkForMemoryPressure(cache);
+    assertNull(cache.peek(WeightedValue.of(0, MB)));
+    assertThat(cache.describeStats(), containsString("used/max 48/1000 MB"));
+  }
+
+  @Test
+  public void testShrinkForMemoryPressureEvictsLeastRecentlyUsed() throws Exception {
+    Cache<WeightedValue<Integer>, Object> cache = Caches.forMaximumBytes(1000 * MB);
+    for (int i = 0; i < 10; ++i) {
+      cache.put(WeightedValue.of(i, MB), WeightedValue.of("value", 9 * MB));
+    }
+    // Use the most recently inserted entries first so that the oldest entries remain.
+    for (int i = 5; i < 10; ++i) {
+      cache.peek(WeightedValue.of(i, MB));
+    }
+    for (int i = 0; i < 5; ++i) {
+      cache.peek(WeightedValue.of(i, MB));
+    }
+
+    Caches.shrinkForMemoryPressure(cache);
+    assertThat(cache.describeStats(), containsString("used/max 50/1000 MB"));
+    for (int i = 0; i < 5; ++i) {
+      assertNotNull(cache.peek(WeightedValue.of(i, MB)));
+    }
+    for (int i = 5; i < 10; ++i) {
+      assertNull(cache.peek(WeightedValue.of(i, MB)));
+    }
+
+    // The maximum weight of the cache is unchanged.
+    cache.put(WeightedValue.of(10, MB), WeightedValue.of("value", 900 * MB));
+    assertThat(cache.describeStats(), containsString("used/max 951/1000 MB"));
+  }
+
+  @Test
+  public void testDefaultCacheWithFrequencyAdmission() throws Exception {
+    PipelineOptions options = PipelineOptionsFactory.create();
+    options.as(SdkHarnessOptions.class).setCacheAdmissionPolicy(CacheAdmissionPolicy.FREQUENCY);
+    testCache(Caches.fromOptions(options));
+  }
+
+  @Test
+  public void testFrequencyAdmissionProtectsFrequentlyUsedEntries() throws Exception {
+    Cache<WeightedValue<Integer>, Object> cache =
+        Caches.forMaximumBytes(
+            100 * MB, Caches.admissionPolicy(CacheAdmissionPolicy.FREQUENCY, 100 * MB));
+
+    // Entries are admitted while the cache has room.
+    for (int i = 0; i < 10; ++i) {
+      cache.put(WeightedValue.of(i, 1), WeightedValue.of("hot" + i, 9 * MB));
+      for (int j = 0; j < 5; ++j) {
+        assertNotNull(cache.peek(WeightedValue.of(i, 1)));
+      }
+    }
+
+    // A large scan over values that are only read once should not flush the hot entries.
+    for (int i = 100; i < 200; ++i) {
+      Object value =
+          cache.computeIfAbsent(
+              WeightedValue.of(i, 1), (key) -> WeightedValue.of("cold" + key.getValue(), 9 * MB));
+      assertEquals("cold" + i, value);
+    }
+    for (int i = 0; i < 10; ++i) {
+      assertEquals("hot" + i, cache.peek(WeightedValue.of(i, 1)));
+    }
+
+    // A cold entry that is requested repeatedly is eventually admitted.
+    for (int j = 0; j < Caches.FrequencyAdmissionPolicy.MIN_ADMISSION_FREQUENCY; ++j) {
+      cache.computeIfAbsent(WeightedValue.of(150, 1), (key) -> WeightedValue.of("warm", 9 * MB));
+    }
+    assertEquals("warm", cache.peek(WeightedValue.of(150, 1)));
+  }
+
+  @Test
+  public void testFrequencyAdmissionRejectedPutDoesNotReturnStaleValues() throws Exception {
+    Cache<WeightedValue<Integer>, Object> cache =
+        Caches.forMaximumBytes(
+            10 * MB, Caches.admissionPolicy(CacheAdmissionPolicy.FREQUENCY, 10 * MB));
+    cache.put(WeightedValue.of(1, 1), WeightedValue.of("old", MB));
+    // Replacing an existing entry is always admitted even if the cache is full.
+    cache.put(WeightedValue.of(1, 1), WeightedValue.of("new", 9 * MB));
+    assertEquals("new", cache.peek(WeightedValue.of(1, 1)));
+    // A new entry which is only used once is rejected once the cache is full.
+    cache.put(WeightedValue.of(2, 1), WeightedValue.of("other", 5 * MB));
+    assertNull(cache.peek(WeightedValue.of(2, 1)));
+  }
+
+  @Test
+  public void testPrefixStats() throws Exception {
+    Cache<Object, Object> cache =
+        Caches.forMaximumBytes(
+            10 * MB, Caches.admissionPolicy(CacheAdmissionPolicy.FREQUENCY, 10 * MB));
+    Cache<WeightedValue<Integer>, Object> first = Caches.subCache(cache, "first");
+    Cache<WeightedValue<Integer>, Object> second = Caches.subCache(cache, "second", "nested");
+
+    first.put(WeightedValue.of(1, 1), WeightedValue.of("value", MB));
+    first.peek(WeightedValue.of(1, 1));
+    first.peek(WeightedValue.of(2, 1));
+    second.computeIfAbsent(WeightedValue.of(1, 1), (key) -> WeightedValue.of("value", 8 * MB));
+    // Rejected since the cache is full and the key has only been requested once.
+    second.computeIfAbsent(WeightedValue.of(2, 1), (key) -> WeightedValue.of("value", 8 * MB));
+
+    PrefixStats firstStats = Caches.getPrefixStats(first);
+    assertEquals(1, firstStats.hitCount());
+    assertEquals(1, firstStats.missCount());
+    assertEquals(1, firstStats.admissionCount());
+    assertEquals(0, firstStats.rejectionCount());
+
+    PrefixStats secondStats = Caches.getPrefixStats(second);
+    assertEquals(0, secondStats.hitCount());
+    assertEquals(2, secondStats.missCount());
+    assertEquals(1, secondStats.admissionCount());
+    assertEquals(1, secondStats.rejectionCount());
+
+    // Sub-caches sharing the same root prefix share statistics.
+    assertSame(secondStats, Caches.getPrefixStats(Caches.subCache(cache, "second")));
+
+    assertThat(
+        cache.describeStats(),
+        containsString(
+            "first: hit 50.00%, lookups 2, misses 1, admitted 1, rejected 0, evictions 0"));
+    assertThat(
+        cache.describeStats(),
+        containsString(
+            "second: hit 0.00%, lookups 2, misses 2, admitted 1, rejected 1, evictions 0"));
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link FrequencySketch}. */
+@RunWith(JUnit4.class)
+public class FrequencySketchTest {
+
+  @Test
+  public void testIncrementAndFrequency() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    assertEquals(0, sketch.frequency("a".hashCode()));
+    for (int i = 0; i < 5; ++i) {
+      sketch.increment("a".hashCode());
+    }
+    assertEquals(5, sketch.frequency("a".hashCode()));
+  }
+
+  @Test
+  public void testFrequencyIsCapped() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    for (int i = 0; i < 100; ++i) {
+      sketch.increment(42);
+    }
+    assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(42));
+  }
+
+  @Test
+  public void testCountersAreAged() {
+    FrequencySketch sketch = new FrequencySketch(16);
+    for (int i = 0; i < 10; ++i) {
+      sketch.increment(42);
+    }
+    // Recording many other hashes eventually halves all the counters.
+    for (int i = 0; i < 10_000; ++i) {
+      sketch.increment(1_000_000 + i);
+    }
+    assertThat(sketch.frequency(42), lessThan(10));
+  }
+
+  @Test
+  public void testFewCollisionsWhenSizedForEntries() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    for (int i = 0; i < 1024; ++i) {
+      sketch.increment(i * 31);
+    }
+    int overestimated = 0;
+    for (int i = 0; i < 1024; ++i) {
+      if (sketch.frequency(i * 31) > 1) {
+        overestimated += 1;
+      }
+    }
+    assertThat(overestimated, lessThan(64));
+  }
+}
@@ -28,6 +28,8 @@ import static org.hamcrest.Matchers.in;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -40,14 +42,19 @@ import org.apache.beam.fn.harness.PrecombineGroupingTable.SamplingSizeEstimator;
 import org.apache.beam.fn.harness.PrecombineGroupingTable.SizeEstimator;
 import org.apache.beam.runners.core.GlobalCombineFnRunner;
 import org.apache.beam.runners.core.GlobalCombineFnRunners;
+import org.apache.beam.sdk.coders.DoubleCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
 import org.apache.beam.sdk.fn.test.TestExecutors;
 import org.apache.beam.sdk.fn.test.TestExecutors.TestExecutorService;
+import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
 import org.apache.beam.sdk.util.WindowedValue;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ArrayListMultimap;
@@ -331,6 +338,126 @@ public class PrecombineGroupingTableTest {
     }
   }
 
+  @Test
+  public void testBinaryKeysRequireExperiment() throws Exception {
+    PrecombineGroupingTable<String, Integer, Long> table =
+        PrecombineGroupingTable.combining(
+            PipelineOptionsFactory.create(),
+            Caches.eternal(),
+            COMBINE_FN,
+            StringUtf8Coder.of(),
+            GlobalWindow.Coder.INSTANCE,
+            true);
+    assertFalse(table.usesBinaryKeys());
+  }
+
+  @Test
+  public void testBinaryKeysRequireDeterministicCoders() throws Exception {
+    PrecombineGroupingTable<Double, Integer, Long> table =
+        PrecombineGroupingTable.combining(
+            binaryKeysOptions(),
+            Caches.eternal(),
+            COMBINE_FN,
+            DoubleCoder.of(),
+            GlobalWindow.Coder.INSTANCE,
+            true);
+    assertFalse(table.usesBinaryKeys());
+  }
+
+  @Test
+  public void testBinaryKeysCombining() throws Exception {
+    PrecombineGroupingTable<String, Integer, Long> table = binaryKeysTable(true);
+    assertTrue(table.usesBinaryKeys());
+
+    TestOutputReceiver<WindowedValue<KV<String, Long>>> receiver = new TestOutputReceiver<>();
+
+    table.put(valueInGlobalWindow(KV.of("A", 1)), receiver);
+    table.put(valueInGlobalWindow(KV.of("B", 9)), receiver);
+    table.put(valueInGlobalWindow(KV.of("A", 2)), receiver);
+    table.put(valueInGlobalWindow(KV.of("B", 2)), receiver);
+    table.put(valueInGlobalWindow(KV.of("A", 4)), receiver);
+    table.flush(receiver);
+    assertThat(
+        receiver.outputElems,
+        containsInAnyOrder(
+            valueInGlobalWindow(KV.of("A", 1L + 2 + 4)), valueInGlobalWindow(KV.of("B", 9L + 2))));
+  }
+
+  @Test
+  public void testBinaryKeysGroupByKeyAndWindow() throws Exception {
+    PrecombineGroupingTable<String, Integer, Long> table = binaryKeysTable(false);
+    assertTrue(table.usesBinaryKeys());
+
+    IntervalWindow first = new IntervalWindow(new Instant(0), new Instant(10));
+    IntervalWindow second = new IntervalWindow(new Instant(10), new Instant(20));
+    TestOutputReceiver<WindowedValue<KV<String, Long>>> receiver = new TestOutputReceiver<>();
+
+    table.put(WindowedValue.of(KV.of("A", 1), new Instant(1), first, PaneInfo.NO_FIRING), receiver);
+    table.put(
+        WindowedValue.of(KV.of("A", 3), new Instant(11), second, PaneInfo.NO_FIRING), receiver);
+    table.put(WindowedValue.of(KV.of("A", 4), new Instant(2), first, PaneInfo.NO_FIRING), receiver);
+    table.put(WindowedValue.of(KV.of("B", 5), new Instant(3), first, PaneInfo.NO_FIRING), receiver);
+    table.flush(receiver);
+    assertThat(
+        receiver.outputElems,
+        containsInAnyOrder(
+            WindowedValue.of(KV.of("A", 1L + 4), new Instant(1), first, PaneInfo.NO_FIRING),
+            WindowedValue.of(KV.of("A", 3L), new Instant(11), second, PaneInfo.NO_FIRING),
+            WindowedValue.of(KV.of("B", 5L), new Instant(3), first, PaneInfo.NO_FIRING)));
+  }
+
+  @Test
+  public void testBinaryKeysEmitsCorrectValuesWhenEvicting() throws Exception {
+    PrecombineGroupingTable<Long, Integer, Long> table =
+        new PrecombineGroupingTable<>(
+            binaryKeysOptions(),
+            Caches.forMaximumBytes(2500L),
+            VarLongCoder.of(),
+            GlobalWindow.Coder.INSTANCE,
+            GlobalCombineFnRunners.create(COMBINE_FN),
+            new TestSizeEstimator(),
+            true,
+            true);
+    assertTrue(table.usesBinaryKeys());
+
+    ArrayListMultimap<Long, Long> values = ArrayListMultimap.create();
+    FnDataReceiver<WindowedValue<KV<Long, Long>>> receiver =
+        (input) -> values.put(input.getValue().getKey(), input.getValue().getValue());
+    for (int j = 1; j <= 1000; ++j) {
+      table.put(valueInGlobalWindow(KV.of((long) j, j)), receiver);
+    }
+    table.flush(receiver);
+
+    // The weights of the accumulators exceed the cache size so some values must have been evicted
+    // before the flush but each key should still only be output once.
+    assertEquals(1000, values.size());
+    for (Map.Entry<Long, Long> value : values.entries()) {
+      if (value.getKey() % 2 == 0) {
+        assertThat(value.getValue(), equalTo(value.getKey() / 4));
+      } else {
+        assertThat(value.getValue(), equalTo(value.getKey()));
+      }
+    }
+  }
+
+  private static PipelineOptions binaryKeysOptions() {
+    PipelineOptions options = PipelineOptionsFactory.create();
+    ExperimentalOptions.addExperiment(
+        options.as(ExperimentalOptions.class), PrecombineGroupingTable.BINARY_KEYS_EXPERIMENT);
+    return options;
+  }
+
+  private static PrecombineGroupingTable<String, Integer, Long> binaryKeysTable(
+      boolean isGloballyWindowed) {
+    return PrecombineGroupingTable.combining(
+        binaryKeysOptions(),
+        Caches.eternal(),
+        COMBINE_FN,
+        StringUtf8Coder.of(),
+        isGloballyWindowed ? GlobalWindow.Coder.INSTANCE : IntervalWindow.getCoder(),
+        isGloballyWindowed);
+  }
+
   ////////////////////////////////////////////////////////////////////////////
   // Tests for the sampling size estimator.
 
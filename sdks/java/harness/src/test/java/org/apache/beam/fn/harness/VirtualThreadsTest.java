@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.fn.harness;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link VirtualThreads}. */
+@RunWith(JUnit4.class)
+public class VirtualThreadsTest {
+
+  @Test
+  public void testIsSupportedMatchesJavaVersion() {
+    String version = System.getProperty("java.specification.version");
+    if (version.startsWith("1.") || Integer.parseInt(version) < 19) {
+      assertEquals(false, VirtualThreads.isSupported());
+    }
+  }
+
+  @Test
+  public void testUnsupportedThrows() {
+    assumeFalse(VirtualThreads.isSupported());
+    assertThrows(
+        UnsupportedOperationException.class, () -> VirtualThreads.newThreadPerTaskExecutor("x-"));
+  }
+
+  @Test
+  public void testRunsTasksOnNamedThreads() throws Exception {
+    assumeTrue(VirtualThreads.isSupported());
+    ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+    try {
+      String first = executor.submit(() -> Thread.currentThread().getName()).get();
+      String second = executor.submit(() -> Thread.currentThread().getName()).get();
+      assertThat(first, startsWith("test-"));
+      assertThat(second, startsWith("test-"));
+      assertTrue(!first.equals(second));
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+  }
+}
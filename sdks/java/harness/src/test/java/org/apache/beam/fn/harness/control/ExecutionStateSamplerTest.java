@@ -21,18 +21,24 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionState;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionStateTracker;
 import org.apache.beam.fn.harness.control.ExecutionStateSampler.ExecutionStateTrackerStatus;
+import org.apache.beam.runners.core.metrics.MetricsContainerImpl;
+import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
 import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
+import org.apache.beam.runners.core.metrics.MonitoringInfoMetricName;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.DelegatingHistogram;
 import org.apache.beam.sdk.metrics.Distribution;
@@ -73,6 +79,7 @@ public class ExecutionStateSamplerTest {
   @After
   public void tearDown() {
     MetricsEnvironment.setCurrentContainer(null);
+    MetricsEnvironment.setProcessWideContainer(null);
   }
 
   @Test
@@ -648,4 +655,78 @@ public class ExecutionStateSamplerTest {
     sampler.stop();
     expectedLogs.verifyWarn("Operation ongoing in bundle bundleId for PTransform");
   }
+
+  @Test
+  public void testRecordsProcessElementLatenciesExcludingDownstreamTransforms() throws Exception {
+    MetricsContainerImpl container = MetricsContainerImpl.createProcessWideContainer();
+    MetricsEnvironment.setProcessWideContainer(container);
+    ExecutionStateSampler sampler =
+        new ExecutionStateSampler(
+            PipelineOptionsFactory.fromArgs(
+                    "--experiments=" + ExecutionStateSampler.PROCESS_ELEMENT_LATENCIES_EXPERIMENT)
+                .create(),
+            System::currentTimeMillis);
+    ExecutionStateTracker tracker = sampler.create();
+    ExecutionState upstreamStartState =
+        tracker.create("startShortId", "upstream", "upstreamName", "start");
+    ExecutionState upstreamProcessState =
+        tracker.create("upstreamShortId", "upstream", "upstreamName", "process");
+    ExecutionState downstreamProcessState =
+        tracker.create("downstreamShortId", "downstream", "downstreamName", "process");
+
+    tracker.start("bundleId");
+    upstreamStartState.activate();
+    Thread.sleep(200);
+    upstreamStartState.deactivate();
+    upstreamProcessState.activate();
+    Thread.sleep(20);
+    downstreamProcessState.activate();
+    Thread.sleep(200);
+    downstreamProcessState.deactivate();
+    upstreamProcessState.deactivate();
+
+    // Latencies are only published at the end of the bundle.
+    assertNull(container.tryGetHistogram(latenciesName("upstream"), bucketType()));
+    tracker.reset();
+    sampler.stop();
+
+    HistogramData upstream =
+        container.getHistogram(latenciesName("upstream"), bucketType()).getCumulative();
+    HistogramData downstream =
+        container.getHistogram(latenciesName("downstream"), bucketType()).getCumulative();
+    assertEquals(1, upstream.getTotalCount());
+    assertEquals(1, downstream.getTotalCount());
+    // The upstream latency excludes the time spent in the start state and the downstream transform.
+    assertThat(upstream.p50(), lessThan((double) TimeUnit.MILLISECONDS.toNanos(200)));
+    assertThat(upstream.p50(), greaterThan((double) TimeUnit.MILLISECONDS.toNanos(10)));
+    assertThat(downstream.p50(), greaterThan((double) TimeUnit.MILLISECONDS.toNanos(150)));
+  }
+
+  @Test
+  public void testProcessElementLatenciesNotRecordedByDefault() throws Exception {
+    MetricsContainerImpl container = MetricsContainerImpl.createProcessWideContainer();
+    MetricsEnvironment.setProcessWideContainer(container);
+    ExecutionStateSampler sampler =
+        new ExecutionStateSampler(PipelineOptionsFactory.create(), System::currentTimeMillis);
+    ExecutionStateTracker tracker = sampler.create();
+    ExecutionState state = tracker.create("shortId", "ptransformId", "ptransformName", "process");
+
+    tracker.start("bundleId");
+    state.activate();
+    state.deactivate();
+    tracker.reset();
+    sampler.stop();
+
+    assertNull(container.tryGetHistogram(latenciesName("ptransformId"), bucketType()));
+  }
+
+  private static MonitoringInfoMetricName latenciesName(String ptransformId) {
+    return MonitoringInfoMetricName.named(
+        MonitoringInfoConstants.Urns.PROCESS_ELEMENT_LATENCIES,
+        Collections.singletonMap(MonitoringInfoConstants.Labels.PTRANSFORM, ptransformId));
+  }
+
+  private static HistogramData.BucketType bucketType() {
+    return ExecutionStateSampler.PROCESS_ELEMENT_LATENCIES_BUCKET_TYPE;
+  }
 }
@@ -20,15 +20,21 @@ package org.apache.beam.fn.harness.control;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi;
 import org.apache.beam.runners.core.metrics.LabeledMetrics;
 import org.apache.beam.runners.core.metrics.MetricsContainerImpl;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
+import org.apache.beam.runners.core.metrics.MonitoringInfoEncodings;
 import org.apache.beam.runners.core.metrics.MonitoringInfoMetricName;
 import org.apache.beam.runners.core.metrics.ShortIdMap;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.MetricsEnvironment;
+import org.apache.beam.sdk.util.HistogramData;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 import org.junit.Test;
 
 public class HarnessMonitoringInfosInstructionHandlerTest {
@@ -63,4 +69,36 @@ public class HarnessMonitoringInfosInstructionHandlerTest {
     assertTrue(
         !response.getHarnessMonitoringInfos().getMonitoringDataMap().get("metric0").isEmpty());
   }
+
+  @Test
+  public void testReturnsProcessWideHistograms() {
+    MetricsContainerImpl container = MetricsContainerImpl.createProcessWideContainer();
+    MetricsEnvironment.setProcessWideContainer(container);
+
+    MonitoringInfoMetricName name =
+        MonitoringInfoMetricName.named(
+            MonitoringInfoConstants.Urns.PROCESS_ELEMENT_LATENCIES,
+            Collections.singletonMap(MonitoringInfoConstants.Labels.PTRANSFORM, "transform"));
+    container.getHistogram(name, HistogramData.LogLinearBuckets.of(0, 10)).update(5);
+
+    ShortIdMap metricsShortIds = new ShortIdMap();
+    HarnessMonitoringInfosInstructionHandler testObject =
+        new HarnessMonitoringInfosInstructionHandler(metricsShortIds);
+
+    BeamFnApi.InstructionResponse response =
+        testObject
+            .harnessMonitoringInfos(BeamFnApi.InstructionRequest.getDefaultInstance())
+            .build();
+    Map<String, ByteString> monitoringData =
+        response.getHarnessMonitoringInfos().getMonitoringDataMap();
+    assertEquals(1, monitoringData.size());
+    String shortId = Iterables.getOnlyElement(monitoringData.keySet());
+    assertEquals(
+        MonitoringInfoConstants.TypeUrns.HISTOGRAM_INT64_TYPE,
+        metricsShortIds.get(shortId).getType());
+    HistogramData histogram =
+        MonitoringInfoEncodings.decodeInt64Histogram(monitoringData.get(shortId));
+    assertEquals(1, histogram.getTotalCount());
+    assertEquals(1, histogram.getCount(3));
+  }
 }
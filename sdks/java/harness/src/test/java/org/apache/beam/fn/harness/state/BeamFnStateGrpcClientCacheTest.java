@@ -19,9 +19,12 @@ package org.apache.beam.fn.harness.state;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.UUID;
@@ -31,6 +34,11 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateAppendRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateClearRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateGetRequest;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateKey;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
 import org.apache.beam.model.fnexecution.v1.BeamFnStateGrpc;
@@ -42,6 +50,7 @@ import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
 import org.apache.beam.sdk.fn.test.TestExecutors;
 import org.apache.beam.sdk.fn.test.TestExecutors.TestExecutorService;
 import org.apache.beam.sdk.fn.test.TestStreams;
+import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.Server;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.Status;
 import org.apache.beam.vendor.grpc.v1p54p0.io.grpc.StatusRuntimeException;
@@ -227,6 +236,148 @@ public class BeamFnStateGrpcClientCacheTest {
     }
   }
 
+  @Test
+  public void testAppendsToSameStateAreCoalesced() throws Exception {
+    BeamFnStateClient client =
+        new BeamFnStateGrpcClientCache(
+                IdGenerators.decrementingLongs(),
+                ManagedChannelFactory.createInProcess(),
+                OutboundObserverFactory.trivial(),
+                true,
+                // Only the get request releases the appends.
+                TimeUnit.MINUTES.toMicros(10))
+            .forApiServiceDescriptor(apiServiceDescriptor);
+
+    CompletableFuture<StateResponse> firstAppend = client.handle(append("A", "a"));
+    CompletableFuture<StateResponse> secondAppend = client.handle(append("A", "b"));
+    CompletableFuture<StateResponse> otherAppend = client.handle(append("B", "c"));
+    CompletableFuture<StateResponse> get =
+        client.handle(
+            StateRequest.newBuilder()
+                .setInstructionId(SUCCESS)
+                .setStateKey(append("A", "").getStateKey())
+                .setGet(StateGetRequest.getDefaultInstance()));
+
+    StreamObserver<StateResponse> outboundServerObserver = outboundServerObservers.take();
+    // The appends are sent before the get and the appends to the same state are combined.
+    StateRequest coalesced = values.take();
+    assertEquals(ByteString.copyFromUtf8("ab"), coalesced.getAppend().getData());
+    StateRequest other = values.take();
+    assertEquals(ByteString.copyFromUtf8("c"), other.getAppend().getData());
+    StateRequest getRequest = values.take();
+    assertTrue(getRequest.hasGet());
+
+    handleServerRequest(outboundServerObserver, coalesced);
+    handleServerRequest(outboundServerObserver, other);
+    handleServerRequest(outboundServerObserver, getRequest);
+    assertNotNull(firstAppend.get());
+    assertNotNull(secondAppend.get());
+    assertNotNull(otherAppend.get());
+    assertNotNull(get.get());
+  }
+
+  @Test
+  public void testClearDropsHeldBackAppendsToSameState() throws Exception {
+    BeamFnStateClient client =
+        new BeamFnStateGrpcClientCache(
+                IdGenerators.decrementingLongs(),
+                ManagedChannelFactory.createInProcess(),
+                OutboundObserverFactory.trivial(),
+                true,
+                // Only flushing releases the held back requests.
+                TimeUnit.MINUTES.toMicros(10))
+            .forApiServiceDescriptor(apiServiceDescriptor);
+
+    CompletableFuture<StateResponse> droppedAppend = client.handle(append("A", "a"));
+    CompletableFuture<StateResponse> otherAppend = client.handle(append("B", "b"));
+    CompletableFuture<StateResponse> clear = client.handle(clear("A"));
+    CompletableFuture<StateResponse> appendAfterClear = client.handle(append("A", "c"));
+    client.flush();
+
+    StreamObserver<StateResponse> outboundServerObserver = outboundServerObservers.take();
+    // The clear supersedes the first append and is sent ahead of the append following it.
+    StateRequest clearRequest = values.take();
+    assertTrue(clearRequest.hasClear());
+    assertEquals(
+        ByteString.copyFromUtf8("A"), clearRequest.getStateKey().getBagUserState().getKey());
+    StateRequest append = values.take();
+    assertEquals(ByteString.copyFromUtf8("c"), append.getAppend().getData());
+    StateRequest other = values.take();
+    assertEquals(ByteString.copyFromUtf8("b"), other.getAppend().getData());
+
+    handleServerRequest(outboundServerObserver, clearRequest);
+    assertNotNull(droppedAppend.get());
+    assertNotNull(clear.get());
+    assertFalse(appendAfterClear.isDone());
+    handleServerRequest(outboundServerObserver, append);
+    handleServerRequest(outboundServerObserver, other);
+    assertNotNull(appendAfterClear.get());
+    assertNotNull(otherAppend.get());
+  }
+
+  @Test
+  public void testCoalescedAppendsSentAfterWindow() throws Exception {
+    BeamFnStateClient client =
+        new BeamFnStateGrpcClientCache(
+                IdGenerators.decrementingLongs(),
+                ManagedChannelFactory.createInProcess(),
+                OutboundObserverFactory.trivial(),
+                true)
+            .forApiServiceDescriptor(apiServiceDescriptor);
+
+    CompletableFuture<StateResponse> firstAppend = client.handle(append("A", "a"));
+    CompletableFuture<StateResponse> secondAppend = client.handle(append("A", "b"));
+
+    StreamObserver<StateResponse> outboundServerObserver = outboundServerObservers.take();
+    StateRequest coalesced = values.take();
+    assertEquals(ByteString.copyFromUtf8("ab"), coalesced.getAppend().getData());
+    handleServerRequest(outboundServerObserver, coalesced);
+    assertNotNull(firstAppend.get());
+    assertNotNull(secondAppend.get());
+  }
+
+  @Test
+  public void testCloseSendsHeldBackAppends() throws Exception {
+    BeamFnStateGrpcClientCache clientCache =
+        new BeamFnStateGrpcClientCache(
+            IdGenerators.decrementingLongs(),
+            ManagedChannelFactory.createInProcess(),
+            OutboundObserverFactory.trivial(),
+            true,
+            // Only closing releases the append.
+            TimeUnit.MINUTES.toMicros(10));
+    BeamFnStateClient client = clientCache.forApiServiceDescriptor(apiServiceDescriptor);
+
+    CompletableFuture<StateResponse> append = client.handle(append("A", "a"));
+    clientCache.close();
+    StreamObserver<StateResponse> outboundServerObserver = outboundServerObservers.take();
+    StateRequest request = values.take();
+    assertEquals(ByteString.copyFromUtf8("a"), request.getAppend().getData());
+    handleServerRequest(outboundServerObserver, request);
+    assertNotNull(append.get());
+
+    // Appends are no longer held back once closed.
+    CompletableFuture<StateResponse> appendAfterClose = client.handle(append("A", "b"));
+    request = values.take();
+    assertEquals(ByteString.copyFromUtf8("b"), request.getAppend().getData());
+    handleServerRequest(outboundServerObserver, request);
+    assertNotNull(appendAfterClose.get());
+  }
+
+  private static StateRequest.Builder append(String key, String data) {
+    return StateRequest.newBuilder()
+        .setInstructionId(SUCCESS)
+        .setStateKey(
+            StateKey.newBuilder()
+                .setBagUserState(
+                    StateKey.BagUserState.newBuilder().setKey(ByteString.copyFromUtf8(key))))
+        .setAppend(StateAppendRequest.newBuilder().setData(ByteString.copyFromUtf8(data)));
+  }
+
+  private static StateRequest.Builder clear(String key) {
+    return append(key, "").setClear(StateClearRequest.getDefaultInstance());
+  }
+
   private void handleServerRequest(
       StreamObserver<StateResponse> outboundObserver, StateRequest value) {
     switch (value.getInstructionId()) {
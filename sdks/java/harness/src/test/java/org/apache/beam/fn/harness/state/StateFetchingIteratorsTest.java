@@ -33,6 +33,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.beam.fn.harness.Cache;
 import org.apache.beam.fn.harness.Caches;
@@ -48,6 +49,8 @@ import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateRequest;
 import org.apache.beam.model.fnexecution.v1.BeamFnApi.StateResponse;
 import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
 import org.apache.beam.sdk.fn.stream.PrefetchableIterator;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.options.SdkHarnessOptions;
 import org.apache.beam.vendor.grpc.v1p54p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.Ints;
@@ -462,6 +465,148 @@ public class StateFetchingIteratorsTest {
       assertEquals(ByteString.copyFromUtf8("value" + 44), byteStrings.next());
     }
 
+    @Test
+    public void testReadAheadWindowGrowsWhenConsumerBlocks() throws Exception {
+      ManualStateClient stateClient = new ManualStateClient(20);
+      LazyBlockingStateFetchingIterator byteStrings =
+          new LazyBlockingStateFetchingIterator(
+              stateClient, StateRequest.getDefaultInstance(), 4, Long.MAX_VALUE, Runnable::run);
+      // Every chunk is only completed once the consumer blocks on it.
+      for (int i = 0; i < 3; ++i) {
+        assertEquals(ByteString.copyFromUtf8("value" + i), byteStrings.next());
+      }
+      assertEquals(4, byteStrings.getReadAheadWindow());
+      assertEquals(4, stateClient.getRequestCount());
+
+      // Each received chunk requests the following one without the consumer until the window is
+      // full.
+      stateClient.completeAll();
+      assertEquals(4, byteStrings.getPendingChunkCount());
+      assertEquals(7, stateClient.getRequestCount());
+      // Only the first chunk is requested by the consumer, every following chunk was requested
+      // ahead of it when the preceding chunk arrived.
+      assertEquals(6, stateClient.getSpeculativeRequestCount());
+
+      for (int i = 3; i < 20; ++i) {
+        assertEquals(ByteString.copyFromUtf8("value" + i), byteStrings.next());
+      }
+      assertFalse(byteStrings.hasNext());
+      assertEquals(20, stateClient.getRequestCount());
+    }
+
+    @Test
+    public void testReadAheadBoundedByBytes() throws Exception {
+      ManualStateClient stateClient = new ManualStateClient(100);
+      // Each chunk holds 6 or 7 bytes so at most two received chunks may be buffered.
+      LazyBlockingStateFetchingIterator byteStrings =
+          new LazyBlockingStateFetchingIterator(
+              stateClient, StateRequest.getDefaultInstance(), 8, 10, Runnable::run);
+      for (int i = 0; i < 10; ++i) {
+        byteStrings.next();
+      }
+      assertEquals(8, byteStrings.getReadAheadWindow());
+      stateClient.completeAll();
+      assertEquals(2, byteStrings.getPendingChunkCount());
+      for (int i = 10; i < 100; ++i) {
+        assertEquals(ByteString.copyFromUtf8("value" + i), byteStrings.next());
+      }
+      assertFalse(byteStrings.hasNext());
+    }
+
+    @Test
+    public void testSeekDiscardsReadAheadAndShrinksWindow() throws Exception {
+      ManualStateClient stateClient = new ManualStateClient(100);
+      LazyBlockingStateFetchingIterator byteStrings =
+          new LazyBlockingStateFetchingIterator(
+              stateClient, StateRequest.getDefaultInstance(), 8, Long.MAX_VALUE, Runnable::run);
+      for (int i = 0; i < 10; ++i) {
+        byteStrings.next();
+      }
+      stateClient.completeAll();
+      assertEquals(8, byteStrings.getPendingChunkCount());
+
+      byteStrings.seekToContinuationToken(ByteString.copyFromUtf8("3"));
+      assertEquals(0, byteStrings.getPendingChunkCount());
+      assertEquals(4, byteStrings.getReadAheadWindow());
+      assertEquals(ByteString.copyFromUtf8("value3"), byteStrings.next());
+      assertEquals(ByteString.copyFromUtf8("value4"), byteStrings.next());
+    }
+
+    @Test
+    public void testReadAheadBytesBoundedByCacheWeight() throws Exception {
+      assertEquals(0, StateFetchingIterators.maxReadAheadBytes(Caches.noop()));
+      SdkHarnessOptions options = PipelineOptionsFactory.as(SdkHarnessOptions.class);
+      options.setMaxCacheMemoryUsageMb(64);
+      Cache<?, ?> cache = Caches.fromOptions(options);
+      assertEquals(1L << 20, StateFetchingIterators.maxReadAheadBytes(cache));
+      assertEquals(
+          1L << 20,
+          StateFetchingIterators.maxReadAheadBytes(Caches.subCache(cache, "sub", "cache")));
+    }
+
+    /**
+     * A client serving {@code numChunks} chunks named {@code value<i>} whose responses only arrive
+     * once they are {@link #completeAll completed} or the consumer blocks on them.
+     */
+    private static class ManualStateClient implements BeamFnStateClient {
+      private final int numChunks;
+      private final List<CompletableFuture<StateResponse>> responses = new ArrayList<>();
+      private int speculativeRequestCount;
+
+      ManualStateClient(int numChunks) {
+        this.numChunks = numChunks;
+      }
+
+      @Override
+      public CompletableFuture<StateResponse> handle(StateRequest.Builder requestBuilder) {
+        ByteString continuationToken = requestBuilder.getGet().getContinuationToken();
+        int position =
+            continuationToken.isEmpty() ? 0 : Integer.parseInt(continuationToken.toStringUtf8());
+        StateResponse response =
+            StateResponse.newBuilder()
+                .setGet(
+                    StateGetResponse.newBuilder()
+                        .setData(ByteString.copyFromUtf8("value" + position))
+                        .setContinuationToken(
+                            position + 1 == numChunks
+                                ? ByteString.EMPTY
+                                : ByteString.copyFromUtf8(Integer.toString(position + 1))))
+                .build();
+        CompletableFuture<StateResponse> future =
+            new CompletableFuture<StateResponse>() {
+              @Override
+              public StateResponse get() throws InterruptedException, ExecutionException {
+                complete(response);
+                return super.get();
+              }
+            };
+        responses.add(future);
+        return future;
+      }
+
+      @Override
+      public CompletableFuture<StateResponse> handleSpeculatively(
+          StateRequest.Builder requestBuilder) {
+        speculativeRequestCount += 1;
+        return handle(requestBuilder);
+      }
+
+      /** Completes all requests including those issued while completing them. */
+      void completeAll() throws Exception {
+        for (int i = 0; i < responses.size(); ++i) {
+          responses.get(i).get();
+        }
+      }
+
+      int getRequestCount() {
+        return responses.size();
+      }
+
+      int getSpeculativeRequestCount() {
+        return speculativeRequestCount;
+      }
+    }
+
     private void testFetch(ByteString... expected) {
       AtomicInteger callCount = new AtomicInteger();
       BeamFnStateClient fakeStateClient = fakeStateClient(callCount, expected);
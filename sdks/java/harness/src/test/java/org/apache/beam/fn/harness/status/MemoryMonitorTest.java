@@ -20,10 +20,13 @@ package org.apache.beam.fn.harness.status;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -94,6 +97,22 @@ public class MemoryMonitorTest {
     monitor.waitForResources("Test3");
   }
 
+  @Test(timeout = 1000)
+  public void notifiesMemoryPressureListeners() throws InterruptedException {
+    BlockingQueue<Boolean> notifications = new LinkedBlockingQueue<>();
+    monitor.addMemoryPressureListener(notifications::add);
+    monitor.waitForRunning();
+    provider.inGCThrashingState.set(true);
+    monitor.waitForThrashingState(true);
+    assertTrue(notifications.take());
+    provider.inGCThrashingState.set(false);
+    monitor.waitForThrashingState(false);
+    while (notifications.take()) {
+      // Drain the notifications made while the server was thrashing.
+    }
+    assertNull(notifications.poll(100, TimeUnit.MILLISECONDS));
+  }
+
   @Test
   public void heapDumpOnce() throws Exception {
     File folder = tempFolder.newFolder();